@@ -0,0 +1,163 @@
+package com.custommobsforge.custommobsforge.common.util.primitive;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение IntObjectMap / IntLongMap с HashMap на сценариях реестров по ID сущностей:
+ * поиск по ID, появление и удаление сущностей, периодическая чистка через removeIf.
+ * ID сущностей идут подряд от случайного начала, как в игре
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntCollectionsBenchmark {
+    private static final Object VALUE = new Object();
+
+    @Param({"64", "1024", "16384"})
+    private int size;
+
+    private int[] lookups;
+    private int nextId;
+    private int oldestId;
+
+    private IntObjectMap<Object> intObjectMap;
+    private Map<Integer, Object> hashMap;
+    private IntLongMap intLongMap;
+    private Map<Integer, Long> boxedLongMap;
+    // Пустые карты, которые заполняются и очищаются за один вызов
+    private IntObjectMap<Object> rebuildIntObjectMap;
+    private Map<Integer, Object> rebuildHashMap;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        int firstId = random.nextInt(100_000);
+
+        intObjectMap = new IntObjectMap<>();
+        hashMap = new HashMap<>();
+        intLongMap = new IntLongMap();
+        boxedLongMap = new HashMap<>();
+        rebuildIntObjectMap = new IntObjectMap<>();
+        rebuildHashMap = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            int id = firstId + i;
+            intObjectMap.put(id, VALUE);
+            hashMap.put(id, VALUE);
+            intLongMap.put(id, i);
+            boxedLongMap.put(id, (long) i);
+        }
+        oldestId = firstId;
+        nextId = firstId + size;
+
+        // Поиски: 3/4 попаданий, 1/4 промахов
+        lookups = new int[1024];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = i % 4 == 3 ? nextId + random.nextInt(size) : firstId + random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    public void getIntObjectMap(Blackhole blackhole) {
+        for (int key : lookups) {
+            blackhole.consume(intObjectMap.get(key));
+        }
+    }
+
+    @Benchmark
+    public void getHashMap(Blackhole blackhole) {
+        for (int key : lookups) {
+            blackhole.consume(hashMap.get(key));
+        }
+    }
+
+    /**
+     * Появление новой сущности и удаление самой старой: размер постоянный, ключи сдвигаются
+     */
+    @Benchmark
+    public Object churnIntObjectMap() {
+        intObjectMap.put(nextId, VALUE);
+        Object removed = intObjectMap.remove(oldestId);
+        nextId++;
+        oldestId++;
+        return removed;
+    }
+
+    @Benchmark
+    public Object churnHashMap() {
+        hashMap.put(nextId, VALUE);
+        Object removed = hashMap.remove(oldestId);
+        nextId++;
+        oldestId++;
+        return removed;
+    }
+
+    /**
+     * Чистка половины записей по значению и их возврат (как истечение эффектов в AnimationHandler)
+     */
+    @Benchmark
+    public int sweepIntLongMap() {
+        int removed = intLongMap.removeIf((key, value) -> (value & 1) == 0);
+        for (int i = 0; i < size; i += 2) {
+            intLongMap.put(oldestId + i, i);
+        }
+        return removed;
+    }
+
+    /**
+     * Сборка за тик: запись по ID каждой обновлённой сущности, обход и очистка
+     * (как очередь обновлений сущностей и сетка пространственного индекса)
+     */
+    @Benchmark
+    public void rebuildIntObjectMap(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            int id = oldestId + i;
+            if (rebuildIntObjectMap.get(id) == null) {
+                rebuildIntObjectMap.put(id, VALUE);
+            }
+        }
+        rebuildIntObjectMap.forEach((id, value) -> blackhole.consume(id));
+        rebuildIntObjectMap.clear();
+    }
+
+    @Benchmark
+    public void rebuildHashMap(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            int id = oldestId + i;
+            if (rebuildHashMap.get(id) == null) {
+                rebuildHashMap.put(id, VALUE);
+            }
+        }
+        rebuildHashMap.forEach((id, value) -> blackhole.consume(id));
+        rebuildHashMap.clear();
+    }
+
+    @Benchmark
+    public int sweepHashMap() {
+        int before = boxedLongMap.size();
+        boxedLongMap.values().removeIf(value -> (value & 1) == 0);
+        int removed = before - boxedLongMap.size();
+        for (int i = 0; i < size; i += 2) {
+            boxedLongMap.put(oldestId + i, (long) i);
+        }
+        return removed;
+    }
+}
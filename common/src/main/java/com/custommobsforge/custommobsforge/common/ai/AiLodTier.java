@@ -0,0 +1,47 @@
+package com.custommobsforge.custommobsforge.common.ai;
+
+/**
+ * Уровень детализации ИИ моба в зависимости от расстояния до ближайшего игрока.
+ * Порядок - от полного к замороженному: чем больше ordinal, тем меньше работы.
+ */
+public enum AiLodTier {
+    /** Всё выполняется с полной частотой */
+    FULL(true, true, true, true),
+    /** Дерево, автомат состояний и анимации обновляются с увеличенным интервалом */
+    REDUCED(true, true, true, true),
+    /** Только ванильное движение и анимации, дерево и автомат состояний на паузе */
+    MOVEMENT_ONLY(false, false, true, true),
+    /** Ничего не обновляется, состояние дерева сохраняется до возвращения игрока */
+    FROZEN(false, false, false, false);
+
+    private final boolean behaviorTree;
+    private final boolean stateMachine;
+    private final boolean animations;
+    private final boolean vanillaAi;
+
+    AiLodTier(boolean behaviorTree, boolean stateMachine, boolean animations, boolean vanillaAi) {
+        this.behaviorTree = behaviorTree;
+        this.stateMachine = stateMachine;
+        this.animations = animations;
+        this.vanillaAi = vanillaAi;
+    }
+
+    public boolean runsBehaviorTree() {
+        return behaviorTree;
+    }
+
+    public boolean runsStateMachine() {
+        return stateMachine;
+    }
+
+    public boolean runsAnimations() {
+        return animations;
+    }
+
+    /**
+     * Выполняются ли ванильные цели, навигация и управление движением
+     */
+    public boolean runsVanillaAi() {
+        return vanillaAi;
+    }
+}
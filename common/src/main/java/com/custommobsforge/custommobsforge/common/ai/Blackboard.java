@@ -1,96 +1,245 @@
 // com.custommobsforge.custommobsforge.common.ai.Blackboard
 package com.custommobsforge.custommobsforge.common.ai;
 
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
 
 /**
- * Глобальное хранилище данных для узлов дерева поведения
+ * Хранилище данных для узлов дерева поведения одной сущности.
+ * Значения лежат в массивах слотов: строка на каждый узел дерева плюс строка
+ * уровня сущности ({@link #ENTITY_SCOPE}), столбец - номер слота {@link BlackboardKey}.
+ * Каждое значение помечено поколением; сброс лишь увеличивает текущее поколение,
+ * и все старые значения становятся невидимыми без обхода хранилища.
+ * Используется только из серверного потока.
  */
 public class Blackboard {
-    private final Map<String, Object> data = new ConcurrentHashMap<>();
-    private String executionId = UUID.randomUUID().toString();
+    /** Индекс "узла" для значений уровня сущности */
+    public static final int ENTITY_SCOPE = -1;
+
+    private static final Object[] NO_REFERENCES = new Object[0];
+    private static final long[] NO_PRIMITIVES = new long[0];
+    private static final int[] NO_GENERATIONS = new int[0];
+
+    private final int rows;
+
+    private final Object[][] references;
+    private final int[][] referenceGenerations;
+    private final long[][] primitives;
+    private final int[][] primitiveGenerations;
+
+    private final NodeStatus[] statuses;
+    private final int[] statusGenerations;
+
+    private int generation = 1;
+
+    /**
+     * @param nodeCount Количество узлов в скомпилированном дереве
+     */
+    public Blackboard(int nodeCount) {
+        this.rows = nodeCount + 1;
+        this.references = new Object[rows][];
+        this.referenceGenerations = new int[rows][];
+        this.primitives = new long[rows][];
+        this.primitiveGenerations = new int[rows][];
+        this.statuses = new NodeStatus[nodeCount];
+        this.statusGenerations = new int[nodeCount];
+
+        Arrays.fill(references, NO_REFERENCES);
+        Arrays.fill(referenceGenerations, NO_GENERATIONS);
+        Arrays.fill(primitives, NO_PRIMITIVES);
+        Arrays.fill(primitiveGenerations, NO_GENERATIONS);
+    }
 
     /**
      * Устанавливает статус узла
-     * @param nodeId ID узла
+     * @param node Индекс узла
      * @param status Статус узла
      */
-    public void setNodeStatus(String nodeId, NodeStatus status) {
-        data.put(executionId + ":" + nodeId + ":status", status);
+    public void setNodeStatus(int node, NodeStatus status) {
+        statuses[node] = status;
+        statusGenerations[node] = generation;
     }
 
     /**
      * Получает статус узла
-     * @param nodeId ID узла
+     * @param node Индекс узла
      * @return Статус узла
      */
-    public NodeStatus getNodeStatus(String nodeId) {
-        return (NodeStatus) data.getOrDefault(
-                executionId + ":" + nodeId + ":status", NodeStatus.READY);
+    public NodeStatus getNodeStatus(int node) {
+        return statusGenerations[node] == generation ? statuses[node] : NodeStatus.READY;
     }
 
     /**
-     * Устанавливает значение
-     * @param key Ключ
-     * @param value Значение
+     * Сбрасывает статус узла в READY
      */
-    public void setValue(String key, Object value) {
-        data.put(executionId + ":" + key, value);
+    public void clearNodeStatus(int node) {
+        statusGenerations[node] = 0;
+    }
+
+    // ===== Ссылочные значения =====
+
+    public <T> T get(BlackboardKey<T> key) {
+        return get(key, ENTITY_SCOPE);
     }
 
     /**
-     * Получает значение
+     * Получает значение узла
      * @param key Ключ
-     * @return Значение
+     * @param node Индекс узла или {@link #ENTITY_SCOPE}
+     * @return Значение или null
      */
-    public Object getValue(String key) {
-        return data.get(executionId + ":" + key);
+    public <T> T get(BlackboardKey<T> key, int node) {
+        checkKind(key, BlackboardKey.Kind.REFERENCE);
+        int row = node + 1;
+        int slot = key.slot();
+        int[] gens = referenceGenerations[row];
+        if (slot >= gens.length || gens[slot] != generation) {
+            return null;
+        }
+        return key.getType().cast(references[row][slot]);
+    }
+
+    public <T> void set(BlackboardKey<T> key, T value) {
+        set(key, ENTITY_SCOPE, value);
     }
 
     /**
-     * Получает значение с указанием типа и значения по умолчанию
+     * Устанавливает значение узла
      * @param key Ключ
-     * @param defaultValue Значение по умолчанию
-     * @param <T> Тип значения
-     * @return Значение
+     * @param node Индекс узла или {@link #ENTITY_SCOPE}
+     * @param value Значение
+     */
+    public <T> void set(BlackboardKey<T> key, int node, T value) {
+        checkKind(key, BlackboardKey.Kind.REFERENCE);
+        int row = node + 1;
+        int slot = key.slot();
+        if (slot >= referenceGenerations[row].length) {
+            int size = growSize(slot);
+            references[row] = Arrays.copyOf(references[row], size);
+            referenceGenerations[row] = Arrays.copyOf(referenceGenerations[row], size);
+        }
+        references[row][slot] = value;
+        referenceGenerations[row][slot] = generation;
+    }
+
+    // ===== Примитивные значения =====
+
+    public long getLong(BlackboardKey<Long> key, int node, long defaultValue) {
+        checkKind(key, BlackboardKey.Kind.LONG);
+        int row = node + 1;
+        int slot = key.slot();
+        return isPrimitiveSet(row, slot) ? primitives[row][slot] : defaultValue;
+    }
+
+    public void setLong(BlackboardKey<Long> key, int node, long value) {
+        checkKind(key, BlackboardKey.Kind.LONG);
+        putPrimitive(node + 1, key.slot(), value);
+    }
+
+    public double getDouble(BlackboardKey<Double> key, int node, double defaultValue) {
+        checkKind(key, BlackboardKey.Kind.DOUBLE);
+        int row = node + 1;
+        int slot = key.slot();
+        return isPrimitiveSet(row, slot) ? Double.longBitsToDouble(primitives[row][slot]) : defaultValue;
+    }
+
+    public void setDouble(BlackboardKey<Double> key, int node, double value) {
+        checkKind(key, BlackboardKey.Kind.DOUBLE);
+        putPrimitive(node + 1, key.slot(), Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Получает флаг узла (по умолчанию false)
+     */
+    public boolean getBoolean(BlackboardKey<Boolean> key, int node) {
+        checkKind(key, BlackboardKey.Kind.BOOLEAN);
+        int row = node + 1;
+        int slot = key.slot();
+        return isPrimitiveSet(row, slot) && primitives[row][slot] != 0L;
+    }
+
+    public void setBoolean(BlackboardKey<Boolean> key, int node, boolean value) {
+        checkKind(key, BlackboardKey.Kind.BOOLEAN);
+        putPrimitive(node + 1, key.slot(), value ? 1L : 0L);
+    }
+
+    // ===== Общие операции =====
+
+    /**
+     * Проверяет, установлено ли значение в текущем поколении
      */
-    @SuppressWarnings("unchecked")
-    public <T> T getValue(String key, T defaultValue) {
-        Object value = data.get(executionId + ":" + key);
-        if (value != null && defaultValue != null && value.getClass().isAssignableFrom(defaultValue.getClass())) {
-            return (T) value;
+    public boolean has(BlackboardKey<?> key, int node) {
+        int row = node + 1;
+        int slot = key.slot();
+        if (key.getKind() == BlackboardKey.Kind.REFERENCE) {
+            int[] gens = referenceGenerations[row];
+            return slot < gens.length && gens[slot] == generation;
         }
-        return defaultValue;
+        return isPrimitiveSet(row, slot);
     }
 
     /**
-     * Удаляет значение
-     * @param key Ключ
+     * Удаляет значение узла
      */
-    public void removeValue(String key) {
-        data.remove(executionId + ":" + key);
+    public void remove(BlackboardKey<?> key, int node) {
+        int row = node + 1;
+        int slot = key.slot();
+        if (key.getKind() == BlackboardKey.Kind.REFERENCE) {
+            if (slot < referenceGenerations[row].length) {
+                referenceGenerations[row][slot] = 0;
+                references[row][slot] = null;
+            }
+        } else if (slot < primitiveGenerations[row].length) {
+            primitiveGenerations[row][slot] = 0;
+        }
     }
 
     /**
-     * Очищает все данные текущего выполнения
+     * Сбрасывает все значения и статусы узлов за O(1)
      */
-    public void clear() {
-        // Удаляем только данные для текущего executionId
-        data.entrySet().removeIf(entry -> entry.getKey().startsWith(executionId + ":"));
+    public void reset() {
+        generation++;
+        if (generation == 0) {
+            // Счётчик переполнился - старые поколения могли бы снова стать видимыми
+            for (int row = 0; row < rows; row++) {
+                Arrays.fill(referenceGenerations[row], 0);
+                Arrays.fill(references[row], null);
+                Arrays.fill(primitiveGenerations[row], 0);
+            }
+            Arrays.fill(statusGenerations, 0);
+            generation = 1;
+        }
     }
 
     /**
-     * Генерирует новый ID выполнения
-     * @return ID выполнения
+     * Текущее поколение значений
      */
-    public String generateNewExecutionId() {
-        String newExecutionId = UUID.randomUUID().toString();
-        // Удаляем данные для старого ID
-        data.entrySet().removeIf(entry -> entry.getKey().startsWith(executionId + ":"));
-        // Устанавливаем новый ID
-        executionId = newExecutionId;
-        return executionId;
-    }
-}
\ No newline at end of file
+    public int getGeneration() {
+        return generation;
+    }
+
+    private boolean isPrimitiveSet(int row, int slot) {
+        int[] gens = primitiveGenerations[row];
+        return slot < gens.length && gens[slot] == generation;
+    }
+
+    private void putPrimitive(int row, int slot, long value) {
+        if (slot >= primitiveGenerations[row].length) {
+            int size = growSize(slot);
+            primitives[row] = Arrays.copyOf(primitives[row], size);
+            primitiveGenerations[row] = Arrays.copyOf(primitiveGenerations[row], size);
+        }
+        primitives[row][slot] = value;
+        primitiveGenerations[row][slot] = generation;
+    }
+
+    private static int growSize(int slot) {
+        return Math.max(slot + 1, 8);
+    }
+
+    private static void checkKind(BlackboardKey<?> key, BlackboardKey.Kind expected) {
+        if (key.getKind() != expected) {
+            throw new IllegalArgumentException("Blackboard key " + key.getName() + " is " + key.getKind()
+                    + ", expected " + expected);
+        }
+    }
+}
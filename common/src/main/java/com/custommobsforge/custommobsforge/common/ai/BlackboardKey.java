@@ -0,0 +1,91 @@
+package com.custommobsforge.custommobsforge.common.ai;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Типизированный ключ Blackboard.
+ * Ключи объявляются заранее (как статические поля исполнителей) и получают
+ * фиксированный номер слота, поэтому доступ к значению не требует сборки строк.
+ * Примитивные ключи хранят значение в массиве long без упаковки.
+ * @param <T> Тип значения
+ */
+public final class BlackboardKey<T> {
+    /**
+     * Способ хранения значения
+     */
+    public enum Kind {
+        REFERENCE,
+        LONG,
+        DOUBLE,
+        BOOLEAN
+    }
+
+    private static final AtomicInteger REFERENCE_SLOTS = new AtomicInteger();
+    private static final AtomicInteger PRIMITIVE_SLOTS = new AtomicInteger();
+
+    private final String name;
+    private final Class<T> type;
+    private final Kind kind;
+    private final int slot;
+
+    private BlackboardKey(String name, Class<T> type, Kind kind) {
+        this.name = name;
+        this.type = type;
+        this.kind = kind;
+        this.slot = kind == Kind.REFERENCE
+                ? REFERENCE_SLOTS.getAndIncrement()
+                : PRIMITIVE_SLOTS.getAndIncrement();
+    }
+
+    /**
+     * Ключ для ссылочного значения
+     */
+    public static <T> BlackboardKey<T> of(String name, Class<T> type) {
+        return new BlackboardKey<>(name, type, Kind.REFERENCE);
+    }
+
+    /**
+     * Ключ для значения long (время, счётчики, индексы)
+     */
+    public static BlackboardKey<Long> ofLong(String name) {
+        return new BlackboardKey<>(name, Long.class, Kind.LONG);
+    }
+
+    /**
+     * Ключ для значения double
+     */
+    public static BlackboardKey<Double> ofDouble(String name) {
+        return new BlackboardKey<>(name, Double.class, Kind.DOUBLE);
+    }
+
+    /**
+     * Ключ для флага
+     */
+    public static BlackboardKey<Boolean> ofBoolean(String name) {
+        return new BlackboardKey<>(name, Boolean.class, Kind.BOOLEAN);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Номер слота (отдельная нумерация для ссылочных и примитивных ключей)
+     */
+    int slot() {
+        return slot;
+    }
+
+    @Override
+    public String toString() {
+        return "BlackboardKey[" + name + ", " + kind + "]";
+    }
+}
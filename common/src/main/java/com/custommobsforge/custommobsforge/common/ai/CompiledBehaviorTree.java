@@ -0,0 +1,237 @@
+package com.custommobsforge.custommobsforge.common.ai;
+
+import com.custommobsforge.custommobsforge.common.data.BehaviorConnection;
+import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
+import com.custommobsforge.custommobsforge.common.data.BehaviorTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Скомпилированное представление дерева поведения для исполнения.
+ * Строится один раз из {@link BehaviorTree}: узлы адресуются индексами,
+ * дочерние узлы хранятся массивами в порядке соединений, корень и коды типов
+ * вычисляются заранее. Параметры узлов разбираются один раз через {@link NodeParamBinder}.
+ * После компиляции объект не изменяется.
+ */
+public final class CompiledBehaviorTree {
+    /** Индекс отсутствующего узла */
+    public static final int NO_NODE = -1;
+
+    private static final int[] NO_CHILDREN = new int[0];
+
+    private final String treeId;
+    private final BehaviorNode[] nodes;
+    private final int[] typeCodes;
+    private final int[][] children;
+    private final int[] parents;
+    private final List<BehaviorNode>[] childNodeLists;
+    private final Map<String, Integer> indexById;
+    private final int root;
+    private final Object[] params;
+
+    @SuppressWarnings("unchecked")
+    private CompiledBehaviorTree(String treeId, List<BehaviorNode> nodeList, List<BehaviorConnection> connections,
+                                 NodeParamBinder binder, List<String> problems) {
+        this.treeId = treeId;
+
+        int size = nodeList.size();
+        this.nodes = nodeList.toArray(new BehaviorNode[0]);
+        this.typeCodes = new int[size];
+        this.parents = new int[size];
+        this.indexById = new HashMap<>(size * 2);
+
+        for (int i = 0; i < size; i++) {
+            BehaviorNode node = nodes[i];
+            typeCodes[i] = NodeTypes.codeOf(node.getType());
+            parents[i] = NO_NODE;
+            // Первый узел с данным ID выигрывает, как и в BehaviorTree.getNode
+            indexById.putIfAbsent(node.getId(), i);
+        }
+
+        // Собираем рёбра в порядке соединений
+        int[] childCounts = new int[size];
+        List<int[]> edges = new ArrayList<>();
+        boolean[] hasIncoming = new boolean[size];
+        if (connections != null) {
+            for (BehaviorConnection conn : connections) {
+                Integer source = indexById.get(conn.getSourceNodeId());
+                Integer target = indexById.get(conn.getTargetNodeId());
+                if (target != null) {
+                    hasIncoming[target] = true;
+                }
+                if (source == null || target == null) {
+                    continue;
+                }
+                edges.add(new int[]{source, target});
+                childCounts[source]++;
+            }
+        }
+
+        this.children = new int[size][];
+        for (int i = 0; i < size; i++) {
+            children[i] = childCounts[i] == 0 ? NO_CHILDREN : new int[childCounts[i]];
+        }
+
+        int[] fill = new int[size];
+        for (int[] edge : edges) {
+            children[edge[0]][fill[edge[0]]++] = edge[1];
+            if (parents[edge[1]] == NO_NODE) {
+                parents[edge[1]] = edge[0];
+            }
+        }
+
+        this.childNodeLists = new List[size];
+        for (int i = 0; i < size; i++) {
+            int[] childIndices = children[i];
+            if (childIndices.length == 0) {
+                childNodeLists[i] = Collections.emptyList();
+            } else {
+                BehaviorNode[] childNodes = new BehaviorNode[childIndices.length];
+                for (int c = 0; c < childIndices.length; c++) {
+                    childNodes[c] = nodes[childIndices[c]];
+                }
+                childNodeLists[i] = Collections.unmodifiableList(Arrays.asList(childNodes));
+            }
+        }
+
+        // Корень - первый узел без входящих соединений, иначе первый узел
+        int rootIndex = size > 0 ? 0 : NO_NODE;
+        for (int i = 0; i < size; i++) {
+            if (!hasIncoming[i]) {
+                rootIndex = i;
+                break;
+            }
+        }
+        this.root = rootIndex;
+
+        // Параметры разбираются последними - привязке доступна вся структура дерева
+        this.params = new Object[size];
+        if (binder != null) {
+            for (int i = 0; i < size; i++) {
+                params[i] = binder.bind(this, i, problems);
+            }
+        }
+    }
+
+    /**
+     * Компилирует дерево поведения
+     * @param tree Исходное дерево
+     * @return Скомпилированное дерево или null, если дерево отсутствует
+     */
+    public static CompiledBehaviorTree compile(BehaviorTree tree) {
+        return compile(tree, null, new ArrayList<>());
+    }
+
+    /**
+     * Компилирует дерево поведения с привязкой параметров узлов
+     * @param tree Исходное дерево
+     * @param binder Привязка параметров (null - параметры не разбираются)
+     * @param problems Список, куда добавляются сообщения о некорректных параметрах
+     * @return Скомпилированное дерево или null, если дерево отсутствует
+     */
+    public static CompiledBehaviorTree compile(BehaviorTree tree, NodeParamBinder binder, List<String> problems) {
+        if (tree == null) {
+            return null;
+        }
+
+        List<BehaviorNode> nodeList = new ArrayList<>();
+        if (tree.getNodes() != null) {
+            for (BehaviorNode node : tree.getNodes()) {
+                if (node != null && node.getId() != null) {
+                    nodeList.add(node);
+                }
+            }
+        }
+
+        return new CompiledBehaviorTree(tree.getId(), nodeList, tree.getConnections(), binder, problems);
+    }
+
+    public String getTreeId() {
+        return treeId;
+    }
+
+    /**
+     * Количество узлов в дереве
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    public boolean isEmpty() {
+        return nodes.length == 0;
+    }
+
+    /**
+     * Индекс корневого узла или {@link #NO_NODE} для пустого дерева
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    public BehaviorNode getNode(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * Код типа узла из {@link NodeTypes}
+     */
+    public int getTypeCode(int index) {
+        return typeCodes[index];
+    }
+
+    /**
+     * Индексы дочерних узлов в порядке соединений.
+     * Возвращается внутренний массив - изменять его нельзя.
+     */
+    public int[] getChildren(int index) {
+        return children[index];
+    }
+
+    public int getChildCount(int index) {
+        return children[index].length;
+    }
+
+    /**
+     * Разобранные параметры узла или null, если у узла их нет
+     */
+    public Object getParams(int index) {
+        return params[index];
+    }
+
+    /**
+     * Дочерние узлы в порядке соединений (неизменяемый список)
+     */
+    public List<BehaviorNode> getChildNodes(int index) {
+        return childNodeLists[index];
+    }
+
+    /**
+     * Индекс первого родителя узла или {@link #NO_NODE}
+     */
+    public int getParent(int index) {
+        return parents[index];
+    }
+
+    /**
+     * Индекс узла по его строковому ID или {@link #NO_NODE}
+     */
+    public int indexOf(String nodeId) {
+        if (nodeId == null) {
+            return NO_NODE;
+        }
+        Integer index = indexById.get(nodeId);
+        return index != null ? index : NO_NODE;
+    }
+
+    /**
+     * Индекс узла или {@link #NO_NODE}
+     */
+    public int indexOf(BehaviorNode node) {
+        return node != null ? indexOf(node.getId()) : NO_NODE;
+    }
+}
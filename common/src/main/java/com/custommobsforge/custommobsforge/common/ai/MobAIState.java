@@ -0,0 +1,79 @@
+package com.custommobsforge.custommobsforge.common.ai;
+
+/**
+ * Состояние ИИ одного моба, хранящееся в самой сущности.
+ * Сервер прикрепляет сюда контроллер дерева поведения (запись планировщика), поэтому поиск исполнителя
+ * моба не требует карт по ID сущности, а повторно выданный ID не может достаться чужому состоянию.
+ * Освобождается вместе с мобом при выходе из мира.
+ */
+public final class MobAIState {
+    /**
+     * Серверный контроллер ИИ моба
+     */
+    public interface Controller {
+        /**
+         * Останавливает ИИ и снимает его с планировщика
+         */
+        void release();
+
+        /**
+         * Уровень детализации моба сменился
+         */
+        void onLodTierChanged(AiLodTier previous, AiLodTier current);
+    }
+
+    private Controller controller;
+
+    // Уровень детализации ИИ (вычисляется только на сервере, на клиенте всегда FULL)
+    private AiLodTier lodTier = AiLodTier.FULL;
+
+    public Controller getController() {
+        return controller;
+    }
+
+    /**
+     * Прикрепляет контроллер; предыдущий контроллер должен быть освобождён заранее
+     */
+    public void attach(Controller controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Открепляет контроллер без его остановки, если прикреплён именно он
+     */
+    public void detach(Controller controller) {
+        if (this.controller == controller) {
+            this.controller = null;
+        }
+    }
+
+    public AiLodTier getLodTier() {
+        return lodTier;
+    }
+
+    /**
+     * Меняет уровень детализации и сообщает об этом контроллеру
+     */
+    public void setLodTier(AiLodTier lodTier) {
+        AiLodTier previous = this.lodTier;
+        if (previous == lodTier) {
+            return;
+        }
+        this.lodTier = lodTier;
+        if (controller != null) {
+            controller.onLodTierChanged(previous, lodTier);
+        }
+    }
+
+    /**
+     * Освобождает контроллер и сбрасывает состояние; повторный вызов ничего не делает
+     */
+    public void release() {
+        Controller released = controller;
+        controller = null;
+        lodTier = AiLodTier.FULL;
+        if (released != null) {
+            released.release();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.custommobsforge.custommobsforge.common.ai;
+
+import java.util.List;
+
+/**
+ * Привязка параметров узлов при компиляции дерева.
+ * Реализация (на сервере) разбирает строковые параметры узла один раз
+ * и возвращает неизменяемый типизированный объект параметров.
+ */
+@FunctionalInterface
+public interface NodeParamBinder {
+    /**
+     * Разбирает параметры узла
+     * @param tree Дерево с готовой структурой (параметры ещё не заполнены)
+     * @param index Индекс узла
+     * @param problems Список для сообщений о некорректных значениях
+     * @return Объект параметров или null, если у типа узла нет параметров
+     */
+    Object bind(CompiledBehaviorTree tree, int index, List<String> problems);
+}
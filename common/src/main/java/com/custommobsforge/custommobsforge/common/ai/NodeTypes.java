@@ -0,0 +1,92 @@
+package com.custommobsforge.custommobsforge.common.ai;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Целочисленные коды типов узлов дерева поведения.
+ * Имя типа приводится к нижнему регистру один раз при компиляции дерева,
+ * дальше узлы различаются только по коду.
+ */
+public final class NodeTypes {
+    /** Код для неизвестного типа узла */
+    public static final int UNKNOWN = -1;
+
+    private static final Map<String, Integer> CODES = new HashMap<>();
+    private static final List<String> NAMES = new ArrayList<>();
+
+    // Базовые узлы
+    public static final int SEQUENCE = register("sequencenode");
+    public static final int SELECTOR = register("selectornode");
+    public static final int PARALLEL = register("parallelnode");
+    public static final int WEIGHTED_SELECTOR = register("weightedselectornode");
+
+    // Узлы действий
+    public static final int ATTACK = register("attacknode");
+    public static final int PLAY_ANIMATION = register("playanimationnode");
+    public static final int TIMER = register("timernode");
+    public static final int FOLLOW = register("follownode");
+    public static final int FLEE = register("fleenode");
+
+    // Узлы событий
+    public static final int ON_SPAWN = register("onspawnnode");
+    public static final int ON_DEATH = register("ondeathnode");
+    public static final int ON_DAMAGE = register("ondamagenode");
+
+    // Узлы эффектов
+    public static final int SPAWN_PARTICLE = register("spawnparticlenode");
+    public static final int DISPLAY_TITLE = register("displaytitlenode");
+    public static final int PLAY_SOUND = register("playsoundnode");
+
+    private NodeTypes() {
+    }
+
+    /**
+     * Регистрирует тип узла и возвращает его код.
+     * Повторная регистрация того же имени возвращает уже выданный код.
+     */
+    public static synchronized int register(String typeName) {
+        String key = normalize(typeName);
+        Integer code = CODES.get(key);
+        if (code != null) {
+            return code;
+        }
+
+        int newCode = NAMES.size();
+        NAMES.add(key);
+        CODES.put(key, newCode);
+        return newCode;
+    }
+
+    /**
+     * Возвращает код типа узла или {@link #UNKNOWN}, если тип не зарегистрирован
+     */
+    public static synchronized int codeOf(String typeName) {
+        if (typeName == null) {
+            return UNKNOWN;
+        }
+        Integer code = CODES.get(normalize(typeName));
+        return code != null ? code : UNKNOWN;
+    }
+
+    /**
+     * Возвращает нормализованное имя типа по коду
+     */
+    public static synchronized String nameOf(int code) {
+        return code >= 0 && code < NAMES.size() ? NAMES.get(code) : "unknown";
+    }
+
+    /**
+     * Количество зарегистрированных типов (коды лежат в диапазоне [0, count))
+     */
+    public static synchronized int count() {
+        return NAMES.size();
+    }
+
+    private static String normalize(String typeName) {
+        return typeName.toLowerCase(Locale.ROOT);
+    }
+}
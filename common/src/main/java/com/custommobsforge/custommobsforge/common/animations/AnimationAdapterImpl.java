@@ -4,9 +4,6 @@ import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 import com.custommobsforge.custommobsforge.common.event.system.AnimationCompletedEvent;
 import com.custommobsforge.custommobsforge.common.event.system.AnimationStartedEvent;
 import com.custommobsforge.custommobsforge.common.event.system.EventSystem;
-import com.custommobsforge.custommobsforge.common.network.NetworkManager;
-import com.custommobsforge.custommobsforge.common.network.packet.AnimationSyncPacket;
-import net.minecraftforge.network.PacketDistributor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -47,6 +44,11 @@ public class AnimationAdapterImpl implements AnimationAdapter {
 
     @Override
     public void update() {
+        // Вдали от игроков анимации не обновляются или обновляются реже
+        if (!entity.getAiLodTier().runsAnimations() || !entity.isAiLodTick()) {
+            return;
+        }
+
         // Проверяем завершение текущей анимации
         if (currentAnimation != null && !currentAnimation.isLoop()) {
             long startTime = animationStartTimes.getOrDefault(currentAnimation.getName(), 0L);
@@ -82,12 +84,9 @@ public class AnimationAdapterImpl implements AnimationAdapter {
         entity.currentAnimation = request.getName();
         entity.looping = request.isLoop();
 
-        // Отправка сетевого пакета
+        // Отправка сетевого пакета (только если состояние анимации изменилось)
         if (!entity.level().isClientSide) {
-            NetworkManager.INSTANCE.send(
-                    PacketDistributor.TRACKING_ENTITY.with(() -> entity),
-                    new AnimationSyncPacket(entity.getId(), request.getName(), request.getSpeed(), request.isLoop())
-            );
+            entity.syncAnimation(request.getName(), request.isLoop(), request.getSpeed());
         }
 
         // Генерация события
@@ -109,7 +108,7 @@ public class AnimationAdapterImpl implements AnimationAdapter {
      * @param animationName Имя анимации
      */
     private void fireAnimationStartEvent(String animationName) {
-        EventSystem.fireEvent(new AnimationStartedEvent(animationName, entity));
+        EventSystem.post(AnimationStartedEvent.obtain(animationName, entity));
     }
 
     /**
@@ -119,7 +118,7 @@ public class AnimationAdapterImpl implements AnimationAdapter {
     private void fireAnimationEndEvent(String animationName) {
         // Очень важно: проверяем, не IDLE ли это анимация, чтобы избежать рекурсии
         if (!animationName.equalsIgnoreCase("IDLE")) {
-            EventSystem.fireEvent(new AnimationCompletedEvent(animationName, entity));
+            EventSystem.post(AnimationCompletedEvent.obtain(animationName, entity));
         } else {
             // Для IDLE не генерируем события, чтобы избежать рекурсии
             LOGGER.debug("AnimationAdapterImpl: Skipping event generation for IDLE animation to avoid recursion");
@@ -0,0 +1,73 @@
+package com.custommobsforge.custommobsforge.common.animations;
+
+import com.custommobsforge.custommobsforge.common.data.AnimationMapping;
+
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Словарь имён анимаций типа моба: отсортированный список различных имён из привязок анимаций.
+ * Привязки приходят клиенту вместе с определением моба, поэтому сервер и клиент строят
+ * одинаковый словарь сами, и пакет синхронизации анимации передаёт вместо имени индекс.
+ */
+public final class AnimationDictionary {
+    /** Индекс имени, которого нет в словаре */
+    public static final int NOT_FOUND = -1;
+
+    private static final AnimationDictionary EMPTY = new AnimationDictionary(new String[0]);
+
+    private final String[] names;
+
+    private AnimationDictionary(String[] names) {
+        this.names = names;
+    }
+
+    /**
+     * Словарь по привязкам анимаций данных моба
+     */
+    public static AnimationDictionary of(Map<String, AnimationMapping> animations) {
+        if (animations == null || animations.isEmpty()) {
+            return EMPTY;
+        }
+
+        TreeSet<String> names = new TreeSet<>();
+        for (AnimationMapping mapping : animations.values()) {
+            if (mapping != null && mapping.getAnimationName() != null && !mapping.getAnimationName().isEmpty()) {
+                names.add(mapping.getAnimationName());
+            }
+        }
+        return new AnimationDictionary(names.toArray(new String[0]));
+    }
+
+    /**
+     * Индекс имени анимации или NOT_FOUND
+     */
+    public int indexOf(String name) {
+        // Словарь отсортирован, так что двоичный поиск по естественному порядку строк
+        int low = 0;
+        int high = names.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = names[mid].compareTo(name);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Имя анимации по индексу или null, если индекс вне словаря
+     */
+    public String nameAt(int index) {
+        return index >= 0 && index < names.length ? names[index] : null;
+    }
+
+    public int size() {
+        return names.length;
+    }
+}
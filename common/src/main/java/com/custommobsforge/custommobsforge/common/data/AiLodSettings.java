@@ -0,0 +1,100 @@
+package com.custommobsforge.custommobsforge.common.data;
+
+import com.custommobsforge.custommobsforge.common.ai.AiLodTier;
+import net.minecraft.network.FriendlyByteBuf;
+
+/**
+ * Настройки уровней детализации ИИ для типа моба.
+ * Дистанции - верхние границы уровней в блоках: ближе fullDistance - FULL,
+ * ближе reducedDistance - REDUCED, ближе movementDistance - MOVEMENT_ONLY, дальше - FROZEN.
+ */
+public class AiLodSettings {
+    private boolean enabled = true;
+    private double fullDistance = 32.0;
+    private double reducedDistance = 64.0;
+    private double movementDistance = 96.0;
+    // Интервал обновления на уровне REDUCED в тиках
+    private int reducedInterval = 4;
+    // Запас в блоках, который нужно пройти дальше границы, чтобы уровень понизился
+    private double hysteresis = 4.0;
+
+    // Конструкторы
+    public AiLodSettings() {
+        // Пустой конструктор для Gson
+    }
+
+    // Геттеры и сеттеры
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public double getFullDistance() { return fullDistance; }
+    public void setFullDistance(double fullDistance) { this.fullDistance = fullDistance; }
+
+    public double getReducedDistance() { return reducedDistance; }
+    public void setReducedDistance(double reducedDistance) { this.reducedDistance = reducedDistance; }
+
+    public double getMovementDistance() { return movementDistance; }
+    public void setMovementDistance(double movementDistance) { this.movementDistance = movementDistance; }
+
+    public int getReducedInterval() { return Math.max(1, reducedInterval); }
+    public void setReducedInterval(int reducedInterval) { this.reducedInterval = reducedInterval; }
+
+    public double getHysteresis() { return hysteresis; }
+    public void setHysteresis(double hysteresis) { this.hysteresis = hysteresis; }
+
+    /**
+     * Выбирает уровень по расстоянию до ближайшего игрока.
+     * Повышение уровня происходит сразу, понижение - только за пределами границы плюс гистерезис,
+     * чтобы моб на границе не переключался каждый тик.
+     * @param distance Расстояние до ближайшего игрока (Double.MAX_VALUE, если игроков нет)
+     * @param current Текущий уровень
+     * @return Новый уровень
+     */
+    public AiLodTier selectTier(double distance, AiLodTier current) {
+        if (!enabled) {
+            return AiLodTier.FULL;
+        }
+
+        AiLodTier target = classify(distance);
+        if (target.ordinal() <= current.ordinal()) {
+            return target;
+        }
+
+        AiLodTier relaxed = classify(distance - hysteresis);
+        return relaxed.ordinal() > current.ordinal() ? relaxed : current;
+    }
+
+    private AiLodTier classify(double distance) {
+        if (distance <= fullDistance) {
+            return AiLodTier.FULL;
+        }
+        if (distance <= reducedDistance) {
+            return AiLodTier.REDUCED;
+        }
+        if (distance <= movementDistance) {
+            return AiLodTier.MOVEMENT_ONLY;
+        }
+        return AiLodTier.FROZEN;
+    }
+
+    // Методы сериализации
+    public void writeToBuffer(FriendlyByteBuf buffer) {
+        buffer.writeBoolean(enabled);
+        buffer.writeDouble(fullDistance);
+        buffer.writeDouble(reducedDistance);
+        buffer.writeDouble(movementDistance);
+        buffer.writeInt(reducedInterval);
+        buffer.writeDouble(hysteresis);
+    }
+
+    public static AiLodSettings readFromBuffer(FriendlyByteBuf buffer) {
+        AiLodSettings settings = new AiLodSettings();
+        settings.enabled = buffer.readBoolean();
+        settings.fullDistance = buffer.readDouble();
+        settings.reducedDistance = buffer.readDouble();
+        settings.movementDistance = buffer.readDouble();
+        settings.reducedInterval = buffer.readInt();
+        settings.hysteresis = buffer.readDouble();
+        return settings;
+    }
+}
@@ -0,0 +1,146 @@
+package com.custommobsforge.custommobsforge.common.data;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Клиентское представление моба: только то, что нужно для отрисовки - модель, текстура,
+ * файл анимаций и привязки анимаций к действиям.
+ * Дерево поведения, атрибуты, настройки ИИ и редакторские поля (название, описания) сюда не входят:
+ * их получают только игроки с правами редактора (полный {@link MobData}).
+ * Привязки хранятся в порядке ключей, поэтому одинаковое содержимое всегда даёт одинаковые байты и хэш.
+ */
+public final class ClientMobView {
+    private final String id;
+    private final String modelPath;
+    private final String texturePath;
+    private final String animationFilePath;
+    private final Map<String, AnimationMapping> animations;
+
+    private ClientMobView(String id, String modelPath, String texturePath, String animationFilePath,
+                          Map<String, AnimationMapping> animations) {
+        this.id = id;
+        this.modelPath = modelPath;
+        this.texturePath = texturePath;
+        this.animationFilePath = animationFilePath;
+        this.animations = animations;
+    }
+
+    /**
+     * Проекция полных данных моба
+     */
+    public static ClientMobView of(MobData data) {
+        Map<String, AnimationMapping> animations = new TreeMap<>();
+        if (data.getAnimations() != null) {
+            for (Map.Entry<String, AnimationMapping> entry : data.getAnimations().entrySet()) {
+                AnimationMapping source = entry.getValue();
+                if (source != null) {
+                    animations.put(entry.getKey(),
+                            new AnimationMapping(source.getAnimationName(), source.isLoop(), source.getSpeed()));
+                }
+            }
+        }
+        return new ClientMobView(data.getId(), nonNull(data.getModelPath()), nonNull(data.getTexturePath()),
+                nonNull(data.getAnimationFilePath()), animations);
+    }
+
+    public String getId() { return id; }
+
+    public String getModelPath() { return modelPath; }
+
+    public String getTexturePath() { return texturePath; }
+
+    public String getAnimationFilePath() { return animationFilePath; }
+
+    public Map<String, AnimationMapping> getAnimations() {
+        return Collections.unmodifiableMap(animations);
+    }
+
+    /**
+     * Данные моба для клиентской сущности (рендер и анимации работают с MobData)
+     */
+    public MobData toMobData() {
+        MobData data = new MobData();
+        data.setId(id);
+        data.setModelPath(modelPath);
+        data.setTexturePath(texturePath);
+        data.setAnimationFilePath(animationFilePath);
+        for (Map.Entry<String, AnimationMapping> entry : animations.entrySet()) {
+            AnimationMapping mapping = entry.getValue();
+            data.addAnimation(entry.getKey(), mapping.getAnimationName(), mapping.isLoop(), mapping.getSpeed());
+        }
+        return data;
+    }
+
+    // Методы сериализации
+    public void writeToBuffer(FriendlyByteBuf buffer) {
+        buffer.writeUtf(id);
+        buffer.writeUtf(modelPath);
+        buffer.writeUtf(texturePath);
+        buffer.writeUtf(animationFilePath);
+
+        buffer.writeVarInt(animations.size());
+        for (Map.Entry<String, AnimationMapping> entry : animations.entrySet()) {
+            AnimationMapping mapping = entry.getValue();
+            buffer.writeUtf(entry.getKey());
+            buffer.writeUtf(nonNull(mapping.getAnimationName()));
+            buffer.writeBoolean(mapping.isLoop());
+            buffer.writeFloat(mapping.getSpeed());
+        }
+    }
+
+    public static ClientMobView readFromBuffer(FriendlyByteBuf buffer) {
+        String id = buffer.readUtf();
+        String modelPath = buffer.readUtf();
+        String texturePath = buffer.readUtf();
+        String animationFilePath = buffer.readUtf();
+
+        Map<String, AnimationMapping> animations = new TreeMap<>();
+        int animCount = buffer.readVarInt();
+        for (int i = 0; i < animCount; i++) {
+            String action = buffer.readUtf();
+            String animationName = buffer.readUtf();
+            boolean loop = buffer.readBoolean();
+            float speed = buffer.readFloat();
+            animations.put(action, new AnimationMapping(animationName, loop, speed));
+        }
+
+        return new ClientMobView(id, modelPath, texturePath, animationFilePath, animations);
+    }
+
+    /**
+     * Хэш содержимого представления. Одинаковые представления дают одинаковый хэш и после
+     * перезапуска сервера, поэтому клиент может хранить определения по хэшу между сессиями
+     * @return Ненулевой 64-битный хэш (первые 8 байт SHA-256)
+     */
+    public long computeContentHash() {
+        FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+        try {
+            writeToBuffer(buffer);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(buffer.nioBuffer(buffer.readerIndex(), buffer.readableBytes()));
+            byte[] bytes = digest.digest();
+
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (bytes[i] & 0xFF);
+            }
+            // 0 зарезервирован за "нет определения"
+            return hash != 0 ? hash : 1;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -20,6 +20,7 @@ public class MobData {
     private Map<String, AnimationMapping> animations = new HashMap<>();
     private BehaviorTree behaviorTree;
     private Map<String, Float> attributes = new HashMap<>();
+    private AiLodSettings aiLod;
 
     // Конструкторы
     public MobData() {
@@ -56,6 +57,15 @@ public class MobData {
     public Map<String, Float> getAttributes() { return attributes; }
     public void setAttributes(Map<String, Float> attributes) { this.attributes = attributes; }
 
+    // Настройки уровней детализации ИИ; в старых конфигах их нет - используются значения по умолчанию
+    public AiLodSettings getAiLodSettings() {
+        if (aiLod == null) {
+            aiLod = new AiLodSettings();
+        }
+        return aiLod;
+    }
+    public void setAiLodSettings(AiLodSettings aiLod) { this.aiLod = aiLod; }
+
     // Методы сериализации
     public void writeToBuffer(FriendlyByteBuf buffer) {
         buffer.writeUtf(id);
@@ -83,6 +93,9 @@ public class MobData {
         if (behaviorTree != null) {
             behaviorTree.writeToBuffer(buffer);
         }
+
+        // Сериализуем настройки уровней детализации ИИ
+        getAiLodSettings().writeToBuffer(buffer);
     }
 
     public static MobData readFromBuffer(FriendlyByteBuf buffer) {
@@ -115,6 +128,9 @@ public class MobData {
             data.behaviorTree = BehaviorTree.readFromBuffer(buffer);
         }
 
+        // Десериализуем настройки уровней детализации ИИ
+        data.aiLod = AiLodSettings.readFromBuffer(buffer);
+
         return data;
     }
 
@@ -141,6 +157,11 @@ public class MobData {
             tag.putString("behaviorTree", GSON.toJson(behaviorTree));
         }
 
+        // Сохраняем настройки уровней детализации ИИ как JSON
+        if (aiLod != null) {
+            tag.putString("aiLod", GSON.toJson(aiLod));
+        }
+
         return tag;
     }
 
@@ -182,6 +203,14 @@ public class MobData {
             }
         }
 
+        // Загружаем настройки уровней детализации ИИ из JSON
+        if (tag.contains("aiLod")) {
+            String aiLodJson = tag.getString("aiLod");
+            if (!aiLodJson.isEmpty()) {
+                data.aiLod = GSON.fromJson(aiLodJson, AiLodSettings.class);
+            }
+        }
+
         return data;
     }
 
@@ -0,0 +1,69 @@
+package com.custommobsforge.custommobsforge.common.data;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Клиентские определения мобов по хэшу содержимого ({@link ClientMobView#computeContentHash()}).
+ * Сущность синхронизирует с клиентом только пару (ID моба, хэш), а клиент запрашивает определение
+ * один раз на хэш - сервер отвечает из этого реестра ровно тем содержимым, которому соответствует хэш.
+ * Определение хранится, пока на него ссылается хотя бы одна живая сущность: после правки моба
+ * старый хэш уходит из реестра вместе с последней сущностью, которая его использовала.
+ */
+public final class MobDefinitions {
+    private static final Map<Long, Definition> BY_HASH = new ConcurrentHashMap<>();
+
+    private MobDefinitions() {
+    }
+
+    private static final class Definition {
+        final ClientMobView view;
+        int references;
+
+        Definition(ClientMobView view) {
+            this.view = view;
+        }
+    }
+
+    /**
+     * Регистрирует клиентское представление данных моба для сущности; каждому вызову
+     * должен соответствовать {@link #release(long)}
+     * @return Хэш содержимого
+     */
+    public static long acquire(MobData data) {
+        ClientMobView view = ClientMobView.of(data);
+        long hash = view.computeContentHash();
+        BY_HASH.compute(hash, (key, definition) -> {
+            Definition result = definition != null ? definition : new Definition(view);
+            result.references++;
+            return result;
+        });
+        return hash;
+    }
+
+    /**
+     * Снимает ссылку сущности на определение; определение без ссылок удаляется
+     */
+    public static void release(long hash) {
+        BY_HASH.computeIfPresent(hash, (key, definition) -> --definition.references > 0 ? definition : null);
+    }
+
+    /**
+     * Определение по хэшу или null, если ни одна живая сущность его не использует
+     */
+    public static ClientMobView get(long hash) {
+        Definition definition = BY_HASH.get(hash);
+        return definition != null ? definition.view : null;
+    }
+
+    public static int size() {
+        return BY_HASH.size();
+    }
+
+    /**
+     * Сбрасывает реестр (при остановке сервера)
+     */
+    public static void clear() {
+        BY_HASH.clear();
+    }
+}
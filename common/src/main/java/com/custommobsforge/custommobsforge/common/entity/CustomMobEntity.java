@@ -1,13 +1,19 @@
 package com.custommobsforge.custommobsforge.common.entity;
 
+import com.custommobsforge.custommobsforge.common.ai.AiLodTier;
+import com.custommobsforge.custommobsforge.common.ai.MobAIState;
 import com.custommobsforge.custommobsforge.common.animations.AnimationAdapter;
+import com.custommobsforge.custommobsforge.common.animations.AnimationDictionary;
 import com.custommobsforge.custommobsforge.common.animations.AnimationAdapterImpl;
+import com.custommobsforge.custommobsforge.common.data.AiLodSettings;
 import com.custommobsforge.custommobsforge.common.data.MobData;
+import com.custommobsforge.custommobsforge.common.data.MobDefinitions;
 import com.custommobsforge.custommobsforge.common.data.AnimationMapping;
 import com.custommobsforge.custommobsforge.common.fsm.StateManager;
+import com.custommobsforge.custommobsforge.common.spatial.SpatialIndex;
+import com.custommobsforge.custommobsforge.common.network.EntityUpdateOutbox;
 import com.custommobsforge.custommobsforge.common.network.NetworkManager;
 import com.custommobsforge.custommobsforge.common.network.packet.AnimationSyncPacket;
-import com.custommobsforge.custommobsforge.common.network.packet.MobDataPacket;
 import com.custommobsforge.custommobsforge.common.event.system.AnimationCompletedEvent;
 import com.custommobsforge.custommobsforge.common.event.system.AnimationStartedEvent;
 import com.custommobsforge.custommobsforge.common.event.system.EventSystem;
@@ -16,6 +22,7 @@ import net.minecraft.network.syncher.EntityDataAccessor;
 import net.minecraft.network.syncher.EntityDataSerializers;
 import net.minecraft.network.syncher.SynchedEntityData;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.damagesource.DamageSource;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.PathfinderMob;
@@ -41,14 +48,22 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
 
 public class CustomMobEntity extends PathfinderMob implements GeoEntity {
     private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
     private static final EntityDataAccessor<String> MOB_ID =
             SynchedEntityData.defineId(CustomMobEntity.class, EntityDataSerializers.STRING);
+    // Хэш содержимого определения моба: клиент получает определение один раз на хэш, а не с каждой сущностью
+    private static final EntityDataAccessor<Long> MOB_DATA_HASH =
+            SynchedEntityData.defineId(CustomMobEntity.class, EntityDataSerializers.LONG);
 
     private MobData mobData;
+    // Хэш определения, применённого на клиенте (0 - данные не по хэшу)
+    private long appliedDataHash = 0L;
+    // Хэш определения, на которое сущность ссылается в MobDefinitions на сервере (0 - нет ссылки)
+    private long acquiredDataHash = 0L;
     private final AnimatableInstanceCache cache = AzureLibUtil.createInstanceCache(this);
     public String currentAnimation = "";
     public boolean looping = true;
@@ -57,6 +72,15 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
     // Добавляем AnimationAdapter
     private AnimationAdapter animationAdapter;
 
+    // Словарь имён анимаций и данные, по которым он построен
+    private AnimationDictionary animationDictionary;
+    private MobData animationDictionarySource;
+    // Последняя отправленная клиентам зацикленная анимация и её квантованная скорость (null - повторять нечего)
+    private String syncedLoopAnimation;
+    private int syncedAnimationSpeed;
+    // На клиенте: смена анимации с индексом, который нечем разрешить до получения определения моба
+    private AnimationSyncPacket pendingAnimation;
+
     // Добавляем StateManager
     private StateManager stateManager;
 
@@ -72,6 +96,14 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
     private boolean disableAutoAnimations = false;
     private int executionTicks = 0;
 
+    // Состояние ИИ моба: контроллер дерева поведения и уровень детализации
+    private final MobAIState aiState = new MobAIState();
+    // Отряд, в который моб входит с момента появления (0 - без отряда); сохраняется в NBT
+    private int squadId = NO_SQUAD;
+    public static final int NO_SQUAD = 0;
+    // Как часто пересчитывать уровень FULL: понижение не срочное, повышение с остальных уровней - каждый тик
+    private static final int AI_LOD_FULL_CHECK_INTERVAL = 10;
+
     public CustomMobEntity(EntityType<? extends PathfinderMob> entityType, Level level) {
         super(entityType, level);
         LOGGER.info("CustomMobEntity: Created new entity instance");
@@ -115,6 +147,7 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
     protected void defineSynchedData() {
         super.defineSynchedData();
         this.entityData.define(MOB_ID, "");
+        this.entityData.define(MOB_DATA_HASH, 0L);
     }
 
     public void setMobId(String mobId) {
@@ -130,6 +163,31 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
         return mobData;
     }
 
+    /**
+     * Хэш определения моба, выданного сервером, или 0, если определения ещё нет
+     */
+    public long getMobDataHash() {
+        return this.entityData.get(MOB_DATA_HASH);
+    }
+
+    /**
+     * Применяет на клиенте определение моба, полученное по хэшу
+     */
+    public void applyMobDefinition(MobData mobData, long hash) {
+        this.appliedDataHash = hash;
+        setMobData(mobData);
+    }
+
+    @Override
+    public void onSyncedDataUpdated(EntityDataAccessor<?> key) {
+        super.onSyncedDataUpdated(key);
+        // Определение моба изменилось на сервере - клиент запросит новое по хэшу при следующей отрисовке
+        if (MOB_DATA_HASH.equals(key) && this.level().isClientSide
+                && this.mobData != null && appliedDataHash != getMobDataHash()) {
+            this.mobData = null;
+        }
+    }
+
     public void setMobData(MobData mobData) {
         this.mobData = mobData;
         LOGGER.info("CustomMobEntity: Set mob data for entity {} with ID {}, model: {}, texture: {}",
@@ -157,15 +215,96 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
             }
         }
         syncMobDataWithClient();
+        if (this.level().isClientSide) {
+            applyPendingAnimation();
+        }
     }
 
     private void syncMobDataWithClient() {
         if (!this.level().isClientSide && this.mobData != null) {
-            NetworkManager.INSTANCE.send(
-                    PacketDistributor.TRACKING_ENTITY.with(() -> this),
-                    new MobDataPacket(this.mobData)
-            );
-            LOGGER.info("CustomMobEntity: Synced mob data for {} to tracking clients", this.getMobId());
+            // Клиентам уходит только хэш (вместе с данными сущности); само определение
+            // клиент запросит один раз на хэш, если его нет в кэше
+            long hash = MobDefinitions.acquire(this.mobData);
+            releaseMobDefinition();
+            this.acquiredDataHash = hash;
+            this.entityData.set(MOB_DATA_HASH, hash);
+            LOGGER.info("CustomMobEntity: Synced mob data hash {} for {} to tracking clients",
+                    Long.toHexString(hash), this.getMobId());
+        }
+    }
+
+    /**
+     * Снимает ссылку сущности на её определение в {@link MobDefinitions}; вызывается, когда моб покидает мир
+     */
+    public void releaseMobDefinition() {
+        if (acquiredDataHash != 0L) {
+            MobDefinitions.release(acquiredDataHash);
+            acquiredDataHash = 0L;
+        }
+    }
+
+    /**
+     * Словарь имён анимаций по текущим данным моба (на сервере и клиенте строится одинаково)
+     */
+    public AnimationDictionary getAnimationDictionary() {
+        if (animationDictionary == null || animationDictionarySource != mobData) {
+            animationDictionarySource = mobData;
+            animationDictionary = AnimationDictionary.of(mobData != null ? mobData.getAnimations() : null);
+        }
+        return animationDictionary;
+    }
+
+    /**
+     * Отправляет отслеживающим клиентам смену анимации. Зацикленная анимация, которая уже
+     * отправлена с той же скоростью, не отправляется повторно - клиент и так её проигрывает
+     */
+    public void syncAnimation(String animationName, boolean loop, float speed) {
+        if (this.level().isClientSide) {
+            return;
+        }
+
+        int quantizedSpeed = AnimationSyncPacket.quantizeSpeed(speed);
+        if (loop && animationName.equals(syncedLoopAnimation) && quantizedSpeed == syncedAnimationSpeed) {
+            return;
+        }
+        syncedLoopAnimation = loop ? animationName : null;
+        syncedAnimationSpeed = quantizedSpeed;
+
+        // Уходит в конце тика вместе с остальными обновлениями сущностей
+        EntityUpdateOutbox.queueAnimation(this, AnimationSyncPacket.of(this, animationName, speed, loop));
+    }
+
+    /**
+     * Игрок, начавший отслеживать моба, не получал зацикленную анимацию: повтор ей не отправляется,
+     * поэтому текущий цикл уходит ему отдельно
+     */
+    @Override
+    public void startSeenByPlayer(ServerPlayer player) {
+        super.startSeenByPlayer(player);
+        if (syncedLoopAnimation != null) {
+            NetworkManager.INSTANCE.send(PacketDistributor.PLAYER.with(() -> player),
+                    AnimationSyncPacket.of(this, syncedLoopAnimation,
+                            AnimationSyncPacket.dequantizeSpeed(syncedAnimationSpeed), true));
+        }
+    }
+
+    /**
+     * Запоминает на клиенте смену анимации, индекс которой не найден в словаре: определение моба
+     * ещё не получено. Применяется в {@link #setMobData}; null - более новая анимация уже применена
+     */
+    public void setPendingAnimation(AnimationSyncPacket packet) {
+        this.pendingAnimation = packet;
+    }
+
+    private void applyPendingAnimation() {
+        if (pendingAnimation == null) {
+            return;
+        }
+        String animationId = pendingAnimation.resolveAnimationId(this);
+        if (animationId != null) {
+            AnimationSyncPacket packet = pendingAnimation;
+            pendingAnimation = null;
+            setAnimation(animationId, packet.isLoop(), packet.getAnimationSpeed());
         }
     }
 
@@ -222,7 +361,7 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
         animationStartTimes.put(animationName, System.currentTimeMillis());
 
         // Генерируем событие начала анимации
-        EventSystem.fireEvent(new AnimationStartedEvent(animationName, this));
+        EventSystem.post(AnimationStartedEvent.obtain(animationName, this));
 
         boolean canInterrupt = true;
 
@@ -266,7 +405,7 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
                         this.currentAnimation);
 
                 if (!looping) {
-                    EventSystem.fireEvent(new AnimationCompletedEvent(this.currentAnimation, this));
+                    EventSystem.post(AnimationCompletedEvent.obtain(this.currentAnimation, this));
                 }
             }
 
@@ -303,11 +442,8 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
 
             if (!this.level().isClientSide) {
                 try {
-                    NetworkManager.INSTANCE.send(
-                            PacketDistributor.TRACKING_ENTITY.with(() -> this),
-                            new AnimationSyncPacket(this.getId(), animationName, speed, loop)
-                    );
-                    LOGGER.info("CustomMobEntity: Animation sync packet sent to tracking clients for {} on entity {}",
+                    syncAnimation(animationName, loop, speed);
+                    LOGGER.info("CustomMobEntity: Animation sync for {} on entity {} passed to tracking clients",
                             animationName, this.getId());
                 } catch (Exception e) {
                     LOGGER.error("CustomMobEntity: ERROR sending animation sync packet: {}", e.getMessage());
@@ -414,7 +550,7 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
                         LOGGER.info("CustomMobEntity: Animation controller reports animation '{}' finished for entity {}",
                                 currentAnimation, this.getId());
 
-                        EventSystem.fireEvent(new AnimationCompletedEvent(currentAnimation, this));
+                        EventSystem.post(AnimationCompletedEvent.obtain(currentAnimation, this));
                     }
                 }
 
@@ -440,6 +576,9 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
         super.addAdditionalSaveData(compound);
         String mobId = this.getMobId();
         compound.putString("MobId", mobId);
+        if (squadId != NO_SQUAD) {
+            compound.putInt("SquadId", squadId);
+        }
         LOGGER.info("CustomMobEntity: Saving mob ID {} to NBT for entity {}", mobId, this.getId());
     }
 
@@ -448,6 +587,7 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
         super.readAdditionalSaveData(compound);
         String mobId = compound.getString("MobId");
         this.setMobId(mobId);
+        this.squadId = compound.getInt("SquadId");
         LOGGER.info("CustomMobEntity: Loaded mob ID {} from NBT for entity {}", mobId, this.getId());
     }
 
@@ -469,7 +609,7 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
                 this.currentAnimation = "";
 
                 // Запускаем событие завершения анимации
-                EventSystem.fireEvent(new AnimationCompletedEvent(completedAnimation, this));
+                EventSystem.post(AnimationCompletedEvent.obtain(completedAnimation, this));
 
                 // Уведомляем коллбэки
                 notifyAnimationCallbacks(completedAnimation);
@@ -495,11 +635,105 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
         }
     }
 
+    /**
+     * Состояние ИИ этого моба
+     */
+    public MobAIState getAiState() {
+        return aiState;
+    }
+
+    /**
+     * ID отряда моба или {@link #NO_SQUAD}
+     */
+    public int getSquadId() {
+        return squadId;
+    }
+
+    /**
+     * Назначает отряд; вызывается при спавне, до появления моба в мире
+     */
+    public void setSquadId(int squadId) {
+        this.squadId = squadId;
+    }
+
+    /**
+     * Новый ID отряда для группы мобов, спавнящихся вместе. ID сохраняются в NBT мобов,
+     * поэтому выбираются случайно, а не счётчиком, который начинался бы заново после перезапуска
+     */
+    public static int newSquadId() {
+        return ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Текущий уровень детализации ИИ
+     */
+    public AiLodTier getAiLodTier() {
+        return aiState.getLodTier();
+    }
+
+    /**
+     * Настройки уровней детализации для типа этого моба
+     */
+    public AiLodSettings getAiLodSettings() {
+        return mobData != null ? mobData.getAiLodSettings() : null;
+    }
+
+    /**
+     * Нужно ли обновлять подсистемы ИИ в этом тике: на уровне REDUCED - раз в reducedInterval тиков,
+     * со сдвигом по ID, чтобы мобы не обновлялись в одном тике
+     */
+    public boolean isAiLodTick() {
+        if (aiState.getLodTier() != AiLodTier.REDUCED) {
+            return true;
+        }
+        AiLodSettings settings = getAiLodSettings();
+        return settings == null || (this.tickCount + this.getId()) % settings.getReducedInterval() == 0;
+    }
+
+    /**
+     * Пересчитывает уровень детализации по расстоянию до ближайшего игрока
+     */
+    private void updateAiLod() {
+        AiLodSettings settings = getAiLodSettings();
+        if (settings == null) {
+            return;
+        }
+
+        AiLodTier currentTier = aiState.getLodTier();
+        if (currentTier == AiLodTier.FULL && (this.tickCount + this.getId()) % AI_LOD_FULL_CHECK_INTERVAL != 0) {
+            return;
+        }
+
+        Player nearest = SpatialIndex.of(this.level()).getNearestPlayer(this);
+        double distance = nearest != null ? this.distanceTo(nearest) : Double.MAX_VALUE;
+
+        AiLodTier newTier = settings.selectTier(distance, currentTier);
+        if (newTier != currentTier) {
+            LOGGER.debug("CustomMobEntity: Entity {} AI LOD {} -> {} (nearest player at {})",
+                    this.getId(), currentTier, newTier, distance);
+            aiState.setLodTier(newTier);
+        }
+    }
+
+    /**
+     * На уровне FROZEN ванильный ИИ (цели, навигация, управление движением) не выполняется,
+     * физика и путь навигации при этом сохраняются
+     */
+    @Override
+    protected boolean isImmobile() {
+        return super.isImmobile() || !aiState.getLodTier().runsVanillaAi();
+    }
+
     // Модифицированный метод tick для обновления StateManager
     @Override
     public void tick() {
         super.tick();
 
+        // Уровень детализации ИИ определяет, что из этого будет обновляться
+        if (!this.level().isClientSide) {
+            updateAiLod();
+        }
+
         // Обновляем адаптер анимаций
         animationAdapter.update();
 
@@ -583,7 +817,7 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
                     LOGGER.info("CustomMobEntity: Animation '{}' has completed after {} ms (duration: {} ms)",
                             currentAnimation, currentTime - startTime, duration);
 
-                    EventSystem.fireEvent(new AnimationCompletedEvent(currentAnimation, this));
+                    EventSystem.post(AnimationCompletedEvent.obtain(currentAnimation, this));
 
                     animationStartTimes.remove(currentAnimation);
                 }
@@ -637,7 +871,7 @@ public class CustomMobEntity extends PathfinderMob implements GeoEntity {
     public void forceCompleteAnimation(String animationId) {
         if (animationId.equals(currentAnimation)) {
             LOGGER.info("CustomMobEntity: Forcing completion of animation {} for entity {}", animationId, this.getId());
-            EventSystem.fireEvent(new AnimationCompletedEvent(animationId, this));
+            EventSystem.post(AnimationCompletedEvent.obtain(animationId, this));
 
             // Уведомляем коллбэки
             notifyAnimationCallbacks(animationId);
@@ -5,12 +5,23 @@ import net.minecraftforge.eventbus.api.Event;
 
 public class MobDataReceivedEvent extends Event {
     private final MobData mobData;
+    // Хэш содержимого определения или 0, если данные пришли без хэша
+    private final long hash;
 
     public MobDataReceivedEvent(MobData mobData) {
+        this(mobData, 0L);
+    }
+
+    public MobDataReceivedEvent(MobData mobData, long hash) {
         this.mobData = mobData;
+        this.hash = hash;
     }
 
     public MobData getMobData() {
         return mobData;
     }
+
+    public long getHash() {
+        return hash;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.custommobsforge.custommobsforge.common.event;
+
+import net.minecraftforge.eventbus.api.Event;
+
+/**
+ * Клиентское событие: отладочные данные о выполненных узлах дерева поведения моба
+ */
+public class NodeDebugEvent extends Event {
+    private final int entityId;
+    // Индексы узлов в скомпилированном дереве в порядке выполнения
+    private final int[] nodeIndices;
+    // Коды типов тех же узлов (NodeTypes)
+    private final int[] typeCodes;
+
+    public NodeDebugEvent(int entityId, int[] nodeIndices, int[] typeCodes) {
+        this.entityId = entityId;
+        this.nodeIndices = nodeIndices;
+        this.typeCodes = typeCodes;
+    }
+
+    public int getEntityId() {
+        return entityId;
+    }
+
+    public int[] getNodeIndices() {
+        return nodeIndices;
+    }
+
+    public int[] getTypeCodes() {
+        return typeCodes;
+    }
+}
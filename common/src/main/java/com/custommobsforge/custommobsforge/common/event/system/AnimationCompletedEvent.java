@@ -5,9 +5,11 @@ import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 /**
  * Событие завершения анимации
  */
-public class AnimationCompletedEvent extends Event {
-    private final String animationId;
-    private final CustomMobEntity entity;
+public class AnimationCompletedEvent extends Event implements EntityEvent {
+    private static final EventPool<AnimationCompletedEvent> POOL = new EventPool<>(AnimationCompletedEvent::new);
+
+    private String animationId;
+    private CustomMobEntity entity;
 
     public AnimationCompletedEvent(String animationId, CustomMobEntity entity) {
         super();
@@ -15,10 +17,32 @@ public class AnimationCompletedEvent extends Event {
         this.entity = entity;
     }
 
+    private AnimationCompletedEvent() {
+        super();
+    }
+
+    /**
+     * Событие из пула для {@link EventSystem#post}: после доставки объект используется повторно
+     */
+    public static AnimationCompletedEvent obtain(String animationId, CustomMobEntity entity) {
+        AnimationCompletedEvent event = POOL.obtain();
+        event.animationId = animationId;
+        event.entity = entity;
+        return event;
+    }
+
+    @Override
+    void recycle() {
+        this.animationId = null;
+        this.entity = null;
+        POOL.release(this);
+    }
+
     public String getAnimationId() {
         return animationId;
     }
 
+    @Override
     public CustomMobEntity getEntity() {
         return entity;
     }
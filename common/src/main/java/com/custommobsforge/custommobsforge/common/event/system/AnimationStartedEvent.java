@@ -5,9 +5,11 @@ import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 /**
  * Событие начала анимации
  */
-public class AnimationStartedEvent extends Event {
-    private final String animationId;
-    private final CustomMobEntity entity;
+public class AnimationStartedEvent extends Event implements EntityEvent {
+    private static final EventPool<AnimationStartedEvent> POOL = new EventPool<>(AnimationStartedEvent::new);
+
+    private String animationId;
+    private CustomMobEntity entity;
 
     public AnimationStartedEvent(String animationId, CustomMobEntity entity) {
         super();
@@ -15,10 +17,32 @@ public class AnimationStartedEvent extends Event {
         this.entity = entity;
     }
 
+    private AnimationStartedEvent() {
+        super();
+    }
+
+    /**
+     * Событие из пула для {@link EventSystem#post}: после доставки объект используется повторно
+     */
+    public static AnimationStartedEvent obtain(String animationId, CustomMobEntity entity) {
+        AnimationStartedEvent event = POOL.obtain();
+        event.animationId = animationId;
+        event.entity = entity;
+        return event;
+    }
+
+    @Override
+    void recycle() {
+        this.animationId = null;
+        this.entity = null;
+        POOL.release(this);
+    }
+
     public String getAnimationId() {
         return animationId;
     }
 
+    @Override
     public CustomMobEntity getEntity() {
         return entity;
     }
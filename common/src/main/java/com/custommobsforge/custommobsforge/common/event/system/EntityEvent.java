@@ -0,0 +1,14 @@
+package com.custommobsforge.custommobsforge.common.event.system;
+
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+
+/**
+ * Событие, относящееся к конкретному мобу.
+ * Такие события доставляются ещё и слушателям, подписанным на этого моба
+ */
+public interface EntityEvent {
+    /**
+     * Моб, к которому относится событие
+     */
+    CustomMobEntity getEntity();
+}
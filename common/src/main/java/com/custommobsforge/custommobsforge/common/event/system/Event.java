@@ -4,12 +4,28 @@ package com.custommobsforge.custommobsforge.common.event.system;
  * Базовый класс для всех событий в системе
  */
 public abstract class Event {
-    private final long timestamp;
+    private long timestamp;
+
+    // Объект взят из пула и после отложенной доставки возвращается в него
+    boolean pooled;
 
     public Event() {
         this.timestamp = System.currentTimeMillis();
     }
 
+    /**
+     * Обновляет время события при повторном использовании объекта из пула
+     */
+    void stamp() {
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Возвращает объект в пул после доставки; события без пула ничего не делают
+     */
+    void recycle() {
+    }
+
     public long getTimestamp() {
         return timestamp;
     }
@@ -1,7 +1,9 @@
 package com.custommobsforge.custommobsforge.common.event.system;
 
 /**
- * Интерфейс для слушателей событий
+ * Интерфейс для слушателей событий.
+ * События, отправленные через {@link EventSystem#post}, могут браться из пула:
+ * слушатель не должен сохранять ссылку на событие после возврата из onEvent
  */
 @FunctionalInterface
 public interface EventListener<T extends Event> {
@@ -0,0 +1,37 @@
+package com.custommobsforge.custommobsforge.common.event.system;
+
+import java.util.ArrayDeque;
+import java.util.function.Supplier;
+
+/**
+ * Пул объектов часто генерируемых событий.
+ * Ограничен по размеру: при всплеске событий лишние объекты просто отдаются сборщику мусора
+ */
+final class EventPool<T extends Event> {
+    private static final int MAX_SIZE = 256;
+
+    private final ArrayDeque<T> free = new ArrayDeque<>();
+    private final Supplier<T> factory;
+
+    EventPool(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    synchronized T obtain() {
+        T event = free.pollFirst();
+        if (event == null) {
+            event = factory.get();
+        } else {
+            event.stamp();
+        }
+        event.pooled = true;
+        return event;
+    }
+
+    synchronized void release(T event) {
+        event.pooled = false;
+        if (free.size() < MAX_SIZE) {
+            free.addFirst(event);
+        }
+    }
+}
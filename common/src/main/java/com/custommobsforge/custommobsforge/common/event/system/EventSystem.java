@@ -1,45 +1,53 @@
 package com.custommobsforge.custommobsforge.common.event.system;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Collections;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import net.minecraft.world.entity.Entity;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * Система управления событиями
+ * Система управления событиями.
+ * Глобальные слушатели получают все события своего типа. Слушатели, подписанные на конкретного моба,
+ * хранятся в отдельной корзине по ID сущности и получают только события этого моба ({@link EntityEvent}),
+ * поэтому событие одного моба не перебирает слушателей всех остальных.
+ * Подписки через {@link #subscribe} принадлежат владельцу и снимаются вместе с ним ({@link #closeAll(Object)}).
+ * События отправляются через {@link #post}. В отложенном режиме (по умолчанию выключен,
+ * -Dcustommobsforge.events.deferred=true или {@link #setDeferred}) события сервера доставляются пачкой в конце тика.
  */
 public class EventSystem {
     private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
     private static final Map<Class<?>, List<EventListener<?>>> listeners = new ConcurrentHashMap<>();
 
-    /**
-     * Регистрирует слушателя для определенного типа события
-     */
+    // Слушатели отдельных мобов: ID сущности -> тип события -> слушатели
+    private static final Map<Integer, Map<Class<?>, List<EventListener<?>>>> entityListeners = new ConcurrentHashMap<>();
+
+    // Открытые подписки по владельцам
+    private static final Map<Object, Set<Subscription>> ownerSubscriptions = new ConcurrentHashMap<>();
+
+    // Типы, по которым доставляется событие данного класса (сам класс и суперклассы)
+    private static final Map<Class<?>, Class<?>[]> dispatchTypes = new ConcurrentHashMap<>();
+
+    // Отложенные события: кольцевой буфер, размер - степень двойки
+    private static Event[] pending = new Event[256];
+    private static int pendingHead = 0;
+    private static int pendingCount = 0;
+    // Отложенная доставка меняет момент вызова слушателей, поэтому включается явно
+    private static volatile boolean deferred = Boolean.getBoolean("custommobsforge.events.deferred");
+    // Поток, в котором выполняется drainDeferred (серверный)
+    private static volatile Thread dispatchThread;
+
     /**
      * Регистрирует слушателя для определенного типа события с ID
      */
     public static <T extends Event> void registerListener(Class<T> eventType, EventListener<T> listener, String listenerId) {
-        // Оборачиваем слушателя в IdentifiableListener, если он им еще не является
-        EventListener<T> identifiableListener = listener;
-        if (!(listener instanceof IdentifiableListener)) {
-            identifiableListener = new IdentifiableListener<T>() {
-                @Override
-                public String getId() {
-                    return listenerId;
-                }
-
-                @Override
-                public void onEvent(T event) {
-                    listener.onEvent(event);
-                }
-            };
-        }
-
-        listeners.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>()).add(identifiableListener);
+        listeners.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>()).add(identifiable(listener, listenerId));
         LOGGER.debug("Registered listener with ID {} for event type: {}", listenerId, eventType.getSimpleName());
     }
 
@@ -50,6 +58,127 @@ public class EventSystem {
         registerListener(eventType, listener, UUID.randomUUID().toString());
     }
 
+    /**
+     * Подписывает слушателя на все события типа от имени владельца
+     */
+    public static <T extends Event> Subscription subscribe(Object owner, Class<T> eventType, EventListener<T> listener) {
+        List<EventListener<?>> target = listeners.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>());
+        return open(owner, null, eventType, listener, target);
+    }
+
+    /**
+     * Подписывает слушателя на события указанного моба от имени владельца.
+     * Слушатель вызывается только для событий, у которых {@link EntityEvent#getEntity()} - этот моб
+     */
+    public static <T extends Event & EntityEvent> Subscription subscribe(Object owner, CustomMobEntity entity,
+                                                                         Class<T> eventType, EventListener<T> listener) {
+        List<EventListener<?>> target = entityListeners.computeIfAbsent(entity.getId(), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>());
+        return open(owner, entity, eventType, listener, target);
+    }
+
+    private static Subscription open(Object owner, CustomMobEntity scope, Class<?> eventType,
+                                     EventListener<?> listener, List<EventListener<?>> target) {
+        Subscription subscription = new Subscription(owner, scope, eventType, listener, target);
+        ownerSubscriptions.computeIfAbsent(owner, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+        target.add(listener);
+        LOGGER.debug("Subscribed {} to event type {}{}", owner, eventType.getSimpleName(),
+                scope != null ? " of entity " + scope.getId() : "");
+        return subscription;
+    }
+
+    /**
+     * Закрывает все подписки владельца
+     * @return количество закрытых подписок
+     */
+    public static int closeAll(Object owner) {
+        Set<Subscription> subscriptions = ownerSubscriptions.remove(owner);
+        if (subscriptions == null) {
+            return 0;
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+        LOGGER.debug("Closed {} subscriptions of {}", subscriptions.size(), owner);
+        return subscriptions.size();
+    }
+
+    /**
+     * Количество открытых подписок владельца
+     */
+    public static int getSubscriptionCount(Object owner) {
+        Set<Subscription> subscriptions = ownerSubscriptions.get(owner);
+        return subscriptions != null ? subscriptions.size() : 0;
+    }
+
+    /**
+     * Вызывается из {@link Subscription#close()}
+     */
+    static void forget(Subscription subscription) {
+        Set<Subscription> subscriptions = ownerSubscriptions.get(subscription.getOwner());
+        if (subscriptions != null) {
+            subscriptions.remove(subscription);
+            if (subscriptions.isEmpty()) {
+                ownerSubscriptions.remove(subscription.getOwner(), subscriptions);
+            }
+        }
+    }
+
+    /**
+     * Ищет утечки: подписки, владелец которых или моб, на которого они оформлены, уже удалён из мира.
+     * Такие подписки закрываются с предупреждением в логе.
+     * @return количество закрытых подписок
+     */
+    public static int closeLeakedSubscriptions() {
+        int closed = 0;
+        for (Map.Entry<Object, Set<Subscription>> entry : ownerSubscriptions.entrySet()) {
+            Object owner = entry.getKey();
+            if (owner instanceof Entity && ((Entity) owner).isRemoved()) {
+                LOGGER.warn("EventSystem: Entity {} was removed but still had {} subscriptions, closing them",
+                        ((Entity) owner).getId(), entry.getValue().size());
+                closed += closeAll(owner);
+                continue;
+            }
+
+            for (Subscription subscription : new ArrayList<>(entry.getValue())) {
+                CustomMobEntity scope = subscription.getScope();
+                if (scope != null && scope.isRemoved()) {
+                    LOGGER.warn("EventSystem: Subscription of {} to {} of removed entity {} was never closed",
+                            owner, subscription.getEventType().getSimpleName(), scope.getId());
+                    subscription.close();
+                    closed++;
+                }
+            }
+        }
+
+        // Пустые корзины мобов больше не нужны
+        entityListeners.values().removeIf(bucket -> {
+            bucket.values().removeIf(List::isEmpty);
+            return bucket.isEmpty();
+        });
+        return closed;
+    }
+
+    /**
+     * Оборачивает слушателя в IdentifiableListener, если он им еще не является
+     */
+    private static <T extends Event> EventListener<T> identifiable(EventListener<T> listener, String listenerId) {
+        if (listener instanceof IdentifiableListener) {
+            return listener;
+        }
+        return new IdentifiableListener<T>() {
+            @Override
+            public String getId() {
+                return listenerId;
+            }
+
+            @Override
+            public void onEvent(T event) {
+                listener.onEvent(event);
+            }
+        };
+    }
+
     /**
      * Удаляет слушателя для определенного типа события
      */
@@ -71,13 +200,141 @@ public class EventSystem {
     }
 
     /**
-     * Генерирует событие и уведомляет всех зарегистрированных слушателей
+     * Генерирует событие и сразу уведомляет глобальных слушателей и слушателей моба, к которому оно относится.
+     * Слушатели супертипов (например, Event) тоже получают событие
      */
-    @SuppressWarnings("unchecked")
     public static <T extends Event> void fireEvent(T event) {
-        List<EventListener<?>> eventListeners = listeners.getOrDefault(event.getClass(), Collections.emptyList());
-        LOGGER.debug("Firing event of type {} to {} listeners", event.getClass().getSimpleName(), eventListeners.size());
+        Map<Class<?>, List<EventListener<?>>> bucket = null;
+        if (event instanceof EntityEvent) {
+            CustomMobEntity entity = ((EntityEvent) event).getEntity();
+            if (entity != null) {
+                bucket = entityListeners.get(entity.getId());
+            }
+        }
 
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Firing event of type {}", event.getClass().getSimpleName());
+        }
+
+        for (Class<?> type : dispatchTypes.computeIfAbsent(event.getClass(), EventSystem::resolveDispatchTypes)) {
+            notifyListeners(listeners.get(type), event);
+            if (bucket != null) {
+                notifyListeners(bucket.get(type), event);
+            }
+        }
+    }
+
+    /**
+     * Отправляет событие с отложенной доставкой.
+     * В серверном потоке событие кладётся в кольцевой буфер и доставляется в {@link #drainDeferred()}
+     * в конце тика: слушатели не выполняются внутри кода, породившего событие, и не запускают
+     * цепочки рекурсивных событий. В остальных потоках (клиент) и при выключенном режиме событие
+     * доставляется сразу. Объекты из пула (obtain) после доставки возвращаются в пул.
+     */
+    public static void post(Event event) {
+        if (deferred && Thread.currentThread() == dispatchThread) {
+            if (pendingCount == pending.length) {
+                growPending();
+            }
+            pending[(pendingHead + pendingCount) & (pending.length - 1)] = event;
+            pendingCount++;
+            return;
+        }
+
+        try {
+            fireEvent(event);
+        } finally {
+            if (event.pooled) {
+                event.recycle();
+            }
+        }
+    }
+
+    /**
+     * Доставляет отложенные события; вызывается сервером в конце тика.
+     * События, отправленные слушателями во время доставки, ждут следующего тика
+     */
+    public static void drainDeferred() {
+        dispatchThread = Thread.currentThread();
+
+        int count = pendingCount;
+        for (int i = 0; i < count; i++) {
+            Event event = pending[pendingHead];
+            pending[pendingHead] = null;
+            pendingHead = (pendingHead + 1) & (pending.length - 1);
+            pendingCount--;
+
+            try {
+                fireEvent(event);
+            } finally {
+                if (event.pooled) {
+                    event.recycle();
+                }
+            }
+        }
+    }
+
+    /**
+     * Включает или выключает отложенную доставку {@link #post}
+     */
+    public static void setDeferred(boolean enabled) {
+        deferred = enabled;
+        LOGGER.info("EventSystem: Deferred dispatch {}", enabled ? "enabled" : "disabled");
+    }
+
+    public static boolean isDeferred() {
+        return deferred;
+    }
+
+    /**
+     * Количество событий, ждущих доставки
+     */
+    public static int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Отбрасывает недоставленные события (остановка сервера)
+     */
+    public static void clearDeferred() {
+        while (pendingCount > 0) {
+            Event event = pending[pendingHead];
+            pending[pendingHead] = null;
+            pendingHead = (pendingHead + 1) & (pending.length - 1);
+            pendingCount--;
+            if (event.pooled) {
+                event.recycle();
+            }
+        }
+        pendingHead = 0;
+        dispatchThread = null;
+    }
+
+    private static void growPending() {
+        Event[] grown = new Event[pending.length * 2];
+        for (int i = 0; i < pendingCount; i++) {
+            grown[i] = pending[(pendingHead + i) & (pending.length - 1)];
+        }
+        pending = grown;
+        pendingHead = 0;
+    }
+
+    /**
+     * Класс события и его суперклассы до Event включительно - типы, слушатели которых получают событие
+     */
+    private static Class<?>[] resolveDispatchTypes(Class<?> eventClass) {
+        List<Class<?>> types = new ArrayList<>();
+        for (Class<?> type = eventClass; type != null && Event.class.isAssignableFrom(type); type = type.getSuperclass()) {
+            types.add(type);
+        }
+        return types.toArray(new Class<?>[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Event> void notifyListeners(List<EventListener<?>> eventListeners, T event) {
+        if (eventListeners == null) {
+            return;
+        }
         for (EventListener<?> listener : eventListeners) {
             try {
                 ((EventListener<T>)listener).onEvent(event);
@@ -93,19 +350,27 @@ public class EventSystem {
      */
     public static void clearAllListeners() {
         listeners.clear();
+        entityListeners.clear();
+        ownerSubscriptions.clear();
         LOGGER.debug("Cleared all event listeners");
     }
 
+    /**
+     * Удаляет глобального слушателя по ID
+     */
     public static void unregisterListenerById(String listenerId) {
         for (List<EventListener<?>> listenerList : listeners.values()) {
-            // Предполагаем, что EventListener имплементирует интерфейс с методом getId()
-            listenerList.removeIf(listener -> {
-                if (listener instanceof IdentifiableListener) {
-                    return ((IdentifiableListener<?>) listener).getId().equals(listenerId);
-                }
-                return false;
-            });
+            removeById(listenerList, listenerId);
         }
         LOGGER.debug("Unregistered listener with ID: {}", listenerId);
     }
-}
\ No newline at end of file
+
+    private static void removeById(List<EventListener<?>> listenerList, String listenerId) {
+        listenerList.removeIf(listener -> {
+            if (listener instanceof IdentifiableListener) {
+                return ((IdentifiableListener<?>) listener).getId().equals(listenerId);
+            }
+            return false;
+        });
+    }
+}
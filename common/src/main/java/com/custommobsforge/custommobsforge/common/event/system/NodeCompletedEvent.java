@@ -6,10 +6,12 @@ import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 /**
  * Событие завершения выполнения узла
  */
-public class NodeCompletedEvent extends Event {
-    private final BehaviorNode node;
-    private final CustomMobEntity entity;
-    private final boolean success;
+public class NodeCompletedEvent extends Event implements EntityEvent {
+    private static final EventPool<NodeCompletedEvent> POOL = new EventPool<>(NodeCompletedEvent::new);
+
+    private BehaviorNode node;
+    private CustomMobEntity entity;
+    private boolean success;
 
     public NodeCompletedEvent(BehaviorNode node, CustomMobEntity entity, boolean success) {
         super();
@@ -18,10 +20,33 @@ public class NodeCompletedEvent extends Event {
         this.success = success;
     }
 
+    private NodeCompletedEvent() {
+        super();
+    }
+
+    /**
+     * Событие из пула для {@link EventSystem#post}: после доставки объект используется повторно
+     */
+    public static NodeCompletedEvent obtain(BehaviorNode node, CustomMobEntity entity, boolean success) {
+        NodeCompletedEvent event = POOL.obtain();
+        event.node = node;
+        event.entity = entity;
+        event.success = success;
+        return event;
+    }
+
+    @Override
+    void recycle() {
+        this.node = null;
+        this.entity = null;
+        POOL.release(this);
+    }
+
     public BehaviorNode getNode() {
         return node;
     }
 
+    @Override
     public CustomMobEntity getEntity() {
         return entity;
     }
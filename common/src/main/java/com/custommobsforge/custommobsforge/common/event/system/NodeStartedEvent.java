@@ -6,9 +6,11 @@ import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 /**
  * Событие начала выполнения узла
  */
-public class NodeStartedEvent extends Event {
-    private final BehaviorNode node;
-    private final CustomMobEntity entity;
+public class NodeStartedEvent extends Event implements EntityEvent {
+    private static final EventPool<NodeStartedEvent> POOL = new EventPool<>(NodeStartedEvent::new);
+
+    private BehaviorNode node;
+    private CustomMobEntity entity;
 
     public NodeStartedEvent(BehaviorNode node, CustomMobEntity entity) {
         super();
@@ -16,10 +18,32 @@ public class NodeStartedEvent extends Event {
         this.entity = entity;
     }
 
+    private NodeStartedEvent() {
+        super();
+    }
+
+    /**
+     * Событие из пула для {@link EventSystem#post}: после доставки объект используется повторно
+     */
+    public static NodeStartedEvent obtain(BehaviorNode node, CustomMobEntity entity) {
+        NodeStartedEvent event = POOL.obtain();
+        event.node = node;
+        event.entity = entity;
+        return event;
+    }
+
+    @Override
+    void recycle() {
+        this.node = null;
+        this.entity = null;
+        POOL.release(this);
+    }
+
     public BehaviorNode getNode() {
         return node;
     }
 
+    @Override
     public CustomMobEntity getEntity() {
         return entity;
     }
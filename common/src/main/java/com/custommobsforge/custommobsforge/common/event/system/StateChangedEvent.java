@@ -6,7 +6,7 @@ import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 /**
  * Событие смены состояния
  */
-public class StateChangedEvent extends Event {
+public class StateChangedEvent extends Event implements EntityEvent {
     private final MobState oldState;
     private final MobState newState;
     private final CustomMobEntity entity;
@@ -26,6 +26,7 @@ public class StateChangedEvent extends Event {
         return newState;
     }
 
+    @Override
     public CustomMobEntity getEntity() {
         return entity;
     }
@@ -0,0 +1,59 @@
+package com.custommobsforge.custommobsforge.common.event.system;
+
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+
+import java.util.List;
+
+/**
+ * Подписка слушателя на события.
+ * Принадлежит владельцу (мобу, исполнителю дерева и т.п.): все подписки владельца
+ * снимаются разом через {@link EventSystem#closeAll(Object)}.
+ * Закрытие убирает слушателя только из его собственного списка, без перебора всех слушателей.
+ */
+public final class Subscription implements AutoCloseable {
+    private final Object owner;
+    // Моб, на события которого оформлена подписка (null - глобальная)
+    private final CustomMobEntity scope;
+    private final Class<?> eventType;
+    private final EventListener<?> listener;
+    private final List<EventListener<?>> target;
+    private volatile boolean closed;
+
+    Subscription(Object owner, CustomMobEntity scope, Class<?> eventType, EventListener<?> listener,
+                 List<EventListener<?>> target) {
+        this.owner = owner;
+        this.scope = scope;
+        this.eventType = eventType;
+        this.listener = listener;
+        this.target = target;
+    }
+
+    public Object getOwner() {
+        return owner;
+    }
+
+    public CustomMobEntity getScope() {
+        return scope;
+    }
+
+    public Class<?> getEventType() {
+        return eventType;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Снимает слушателя; повторный вызов ничего не делает
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        target.remove(listener);
+        EventSystem.forget(this);
+    }
+}
@@ -1,5 +1,7 @@
 package com.custommobsforge.custommobsforge.common.fsm;
 
+import com.custommobsforge.custommobsforge.common.ai.CompiledBehaviorTree;
+import com.custommobsforge.custommobsforge.common.ai.NodeTypes;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.data.BehaviorTree;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
@@ -31,18 +33,28 @@ public class StateFactory {
      * @param behaviorTree Дерево поведения
      */
     public static void createStatesFromBehaviorTree(CustomMobEntity entity, BehaviorTree behaviorTree) {
+        createStatesFromBehaviorTree(entity, CompiledBehaviorTree.compile(behaviorTree));
+    }
+
+    /**
+     * Создает состояния из скомпилированного дерева поведения
+     * @param entity Сущность
+     * @param compiled Скомпилированное дерево (может быть null)
+     */
+    public static void createStatesFromBehaviorTree(CustomMobEntity entity, CompiledBehaviorTree compiled) {
         // Сначала создаем стандартные состояния
         createStandardStates(entity);
 
-        if (behaviorTree == null || behaviorTree.getNodes() == null || behaviorTree.getNodes().isEmpty()) {
+        if (compiled == null || compiled.isEmpty()) {
             return;
         }
 
         // Создаем состояния для последовательностей в дереве поведения
-        for (BehaviorNode node : behaviorTree.getNodes()) {
-            if (node.getType().equalsIgnoreCase("SequenceNode")) {
+        for (int i = 0; i < compiled.size(); i++) {
+            if (compiled.getTypeCode(i) == NodeTypes.SEQUENCE) {
+                BehaviorNode node = compiled.getNode(i);
                 AdapterState state = new AdapterState(node.getId(), node.getDescription());
-                state.setNodes(behaviorTree.getChildNodes(node.getId()));
+                state.setNodes(compiled.getChildNodes(i));
                 entity.getStateManager().registerState(state);
             }
         }
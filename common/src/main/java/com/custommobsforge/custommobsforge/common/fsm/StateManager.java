@@ -4,9 +4,8 @@ package com.custommobsforge.custommobsforge.common.fsm;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 import com.custommobsforge.custommobsforge.common.event.system.EventSystem;
 import com.custommobsforge.custommobsforge.common.event.system.StateChangedEvent;
-import com.custommobsforge.custommobsforge.common.network.NetworkManager;
+import com.custommobsforge.custommobsforge.common.network.EntityUpdateOutbox;
 import com.custommobsforge.custommobsforge.common.network.packet.StateUpdatePacket;
-import net.minecraftforge.network.PacketDistributor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -79,13 +78,10 @@ public class StateManager {
         // Генерируем событие смены состояния
         EventSystem.fireEvent(new StateChangedEvent(oldState, newState, entity));
 
-        // Отправляем пакет об обновлении состояния клиентам
+        // Отправляем обновление состояния клиентам (в конце тика, промежуточные смены не отправляются)
         if (!entity.level().isClientSide) {
             Map<String, Object> stateData = newState.getSerializableData();
-            NetworkManager.INSTANCE.send(
-                    PacketDistributor.TRACKING_ENTITY.with(() -> entity),
-                    new StateUpdatePacket(entity.getId(), newState.getId(), stateData)
-            );
+            EntityUpdateOutbox.queueState(entity, new StateUpdatePacket(entity.getId(), newState.getId(), stateData));
         }
 
         return true;
@@ -95,6 +91,11 @@ public class StateManager {
      * Обновляет текущее состояние
      */
     public void update() {
+        // Вдали от игроков автомат состояний ставится на паузу или обновляется реже
+        if (!entity.getAiLodTier().runsStateMachine() || !entity.isAiLodTick()) {
+            return;
+        }
+
         if (currentState == null) {
             if (initialStateId != null) {
                 changeState(initialStateId);
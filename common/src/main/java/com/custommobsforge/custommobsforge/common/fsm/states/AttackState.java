@@ -1,6 +1,7 @@
 package com.custommobsforge.custommobsforge.common.fsm.states;
 
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.common.spatial.SpatialIndex;
 import com.custommobsforge.custommobsforge.common.fsm.MobState;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.ai.targeting.TargetingConditions;
@@ -98,7 +99,7 @@ public class AttackState extends MobState {
      */
     private LivingEntity findTarget(CustomMobEntity entity) {
         // По умолчанию атакуем ближайшего игрока
-        return entity.level().getNearestPlayer(
+        return SpatialIndex.of(entity.level()).getNearestPlayer(
                 ATTACK_TARGETING,
                 entity
         );
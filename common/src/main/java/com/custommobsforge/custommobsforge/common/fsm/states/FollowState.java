@@ -1,11 +1,14 @@
 package com.custommobsforge.custommobsforge.common.fsm.states;
 
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.common.spatial.FlowFields;
+import com.custommobsforge.custommobsforge.common.spatial.SpatialIndex;
 import com.custommobsforge.custommobsforge.common.fsm.MobState;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.ai.navigation.PathNavigation;
 import net.minecraft.world.entity.ai.targeting.TargetingConditions;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.pathfinder.Path;
 import net.minecraft.world.phys.Vec3;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -19,6 +22,8 @@ public class FollowState extends MobState {
 
     private LivingEntity target;
     private double desiredDistance;
+    // Подходить к цели по общему полю потока (атрибут моба flowField > 0)
+    private boolean useFlowField;
     private long lastPathUpdate;
     private static final long PATH_UPDATE_INTERVAL = 500; // мс
 
@@ -31,6 +36,7 @@ public class FollowState extends MobState {
         super.enter(entity);
         LOGGER.info("FollowState: Entity {} entered follow state", entity.getId());
         desiredDistance = entity.getMobData().getAttribute("followDistance", 5.0f);
+        useFlowField = entity.getMobData().getAttribute("flowField", 0.0f) > 0.0f;
         lastPathUpdate = 0;
         target = null;
     }
@@ -84,6 +90,14 @@ public class FollowState extends MobState {
             return;
         }
 
+        // При подходе путь можно взять из поля потока, общего для всех мобов, следующих за целью
+        if (useFlowField && distanceToTarget > desiredDistance) {
+            Path path = FlowFields.findPath(entity, target, desiredDistance);
+            if (path != null && navigator.moveTo(path, 1.0)) {
+                return;
+            }
+        }
+
         // Рассчитываем целевую позицию
         Vec3 targetPos = target.position();
         Vec3 entityPos = entity.position();
@@ -136,7 +150,7 @@ public class FollowState extends MobState {
      */
     private LivingEntity findTarget(CustomMobEntity entity) {
         // По умолчанию следуем за ближайшим игроком
-        return entity.level().getNearestPlayer(
+        return SpatialIndex.of(entity.level()).getNearestPlayer(
                 FOLLOW_TARGETING,
                 entity
         );
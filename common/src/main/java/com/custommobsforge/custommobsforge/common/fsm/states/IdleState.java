@@ -1,6 +1,7 @@
 package com.custommobsforge.custommobsforge.common.fsm.states;
 
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.common.spatial.SpatialIndex;
 import com.custommobsforge.custommobsforge.common.fsm.MobState;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.ai.targeting.TargetingConditions;
@@ -16,6 +17,7 @@ public class IdleState extends MobState {
     private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
     private long lastPlayerCheckTime = 0;
     private static final long PLAYER_CHECK_INTERVAL = 1000; // 1 секунда
+    private static final TargetingConditions NOTICE_TARGETING = TargetingConditions.forNonCombat().range(16.0D);
 
     public IdleState() {
         super("idle", "Idle State");
@@ -61,8 +63,8 @@ public class IdleState extends MobState {
      * @return Ближайший игрок или null, если игрок не найден
      */
     private Player findNearestPlayer(CustomMobEntity entity) {
-        return entity.level().getNearestPlayer(
-                TargetingConditions.forNonCombat().range(16.0D),
+        return SpatialIndex.of(entity.level()).getNearestPlayer(
+                NOTICE_TARGETING,
                 entity
         );
     }
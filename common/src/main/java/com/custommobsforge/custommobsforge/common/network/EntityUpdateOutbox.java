@@ -0,0 +1,172 @@
+package com.custommobsforge.custommobsforge.common.network;
+
+import com.custommobsforge.custommobsforge.common.network.packet.AnimationSyncPacket;
+import com.custommobsforge.custommobsforge.common.network.packet.EntityUpdateBundlePacket;
+import com.custommobsforge.custommobsforge.common.network.packet.StateUpdatePacket;
+import com.custommobsforge.custommobsforge.common.util.primitive.IntObjectMap;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.minecraftforge.network.PacketDistributor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Исходящие обновления сущностей за тик. Смены состояния и анимации копятся по сущностям
+ * и в конце серверного тика уходят одним пакетом на каждого игрока ({@link EntityUpdateBundlePacket})
+ * вместо отдельного пакета на каждое изменение.
+ * Действует "последняя запись побеждает": промежуточные смены за тик клиенту не отправляются.
+ */
+public final class EntityUpdateOutbox {
+    // Сколько обновлений помещать в один пакет (пакет ограничен по размеру)
+    private static final int MAX_UPDATES_PER_PACKET = 1024;
+
+    private static final Object LOCK = new Object();
+    // ID сущности -> накопленные за тик обновления
+    private static final IntObjectMap<Pending> PENDING = new IntObjectMap<>();
+
+    private static long packetsSent = 0;
+    private static long updatesSent = 0;
+
+    private EntityUpdateOutbox() {
+    }
+
+    /**
+     * Запоминает смену состояния сущности; предыдущая смена за этот тик отбрасывается
+     */
+    public static void queueState(Entity entity, StateUpdatePacket update) {
+        synchronized (LOCK) {
+            pendingFor(entity).state = update;
+        }
+    }
+
+    /**
+     * Запоминает смену анимации сущности; предыдущая смена за этот тик отбрасывается
+     */
+    public static void queueAnimation(Entity entity, AnimationSyncPacket update) {
+        synchronized (LOCK) {
+            pendingFor(entity).animation = update;
+        }
+    }
+
+    /**
+     * Отправляет накопленные обновления: по пакету на игрока, отслеживающего хотя бы одну из сущностей.
+     * Вызывается в конце серверного тика
+     */
+    public static void flush() {
+        Map<ServerPlayer, List<EntityUpdateBundlePacket>> bundles = new HashMap<>();
+
+        synchronized (LOCK) {
+            if (PENDING.isEmpty()) {
+                return;
+            }
+
+            PENDING.forEach((entityId, pending) -> {
+                Entity entity = pending.entity;
+                if (entity.isRemoved() || !(entity.level() instanceof ServerLevel)) {
+                    return;
+                }
+
+                for (ServerPlayer player : getTrackingPlayers(entity)) {
+                    List<EntityUpdateBundlePacket> playerBundles = bundles.computeIfAbsent(player, p -> new ArrayList<>());
+                    if (playerBundles.isEmpty() || playerBundles.get(playerBundles.size() - 1).size() >= MAX_UPDATES_PER_PACKET) {
+                        playerBundles.add(new EntityUpdateBundlePacket());
+                    }
+                    pending.appendTo(playerBundles.get(playerBundles.size() - 1));
+                }
+            });
+            PENDING.clear();
+        }
+
+        for (Map.Entry<ServerPlayer, List<EntityUpdateBundlePacket>> entry : bundles.entrySet()) {
+            ServerPlayer player = entry.getKey();
+            for (EntityUpdateBundlePacket bundle : entry.getValue()) {
+                NetworkManager.INSTANCE.send(PacketDistributor.PLAYER.with(() -> player), bundle);
+                packetsSent++;
+                updatesSent += bundle.size();
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает накопленные обновления (при остановке сервера)
+     */
+    public static void clear() {
+        synchronized (LOCK) {
+            PENDING.clear();
+        }
+        packetsSent = 0;
+        updatesSent = 0;
+    }
+
+    public static long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public static long getUpdatesSent() {
+        return updatesSent;
+    }
+
+    private static Pending pendingFor(Entity entity) {
+        Pending pending = PENDING.get(entity.getId());
+        if (pending == null || pending.entity != entity) {
+            // ID мог достаться новой сущности - обновления удалённой ей не принадлежат
+            pending = new Pending(entity);
+            PENDING.put(entity.getId(), pending);
+        }
+        return pending;
+    }
+
+    /**
+     * Игроки, которым сервер отправляет данные сущности: те, у кого загружен её чанк
+     * и кто находится в пределах дальности отслеживания её типа (как в ChunkMap.TrackedEntity)
+     */
+    private static List<ServerPlayer> getTrackingPlayers(Entity entity) {
+        ServerLevel level = (ServerLevel) entity.level();
+        List<ServerPlayer> candidates = level.getChunkSource().chunkMap.getPlayers(entity.chunkPosition(), false);
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        double range = level.getServer().getScaledTrackingDistance(entity.getType().clientTrackingRange() * 16);
+        double rangeSqr = range * range;
+        List<ServerPlayer> result = new ArrayList<>(candidates.size());
+        for (ServerPlayer player : candidates) {
+            if (player == entity) {
+                continue;
+            }
+            double dx = player.getX() - entity.getX();
+            double dz = player.getZ() - entity.getZ();
+            if (dx * dx + dz * dz <= rangeSqr && entity.broadcastToPlayer(player)) {
+                result.add(player);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Обновления одной сущности за тик
+     */
+    private static final class Pending {
+        final Entity entity;
+        StateUpdatePacket state;
+        AnimationSyncPacket animation;
+
+        Pending(Entity entity) {
+            this.entity = entity;
+        }
+
+        void appendTo(EntityUpdateBundlePacket bundle) {
+            // Состояние раньше анимации: вход в состояние на клиенте может сам сменить анимацию
+            if (state != null) {
+                bundle.add(state);
+            }
+            if (animation != null) {
+                bundle.add(animation);
+            }
+        }
+    }
+}
@@ -7,7 +7,7 @@ import net.minecraftforge.network.NetworkRegistry;
 import net.minecraftforge.network.simple.SimpleChannel;
 
 public class NetworkManager {
-    private static final String PROTOCOL_VERSION = "1";
+    private static final String PROTOCOL_VERSION = "2";
 
     public static final ResourceLocation CHANNEL_NAME =
             new ResourceLocation(CommonCustomMobsForge.MOD_ID, "main_channel");
@@ -49,11 +49,6 @@ public class NetworkManager {
                 AnimationSyncPacket::decode,
                 AnimationSyncPacket::handle);
 
-        INSTANCE.registerMessage(nextId(), PlayBehaviorNodePacket.class,
-                PlayBehaviorNodePacket::encode,
-                PlayBehaviorNodePacket::decode,
-                PlayBehaviorNodePacket::handle);
-
         INSTANCE.registerMessage(nextId(), RequestMobListPacket.class,
                 RequestMobListPacket::encode,
                 RequestMobListPacket::decode,
@@ -75,5 +70,17 @@ public class NetworkManager {
                 StateUpdatePacket::encode,
                 StateUpdatePacket::decode,
                 StateUpdatePacket::handle);
+
+        // Обновления сущностей за тик одним пакетом на игрока
+        INSTANCE.registerMessage(nextId(), EntityUpdateBundlePacket.class,
+                EntityUpdateBundlePacket::encode,
+                EntityUpdateBundlePacket::decode,
+                EntityUpdateBundlePacket::handle);
+
+        // Отладка деревьев поведения (только подписанным игрокам)
+        INSTANCE.registerMessage(nextId(), NodeDebugPacket.class,
+                NodeDebugPacket::encode,
+                NodeDebugPacket::decode,
+                NodeDebugPacket::handle);
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.custommobsforge.custommobsforge.common.network.packet;
 
+import com.custommobsforge.custommobsforge.common.animations.AnimationDictionary;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 import net.minecraft.client.Minecraft;
 import net.minecraft.network.FriendlyByteBuf;
@@ -8,71 +9,146 @@ import net.minecraftforge.network.NetworkEvent;
 
 import java.util.function.Supplier;
 
+/**
+ * Смена анимации сущности. Имя передаётся индексом в словаре анимаций типа моба
+ * ({@link AnimationDictionary}), строкой - только если его нет в словаре; скорость квантуется
+ */
 public class AnimationSyncPacket {
+    // Шагов скорости на единицу: скорость передаётся с точностью 0.01
+    private static final int SPEED_STEPS = 100;
+
     private int entityId;
+    // Индекс имени в словаре типа моба или NOT_FOUND - тогда передаётся animationId
+    private int animationIndex;
     private String animationId;
     private float animationSpeed;
     private boolean loop;
 
     public AnimationSyncPacket(int entityId, String animationId, float animationSpeed, boolean loop) {
+        this(entityId, AnimationDictionary.NOT_FOUND, animationId, animationSpeed, loop);
+    }
+
+    private AnimationSyncPacket(int entityId, int animationIndex, String animationId, float animationSpeed, boolean loop) {
         this.entityId = entityId;
+        this.animationIndex = animationIndex;
         this.animationId = animationId;
         this.animationSpeed = animationSpeed;
         this.loop = loop;
     }
 
+    /**
+     * Пакет для сущности: имя из словаря её типа заменяется индексом
+     */
+    public static AnimationSyncPacket of(CustomMobEntity entity, String animationId, float animationSpeed, boolean loop) {
+        return of(entity.getId(), entity.getAnimationDictionary(), animationId, animationSpeed, loop);
+    }
+
+    /**
+     * Пакет для сущности с заданным словарём анимаций её типа
+     */
+    public static AnimationSyncPacket of(int entityId, AnimationDictionary dictionary, String animationId,
+                                         float animationSpeed, boolean loop) {
+        int index = dictionary.indexOf(animationId);
+        return new AnimationSyncPacket(entityId, index,
+                index == AnimationDictionary.NOT_FOUND ? animationId : null, animationSpeed, loop);
+    }
+
+    /**
+     * Скорость анимации в шагах передачи
+     */
+    public static int quantizeSpeed(float speed) {
+        return Math.max(0, Math.round(speed * SPEED_STEPS));
+    }
+
+    /**
+     * Скорость анимации по шагам передачи
+     */
+    public static float dequantizeSpeed(int steps) {
+        return steps / (float) SPEED_STEPS;
+    }
+
     public static void encode(AnimationSyncPacket message, FriendlyByteBuf buffer) {
-        buffer.writeInt(message.entityId);
-        buffer.writeUtf(message.animationId);
-        buffer.writeFloat(message.animationSpeed);
-        buffer.writeBoolean(message.loop);
+        buffer.writeVarInt(message.entityId);
+        // Индекс + 1 (0 - имя строкой) и флаг зацикливания в младшем бите
+        buffer.writeVarInt(((message.animationIndex + 1) << 1) | (message.loop ? 1 : 0));
+        if (message.animationIndex == AnimationDictionary.NOT_FOUND) {
+            buffer.writeUtf(message.animationId);
+        }
+        buffer.writeVarInt(quantizeSpeed(message.animationSpeed));
     }
 
     public static AnimationSyncPacket decode(FriendlyByteBuf buffer) {
-        return new AnimationSyncPacket(
-                buffer.readInt(),
-                buffer.readUtf(),
-                buffer.readFloat(),
-                buffer.readBoolean()
-        );
+        int entityId = buffer.readVarInt();
+        int header = buffer.readVarInt();
+        int index = (header >>> 1) - 1;
+        String animationId = index == AnimationDictionary.NOT_FOUND ? buffer.readUtf() : null;
+        float speed = dequantizeSpeed(buffer.readVarInt());
+        return new AnimationSyncPacket(entityId, index, animationId, speed, (header & 1) != 0);
     }
 
     public static void handle(AnimationSyncPacket message, Supplier<NetworkEvent.Context> contextSupplier) {
         NetworkEvent.Context context = contextSupplier.get();
 
-        context.enqueueWork(() -> {
-            System.out.println("AnimationSyncPacket: Received animation sync for entity ID " +
-                    message.getEntityId() + ", animation: " + message.getAnimationId() +
-                    ", loop: " + message.isLoop() + ", speed: " + message.getAnimationSpeed());
-
-            // На клиенте находим сущность и устанавливаем анимацию
-            if (Minecraft.getInstance().level != null) {
-                Entity entity = Minecraft.getInstance().level.getEntity(message.getEntityId());
-                if (entity instanceof CustomMobEntity) {
-                    CustomMobEntity mobEntity = (CustomMobEntity) entity;
-                    System.out.println("AnimationSyncPacket: Setting animation for entity " + entity.getId() +
-                            ": " + message.getAnimationId());
-                    mobEntity.setAnimation(message.getAnimationId(), message.isLoop(), message.getAnimationSpeed());
-                } else {
-                    System.out.println("AnimationSyncPacket: Entity not found or not CustomMobEntity: " +
-                            message.getEntityId());
+        context.enqueueWork(message::apply);
+
+        context.setPacketHandled(true);
+    }
+
+    /**
+     * Применяет смену анимации на клиенте (отдельно или в составе пакета обновлений сущностей)
+     */
+    public void apply() {
+        // На клиенте находим сущность и устанавливаем анимацию
+        if (Minecraft.getInstance().level != null) {
+            Entity entity = Minecraft.getInstance().level.getEntity(entityId);
+            if (entity instanceof CustomMobEntity) {
+                CustomMobEntity mobEntity = (CustomMobEntity) entity;
+                String animationId = resolveAnimationId(mobEntity);
+                if (animationId == null) {
+                    // Определение моба ещё не получено - анимация применится вместе с ним
+                    System.out.println("AnimationSyncPacket: Animation index " + animationIndex +
+                            " is unknown for entity " + entity.getId() + ", deferring until mob data arrives");
+                    mobEntity.setPendingAnimation(this);
+                    return;
                 }
+                mobEntity.setPendingAnimation(null);
+                System.out.println("AnimationSyncPacket: Setting animation for entity " + entity.getId() +
+                        ": " + animationId + ", loop: " + loop + ", speed: " + animationSpeed);
+                mobEntity.setAnimation(animationId, loop, animationSpeed);
             } else {
-                System.out.println("AnimationSyncPacket: Client level is null");
+                System.out.println("AnimationSyncPacket: Entity not found or not CustomMobEntity: " +
+                        entityId);
             }
-        });
-
-        context.setPacketHandled(true);
+        } else {
+            System.out.println("AnimationSyncPacket: Client level is null");
+        }
     }
 
     public int getEntityId() {
         return entityId;
     }
 
+    /**
+     * Имя анимации, переданное строкой (null, если передан индекс в словаре)
+     */
     public String getAnimationId() {
         return animationId;
     }
 
+    /**
+     * Имя анимации с учётом словаря типа моба сущности или null, если индекс в словаре не найден
+     */
+    public String resolveAnimationId(CustomMobEntity entity) {
+        return resolveAnimationId(entity.getAnimationDictionary());
+    }
+
+    /**
+     * Имя анимации по словарю типа моба или null, если индекс в словаре не найден
+     */
+    public String resolveAnimationId(AnimationDictionary dictionary) {
+        return animationIndex == AnimationDictionary.NOT_FOUND ? animationId : dictionary.nameAt(animationIndex);
+    }
+
     public float getAnimationSpeed() {
         return animationSpeed;
     }
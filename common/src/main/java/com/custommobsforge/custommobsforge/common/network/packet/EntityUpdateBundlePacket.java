@@ -0,0 +1,89 @@
+package com.custommobsforge.custommobsforge.common.network.packet;
+
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Обновления сущностей за тик для одного игрока: смены состояний и анимаций
+ * всех отслеживаемых им мобов одним пакетом (см. EntityUpdateOutbox).
+ * Обновления применяются в порядке записи: для каждой сущности состояние, затем анимация.
+ */
+public class EntityUpdateBundlePacket {
+    private static final byte STATE = 0;
+    private static final byte ANIMATION = 1;
+
+    // StateUpdatePacket или AnimationSyncPacket
+    private final List<Object> updates;
+
+    public EntityUpdateBundlePacket() {
+        this(new ArrayList<>());
+    }
+
+    private EntityUpdateBundlePacket(List<Object> updates) {
+        this.updates = updates;
+    }
+
+    public void add(StateUpdatePacket update) {
+        updates.add(update);
+    }
+
+    public void add(AnimationSyncPacket update) {
+        updates.add(update);
+    }
+
+    public int size() {
+        return updates.size();
+    }
+
+    public static void encode(EntityUpdateBundlePacket message, FriendlyByteBuf buffer) {
+        buffer.writeVarInt(message.updates.size());
+        for (Object update : message.updates) {
+            if (update instanceof StateUpdatePacket) {
+                buffer.writeByte(STATE);
+                StateUpdatePacket.encode((StateUpdatePacket) update, buffer);
+            } else {
+                buffer.writeByte(ANIMATION);
+                AnimationSyncPacket.encode((AnimationSyncPacket) update, buffer);
+            }
+        }
+    }
+
+    public static EntityUpdateBundlePacket decode(FriendlyByteBuf buffer) {
+        int count = buffer.readVarInt();
+        List<Object> updates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte type = buffer.readByte();
+            switch (type) {
+                case STATE:
+                    updates.add(StateUpdatePacket.decode(buffer));
+                    break;
+                case ANIMATION:
+                    updates.add(AnimationSyncPacket.decode(buffer));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown entity update type: " + type);
+            }
+        }
+        return new EntityUpdateBundlePacket(updates);
+    }
+
+    public static void handle(EntityUpdateBundlePacket message, Supplier<NetworkEvent.Context> contextSupplier) {
+        NetworkEvent.Context context = contextSupplier.get();
+
+        context.enqueueWork(() -> {
+            for (Object update : message.updates) {
+                if (update instanceof StateUpdatePacket) {
+                    ((StateUpdatePacket) update).apply();
+                } else {
+                    ((AnimationSyncPacket) update).apply();
+                }
+            }
+        });
+
+        context.setPacketHandled(true);
+    }
+}
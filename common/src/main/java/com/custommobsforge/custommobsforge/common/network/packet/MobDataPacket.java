@@ -1,5 +1,6 @@
 package com.custommobsforge.custommobsforge.common.network.packet;
 
+import com.custommobsforge.custommobsforge.common.data.ClientMobView;
 import com.custommobsforge.custommobsforge.common.data.MobData;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraftforge.network.NetworkEvent;
@@ -7,18 +8,52 @@ import net.minecraftforge.network.NetworkEvent;
 import java.util.function.Supplier;
 
 public class MobDataPacket {
+    /** Данные без хэша (полная синхронизация, например для редактора) */
+    public static final long NO_HASH = 0L;
+
     private MobData mobData;
+    // Клиентское представление (только для определений по хэшу)
+    private ClientMobView view;
+    // Хэш содержимого клиентского определения или NO_HASH
+    private long hash;
 
+    /**
+     * Полные данные моба вместе с деревом поведения - только для игроков с правами редактора
+     */
     public MobDataPacket(MobData mobData) {
+        this(mobData, null, NO_HASH);
+    }
+
+    private MobDataPacket(MobData mobData, ClientMobView view, long hash) {
         this.mobData = mobData;
+        this.view = view;
+        this.hash = hash;
+    }
+
+    /**
+     * Клиентское определение моба с хэшем содержимого: только то, что нужно для отрисовки
+     */
+    public static MobDataPacket definition(ClientMobView view, long hash) {
+        return new MobDataPacket(view.toMobData(), view, hash);
     }
 
     public static void encode(MobDataPacket message, FriendlyByteBuf buffer) {
-        message.mobData.writeToBuffer(buffer);
+        buffer.writeLong(message.hash);
+        // Формат данных определяется хэшем: определение - ClientMobView, иначе полный MobData
+        if (message.hash != NO_HASH) {
+            message.view.writeToBuffer(buffer);
+        } else {
+            message.mobData.writeToBuffer(buffer);
+        }
     }
 
     public static MobDataPacket decode(FriendlyByteBuf buffer) {
-        return new MobDataPacket(MobData.readFromBuffer(buffer));
+        long hash = buffer.readLong();
+        if (hash != NO_HASH) {
+            ClientMobView view = ClientMobView.readFromBuffer(buffer);
+            return new MobDataPacket(view.toMobData(), view, hash);
+        }
+        return new MobDataPacket(MobData.readFromBuffer(buffer), null, NO_HASH);
     }
 
     public static void handle(MobDataPacket message, Supplier<NetworkEvent.Context> contextSupplier) {
@@ -27,7 +62,7 @@ public class MobDataPacket {
         context.enqueueWork(() -> {
             // Публикуем событие получения данных моба
             net.minecraftforge.common.MinecraftForge.EVENT_BUS.post(
-                    new com.custommobsforge.custommobsforge.common.event.MobDataReceivedEvent(message.mobData)
+                    new com.custommobsforge.custommobsforge.common.event.MobDataReceivedEvent(message.mobData, message.hash)
             );
         });
 
@@ -37,4 +72,8 @@ public class MobDataPacket {
     public MobData getMobData() {
         return mobData;
     }
+
+    public long getHash() {
+        return hash;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.custommobsforge.custommobsforge.common.network.packet;
+
+import com.custommobsforge.custommobsforge.common.event.NodeDebugEvent;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Отладка деревьев поведения: узлы, в которые вошли мобы за период отправки.
+ * Отправляется только игрокам, подписавшимся на отладку моба или типа мобов командой.
+ * Узел передаётся индексом в скомпилированном дереве и кодом типа ({@link com.custommobsforge.custommobsforge.common.ai.NodeTypes})
+ */
+public class NodeDebugPacket {
+    private final List<Entry> entries;
+
+    public NodeDebugPacket() {
+        this(new ArrayList<>());
+    }
+
+    private NodeDebugPacket(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Добавляет выполненные узлы сущности (первые count элементов массивов)
+     */
+    public void add(int entityId, int[] nodeIndices, int[] typeCodes, int count) {
+        int[] indices = new int[count];
+        int[] codes = new int[count];
+        System.arraycopy(nodeIndices, 0, indices, 0, count);
+        System.arraycopy(typeCodes, 0, codes, 0, count);
+        entries.add(new Entry(entityId, indices, codes));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public static void encode(NodeDebugPacket message, FriendlyByteBuf buffer) {
+        buffer.writeVarInt(message.entries.size());
+        for (Entry entry : message.entries) {
+            buffer.writeVarInt(entry.entityId);
+            buffer.writeVarInt(entry.nodeIndices.length);
+            for (int i = 0; i < entry.nodeIndices.length; i++) {
+                buffer.writeVarInt(entry.nodeIndices[i]);
+                // Код неизвестного типа -1, поэтому пишется со сдвигом
+                buffer.writeVarInt(entry.typeCodes[i] + 1);
+            }
+        }
+    }
+
+    public static NodeDebugPacket decode(FriendlyByteBuf buffer) {
+        int count = buffer.readVarInt();
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int entityId = buffer.readVarInt();
+            int nodeCount = buffer.readVarInt();
+            int[] indices = new int[nodeCount];
+            int[] codes = new int[nodeCount];
+            for (int j = 0; j < nodeCount; j++) {
+                indices[j] = buffer.readVarInt();
+                codes[j] = buffer.readVarInt() - 1;
+            }
+            entries.add(new Entry(entityId, indices, codes));
+        }
+        return new NodeDebugPacket(entries);
+    }
+
+    public static void handle(NodeDebugPacket message, Supplier<NetworkEvent.Context> contextSupplier) {
+        NetworkEvent.Context context = contextSupplier.get();
+
+        context.enqueueWork(() -> {
+            // Отображение выполняет клиентский модуль
+            for (Entry entry : message.entries) {
+                MinecraftForge.EVENT_BUS.post(new NodeDebugEvent(entry.entityId, entry.nodeIndices, entry.typeCodes));
+            }
+        });
+
+        context.setPacketHandled(true);
+    }
+
+    /**
+     * Выполненные узлы одной сущности
+     */
+    private static final class Entry {
+        final int entityId;
+        final int[] nodeIndices;
+        final int[] typeCodes;
+
+        Entry(int entityId, int[] nodeIndices, int[] typeCodes) {
+            this.entityId = entityId;
+            this.nodeIndices = nodeIndices;
+            this.typeCodes = typeCodes;
+        }
+    }
+}
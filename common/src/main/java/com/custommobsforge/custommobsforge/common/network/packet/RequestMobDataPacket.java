@@ -1,7 +1,9 @@
 package com.custommobsforge.custommobsforge.common.network.packet;
 
 import com.custommobsforge.custommobsforge.common.config.MobConfigManager;
+import com.custommobsforge.custommobsforge.common.data.ClientMobView;
 import com.custommobsforge.custommobsforge.common.data.MobData;
+import com.custommobsforge.custommobsforge.common.data.MobDefinitions;
 import com.custommobsforge.custommobsforge.common.network.NetworkManager;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.server.level.ServerLevel;
@@ -13,17 +15,25 @@ import java.util.function.Supplier;
 
 public class RequestMobDataPacket {
     private String mobId;
+    // Хэш нужного определения (из синхронизированных данных сущности) или 0 - актуальное по ID
+    private long hash;
 
     public RequestMobDataPacket(String mobId) {
+        this(mobId, MobDataPacket.NO_HASH);
+    }
+
+    public RequestMobDataPacket(String mobId, long hash) {
         this.mobId = mobId;
+        this.hash = hash;
     }
 
     public static void encode(RequestMobDataPacket message, FriendlyByteBuf buffer) {
         buffer.writeUtf(message.mobId);
+        buffer.writeLong(message.hash);
     }
 
     public static RequestMobDataPacket decode(FriendlyByteBuf buffer) {
-        return new RequestMobDataPacket(buffer.readUtf());
+        return new RequestMobDataPacket(buffer.readUtf(), buffer.readLong());
     }
 
     public static void handle(RequestMobDataPacket message, Supplier<NetworkEvent.Context> contextSupplier) {
@@ -38,6 +48,17 @@ public class RequestMobDataPacket {
                 System.out.println("RequestMobDataPacket: Received request for mob data with ID: " + message.mobId +
                         " from player: " + player.getName().getString());
 
+                // Определение, выданное сущности, ищется по хэшу - ответ совпадает с хэшем, который ждёт клиент
+                long hash = message.hash;
+                ClientMobView view = hash != MobDataPacket.NO_HASH ? MobDefinitions.get(hash) : null;
+                if (view != null) {
+                    NetworkManager.INSTANCE.send(
+                            PacketDistributor.PLAYER.with(() -> player),
+                            MobDataPacket.definition(view, hash)
+                    );
+                    return;
+                }
+
                 // Загрузка данных моба
                 MobData mobData = MobConfigManager.loadMobConfig(message.mobId, level);
 
@@ -47,10 +68,18 @@ public class RequestMobDataPacket {
                             ", model: " + mobData.getModelPath() +
                             ", texture: " + mobData.getTexturePath());
 
-                    // Отправляем данные клиенту
+                    // Полные данные (с деревом поведения) - только редактору, остальным - клиентское представление
+                    MobDataPacket response;
+                    if (hash == MobDataPacket.NO_HASH && player.hasPermissions(2)) {
+                        response = new MobDataPacket(mobData);
+                    } else {
+                        // Ответ без сущности не держит определение в реестре
+                        ClientMobView definition = ClientMobView.of(mobData);
+                        response = MobDataPacket.definition(definition, definition.computeContentHash());
+                    }
                     NetworkManager.INSTANCE.send(
                             PacketDistributor.PLAYER.with(() -> player),
-                            new MobDataPacket(mobData)
+                            response
                     );
                 } else {
                     System.out.println("RequestMobDataPacket: Mob data not found for ID: " + message.mobId);
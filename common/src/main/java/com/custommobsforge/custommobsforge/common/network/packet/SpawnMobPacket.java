@@ -14,14 +14,23 @@ import net.minecraftforge.network.NetworkEvent;
 import java.util.function.Supplier;
 
 public class SpawnMobPacket {
+    private static final int MAX_COUNT = 64;
+
     private String mobId;
     private double x, y, z;
+    // Сколько мобов заспавнить; больше одного - общим отрядом
+    private int count;
 
     public SpawnMobPacket(String mobId, double x, double y, double z) {
+        this(mobId, x, y, z, 1);
+    }
+
+    public SpawnMobPacket(String mobId, double x, double y, double z, int count) {
         this.mobId = mobId;
         this.x = x;
         this.y = y;
         this.z = z;
+        this.count = count;
     }
 
     public static void encode(SpawnMobPacket message, FriendlyByteBuf buffer) {
@@ -29,6 +38,7 @@ public class SpawnMobPacket {
         buffer.writeDouble(message.x);
         buffer.writeDouble(message.y);
         buffer.writeDouble(message.z);
+        buffer.writeVarInt(message.count);
     }
 
     public static SpawnMobPacket decode(FriendlyByteBuf buffer) {
@@ -36,7 +46,8 @@ public class SpawnMobPacket {
                 buffer.readUtf(),
                 buffer.readDouble(),
                 buffer.readDouble(),
-                buffer.readDouble()
+                buffer.readDouble(),
+                buffer.readVarInt()
         );
     }
 
@@ -52,13 +63,21 @@ public class SpawnMobPacket {
                 MobData mobData = MobConfigManager.loadMobConfig(message.mobId, level);
 
                 if (mobData != null) {
-                    // Создание и спавн моба
-                    CustomMobEntity entity = EntityRegistry.CUSTOM_MOB.get().create(level);
+                    // Группа мобов получает общий отряд
+                    int count = Math.max(1, Math.min(message.count, MAX_COUNT));
+                    int squadId = count > 1 ? CustomMobEntity.newSquadId() : CustomMobEntity.NO_SQUAD;
+
+                    for (int i = 0; i < count; i++) {
+                        // Создание и спавн моба
+                        CustomMobEntity entity = EntityRegistry.CUSTOM_MOB.get().create(level);
+                        if (entity == null) {
+                            break;
+                        }
 
-                    if (entity != null) {
                         entity.setPos(message.x, message.y, message.z);
                         entity.setMobId(message.mobId);
                         entity.setMobData(mobData);
+                        entity.setSquadId(squadId);
 
                         level.addFreshEntity(entity);
                         entity.finalizeSpawn(level, level.getCurrentDifficultyAt(entity.blockPosition()),
@@ -58,26 +58,31 @@ public class StateUpdatePacket {
     public static void handle(StateUpdatePacket message, Supplier<NetworkEvent.Context> contextSupplier) {
         NetworkEvent.Context context = contextSupplier.get();
 
-        context.enqueueWork(() -> {
-            if (Minecraft.getInstance().level != null) {
-                Entity entity = Minecraft.getInstance().level.getEntity(message.entityId);
-                if (entity instanceof CustomMobEntity) {
-                    CustomMobEntity mobEntity = (CustomMobEntity) entity;
-
-                    // Изменяем состояние с данными
-                    mobEntity.getStateManager().changeState(message.stateId);
-
-                    // Применяем данные состояния
-                    if (mobEntity.getStateManager().getCurrentState() != null) {
-                        mobEntity.getStateManager().getCurrentState().applyData(message.stateData);
-                    }
-                }
-            }
-        });
+        context.enqueueWork(message::apply);
 
         context.setPacketHandled(true);
     }
 
+    /**
+     * Применяет смену состояния на клиенте (отдельно или в составе пакета обновлений сущностей)
+     */
+    public void apply() {
+        if (Minecraft.getInstance().level != null) {
+            Entity entity = Minecraft.getInstance().level.getEntity(this.entityId);
+            if (entity instanceof CustomMobEntity) {
+                CustomMobEntity mobEntity = (CustomMobEntity) entity;
+
+                // Изменяем состояние с данными
+                mobEntity.getStateManager().changeState(this.stateId);
+
+                // Применяем данные состояния
+                if (mobEntity.getStateManager().getCurrentState() != null) {
+                    mobEntity.getStateManager().getCurrentState().applyData(this.stateData);
+                }
+            }
+        }
+    }
+
     public int getEntityId() {
         return entityId;
     }
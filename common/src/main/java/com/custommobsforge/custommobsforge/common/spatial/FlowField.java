@@ -0,0 +1,295 @@
+package com.custommobsforge.custommobsforge.common.spatial;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.pathfinder.Node;
+import net.minecraft.world.level.pathfinder.Path;
+import net.minecraft.world.level.pathfinder.PathComputationType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Поле потока к одной точке в ограниченной квадратной области вокруг неё.
+ * Интеграционное поле (стоимость пути до точки) строится алгоритмом Дейкстры от цели наружу
+ * порциями по {@link #expand(int)}, поэтому стоимость построения зависит от размера области,
+ * а не от числа мобов: каждый моб лишь проходит по ссылкам на родителя от своей клетки к цели.
+ * Клетка - столбец блоков со своей высотой опоры; высота подбирается при достижении клетки
+ * (подъём на блок, спуск до {@link #MAX_DROP} блоков), поэтому поле одноуровневое:
+ * моб на другом этаже получает null и ищет путь обычной навигацией.
+ */
+public final class FlowField {
+    /** Радиус области в блоках */
+    public static final int RADIUS = 24;
+    private static final int SIZE = RADIUS * 2 + 1;
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    private static final int NO_PARENT = -1;
+    private static final int STRAIGHT_COST = 10;
+    private static final int DIAGONAL_COST = 14;
+    private static final int MAX_STEP_UP = 1;
+    private static final int MAX_DROP = 3;
+
+    // Смещения соседей: сначала 4 прямых, затем 4 диагональных
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DZ = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final Level level;
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+
+    // Стоимость пути до цели, высота опоры и клетка-родитель (следующий шаг к цели) по индексу клетки
+    private final int[] cost = new int[SIZE * SIZE];
+    private final int[] height = new int[SIZE * SIZE];
+    private final int[] parent = new int[SIZE * SIZE];
+
+    // Двоичная куча открытых клеток; устаревшие записи пропускаются при извлечении
+    private int[] heapCells = new int[64];
+    private int[] heapCosts = new int[64];
+    private int heapSize;
+
+    private final BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+
+    public FlowField(Level level, BlockPos origin) {
+        this.level = level;
+        this.originX = origin.getX();
+        this.originY = origin.getY();
+        this.originZ = origin.getZ();
+
+        Arrays.fill(cost, UNREACHED);
+        Arrays.fill(parent, NO_PARENT);
+
+        int y = findFooting(originX, originY, originZ);
+        if (y != Integer.MIN_VALUE) {
+            int center = index(RADIUS, RADIUS);
+            cost[center] = 0;
+            height[center] = y;
+            push(center, 0);
+        }
+    }
+
+    public BlockPos getOrigin() {
+        return new BlockPos(originX, originY, originZ);
+    }
+
+    /**
+     * Построено ли поле целиком (все достижимые клетки области обработаны)
+     */
+    public boolean isComplete() {
+        return heapSize == 0;
+    }
+
+    /**
+     * Продолжает построение поля
+     * @param budget Сколько клеток обработать
+     * @return Сколько клеток обработано
+     */
+    public int expand(int budget) {
+        int settled = 0;
+        while (heapSize > 0 && settled < budget) {
+            int cellCost = heapCosts[0];
+            int cell = pop();
+            if (cellCost > cost[cell]) {
+                continue;
+            }
+            settled++;
+
+            int cx = cell % SIZE;
+            int cz = cell / SIZE;
+            int cy = height[cell];
+            for (int dir = 0; dir < 8; dir++) {
+                int nx = cx + DX[dir];
+                int nz = cz + DZ[dir];
+                if (nx < 0 || nz < 0 || nx >= SIZE || nz >= SIZE) {
+                    continue;
+                }
+
+                int neighbor = index(nx, nz);
+                int stepCost = dir < 4 ? STRAIGHT_COST : DIAGONAL_COST;
+                int newCost = cellCost + stepCost;
+                if (newCost >= cost[neighbor]) {
+                    continue;
+                }
+
+                // Моб идёт от соседа к этой клетке: подъём не выше MAX_STEP_UP, спуск не глубже MAX_DROP
+                int ny = cost[neighbor] == UNREACHED
+                        ? findFooting(worldX(nx), cy, worldZ(nz))
+                        : height[neighbor];
+                if (ny == Integer.MIN_VALUE || !isTraversable(ny, cy)) {
+                    continue;
+                }
+                // По диагонали - только если на обеих прямых клетках можно встать, иначе моб цепляется за угол
+                if (dir >= 4 && (!canCutCorner(cx + DX[dir], cz, cy) || !canCutCorner(cx, cz + DZ[dir], cy))) {
+                    continue;
+                }
+
+                cost[neighbor] = newCost;
+                height[neighbor] = ny;
+                parent[neighbor] = cell;
+                push(neighbor, newCost);
+            }
+        }
+        return settled;
+    }
+
+    /**
+     * Строит путь по полю от позиции сущности к цели. Узлы идут по ссылкам на родителя,
+     * поэтому путь проходим по тем же правилам, по которым строилось поле
+     * @param entity Сущность
+     * @param stopDistance На каком расстоянии от цели путь заканчивается
+     * @param maxNodes Максимальная длина пути в узлах
+     * @return Путь или null, если клетка сущности вне области, ещё не достигнута или на другой высоте
+     */
+    public Path pathFrom(Entity entity, double stopDistance, int maxNodes) {
+        int lx = Mth.floor(entity.getX()) - originX + RADIUS;
+        int lz = Mth.floor(entity.getZ()) - originZ + RADIUS;
+        if (lx < 0 || lz < 0 || lx >= SIZE || lz >= SIZE) {
+            return null;
+        }
+
+        int cell = index(lx, lz);
+        if (cost[cell] == UNREACHED || Math.abs(Mth.floor(entity.getY()) - height[cell]) > MAX_STEP_UP) {
+            return null;
+        }
+
+        double stopDistanceSqr = stopDistance * stopDistance;
+        List<Node> nodes = new ArrayList<>();
+        boolean reached = false;
+        while (nodes.size() < maxNodes) {
+            int x = worldX(cell % SIZE);
+            int z = worldZ(cell / SIZE);
+            nodes.add(new Node(x, height[cell], z));
+
+            double dx = x - originX;
+            double dz = z - originZ;
+            if (parent[cell] == NO_PARENT || dx * dx + dz * dz <= stopDistanceSqr) {
+                reached = true;
+                break;
+            }
+            cell = parent[cell];
+        }
+
+        return nodes.size() > 1 ? new Path(nodes, getOrigin(), reached) : null;
+    }
+
+    /**
+     * Высота опоры в столбце, откуда моб может дойти до клетки с опорной высотой y:
+     * от y - MAX_STEP_UP (подъём к клетке) до y + MAX_DROP (спуск к клетке), ближайшая к y
+     * @return Y блока, в котором стоят ноги, или Integer.MIN_VALUE, если встать негде
+     */
+    private int findFooting(int x, int y, int z) {
+        if (isStandable(x, y, z)) {
+            return y;
+        }
+        for (int offset = 1; offset <= Math.max(MAX_STEP_UP, MAX_DROP); offset++) {
+            if (offset <= MAX_STEP_UP && isStandable(x, y - offset, z)) {
+                return y - offset;
+            }
+            if (offset <= MAX_DROP && isStandable(x, y + offset, z)) {
+                return y + offset;
+            }
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * Может ли моб перейти с опоры fromY на опору toY: подъём не выше MAX_STEP_UP, спуск не глубже MAX_DROP
+     */
+    private static boolean isTraversable(int fromY, int toY) {
+        return toY - fromY <= MAX_STEP_UP && fromY - toY <= MAX_DROP;
+    }
+
+    /**
+     * Проходим ли угловой столбец при диагональном шаге к клетке с опорной высотой y.
+     * Для уже достигнутой клетки берётся её высота, иначе опора ищется в тех же пределах
+     */
+    private boolean canCutCorner(int localX, int localZ, int y) {
+        int cell = index(localX, localZ);
+        if (cost[cell] != UNREACHED && isTraversable(height[cell], y)) {
+            return true;
+        }
+        return findFooting(worldX(localX), y, worldZ(localZ)) != Integer.MIN_VALUE;
+    }
+
+    /**
+     * Можно ли стоять в блоке: ноги и голова проходимы, под ногами твёрдый блок; незагруженные чанки непроходимы
+     */
+    private boolean isStandable(int x, int y, int z) {
+        cursor.set(x, y - 1, z);
+        if (!level.hasChunkAt(cursor)) {
+            return false;
+        }
+        BlockState below = level.getBlockState(cursor);
+        if (below.getCollisionShape(level, cursor).isEmpty()) {
+            return false;
+        }
+
+        cursor.set(x, y, z);
+        if (!level.getBlockState(cursor).isPathfindable(level, cursor, PathComputationType.LAND)) {
+            return false;
+        }
+        cursor.set(x, y + 1, z);
+        return level.getBlockState(cursor).isPathfindable(level, cursor, PathComputationType.LAND);
+    }
+
+    private int worldX(int localX) {
+        return originX - RADIUS + localX;
+    }
+
+    private int worldZ(int localZ) {
+        return originZ - RADIUS + localZ;
+    }
+
+    private static int index(int localX, int localZ) {
+        return localZ * SIZE + localX;
+    }
+
+    private void push(int cell, int cellCost) {
+        if (heapSize == heapCells.length) {
+            heapCells = Arrays.copyOf(heapCells, heapSize * 2);
+            heapCosts = Arrays.copyOf(heapCosts, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int up = (i - 1) >>> 1;
+            if (heapCosts[up] <= cellCost) {
+                break;
+            }
+            heapCells[i] = heapCells[up];
+            heapCosts[i] = heapCosts[up];
+            i = up;
+        }
+        heapCells[i] = cell;
+        heapCosts[i] = cellCost;
+    }
+
+    private int pop() {
+        int top = heapCells[0];
+        int lastCell = heapCells[--heapSize];
+        int lastCost = heapCosts[heapSize];
+        int i = 0;
+        while (true) {
+            int child = i * 2 + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapCosts[child + 1] < heapCosts[child]) {
+                child++;
+            }
+            if (heapCosts[child] >= lastCost) {
+                break;
+            }
+            heapCells[i] = heapCells[child];
+            heapCosts[i] = heapCosts[child];
+            i = child;
+        }
+        heapCells[i] = lastCell;
+        heapCosts[i] = lastCost;
+        return top;
+    }
+}
@@ -0,0 +1,134 @@
+package com.custommobsforge.custommobsforge.common.spatial;
+
+import com.custommobsforge.custommobsforge.common.util.primitive.IntObjectMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.pathfinder.Path;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Общие поля потока к преследуемым сущностям: все мобы, следующие за одной целью, используют одно поле
+ * вместо собственного поиска A*. Поле достраивается порциями не чаще раза за игровой тик
+ * при обращении к нему; когда цель уходит от центра поля, рядом строится новое, а мобы
+ * продолжают пользоваться старым, пока новое не будет готово. Неиспользуемые поля удаляются.
+ * Работает только в серверном мире; на клиенте возвращает null.
+ */
+public final class FlowFields {
+    // Сколько клеток поля обрабатывается за тик (вся область - около 2400 клеток)
+    private static final int EXPAND_BUDGET = 512;
+    // Насколько цель может отойти от центра поля, прежде чем строится новое
+    private static final int REBUILD_DISTANCE = 2;
+    // Через сколько тиков без обращений поле удаляется
+    private static final long EXPIRE_TICKS = 100;
+    // Максимальная длина выдаваемого пути в узлах
+    private static final int MAX_PATH_NODES = 16;
+
+    private static final Map<Level, Fields> FIELDS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private FlowFields() {
+    }
+
+    /**
+     * Путь от моба к цели по общему полю потока, готовый для PathNavigation.moveTo(Path, speed)
+     * @param mob Моб
+     * @param target Цель
+     * @param stopDistance На каком расстоянии от цели путь заканчивается
+     * @return Путь или null, если поле ещё не дошло до моба или моб вне области - тогда нужна обычная навигация
+     */
+    public static Path findPath(Entity mob, LivingEntity target, double stopDistance) {
+        Level level = mob.level();
+        if (level.isClientSide || target.level() != level) {
+            return null;
+        }
+
+        FlowField field = FIELDS.computeIfAbsent(level, key -> new Fields()).get(target, level.getGameTime());
+        return field != null ? field.pathFrom(mob, stopDistance, MAX_PATH_NODES) : null;
+    }
+
+    /**
+     * Число полей во всех мирах (для отладки)
+     */
+    public static int getFieldCount() {
+        synchronized (FIELDS) {
+            int count = 0;
+            for (Fields fields : FIELDS.values()) {
+                count += fields.byTarget.size();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Поля одного мира по ID цели
+     */
+    private static final class Fields {
+        final IntObjectMap<Entry> byTarget = new IntObjectMap<>();
+        long cleanupTick = Long.MIN_VALUE;
+
+        FlowField get(LivingEntity target, long tick) {
+            if (tick != cleanupTick) {
+                cleanupTick = tick;
+                byTarget.removeIf((id, entry) -> tick - entry.lastUsedTick > EXPIRE_TICKS || entry.target.isRemoved());
+            }
+
+            Entry entry = byTarget.get(target.getId());
+            if (entry == null || entry.target != target) {
+                entry = new Entry(target);
+                byTarget.put(target.getId(), entry);
+            }
+            entry.lastUsedTick = tick;
+            return entry.update(tick);
+        }
+    }
+
+    /**
+     * Поле одной цели: готовое (или первое строящееся) и строящееся на замену
+     */
+    private static final class Entry {
+        final LivingEntity target;
+        FlowField current;
+        FlowField next;
+        long stepTick = Long.MIN_VALUE;
+        long lastUsedTick;
+
+        Entry(LivingEntity target) {
+            this.target = target;
+        }
+
+        FlowField update(long tick) {
+            if (tick == stepTick) {
+                return current;
+            }
+            stepTick = tick;
+
+            BlockPos targetPos = target.blockPosition();
+            if (current == null) {
+                current = new FlowField(target.level(), targetPos);
+            } else if (next == null && movedAway(current.getOrigin(), targetPos)) {
+                next = new FlowField(target.level(), targetPos);
+            }
+
+            if (next != null) {
+                next.expand(EXPAND_BUDGET);
+                if (next.isComplete()) {
+                    current = next;
+                    next = null;
+                }
+            } else if (!current.isComplete()) {
+                current.expand(EXPAND_BUDGET);
+            }
+            return current;
+        }
+
+        private static boolean movedAway(BlockPos origin, BlockPos targetPos) {
+            return Math.abs(origin.getX() - targetPos.getX()) > REBUILD_DISTANCE
+                    || Math.abs(origin.getZ() - targetPos.getZ()) > REBUILD_DISTANCE
+                    || Math.abs(origin.getY() - targetPos.getY()) > REBUILD_DISTANCE;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.custommobsforge.custommobsforge.common.spatial;
+
+import com.custommobsforge.custommobsforge.common.util.primitive.IntObjectMap;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.ai.targeting.TargetingConditions;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.AABB;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Пространственный индекс мира для запросов ИИ: равномерная сетка живых сущностей по X/Z
+ * и список игроков с кэшем ближайшего игрока для каждой сущности.
+ * Обновляется не чаще раза за игровой тик - при первом запросе в новом тике (сетка - при первом запросе
+ * сущностей), поэтому сотни мобов рядом с несколькими игроками не повторяют одни и те же поиски по миру.
+ * Позиции фиксируются на момент построения; живость сущностей проверяется при каждом запросе.
+ * Сетка сущностей строится только для серверного мира, на клиенте индекс содержит лишь игроков.
+ */
+public final class SpatialIndex {
+    // Размер ячейки сетки в блоках
+    private static final int CELL_SHIFT = 4;
+    // Запас к области запроса: сущность попадает в ячейку по позиции, а её рамка может выходить за ячейку
+    private static final double QUERY_MARGIN = 4.0;
+    // Сколько разных условий поиска игрока кэшируется на одну сущность
+    private static final int CACHED_CONDITIONS = 4;
+
+    private static final Map<Level, SpatialIndex> INDEXES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Level level;
+    private long builtTick = Long.MIN_VALUE;
+    // Тик, для которого построена сетка: строится только если в тике были запросы сущностей
+    private long gridTick = Long.MIN_VALUE;
+
+    private final List<Player> players = new ArrayList<>();
+    // Ключ ячейки -> сущности, чья позиция лежит в ячейке
+    private final IntObjectMap<List<LivingEntity>> cells = new IntObjectMap<>();
+    // ID сущности -> найденные за этот тик ближайшие игроки
+    private final IntObjectMap<NearestPlayers> nearestCache = new IntObjectMap<>();
+
+    private SpatialIndex(Level level) {
+        this.level = level;
+    }
+
+    /**
+     * Индекс мира, актуальный для текущего тика
+     */
+    public static SpatialIndex of(Level level) {
+        SpatialIndex index = INDEXES.computeIfAbsent(level, SpatialIndex::new);
+        index.refresh();
+        return index;
+    }
+
+    /**
+     * Ближайший игрок, удовлетворяющий условиям (аналог Level.getNearestPlayer(TargetingConditions, LivingEntity))
+     */
+    public Player getNearestPlayer(TargetingConditions conditions, LivingEntity entity) {
+        NearestPlayers cached = cacheFor(entity);
+
+        for (int i = 0; i < cached.count; i++) {
+            if (cached.conditions[i] == conditions) {
+                Player player = cached.results[i];
+                if (player == null || player.isAlive()) {
+                    return player;
+                }
+            }
+        }
+
+        Player nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for (Player player : players) {
+            if (!player.isAlive() || !conditions.test(entity, player)) {
+                continue;
+            }
+            double distance = player.distanceToSqr(entity);
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = player;
+            }
+        }
+
+        cached.remember(conditions, nearest);
+        return nearest;
+    }
+
+    /**
+     * Ближайший игрок без условий (для уровня детализации ИИ), кэшируется на тик
+     */
+    public Player getNearestPlayer(Entity entity) {
+        NearestPlayers cached = cacheFor(entity);
+        if (cached.anyResolved && (cached.any == null || cached.any.isAlive())) {
+            return cached.any;
+        }
+
+        Player nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for (Player player : players) {
+            if (!player.isAlive() || player.isSpectator()) {
+                continue;
+            }
+            double distance = player.distanceToSqr(entity);
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = player;
+            }
+        }
+
+        cached.any = nearest;
+        cached.anyResolved = true;
+        return nearest;
+    }
+
+    private NearestPlayers cacheFor(Entity entity) {
+        NearestPlayers cached = nearestCache.get(entity.getId());
+        if (cached == null) {
+            cached = new NearestPlayers();
+            nearestCache.put(entity.getId(), cached);
+        }
+        if (cached.tick != builtTick) {
+            cached.reset(builtTick);
+        }
+        return cached;
+    }
+
+    /**
+     * Игроки в пределах радиуса от сущности
+     */
+    public List<Player> getPlayersWithin(Entity entity, double radius) {
+        List<Player> result = new ArrayList<>();
+        double radiusSqr = radius * radius;
+        for (Player player : players) {
+            if (player.isAlive() && player.distanceToSqr(entity) < radiusSqr) {
+                result.add(player);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Живые сущности, рамка которых пересекает область (аналог Level.getEntitiesOfClass(LivingEntity.class, ...)).
+     * На клиенте запрос уходит в мир напрямую
+     */
+    public List<LivingEntity> getLivingEntities(AABB area, Predicate<? super LivingEntity> filter) {
+        if (!(level instanceof ServerLevel)) {
+            return level.getEntitiesOfClass(LivingEntity.class, area, filter);
+        }
+
+        if (gridTick != builtTick) {
+            buildGrid();
+        }
+
+        List<LivingEntity> result = new ArrayList<>();
+        int minX = Mth.floor(area.minX - QUERY_MARGIN) >> CELL_SHIFT;
+        int maxX = Mth.floor(area.maxX + QUERY_MARGIN) >> CELL_SHIFT;
+        int minZ = Mth.floor(area.minZ - QUERY_MARGIN) >> CELL_SHIFT;
+        int maxZ = Mth.floor(area.maxZ + QUERY_MARGIN) >> CELL_SHIFT;
+
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                List<LivingEntity> cell = cells.get(cellKey(cx, cz));
+                if (cell == null) {
+                    continue;
+                }
+                for (LivingEntity candidate : cell) {
+                    if (candidate.isAlive() && area.intersects(candidate.getBoundingBox()) && filter.test(candidate)) {
+                        result.add(candidate);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void refresh() {
+        long tick = level.getGameTime();
+        if (tick == builtTick) {
+            return;
+        }
+        builtTick = tick;
+
+        players.clear();
+        players.addAll(level.players());
+        // Записи кэша переиспользуются между тиками; сущности, не запрашивавшие игроков тик, удаляются
+        nearestCache.removeIf((id, cached) -> cached.tick < tick - 1);
+    }
+
+    private void buildGrid() {
+        gridTick = builtTick;
+        cells.forEach((key, cell) -> cell.clear());
+        for (Entity entity : ((ServerLevel) level).getAllEntities()) {
+            if (entity instanceof LivingEntity && entity.isAlive()) {
+                int key = cellKey(Mth.floor(entity.getX()) >> CELL_SHIFT, Mth.floor(entity.getZ()) >> CELL_SHIFT);
+                List<LivingEntity> cell = cells.get(key);
+                if (cell == null) {
+                    cell = new ArrayList<>();
+                    cells.put(key, cell);
+                }
+                cell.add((LivingEntity) entity);
+            }
+        }
+        // Ячейки, опустевшие с прошлого построения, больше не держим
+        cells.removeIf((key, cell) -> cell.isEmpty());
+    }
+
+    /**
+     * Ключ ячейки: по 16 бит на координату. Ячейки, отстоящие на 2^16 ячеек, делят ключ,
+     * что лишь добавляет кандидатов - запрос всё равно проверяет рамку сущности
+     */
+    private static int cellKey(int cellX, int cellZ) {
+        return (cellX << 16) | (cellZ & 0xFFFF);
+    }
+
+    /**
+     * Ближайшие игроки одной сущности за текущий тик
+     */
+    private static final class NearestPlayers {
+        final TargetingConditions[] conditions = new TargetingConditions[CACHED_CONDITIONS];
+        final Player[] results = new Player[CACHED_CONDITIONS];
+        int count;
+        Player any;
+        boolean anyResolved;
+        long tick;
+
+        void reset(long tick) {
+            this.tick = tick;
+            for (int i = 0; i < count; i++) {
+                conditions[i] = null;
+                results[i] = null;
+            }
+            count = 0;
+            any = null;
+            anyResolved = false;
+        }
+
+        void remember(TargetingConditions condition, Player result) {
+            int slot = count < CACHED_CONDITIONS ? count++ : CACHED_CONDITIONS - 1;
+            conditions[slot] = condition;
+            results[slot] = result;
+        }
+    }
+}
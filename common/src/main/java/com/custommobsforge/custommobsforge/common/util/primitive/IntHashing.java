@@ -0,0 +1,71 @@
+package com.custommobsforge.custommobsforge.common.util.primitive;
+
+/**
+ * Общие вычисления для хэш-таблиц с открытой адресацией по ключу int
+ */
+final class IntHashing {
+    static final int DEFAULT_CAPACITY = 16;
+    // Линейное пробирование быстро деградирует при случайных ключах выше ~0.5;
+    // 0.4 держит кластеры короткими на постоянном потоке добавлений и удалений
+    static final float LOAD_FACTOR = 0.4f;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private IntHashing() {
+    }
+
+    /**
+     * Сдвиг для slot: таблица из capacity слотов адресуется старшими log2(capacity) битами
+     */
+    static int shift(int capacity) {
+        return Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    /**
+     * Исходный слот ключа - старшие биты произведения на 2^32 / золотое сечение (фибоначчиево хэширование).
+     * Подряд идущие ID сущностей расходятся по таблице почти равномерно, а не собираются в кластеры
+     */
+    static int slot(int key, int shift) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    /**
+     * Размер таблицы (степень двойки), вмещающий expected элементов без превышения коэффициента заполнения
+     */
+    static int capacityFor(int expected) {
+        int needed = (int) Math.ceil(Math.max(expected, 1) / (double) LOAD_FACTOR);
+        int capacity = Integer.highestOneBit(Math.max(needed, DEFAULT_CAPACITY) - 1) << 1;
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity too large: " + expected);
+        }
+        return capacity;
+    }
+
+    static int threshold(int capacity) {
+        return (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Число элементов, ниже которого таблицу ужимают: заполнение вчетверо ниже порога роста.
+     * Таблицу размером minCapacity (заданным при создании) не ужимают
+     */
+    static int shrinkThreshold(int capacity, int minCapacity) {
+        return capacity > minCapacity ? threshold(capacity) / 4 : 0;
+    }
+
+    /**
+     * Размер ужатой таблицы для size элементов
+     */
+    static int shrunkCapacity(int size, int minCapacity) {
+        return Math.max(capacityFor(size), minCapacity);
+    }
+
+    /**
+     * Нужно ли переносить элемент из слота to в освободившийся слот from при удалении со сдвигом:
+     * да, если его исходный слот ideal не лежит в циклическом интервале (from, to]
+     */
+    static boolean shouldShift(int ideal, int from, int to) {
+        return from <= to
+                ? ideal <= from || ideal > to
+                : ideal <= from && ideal > to;
+    }
+}
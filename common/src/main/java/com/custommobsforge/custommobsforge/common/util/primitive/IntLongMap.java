@@ -0,0 +1,227 @@
+package com.custommobsforge.custommobsforge.common.util.primitive;
+
+import java.util.Arrays;
+
+/**
+ * Карта int -> long с открытой адресацией и линейным пробированием.
+ * Ключи и значения лежат в массивах примитивов: ни упаковки, ни объекта на запись.
+ * Удаление сдвигает следующие элементы кластера назад, поэтому "надгробий" нет.
+ * Таблица ужимается, когда после удалений заполнена слабо (см. IntObjectMap).
+ * Не потокобезопасна.
+ */
+public final class IntLongMap {
+    /**
+     * Обработчик пары ключ-значение
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, long value);
+    }
+
+    /**
+     * Условие на пару ключ-значение
+     */
+    @FunctionalInterface
+    public interface EntryPredicate {
+        boolean test(int key, long value);
+    }
+
+    private final int minCapacity;
+    private int[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int mask;
+    private int shift;
+    private int size;
+    private int threshold;
+    private int shrinkThreshold;
+
+    public IntLongMap() {
+        this(IntHashing.DEFAULT_CAPACITY);
+    }
+
+    public IntLongMap(int expectedSize) {
+        minCapacity = IntHashing.capacityFor(expectedSize);
+        allocate(minCapacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Значение по ключу или defaultValue, если ключа нет
+     */
+    public long get(int key, long defaultValue) {
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : defaultValue;
+    }
+
+    /**
+     * Записывает значение
+     * @return предыдущее значение или defaultValue, если ключа не было
+     */
+    public long put(int key, long value, long defaultValue) {
+        int index = IntHashing.slot(key, shift);
+        while (used[index]) {
+            if (keys[index] == key) {
+                long previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+
+        used[index] = true;
+        keys[index] = key;
+        values[index] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+        return defaultValue;
+    }
+
+    public void put(int key, long value) {
+        put(key, value, 0L);
+    }
+
+    /**
+     * Удаляет ключ
+     * @return удалённое значение или defaultValue, если ключа не было
+     */
+    public long remove(int key, long defaultValue) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return defaultValue;
+        }
+        long previous = values[index];
+        removeAt(index);
+        shrinkIfSparse();
+        return previous;
+    }
+
+    /**
+     * Удаляет все пары. Таблицу, заметно большую, чем нужно для её содержимого, заменяет меньшей
+     * вместо обнуления
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        if (size < shrinkThreshold) {
+            allocate(IntHashing.shrunkCapacity(size, minCapacity));
+        } else {
+            Arrays.fill(used, false);
+        }
+        size = 0;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Удаляет все пары, удовлетворяющие условию; условие вызывается ровно один раз на пару
+     * @return количество удалённых пар
+     */
+    public int removeIf(EntryPredicate predicate) {
+        if (size == 0) {
+            return 0;
+        }
+
+        // Обход начинается после пустого слота: ни один кластер не пересекает начало обхода,
+        // и элементы, сдвинутые удалением назад, ещё не проверены
+        int start = 0;
+        while (used[start]) {
+            start++;
+        }
+
+        int removed = 0;
+        int index = (start + 1) & mask;
+        for (int visited = 1; visited < keys.length; ) {
+            if (used[index] && predicate.test(keys[index], values[index])) {
+                removeAt(index);
+                removed++;
+                // На место удалённого мог сдвинуться следующий элемент - проверяем тот же слот
+                continue;
+            }
+            index = (index + 1) & mask;
+            visited++;
+        }
+        shrinkIfSparse();
+        return removed;
+    }
+
+    private int indexOf(int key) {
+        int index = IntHashing.slot(key, shift);
+        while (used[index]) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void removeAt(int hole) {
+        int index = (hole + 1) & mask;
+        while (used[index]) {
+            int ideal = IntHashing.slot(keys[index], shift);
+            if (IntHashing.shouldShift(ideal, hole, index)) {
+                keys[hole] = keys[index];
+                values[hole] = values[index];
+                hole = index;
+            }
+            index = (index + 1) & mask;
+        }
+        used[hole] = false;
+        size--;
+    }
+
+    private void shrinkIfSparse() {
+        if (size < shrinkThreshold) {
+            rehash(IntHashing.shrunkCapacity(size, minCapacity));
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        shift = IntHashing.shift(capacity);
+        threshold = IntHashing.threshold(capacity);
+        shrinkThreshold = IntHashing.shrinkThreshold(capacity, minCapacity);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int index = IntHashing.slot(oldKeys[i], shift);
+                while (used[index]) {
+                    index = (index + 1) & mask;
+                }
+                used[index] = true;
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+}
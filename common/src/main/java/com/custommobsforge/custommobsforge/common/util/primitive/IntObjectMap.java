@@ -0,0 +1,251 @@
+package com.custommobsforge.custommobsforge.common.util.primitive;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Карта int -> объект с открытой адресацией и линейным пробированием.
+ * Ключи лежат в массиве int: ни упаковки ключа, ни объекта на запись. Значения null не допускаются:
+ * пустой слот - это слот с null, отдельного массива занятости нет.
+ * Удаление сдвигает следующие элементы кластера назад, поэтому "надгробий" нет.
+ * Таблица ужимается, когда после удалений заполнена слабо, так что обходы и clear() стоят O(size).
+ * Не потокобезопасна.
+ */
+public final class IntObjectMap<V> {
+    /**
+     * Обработчик пары ключ-значение
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    /**
+     * Условие на пару ключ-значение
+     */
+    @FunctionalInterface
+    public interface EntryPredicate<V> {
+        boolean test(int key, V value);
+    }
+
+    private final int minCapacity;
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int shift;
+    private int size;
+    private int threshold;
+    private int shrinkThreshold;
+
+    public IntObjectMap() {
+        this(IntHashing.DEFAULT_CAPACITY);
+    }
+
+    public IntObjectMap(int expectedSize) {
+        minCapacity = IntHashing.capacityFor(expectedSize);
+        allocate(minCapacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Значение по ключу или null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    /**
+     * Записывает значение
+     * @return предыдущее значение или null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("IntObjectMap does not accept null values");
+        }
+
+        int index = IntHashing.slot(key, shift);
+        Object current;
+        while ((current = values[index]) != null) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return (V) current;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Значение по ключу; если ключа нет, создаёт его функцией factory
+     */
+    public V computeIfAbsent(int key, IntFunction<? extends V> factory) {
+        V value = get(key);
+        if (value == null) {
+            value = factory.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Удаляет ключ
+     * @return удалённое значение или null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        V previous = (V) values[index];
+        removeAt(index);
+        shrinkIfSparse();
+        return previous;
+    }
+
+    /**
+     * Удаляет все пары. Таблицу, заметно большую, чем нужно для её содержимого, заменяет меньшей
+     * вместо обнуления
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        if (size < shrinkThreshold) {
+            allocate(IntHashing.shrunkCapacity(size, minCapacity));
+        } else {
+            Arrays.fill(values, null);
+        }
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value != null) {
+                consumer.accept(keys[i], (V) value);
+            }
+        }
+    }
+
+    /**
+     * Удаляет все пары, удовлетворяющие условию; условие вызывается ровно один раз на пару
+     * @return количество удалённых пар
+     */
+    @SuppressWarnings("unchecked")
+    public int removeIf(EntryPredicate<? super V> predicate) {
+        if (size == 0) {
+            return 0;
+        }
+
+        // Обход начинается после пустого слота: ни один кластер не пересекает начало обхода,
+        // и элементы, сдвинутые удалением назад, ещё не проверены
+        int start = 0;
+        while (values[start] != null) {
+            start++;
+        }
+
+        int removed = 0;
+        int index = (start + 1) & mask;
+        for (int visited = 1; visited < values.length; ) {
+            Object value = values[index];
+            if (value != null && predicate.test(keys[index], (V) value)) {
+                removeAt(index);
+                removed++;
+                // На место удалённого мог сдвинуться следующий элемент - проверяем тот же слот
+                continue;
+            }
+            index = (index + 1) & mask;
+            visited++;
+        }
+        shrinkIfSparse();
+        return removed;
+    }
+
+    /**
+     * Текущее число слотов таблицы (для тестов)
+     */
+    int capacity() {
+        return values.length;
+    }
+
+    private int indexOf(int key) {
+        int index = IntHashing.slot(key, shift);
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void removeAt(int hole) {
+        int index = (hole + 1) & mask;
+        while (values[index] != null) {
+            int ideal = IntHashing.slot(keys[index], shift);
+            if (IntHashing.shouldShift(ideal, hole, index)) {
+                keys[hole] = keys[index];
+                values[hole] = values[index];
+                hole = index;
+            }
+            index = (index + 1) & mask;
+        }
+        values[hole] = null;
+        size--;
+    }
+
+    private void shrinkIfSparse() {
+        if (size < shrinkThreshold) {
+            rehash(IntHashing.shrunkCapacity(size, minCapacity));
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        shift = IntHashing.shift(capacity);
+        threshold = IntHashing.threshold(capacity);
+        shrinkThreshold = IntHashing.shrinkThreshold(capacity, minCapacity);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object value = oldValues[i];
+            if (value != null) {
+                int index = IntHashing.slot(oldKeys[i], shift);
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.custommobsforge.custommobsforge.common.util.primitive;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Множество int с открытой адресацией и линейным пробированием, без упаковки элементов.
+ * Таблица ужимается, когда после удалений заполнена слабо (см. IntObjectMap).
+ * Не потокобезопасно.
+ */
+public final class IntSet {
+    private final int minCapacity;
+    private int[] keys;
+    private boolean[] used;
+    private int mask;
+    private int shift;
+    private int size;
+    private int threshold;
+    private int shrinkThreshold;
+
+    public IntSet() {
+        this(IntHashing.DEFAULT_CAPACITY);
+    }
+
+    public IntSet(int expectedSize) {
+        minCapacity = IntHashing.capacityFor(expectedSize);
+        allocate(minCapacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return true, если элемента ещё не было
+     */
+    public boolean add(int key) {
+        int index = IntHashing.slot(key, shift);
+        while (used[index]) {
+            if (keys[index] == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+
+        used[index] = true;
+        keys[index] = key;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * @return true, если элемент был
+     */
+    public boolean remove(int key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        shrinkIfSparse();
+        return true;
+    }
+
+    /**
+     * Удаляет все элементы. Таблицу, заметно большую, чем нужно для её содержимого, заменяет меньшей
+     * вместо обнуления
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        if (size < shrinkThreshold) {
+            allocate(IntHashing.shrunkCapacity(size, minCapacity));
+        } else {
+            Arrays.fill(used, false);
+        }
+        size = 0;
+    }
+
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                consumer.accept(keys[i]);
+            }
+        }
+    }
+
+    /**
+     * Удаляет все элементы, удовлетворяющие условию; условие вызывается ровно один раз на элемент
+     * @return количество удалённых элементов
+     */
+    public int removeIf(IntPredicate predicate) {
+        if (size == 0) {
+            return 0;
+        }
+
+        // Обход начинается после пустого слота (см. IntObjectMap.removeIf)
+        int start = 0;
+        while (used[start]) {
+            start++;
+        }
+
+        int removed = 0;
+        int index = (start + 1) & mask;
+        for (int visited = 1; visited < keys.length; ) {
+            if (used[index] && predicate.test(keys[index])) {
+                removeAt(index);
+                removed++;
+                continue;
+            }
+            index = (index + 1) & mask;
+            visited++;
+        }
+        shrinkIfSparse();
+        return removed;
+    }
+
+    /**
+     * Элементы в виде массива (порядок не определён)
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    private int indexOf(int key) {
+        int index = IntHashing.slot(key, shift);
+        while (used[index]) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void removeAt(int hole) {
+        int index = (hole + 1) & mask;
+        while (used[index]) {
+            int ideal = IntHashing.slot(keys[index], shift);
+            if (IntHashing.shouldShift(ideal, hole, index)) {
+                keys[hole] = keys[index];
+                hole = index;
+            }
+            index = (index + 1) & mask;
+        }
+        used[hole] = false;
+        size--;
+    }
+
+    private void shrinkIfSparse() {
+        if (size < shrinkThreshold) {
+            rehash(IntHashing.shrunkCapacity(size, minCapacity));
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        shift = IntHashing.shift(capacity);
+        threshold = IntHashing.threshold(capacity);
+        shrinkThreshold = IntHashing.shrinkThreshold(capacity, minCapacity);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int index = IntHashing.slot(oldKeys[i], shift);
+                while (used[index]) {
+                    index = (index + 1) & mask;
+                }
+                used[index] = true;
+                keys[index] = oldKeys[i];
+            }
+        }
+    }
+}
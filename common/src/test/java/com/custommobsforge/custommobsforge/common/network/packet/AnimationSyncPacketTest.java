@@ -0,0 +1,84 @@
+package com.custommobsforge.custommobsforge.common.network.packet;
+
+import com.custommobsforge.custommobsforge.common.animations.AnimationDictionary;
+import com.custommobsforge.custommobsforge.common.data.AnimationMapping;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Кодирование и декодирование пакета смены анимации
+ */
+class AnimationSyncPacketTest {
+    private static final AnimationDictionary DICTIONARY = dictionary("idle", "walk", "attack");
+
+    @Test
+    void dictionaryNameTravelsAsIndex() {
+        AnimationSyncPacket sent = AnimationSyncPacket.of(42, DICTIONARY, "walk", 1.25f, true);
+        assertNull(sent.getAnimationId());
+
+        FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+        AnimationSyncPacket.encode(sent, buffer);
+        // ID сущности, заголовок и скорость - по байту, без строки имени
+        assertEquals(3, buffer.readableBytes());
+
+        AnimationSyncPacket received = AnimationSyncPacket.decode(buffer);
+        assertEquals(0, buffer.readableBytes());
+        assertEquals(42, received.getEntityId());
+        assertNull(received.getAnimationId());
+        assertEquals("walk", received.resolveAnimationId(DICTIONARY));
+        assertTrue(received.isLoop());
+        assertEquals(1.25f, received.getAnimationSpeed());
+    }
+
+    @Test
+    void everyDictionaryNameRoundTrips() {
+        for (String name : new String[]{"attack", "idle", "walk"}) {
+            FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+            AnimationSyncPacket.encode(AnimationSyncPacket.of(7, DICTIONARY, name, 1.0f, false), buffer);
+            assertEquals(name, AnimationSyncPacket.decode(buffer).resolveAnimationId(DICTIONARY));
+        }
+    }
+
+    @Test
+    void unknownNameTravelsAsString() {
+        AnimationSyncPacket sent = AnimationSyncPacket.of(300, DICTIONARY, "custom.spin", 0.5f, false);
+
+        FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+        AnimationSyncPacket.encode(sent, buffer);
+        AnimationSyncPacket received = AnimationSyncPacket.decode(buffer);
+
+        assertEquals(0, buffer.readableBytes());
+        assertEquals(300, received.getEntityId());
+        assertEquals("custom.spin", received.getAnimationId());
+        assertEquals("custom.spin", received.resolveAnimationId(DICTIONARY));
+        // Имя строкой не зависит от словаря клиента
+        assertEquals("custom.spin", received.resolveAnimationId(dictionary()));
+        assertFalse(received.isLoop());
+        assertEquals(0.5f, received.getAnimationSpeed());
+    }
+
+    @Test
+    void indexIsUnresolvedWithoutDictionary() {
+        FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+        AnimationSyncPacket.encode(AnimationSyncPacket.of(1, DICTIONARY, "idle", 1.0f, true), buffer);
+
+        assertNull(AnimationSyncPacket.decode(buffer).resolveAnimationId(dictionary()));
+    }
+
+    private static AnimationDictionary dictionary(String... names) {
+        Map<String, AnimationMapping> mappings = new LinkedHashMap<>();
+        for (String name : names) {
+            mappings.put("action." + name, new AnimationMapping(name, false, 1.0f));
+        }
+        return AnimationDictionary.of(mappings);
+    }
+}
@@ -0,0 +1,65 @@
+package com.custommobsforge.custommobsforge.common.network.packet;
+
+import com.custommobsforge.custommobsforge.common.animations.AnimationDictionary;
+import com.custommobsforge.custommobsforge.common.data.AnimationMapping;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Кодирование и декодирование пакета обновлений сущностей за тик
+ */
+class EntityUpdateBundlePacketTest {
+    private static final AnimationDictionary DICTIONARY = AnimationDictionary.of(Collections.singletonMap(
+            "action.walk", new AnimationMapping("walk", true, 1.0f)));
+
+    @Test
+    void mixedUpdatesRoundTrip() {
+        EntityUpdateBundlePacket bundle = new EntityUpdateBundlePacket();
+        bundle.add(new StateUpdatePacket(5, "chase", Map.of("speed", 1.5)));
+        bundle.add(AnimationSyncPacket.of(5, DICTIONARY, "walk", 1.0f, true));
+        bundle.add(AnimationSyncPacket.of(6, DICTIONARY, "custom.spin", 0.75f, false));
+        bundle.add(new StateUpdatePacket(6, "idle", null));
+
+        byte[] encoded = encode(bundle);
+        FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.wrappedBuffer(encoded));
+        EntityUpdateBundlePacket decoded = EntityUpdateBundlePacket.decode(buffer);
+
+        assertEquals(0, buffer.readableBytes());
+        assertEquals(4, decoded.size());
+        // Обновления читаются по тем же границам, что и записаны: повторное кодирование даёт те же байты
+        assertArrayEquals(encoded, encode(decoded));
+    }
+
+    @Test
+    void emptyBundleIsOneByte() {
+        byte[] encoded = encode(new EntityUpdateBundlePacket());
+
+        assertEquals(1, encoded.length);
+        assertEquals(0, EntityUpdateBundlePacket.decode(new FriendlyByteBuf(Unpooled.wrappedBuffer(encoded))).size());
+    }
+
+    @Test
+    void unknownUpdateTypeIsRejected() {
+        FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+        buffer.writeVarInt(1);
+        buffer.writeByte(7);
+
+        assertThrows(IllegalArgumentException.class, () -> EntityUpdateBundlePacket.decode(buffer));
+    }
+
+    private static byte[] encode(EntityUpdateBundlePacket bundle) {
+        FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+        EntityUpdateBundlePacket.encode(bundle, buffer);
+        byte[] bytes = new byte[buffer.readableBytes()];
+        buffer.readBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,101 @@
+package com.custommobsforge.custommobsforge.common.util.primitive;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Дифференциальные тесты IntLongMap против HashMap
+ */
+class IntLongMapTest {
+    private static final int SEEDS = 20;
+    private static final int OPERATIONS = 20_000;
+    // Значение "нет ключа"; сами значения его не принимают
+    private static final long MISSING = Long.MIN_VALUE;
+
+    @Test
+    void randomOperationsMatchHashMap() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            Random random = new Random(seed);
+            int[] colliding = TestKeys.colliding(seed % 2 == 0 ? 15 : 9, 64);
+            IntLongMap actual = new IntLongMap(random.nextInt(4));
+            Map<Integer, Long> expected = new HashMap<>();
+
+            for (int op = 0; op < OPERATIONS; op++) {
+                int key = TestKeys.next(random, colliding);
+                int action = random.nextInt(100);
+                if (action < 50) {
+                    long value = random.nextLong() >>> 1;
+                    assertEquals(orMissing(expected.put(key, value)), actual.put(key, value, MISSING), "put " + key);
+                } else if (action < 80) {
+                    assertEquals(orMissing(expected.remove(key)), actual.remove(key, MISSING), "remove " + key);
+                } else if (action < 83) {
+                    long threshold = random.nextLong() >>> 1;
+                    int[] calls = {0};
+                    int sizeBefore = actual.size();
+                    int removed = actual.removeIf((k, v) -> {
+                        calls[0]++;
+                        return v < threshold;
+                    });
+                    int expectedRemoved = 0;
+                    for (Iterator<Long> it = expected.values().iterator(); it.hasNext(); ) {
+                        if (it.next() < threshold) {
+                            it.remove();
+                            expectedRemoved++;
+                        }
+                    }
+                    assertEquals(expectedRemoved, removed, "removeIf count");
+                    assertEquals(sizeBefore, calls[0], "removeIf must test every entry exactly once");
+                } else if (action < 84) {
+                    actual.clear();
+                    expected.clear();
+                } else {
+                    assertEquals(orMissing(expected.get(key)), actual.get(key, MISSING), "get " + key);
+                    assertEquals(expected.containsKey(key), actual.containsKey(key), "containsKey " + key);
+                }
+
+                assertEquals(expected.size(), actual.size(), "size after op " + op);
+                if (op % 500 == 0) {
+                    assertSameContents(expected, actual);
+                }
+            }
+            assertSameContents(expected, actual);
+        }
+    }
+
+    @Test
+    void removeIfAcrossWrappedCollidingCluster() {
+        IntLongMap map = new IntLongMap();
+        Map<Integer, Long> expected = new HashMap<>();
+        int[] keys = TestKeys.colliding(15, 100);
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+            expected.put(keys[i], (long) i);
+        }
+
+        assertEquals(50, map.removeIf((k, v) -> v % 2 == 0));
+        expected.values().removeIf(v -> v % 2 == 0);
+        assertSameContents(expected, map);
+
+        assertEquals(50, map.removeIf((k, v) -> true));
+        assertTrue(map.isEmpty());
+    }
+
+    private static long orMissing(Long value) {
+        return value != null ? value : MISSING;
+    }
+
+    private static void assertSameContents(Map<Integer, Long> expected, IntLongMap actual) {
+        assertEquals(expected.size(), actual.size());
+        Map<Integer, Long> seen = new HashMap<>();
+        actual.forEach((k, v) -> assertNull(seen.put(k, v), "duplicate key " + k));
+        assertEquals(expected, seen);
+    }
+}
@@ -0,0 +1,172 @@
+package com.custommobsforge.custommobsforge.common.util.primitive;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Дифференциальные тесты IntObjectMap против HashMap
+ */
+class IntObjectMapTest {
+    private static final int SEEDS = 20;
+    private static final int OPERATIONS = 20_000;
+
+    @Test
+    void randomOperationsMatchHashMap() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            Random random = new Random(seed);
+            // Кластер в последнем слоте таблицы по умолчанию переходит через её конец
+            int[] colliding = TestKeys.colliding(seed % 2 == 0 ? 15 : 3, 64);
+            IntObjectMap<String> actual = new IntObjectMap<>(random.nextInt(4));
+            Map<Integer, String> expected = new HashMap<>();
+
+            for (int op = 0; op < OPERATIONS; op++) {
+                int key = TestKeys.next(random, colliding);
+                int action = random.nextInt(100);
+                if (action < 45) {
+                    String value = "v" + op;
+                    assertEquals(expected.put(key, value), actual.put(key, value), "put " + key);
+                } else if (action < 75) {
+                    assertEquals(expected.remove(key), actual.remove(key), "remove " + key);
+                } else if (action < 85) {
+                    String computed = actual.computeIfAbsent(key, k -> "c" + k);
+                    assertEquals(expected.computeIfAbsent(key, k -> "c" + k), computed, "computeIfAbsent " + key);
+                } else if (action < 88) {
+                    int divisor = 2 + random.nextInt(3);
+                    int[] calls = {0};
+                    int sizeBefore = actual.size();
+                    int removed = actual.removeIf((k, v) -> {
+                        calls[0]++;
+                        return Math.floorMod(k, divisor) == 0;
+                    });
+                    int expectedRemoved = removeIf(expected, divisor);
+                    assertEquals(expectedRemoved, removed, "removeIf count");
+                    assertEquals(sizeBefore, calls[0], "removeIf must test every entry exactly once");
+                } else if (action < 89) {
+                    actual.clear();
+                    expected.clear();
+                } else {
+                    assertEquals(expected.get(key), actual.get(key), "get " + key);
+                    assertEquals(expected.containsKey(key), actual.containsKey(key), "containsKey " + key);
+                }
+
+                assertEquals(expected.size(), actual.size(), "size after op " + op);
+                if (op % 500 == 0) {
+                    assertSameContents(expected, actual);
+                }
+            }
+            assertSameContents(expected, actual);
+        }
+    }
+
+    @Test
+    void removeIfAcrossWrappedCollidingCluster() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        // Рост с 16 слотов до 256 через несколько расширений, всё в одном кластере
+        for (int key : TestKeys.colliding(15, 100)) {
+            map.put(key, key);
+            expected.put(key, key);
+        }
+
+        for (int divisor = 5; divisor >= 2; divisor--) {
+            int d = divisor;
+            assertEquals(removeIf(expected, d), map.removeIf((k, v) -> Math.floorMod(k, d) == 0));
+            assertSameContents(expected, map);
+        }
+
+        assertEquals(expected.size(), map.removeIf((k, v) -> true));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void backwardShiftKeepsClusterReachable() {
+        int[] keys = TestKeys.colliding(7, 12);
+        IntObjectMap<String> map = new IntObjectMap<>();
+        for (int key : keys) {
+            map.put(key, "k" + key);
+        }
+
+        // Удаление из головы, середины и хвоста кластера
+        map.remove(keys[0]);
+        map.remove(keys[6]);
+        map.remove(keys[11]);
+
+        for (int i = 0; i < keys.length; i++) {
+            boolean removed = i == 0 || i == 6 || i == 11;
+            if (removed) {
+                assertNull(map.get(keys[i]));
+            } else {
+                assertEquals("k" + keys[i], map.get(keys[i]));
+            }
+        }
+        assertEquals(9, map.size());
+    }
+
+    @Test
+    void shrinksAfterMassRemoval() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        int initial = map.capacity();
+        for (int id = 0; id < 10_000; id++) {
+            map.put(id, id);
+        }
+        int grown = map.capacity();
+
+        assertEquals(9_990, map.removeIf((k, v) -> k >= 10));
+        assertTrue(map.capacity() < grown / 64, "removeIf must shrink the table");
+        for (int id = 0; id < 10; id++) {
+            assertEquals(id, map.get(id));
+        }
+
+        for (int id = 0; id < 9; id++) {
+            map.remove(id);
+        }
+        assertEquals(initial, map.capacity());
+        assertEquals(9, map.get(9));
+
+        for (int id = 0; id < 10_000; id++) {
+            map.put(id, id);
+        }
+        map.removeIf((k, v) -> k >= 100);
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertTrue(map.capacity() < grown, "clear must drop an oversized table");
+    }
+
+    @Test
+    void rejectsNullValues() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        assertThrows(NullPointerException.class, () -> map.put(1, null));
+        assertFalse(map.containsKey(1));
+    }
+
+    private static int removeIf(Map<Integer, ?> map, int divisor) {
+        int removed = 0;
+        for (Iterator<Integer> it = map.keySet().iterator(); it.hasNext(); ) {
+            if (Math.floorMod(it.next(), divisor) == 0) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private static <V> void assertSameContents(Map<Integer, V> expected, IntObjectMap<V> actual) {
+        assertEquals(expected.size(), actual.size());
+        Map<Integer, V> seen = new HashMap<>();
+        actual.forEach((k, v) -> assertNull(seen.put(k, v), "duplicate key " + k));
+        assertEquals(expected, seen);
+        for (Map.Entry<Integer, V> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.custommobsforge.custommobsforge.common.util.primitive;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Дифференциальные тесты IntSet против HashSet
+ */
+class IntSetTest {
+    private static final int SEEDS = 20;
+    private static final int OPERATIONS = 20_000;
+
+    @Test
+    void randomOperationsMatchHashSet() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            Random random = new Random(seed);
+            int[] colliding = TestKeys.colliding(seed % 2 == 0 ? 15 : 0, 64);
+            IntSet actual = new IntSet(random.nextInt(4));
+            Set<Integer> expected = new HashSet<>();
+
+            for (int op = 0; op < OPERATIONS; op++) {
+                int key = TestKeys.next(random, colliding);
+                int action = random.nextInt(100);
+                if (action < 50) {
+                    assertEquals(expected.add(key), actual.add(key), "add " + key);
+                } else if (action < 80) {
+                    assertEquals(expected.remove(key), actual.remove(key), "remove " + key);
+                } else if (action < 83) {
+                    int divisor = 2 + random.nextInt(3);
+                    int[] calls = {0};
+                    int sizeBefore = actual.size();
+                    int removed = actual.removeIf(k -> {
+                        calls[0]++;
+                        return Math.floorMod(k, divisor) == 0;
+                    });
+                    int expectedRemoved = 0;
+                    for (Iterator<Integer> it = expected.iterator(); it.hasNext(); ) {
+                        if (Math.floorMod(it.next(), divisor) == 0) {
+                            it.remove();
+                            expectedRemoved++;
+                        }
+                    }
+                    assertEquals(expectedRemoved, removed, "removeIf count");
+                    assertEquals(sizeBefore, calls[0], "removeIf must test every element exactly once");
+                } else if (action < 84) {
+                    actual.clear();
+                    expected.clear();
+                } else {
+                    assertEquals(expected.contains(key), actual.contains(key), "contains " + key);
+                }
+
+                assertEquals(expected.size(), actual.size(), "size after op " + op);
+                if (op % 500 == 0) {
+                    assertSameContents(expected, actual);
+                }
+            }
+            assertSameContents(expected, actual);
+        }
+    }
+
+    @Test
+    void removeIfAcrossWrappedCollidingCluster() {
+        IntSet set = new IntSet();
+        Set<Integer> expected = new HashSet<>();
+        for (int key : TestKeys.colliding(15, 100)) {
+            set.add(key);
+            expected.add(key);
+        }
+
+        assertEquals(countMatching(expected, 3), set.removeIf(k -> Math.floorMod(k, 3) == 0));
+        expected.removeIf(k -> Math.floorMod(k, 3) == 0);
+        assertSameContents(expected, set);
+
+        assertEquals(expected.size(), set.removeIf(k -> true));
+        assertTrue(set.isEmpty());
+    }
+
+    private static int countMatching(Set<Integer> set, int divisor) {
+        int count = 0;
+        for (int key : set) {
+            if (Math.floorMod(key, divisor) == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void assertSameContents(Set<Integer> expected, IntSet actual) {
+        assertEquals(expected.size(), actual.size());
+        int[] elements = actual.toArray();
+        Set<Integer> seen = new HashSet<>();
+        for (int element : elements) {
+            assertTrue(seen.add(element), "duplicate element " + element);
+        }
+        assertEquals(expected, seen);
+
+        int[] visited = new int[actual.size()];
+        int[] n = {0};
+        actual.forEach(k -> visited[n[0]++] = k);
+        Arrays.sort(visited);
+        Arrays.sort(elements);
+        assertTrue(Arrays.equals(elements, visited));
+    }
+}
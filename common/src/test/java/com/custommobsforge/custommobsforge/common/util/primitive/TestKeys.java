@@ -0,0 +1,48 @@
+package com.custommobsforge.custommobsforge.common.util.primitive;
+
+import java.util.Random;
+
+/**
+ * Генераторы ключей для дифференциальных тестов примитивных коллекций
+ */
+final class TestKeys {
+    // Слот берётся из старших бит хэша, поэтому ключи с общими старшими COLLISION_BITS битами
+    // сталкиваются во всех таблицах до 2^COLLISION_BITS слотов
+    private static final int COLLISION_BITS = 12;
+    private static final int DEFAULT_BITS = 4;
+
+    private TestKeys() {
+    }
+
+    /**
+     * Ключи с одним исходным слотом во всех таблицах от 16 до 4096 слотов: они образуют один длинный кластер.
+     * bucket - слот в таблице из 16 слотов; в больших таблицах кластер начинается с последнего слота
+     * этого диапазона, поэтому bucket = 15 даёт кластер, переходящий через конец таблицы при любом размере
+     */
+    static int[] colliding(int bucket, int count) {
+        int shift = 32 - COLLISION_BITS;
+        int target = (bucket << (COLLISION_BITS - DEFAULT_BITS)) | ((1 << (COLLISION_BITS - DEFAULT_BITS)) - 1);
+        int[] keys = new int[count];
+        int found = 0;
+        for (int candidate = Integer.MIN_VALUE; found < count; candidate++) {
+            if (IntHashing.slot(candidate, shift) == target) {
+                keys[found++] = candidate;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Случайный ключ из смеси пулов: сталкивающиеся ключи, подряд идущие ID сущностей и произвольные int
+     */
+    static int next(Random random, int[] collidingPool) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return collidingPool[random.nextInt(collidingPool.length)];
+            case 1:
+                return random.nextInt(512);
+            default:
+                return random.nextInt();
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.custommobsforge.custommobsforge.client.cache;
 
+import com.custommobsforge.custommobsforge.common.data.ClientMobView;
 import com.custommobsforge.custommobsforge.common.data.MobData;
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.common.network.NetworkManager;
+import com.custommobsforge.custommobsforge.common.network.packet.RequestMobDataPacket;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
@@ -19,6 +23,14 @@ public class MobDataCache {
     private static final String CLIENT_CACHE_DIR = "custommobsforge/cache";
     private static Path cacheDir;
 
+    // Определения мобов по хэшу содержимого; хранятся на диске между сессиями,
+    // поэтому при повторном подключении сервер ничего не отправляет
+    private static final Map<Long, MobData> DEFINITIONS = new ConcurrentHashMap<>();
+    private static final String DEFINITIONS_DIR = "definitions";
+    // Запрошенные у сервера хэши -> время запроса; повтор - если ответа нет дольше таймаута
+    private static final Map<Long, Long> PENDING_REQUESTS = new ConcurrentHashMap<>();
+    private static final long REQUEST_RETRY_MS = 5000;
+
     public static void init() {
         try {
             cacheDir = Minecraft.getInstance().gameDirectory.toPath().resolve(CLIENT_CACHE_DIR);
@@ -29,6 +41,7 @@ public class MobDataCache {
 
             // Загружаем кэшированные данные при запуске
             loadCachedData();
+            loadDefinitions();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -75,6 +88,99 @@ public class MobDataCache {
         return CLIENT_CACHE.containsKey(mobId);
     }
 
+    /**
+     * Применяет к сущности определение по её хэшу. Если определения нет в кэше,
+     * запрашивает его у сервера - один раз на хэш, сколько бы сущностей его ни ждали
+     * @return Определение или null, если оно ещё не получено
+     */
+    public static MobData resolve(CustomMobEntity entity) {
+        long hash = entity.getMobDataHash();
+        if (hash == 0L) {
+            // Сервер ещё не выдал сущности определение
+            return null;
+        }
+
+        MobData data = DEFINITIONS.get(hash);
+        if (data != null) {
+            entity.applyMobDefinition(data, hash);
+            return data;
+        }
+
+        long now = System.currentTimeMillis();
+        Long requestedAt = PENDING_REQUESTS.get(hash);
+        if ((requestedAt == null || now - requestedAt > REQUEST_RETRY_MS)
+                && Minecraft.getInstance().getConnection() != null) {
+            PENDING_REQUESTS.put(hash, now);
+            System.out.println("MobDataCache: Requesting definition " + Long.toHexString(hash) +
+                    " for mob ID: " + entity.getMobId());
+            NetworkManager.INSTANCE.sendToServer(new RequestMobDataPacket(entity.getMobId(), hash));
+        }
+        return null;
+    }
+
+    /**
+     * Сохраняет определение, полученное от сервера, в память и на диск.
+     * Кэш общий для всех серверов, поэтому хэш пересчитывается по содержимому: определение,
+     * не совпадающее с заявленным хэшем, не сохраняется и не подменяет чужие определения
+     * @return false, если содержимое не соответствует хэшу
+     */
+    public static boolean storeDefinition(long hash, MobData data) {
+        if (data == null || hash == 0L) {
+            return false;
+        }
+        PENDING_REQUESTS.remove(hash);
+
+        long actualHash = ClientMobView.of(data).computeContentHash();
+        if (actualHash != hash) {
+            System.err.println("MobDataCache: Rejected definition for mob ID " + data.getId() + ": server hash " +
+                    Long.toHexString(hash) + " does not match content hash " + Long.toHexString(actualHash));
+            return false;
+        }
+
+        if (DEFINITIONS.putIfAbsent(hash, data) != null || cacheDir == null) {
+            return true;
+        }
+
+        try {
+            Path dir = cacheDir.resolve(DEFINITIONS_DIR);
+            Files.createDirectories(dir);
+            Files.write(dir.resolve(Long.toHexString(hash) + ".json"),
+                    GSON.toJson(data).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return true;
+    }
+
+    private static void loadDefinitions() {
+        Path dir = cacheDir.resolve(DEFINITIONS_DIR);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+
+        int loadedCount = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                try {
+                    long hash = Long.parseUnsignedLong(fileName.substring(0, fileName.length() - ".json".length()), 16);
+                    MobData data = GSON.fromJson(new String(Files.readAllBytes(path), StandardCharsets.UTF_8), MobData.class);
+                    // Файлы, записанные до проверки хэша, могли сохранить чужое содержимое
+                    if (data != null && data.getId() != null && ClientMobView.of(data).computeContentHash() == hash) {
+                        DEFINITIONS.put(hash, data);
+                        loadedCount++;
+                    }
+                } catch (IOException | JsonSyntaxException | NumberFormatException e) {
+                    System.err.println("MobDataCache: Skipping broken definition file " + fileName + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        System.out.println("Loaded " + loadedCount + " mob definitions from cache");
+    }
+
     private static void loadCachedData() {
         try {
             if (!Files.exists(cacheDir)) {
@@ -113,6 +219,8 @@ public class MobDataCache {
 
     public static void clearCache() {
         CLIENT_CACHE.clear();
+        DEFINITIONS.clear();
+        PENDING_REQUESTS.clear();
 
         try {
             if (Files.exists(cacheDir)) {
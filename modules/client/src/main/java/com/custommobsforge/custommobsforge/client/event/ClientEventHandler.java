@@ -1,5 +1,6 @@
 package com.custommobsforge.custommobsforge.client.event;
 
+import com.custommobsforge.custommobsforge.client.cache.MobDataCache;
 import com.custommobsforge.custommobsforge.client.gui.MobCreatorGUI;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 import com.custommobsforge.custommobsforge.common.event.MobDataReceivedEvent;
@@ -16,6 +17,24 @@ public class ClientEventHandler {
         // Получаем данные моба
         com.custommobsforge.custommobsforge.common.data.MobData data = event.getMobData();
 
+        // Определение по хэшу: сохраняем в кэш и применяем к сущностям, которые его ждут
+        if (data != null && event.getHash() != 0L) {
+            long hash = event.getHash();
+            if (!MobDataCache.storeDefinition(hash, data)) {
+                return;
+            }
+
+            Minecraft mc = Minecraft.getInstance();
+            if (mc.level != null) {
+                for (Entity entity : mc.level.entitiesForRendering()) {
+                    if (entity instanceof CustomMobEntity && ((CustomMobEntity) entity).getMobDataHash() == hash) {
+                        ((CustomMobEntity) entity).applyMobDefinition(data, hash);
+                    }
+                }
+            }
+            return;
+        }
+
         if (data != null) {
             System.out.println("ClientEventHandler: Received mob data from server for ID: " + data.getId() +
                     ", name: " + data.getName() +
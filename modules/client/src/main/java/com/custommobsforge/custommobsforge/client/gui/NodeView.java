@@ -1045,11 +1045,28 @@ public class NodeView extends VBox {
 
         // Добавляем все элементы в контейнер
         if (node.getType().equals("FollowNode")) {
+            // Общее поле потока к цели для больших групп преследователей
+            Label flowFieldLabel = new Label("Flow Field:");
+            flowFieldLabel.getStyleClass().add(Constants.PARAMETER_LABEL_STYLE_CLASS);
+
+            CheckBox flowFieldCheckbox = new CheckBox();
+            flowFieldCheckbox.setSelected(getBooleanParam("flowField", false));
+            flowFieldCheckbox.getStyleClass().add("custom-checkbox");
+
+            flowFieldCheckbox.selectedProperty().addListener((obs, oldVal, newVal) -> {
+                dynamicParams.put("flowField", newVal);
+                saveNodeParameters();
+            });
+
+            HBox flowFieldBox = new HBox(5, flowFieldCheckbox);
+            flowFieldBox.setAlignment(Pos.CENTER_LEFT);
+
             contentContainer.getChildren().addAll(
                     descLabel, descValueLabel,
                     targetLabel, targetBox,
                     distanceLabel, distanceBox,
-                    speedLabel, speedBox
+                    speedLabel, speedBox,
+                    flowFieldLabel, flowFieldBox
             );
         } else { // FleeNode
             contentContainer.getChildren().addAll(
@@ -1,8 +1,10 @@
 package com.custommobsforge.custommobsforge.client.handler;
 
+import com.custommobsforge.custommobsforge.common.ai.NodeTypes;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.common.event.NodeDebugEvent;
 import com.custommobsforge.custommobsforge.common.network.packet.AnimationSyncPacket;
-import com.custommobsforge.custommobsforge.common.network.packet.PlayBehaviorNodePacket;
+import com.custommobsforge.custommobsforge.common.util.primitive.IntLongMap;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.particle.ParticleEngine;
 import net.minecraft.core.particles.ParticleOptions;
@@ -11,12 +13,11 @@ import net.minecraft.world.entity.Entity;
 import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
 
 public class AnimationHandler {
-    private static final Map<Integer, Long> activeNodeEffects = new HashMap<>();
+    // ID сущности -> время активации эффекта узла
+    private static final IntLongMap activeNodeEffects = new IntLongMap();
     private static final long EFFECT_DURATION = 1000; // 1 секунда в миллисекундах
 
     public static void handleAnimationSync(AnimationSyncPacket packet) {
@@ -25,20 +26,32 @@ public class AnimationHandler {
 
         if (entity instanceof CustomMobEntity) {
             CustomMobEntity mobEntity = (CustomMobEntity) entity;
-            mobEntity.setAnimation(packet.getAnimationId(), packet.isLoop(), packet.getAnimationSpeed());
+            String animationId = packet.resolveAnimationId(mobEntity);
+            if (animationId != null) {
+                mobEntity.setAnimation(animationId, packet.isLoop(), packet.getAnimationSpeed());
+            }
         }
     }
 
-    public static void handleNodeExecution(PlayBehaviorNodePacket packet) {
+    /**
+     * Отладка деревьев поведения (игрок подписан командой): частицы по последнему выполненному узлу,
+     * не больше одной вспышки на моба за пакет
+     */
+    @SubscribeEvent
+    public static void onNodeDebug(NodeDebugEvent event) {
         Minecraft mc = Minecraft.getInstance();
-        Entity entity = mc.level.getEntity(packet.getEntityId());
+        if (mc.level == null || event.getTypeCodes().length == 0) {
+            return;
+        }
+        Entity entity = mc.level.getEntity(event.getEntityId());
 
         if (entity instanceof CustomMobEntity) {
             // Сохраняем время активации эффекта
-            activeNodeEffects.put(packet.getEntityId(), System.currentTimeMillis());
+            activeNodeEffects.put(event.getEntityId(), System.currentTimeMillis());
 
             // В зависимости от типа узла, показываем разные частицы
-            ParticleOptions particle = getParticleForNodeType(packet.getNodeType());
+            int[] typeCodes = event.getTypeCodes();
+            ParticleOptions particle = getParticleForNodeType(NodeTypes.nameOf(typeCodes[typeCodes.length - 1]));
             if (particle != null) {
                 // Спавним частицы вокруг моба
                 spawnParticlesAroundEntity(entity, particle);
@@ -87,8 +100,8 @@ public class AnimationHandler {
         if (event.phase == TickEvent.Phase.END) {
             // Обновляем эффекты узлов
             long currentTime = System.currentTimeMillis();
-            activeNodeEffects.entrySet().removeIf(entry ->
-                    currentTime - entry.getValue() > EFFECT_DURATION);
+            activeNodeEffects.removeIf((entityId, activatedAt) ->
+                    currentTime - activatedAt > EFFECT_DURATION);
         }
     }
 }
\ No newline at end of file
@@ -1,11 +1,9 @@
 package com.custommobsforge.custommobsforge.client.render;
 
+import com.custommobsforge.custommobsforge.client.cache.MobDataCache;
 import com.custommobsforge.custommobsforge.common.data.MobData;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
-import com.custommobsforge.custommobsforge.common.network.NetworkManager;
-import com.custommobsforge.custommobsforge.common.network.packet.RequestMobDataPacket;
 import mod.azure.azurelib.model.DefaultedEntityGeoModel;
-import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.RenderType;
 import net.minecraft.resources.ResourceLocation;
 
@@ -28,13 +26,11 @@ public class CustomMobModel extends DefaultedEntityGeoModel<CustomMobEntity> {
         // Получаем данные моба напрямую из сущности
         MobData mobData = entity.getMobData();
 
-        // Если данных нет в сущности, запрашиваем с сервера
+        // Если данных нет в сущности, берём определение из кэша по хэшу или запрашиваем его с сервера
+        if (mobData == null && entity != null && entity.getMobId() != null && !entity.getMobId().isEmpty()) {
+            mobData = MobDataCache.resolve(entity);
+        }
         if (mobData == null && entity != null && entity.getMobId() != null && !entity.getMobId().isEmpty()) {
-            System.out.println("CustomMobModel: No mob data found for entity " + entity.getId() +
-                    ", requesting from server for ID: " + entity.getMobId());
-            if (Minecraft.getInstance().getConnection() != null) {
-                NetworkManager.INSTANCE.sendToServer(new RequestMobDataPacket(entity.getMobId()));
-            }
             // Данные придут асинхронно, поэтому возвращаем модель по умолчанию
             System.out.println("CustomMobModel: Using default model while waiting for server data");
             return new ResourceLocation("custommobsforge", "geo/custom_mob.geo.json");
@@ -1,13 +1,23 @@
 package com.custommobsforge.custommobsforge.server;
 
+import com.custommobsforge.custommobsforge.common.data.MobDefinitions;
+import com.custommobsforge.custommobsforge.common.event.system.EventSystem;
+import com.custommobsforge.custommobsforge.common.network.EntityUpdateOutbox;
 import com.custommobsforge.custommobsforge.common.registry.EntityRegistry;
+import com.custommobsforge.custommobsforge.server.ai.BehaviorTreeRepository;
+import com.custommobsforge.custommobsforge.server.ai.BehaviorTreeScheduler;
+import com.custommobsforge.custommobsforge.server.ai.debug.NodeDebugSubscriptions;
+import com.custommobsforge.custommobsforge.server.ai.path.PathRequestService;
+import com.custommobsforge.custommobsforge.server.ai.squad.SquadManager;
 import com.custommobsforge.custommobsforge.server.commands.ServerCommandRegistrationHandler;
 import com.custommobsforge.custommobsforge.server.event.MobSpawnEventHandler;
 import com.custommobsforge.custommobsforge.server.event.ServerSaveHandler;
 import com.custommobsforge.custommobsforge.server.event.ServerTickHandler;
+import com.custommobsforge.custommobsforge.server.timer.TickTimers;
 import net.minecraft.world.entity.ai.attributes.AttributeSupplier;
 import net.minecraftforge.event.entity.EntityAttributeCreationEvent;
 import net.minecraftforge.event.server.ServerStartingEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
 import net.minecraftforge.eventbus.api.IEventBus;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
@@ -63,5 +73,22 @@ public class ServerCustomMobsForge {
     public void onServerStarting(ServerStartingEvent event) {
         // Инициализация компонентов при запуске сервера
         System.out.println("ServerCustomMobsForge: Server starting");
+
+        // Время таймеров - игровое время мира, до первого тика сервера в том числе
+        TickTimers.start(event.getServer().overworld().getGameTime());
+    }
+
+    @SubscribeEvent
+    public void onServerStopped(ServerStoppedEvent event) {
+        // Скомпилированные деревья привязаны к миру, при смене мира их нужно перечитать
+        BehaviorTreeRepository.clear();
+        BehaviorTreeScheduler.clear();
+        TickTimers.clear();
+        PathRequestService.clear();
+        SquadManager.clear();
+        MobDefinitions.clear();
+        EntityUpdateOutbox.clear();
+        NodeDebugSubscriptions.clear();
+        EventSystem.clearDeferred();
     }
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.common.spatial.SpatialIndex;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.ai.targeting.TargetingConditions;
@@ -11,15 +13,35 @@ import net.minecraft.world.phys.Vec3;
 
 import java.util.List;
 
-public class AttackNodeExecutor implements NodeExecutor {
+public class AttackNodeExecutor implements LeafExecutor {
     private static final TargetingConditions ATTACK_TARGETING = TargetingConditions.forCombat().range(16.0D);
 
+    /**
+     * Параметры узла атаки
+     */
+    public static final class Params {
+        final float damage;
+        final double range;
+        final double angle;
+
+        private Params(float damage, double range, double angle) {
+            this.damage = damage;
+            this.range = range;
+            this.angle = angle;
+        }
+
+        static Params bind(NodeParamReader reader) {
+            return new Params(
+                    (float) reader.getDouble("damage", 3.0, 0.0, 1024.0),
+                    reader.getDouble("range", 2.0, 0.0, 64.0),
+                    reader.getDouble("angle", 60.0, 0.0, 360.0));
+        }
+    }
+
     @Override
-    public boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+    public NodeStatus execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
         // Получаем параметры узла
-        double damage = node.getCustomParameterAsDouble("damage", 3.0);
-        double range = node.getCustomParameterAsDouble("range", 2.0);
-        double angle = node.getCustomParameterAsDouble("angle", 60.0);
+        Params params = executor.getParams(node, Params.class);
 
         // Воспроизводим анимацию атаки
         if (node.getAnimationId() != null && !node.getAnimationId().isEmpty()) {
@@ -30,27 +52,27 @@ public class AttackNodeExecutor implements NodeExecutor {
 
         // Проверяем, является ли мир серверным
         if (!(entity.level() instanceof ServerLevel)) {
-            return true; // На клиенте просто воспроизводим анимацию
+            return NodeStatus.SUCCESS; // На клиенте просто воспроизводим анимацию
         }
 
         // Ищем цели в указанном радиусе и угле
-        List<LivingEntity> targets = findTargetsInCone(entity, range, angle);
+        List<LivingEntity> targets = findTargetsInCone(entity, params.range, params.angle);
 
         // Если нет целей, возвращаем неудачу
         if (targets.isEmpty()) {
-            return false;
+            return NodeStatus.FAILURE;
         }
 
         // Атакуем все цели
         boolean anyHit = false;
         for (LivingEntity target : targets) {
             // Наносим урон
-            if (target.hurt(entity.level().damageSources().mobAttack(entity), (float) damage)) {
+            if (target.hurt(entity.level().damageSources().mobAttack(entity), params.damage)) {
                 anyHit = true;
             }
         }
 
-        return anyHit;
+        return anyHit ? NodeStatus.SUCCESS : NodeStatus.FAILURE;
     }
 
     // Метод поиска целей в конусе перед мобом
@@ -59,8 +81,7 @@ public class AttackNodeExecutor implements NodeExecutor {
         AABB box = attacker.getBoundingBox().inflate(range, range / 2, range);
 
         // Получаем все живые сущности в этой области
-        List<LivingEntity> possibleTargets = attacker.level().getEntitiesOfClass(
-                LivingEntity.class,
+        List<LivingEntity> possibleTargets = SpatialIndex.of(attacker.level()).getLivingEntities(
                 box,
                 target -> ATTACK_TARGETING.test(attacker, target)
         );
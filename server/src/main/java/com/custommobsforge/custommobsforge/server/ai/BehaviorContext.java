@@ -1,29 +1,31 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.Blackboard;
 import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 
 /**
  * Интерфейс для контекста выполнения дерева поведения
  */
 public interface BehaviorContext {
     /**
-     * Отмечает узел как завершенный
+     * Сущность, выполняющая дерево
      */
-    void completeNode(BehaviorNode node, boolean success);
+    CustomMobEntity getEntity();
 
     /**
-     * Отмечает узел как требующий больше времени для выполнения
+     * Хранилище данных узлов текущего прохода
      */
-    void setNodeNeedsMoreTime(BehaviorNode node, boolean needsMoreTime);
+    Blackboard getBlackboard();
 
     /**
-     * Проверяет, требует ли узел больше времени для выполнения
+     * Индекс узла в скомпилированном дереве
      */
-    boolean doesNodeNeedMoreTime(BehaviorNode node);
+    int indexOf(BehaviorNode node);
 
     /**
      * Получает текущий статус узла
      */
     NodeStatus getNodeStatus(BehaviorNode node);
-}
\ No newline at end of file
+}
@@ -28,8 +28,8 @@ public class BehaviorNodeAdapter {
      * Уведомляет о начале выполнения узла
      */
     public void notifyStarted() {
-        LOGGER.info("BehaviorNodeAdapter: Node {} started for entity {}", node.getId(), entity.getId());
-        EventSystem.fireEvent(new NodeStartedEvent(node, entity));
+        LOGGER.debug("BehaviorNodeAdapter: Node {} started for entity {}", node.getId(), entity.getId());
+        EventSystem.post(NodeStartedEvent.obtain(node, entity));
     }
 
     /**
@@ -37,18 +37,9 @@ public class BehaviorNodeAdapter {
      * @param success результат выполнения
      */
     public void notifyCompleted(boolean success) {
-        LOGGER.info("BehaviorNodeAdapter: Node {} completed with result {} for entity {}",
+        LOGGER.debug("BehaviorNodeAdapter: Node {} completed with result {} for entity {}",
                 node.getId(), success, entity.getId());
-        EventSystem.fireEvent(new NodeCompletedEvent(node, entity, success));
-        executor.completeNode(node, success);
-    }
-
-    /**
-     * Устанавливает флаг необходимости дополнительного времени
-     * @param needsMoreTime требуется ли дополнительное время
-     */
-    public void setNeedsMoreTime(boolean needsMoreTime) {
-        executor.setNodeNeedsMoreTime(node, needsMoreTime);
+        EventSystem.post(NodeCompletedEvent.obtain(node, entity, success));
     }
 
     /**
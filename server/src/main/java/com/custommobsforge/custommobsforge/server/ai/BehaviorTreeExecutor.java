@@ -1,71 +1,108 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.AiLodTier;
 import com.custommobsforge.custommobsforge.common.ai.Blackboard;
+import com.custommobsforge.custommobsforge.common.ai.BlackboardKey;
+import com.custommobsforge.custommobsforge.common.ai.CompiledBehaviorTree;
 import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
-import com.custommobsforge.custommobsforge.common.data.BehaviorConnection;
+import com.custommobsforge.custommobsforge.common.ai.NodeTypes;
+import com.custommobsforge.custommobsforge.common.data.AiLodSettings;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
-import com.custommobsforge.custommobsforge.common.data.BehaviorTree;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 import com.custommobsforge.custommobsforge.common.event.system.EventSystem;
 import com.custommobsforge.custommobsforge.common.event.system.NodeCompletedEvent;
 import com.custommobsforge.custommobsforge.common.event.system.NodeStartedEvent;
-import com.custommobsforge.custommobsforge.common.network.NetworkManager;
-import com.custommobsforge.custommobsforge.common.network.packet.PlayBehaviorNodePacket;
-import net.minecraft.server.level.ServerLevel;
-import net.minecraft.world.entity.ai.goal.Goal;
-import net.minecraftforge.network.PacketDistributor;
+import com.custommobsforge.custommobsforge.server.ai.debug.NodeDebugSubscriptions;
+import com.custommobsforge.custommobsforge.server.ai.sensor.Sensor;
+import com.custommobsforge.custommobsforge.server.ai.squad.Squad;
+import com.custommobsforge.custommobsforge.server.ai.squad.SquadManager;
+import com.custommobsforge.custommobsforge.server.timer.TickTimers;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
 import java.util.*;
 
-public class BehaviorTreeExecutor extends Goal implements BehaviorContext {
+/**
+ * Исполнитель дерева поведения одного моба.
+ * Дерево выполняется стековым интерпретатором {@link FrameStack}: активный путь
+ * хранится между тиками, поэтому за тик работает только он, а не всё дерево.
+ * Тиками управляет {@link BehaviorTreeScheduler}, а не goalSelector моба.
+ */
+public class BehaviorTreeExecutor implements BehaviorContext {
     private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
     private final CustomMobEntity entity;
-    private final BehaviorTree tree;
-    private final Map<String, NodeExecutor> nodeExecutors = new HashMap<>();
-    private final List<String> activeNodeIds = new ArrayList<>();
-    private String currentRootNodeId;
-    private String currentExecutingNodeId;
-    private boolean nodeNeedsMoreTime = false;
-    private int executionTicks = 0;
-    private final int executionInterval = 5;
+    // Скомпилированное дерево: индексы узлов, массивы детей, корень и коды типов.
+    // Общее для всех мобов одного типа, поэтому не изменяется исполнителем
+    private final CompiledBehaviorTree compiled;
+    private int currentRootIndex = CompiledBehaviorTree.NO_NODE;
+
+    // Единый Blackboard для хранения данных между узлами (слоты по индексам узлов)
+    private final Blackboard blackboard;
+    // Память узлов, которая живёт всё время жизни моба и не сбрасывается при перезапуске дерева
+    private final Blackboard memory;
+    // Датчики восприятия, объявленные узлами дерева; пишут в getPerception()
+    private final Sensor[] sensors;
+
+    // Основной проход дерева от корня
+    private final FrameStack mainStack = new FrameStack();
 
-    // Единый Blackboard для хранения данных между узлами
-    private final Blackboard blackboard = new Blackboard();
+    // Реакции на события (например, урон) - поддеревья со своими стеками, выполняются рядом с основным проходом
+    private static final BlackboardKey<FrameStack> REACTION_STACK = BlackboardKey.of("executor.reactionStack", FrameStack.class);
+    private int[] activeReactions = new int[2];
+    private int activeReactionCount = 0;
 
-    // Отслеживание выполнения последовательностей
-    private final Map<String, List<BehaviorNode>> pendingSequenceNodes = new HashMap<>();
-    private final Map<String, Integer> sequenceNodeIndex = new HashMap<>();
-    private final Set<String> currentlyExecutingNodes = new HashSet<>();
-    private final Map<String, Long> lastNodeExecutionTime = new HashMap<>();
+    // Узел, который интерпретатор выполняет в данный момент (быстрый путь для indexOf)
+    private int currentNodeIndex = CompiledBehaviorTree.NO_NODE;
 
     // Отслеживание состояния исполнения
-    private boolean isExecutingSequence = false;
     private boolean treeCompleted = false;
-    private long lastTreeCompletionTime = 0;
-    private static final long TREE_RESTART_DELAY = 500;
+    // Игровой тик, с которого можно начинать новый проход после завершения предыдущего
+    private long restartTick = 0;
+    private int executionTicks = 0;
+    private static final long TREE_RESTART_DELAY = 10; // Задержка перезапуска в тиках (500мс)
+
+    // Частота шагов по уровню детализации (интервал уровня REDUCED)
+    private final LodStepGate lodGate = new LodStepGate();
+
+    // Приостановка: если все выполняющиеся узлы ждут условия пробуждения, планировщик не тикает моба.
+    // Условия, запрошенные узлами в текущем шаге
+    private boolean suspendRequested = false;
+    private long requestedWakeTick = NO_WAKE_TICK;
+    private boolean requestedWakeOnDamage = false;
+    // Действующая приостановка
+    private boolean suspended = false;
+    private long wakeTick = NO_WAKE_TICK;
+    private boolean wakeOnDamage = false;
+    // Исполнитель разбужен событием: следующий шаг не ждёт интервала уровня REDUCED
+    private boolean wokenByEvent = false;
+
+    /** Пробуждение только по событию */
+    public static final long NO_WAKE_TICK = Long.MAX_VALUE;
 
     // Конструктор
-    public BehaviorTreeExecutor(CustomMobEntity entity, BehaviorTree tree) {
+    public BehaviorTreeExecutor(CustomMobEntity entity, CompiledBehaviorTree compiled) {
         this.entity = entity;
-        this.tree = tree;
+        this.compiled = compiled;
+
+        int nodeCount = compiled != null ? compiled.size() : 0;
+        this.blackboard = new Blackboard(nodeCount);
+        this.memory = new Blackboard(nodeCount);
+        this.sensors = collectSensors(compiled);
 
         LOGGER.info("BehaviorTreeExecutor: Created for entity {} with tree ID: {}",
-                entity.getId(), (tree != null ? tree.getId() : "null"));
+                entity.getId(), (compiled != null ? compiled.getTreeId() : "null"));
 
-        if (tree == null) {
+        if (compiled == null) {
             LOGGER.error("BehaviorTreeExecutor: WARNING - Tree is null!");
-        } else if (tree.getNodes() == null || tree.getNodes().isEmpty()) {
+        } else if (compiled.isEmpty()) {
             LOGGER.error("BehaviorTreeExecutor: WARNING - Tree has no nodes!");
         }
 
-        // Регистрируем все обработчики узлов
-        initializeNodeExecutors();
-
         // Определяем корневой узел
-        BehaviorNode rootNode = tree != null ? tree.getRootNode() : null;
-        if (rootNode != null) {
-            currentRootNodeId = rootNode.getId();
+        int rootIndex = compiled != null ? compiled.getRoot() : CompiledBehaviorTree.NO_NODE;
+        if (rootIndex != CompiledBehaviorTree.NO_NODE) {
+            currentRootIndex = rootIndex;
+            BehaviorNode rootNode = compiled.getNode(rootIndex);
             LOGGER.info("BehaviorTreeExecutor: Root node set to {} of type {}",
                     rootNode.getId(), rootNode.getType());
         } else {
@@ -73,522 +110,507 @@ public class BehaviorTreeExecutor extends Goal implements BehaviorContext {
         }
     }
 
-    // Метод инициализации обработчиков узлов
-    private void initializeNodeExecutors() {
-        // Базовые узлы
-        nodeExecutors.put("sequencenode", new SequenceNodeExecutor());
-        nodeExecutors.put("selectornode", new SelectorNodeExecutor());
-        nodeExecutors.put("parallelnode", new ParallelNodeExecutor());
-        nodeExecutors.put("weightedselectornode", new WeightedSelectorNodeExecutor());
+    /**
+     * Датчики всех узлов дерева без повторов
+     */
+    private static Sensor[] collectSensors(CompiledBehaviorTree compiled) {
+        if (compiled == null) {
+            return NodeExecutor.NO_SENSORS;
+        }
+
+        Set<Sensor> result = new LinkedHashSet<>();
+        for (int i = 0; i < compiled.size(); i++) {
+            NodeExecutor nodeExecutor = NodeExecutorRegistry.get(compiled.getTypeCode(i));
+            if (nodeExecutor != null) {
+                Collections.addAll(result, nodeExecutor.getSensors());
+            }
+        }
+        return result.toArray(NodeExecutor.NO_SENSORS);
+    }
 
-        // Узлы действий
-        nodeExecutors.put("attacknode", new AttackNodeExecutor());
-        nodeExecutors.put("playanimationnode", new PlayAnimationNodeExecutor());
-        nodeExecutors.put("timernode", new TimerNodeExecutor());
-        nodeExecutors.put("follownode", new FollowNodeExecutor());
-        nodeExecutors.put("fleenode", new FleeNodeExecutor());
+    /**
+     * Опрашивает датчики, у которых подошёл срок. Приостановленный моб датчики не опрашивает,
+     * но после пробуждения просроченные датчики срабатывают сразу.
+     * В отряде восприятие общее и его обновляет лидер
+     */
+    private void updateSensors() {
+        if (sensors.length == 0) {
+            return;
+        }
+        long now = TickTimers.now();
+        Blackboard perception = memory;
 
-        // Узлы событий
-        nodeExecutors.put("onspawnnode", new OnSpawnNodeExecutor());
-        nodeExecutors.put("ondeathnode", new OnDeathNodeExecutor());
-        nodeExecutors.put("ondamagenode", new OnDamageNodeExecutor());
+        Squad squad = SquadManager.get(entity);
+        if (squad != null) {
+            if (!squad.shouldSense(entity, now)) {
+                return;
+            }
+            perception = squad.getBlackboard();
+        }
 
-        // Узлы эффектов
-        nodeExecutors.put("spawnparticlenode", new SpawnParticleNodeExecutor());
-        nodeExecutors.put("displaytitlenode", new DisplayTitleNodeExecutor());
-        nodeExecutors.put("playsoundnode", new PlaySoundNodeExecutor());
+        for (Sensor sensor : sensors) {
+            sensor.update(entity, perception, now);
+        }
     }
 
-    // Реализация методов Goal
-    @Override
-    public boolean canUse() {
-        return tree != null && currentRootNodeId != null;
+    /**
+     * Есть ли что выполнять
+     */
+    public boolean canRun() {
+        return compiled != null && currentRootIndex != CompiledBehaviorTree.NO_NODE;
     }
 
-    @Override
+    /**
+     * Вызывается планировщиком при регистрации исполнителя
+     */
     public void start() {
         treeCompleted = false;
-        isExecutingSequence = false;
-        pendingSequenceNodes.clear();
-        sequenceNodeIndex.clear();
-        nodeNeedsMoreTime = false;
         executionTicks = 0;
 
         // Сбрасываем Blackboard
-        blackboard.clear();
+        blackboard.reset();
     }
 
-    @Override
+    /**
+     * Прерывает выполнение - вызывается планировщиком при снятии исполнителя
+     */
     public void stop() {
-        activeNodeIds.clear();
-        pendingSequenceNodes.clear();
-        sequenceNodeIndex.clear();
-        currentExecutingNodeId = null;
+        suspended = false;
+        wokenByEvent = false;
+        mainStack.halt(this);
+        haltReactions();
         treeCompleted = false;
-        isExecutingSequence = false;
-        nodeNeedsMoreTime = false;
 
-        // Очищаем Blackboard
-        blackboard.clear();
+        // Закрываем подписки узлов, которые не сняли их сами
+        EventSystem.closeAll(this);
 
-        currentlyExecutingNodes.clear();
-        lastNodeExecutionTime.clear();
+        // Очищаем Blackboard
+        blackboard.reset();
     }
 
-    @Override
-    public void tick() {
+    /**
+     * Шаг выполнения дерева; планировщик вызывает его раз в свой интервал
+     * @return false, если шаг не выполнен: дерева нет или шаг пропущен по уровню детализации
+     * (когда он станет возможен - {@link #getNextLodStepTick()})
+     */
+    public boolean tick() {
         if (executionTicks == 0) {
             LOGGER.info("BehaviorTreeExecutor: First tick for entity {} with root node: {}",
-                    entity.getId(), currentRootNodeId);
-
-            if (tree != null && tree.getNodes() != null) {
-                LOGGER.info("Tree nodes ({}): ", tree.getNodes().size());
-                for (BehaviorNode node : tree.getNodes()) {
-                    LOGGER.info("  - {} ({}): {}", node.getId(), node.getType(), node.getDescription());
+                    entity.getId(), currentRootIndex != CompiledBehaviorTree.NO_NODE
+                            ? compiled.getNode(currentRootIndex).getId() : null);
+
+            if (compiled != null) {
+                LOGGER.info("Tree nodes ({}): ", compiled.size());
+                for (int i = 0; i < compiled.size(); i++) {
+                    BehaviorNode node = compiled.getNode(i);
+                    LOGGER.info("  - [{}] {} ({}): {} -> children {}", i, node.getId(), node.getType(),
+                            node.getDescription(), Arrays.toString(compiled.getChildren(i)));
                 }
             } else {
                 LOGGER.error("ERROR: Tree or nodes is null!");
             }
-
-            if (tree != null && tree.getConnections() != null) {
-                LOGGER.info("Tree connections ({}): ", tree.getConnections().size());
-                for (BehaviorConnection conn : tree.getConnections()) {
-                    LOGGER.info("  - {} -> {}", conn.getSourceNodeId(), conn.getTargetNodeId());
-                }
-            }
         }
 
         executionTicks++;
 
-        if (executionTicks % executionInterval == 0) {
-            LOGGER.info("BehaviorTreeExecutor: Executing tree for entity {} at tick {}",
-                    entity.getId(), executionTicks);
+        if (compiled == null || currentRootIndex == CompiledBehaviorTree.NO_NODE) {
+            return false;
+        }
+
+        // Вдали от игроков дерево замирает вместе с незавершённым проходом или выполняется реже.
+        // Приостановка при пропуске сохраняется: узлы по-прежнему ждут урона или события,
+        // и wake()/onDamaged() должны дойти до планировщика, который держит моба до шага по уровню детализации
+        if (!isLodStepDue()) {
+            return false;
+        }
 
-            long currentTime = System.currentTimeMillis();
-            if (treeCompleted && (currentTime - lastTreeCompletionTime > TREE_RESTART_DELAY)) {
-                LOGGER.info("BehaviorTreeExecutor: Restarting tree after completion delay");
-                treeCompleted = false;
-                isExecutingSequence = false;
-                pendingSequenceNodes.clear();
-                sequenceNodeIndex.clear();
-                nodeNeedsMoreTime = false;
+        suspended = false;
+        wokenByEvent = false;
+        requestedWakeTick = NO_WAKE_TICK;
+        requestedWakeOnDamage = false;
 
-                blackboard.generateNewExecutionId();
-            }
+        updateSensors();
 
-            if (treeCompleted) {
-                LOGGER.info("BehaviorTreeExecutor: Tree is completed, waiting for restart delay");
-                return;
+        // Моба можно приостановить, только если каждый выполняющийся стек ждёт условия пробуждения
+        boolean busy = tickReactions();
+
+        if (!mainStack.isActive()) {
+            if (treeCompleted && !TickTimers.isReached(restartTick)) {
+                suspendUntil(restartTick);
+                finishStep(busy);
+                return true;
             }
 
-            if (nodeNeedsMoreTime && currentExecutingNodeId != null) {
-                BehaviorNode node = tree.getNode(currentExecutingNodeId);
-                if (node != null) {
-                    LOGGER.info("BehaviorTreeExecutor: Continuing execution of node {} of type {}",
-                            node.getId(), node.getType());
-                    boolean result = executeNode(node);
-                    LOGGER.info("BehaviorTreeExecutor: Node execution result: {}", result);
-
-                    if (!nodeNeedsMoreTime && result && isExecutingSequence) {
-                        continuePendingSequence();
-                    }
-                }
-            } else if (isExecutingSequence && !pendingSequenceNodes.isEmpty()) {
-                continuePendingSequence();
-            } else if (!isExecutingSequence) {
-                boolean success = executeTree();
-                LOGGER.info("BehaviorTreeExecutor: Tree execution started with result: {}", success);
+            // Новый проход дерева начинается с чистого Blackboard
+            if (treeCompleted) {
+                LOGGER.debug("BehaviorTreeExecutor: Restarting tree after completion delay");
             }
+            treeCompleted = false;
+            blackboard.reset();
         }
-    }
-
-    // Реализация методов BehaviorContext
-    @Override
-    public void completeNode(BehaviorNode node, boolean success) {
-        String nodeId = node.getId();
-        blackboard.setNodeStatus(nodeId, success ? NodeStatus.SUCCESS : NodeStatus.FAILURE);
 
-        EventSystem.fireEvent(new NodeCompletedEvent(node, entity, success));
+        suspendRequested = false;
+        NodeStatus status = mainStack.tick(this, currentRootIndex);
+        if (status != NodeStatus.RUNNING) {
+            treeCompleted = true;
+            restartTick = TickTimers.now() + TREE_RESTART_DELAY;
+            LOGGER.debug("BehaviorTreeExecutor: Tree execution for entity {} completed with {}",
+                    entity.getId(), status);
+            // Следующий проход - после задержки перезапуска
+            suspendUntil(restartTick);
+        } else if (!suspendRequested) {
+            busy = true;
+        }
 
-        LOGGER.info("BehaviorTreeExecutor: Node {} completed with result: {}", nodeId, success);
+        finishStep(busy);
+        return true;
     }
 
-    @Override
-    public void setNodeNeedsMoreTime(BehaviorNode node, boolean needsMoreTime) {
-        this.nodeNeedsMoreTime = needsMoreTime;
-        if (needsMoreTime) {
-            blackboard.setNodeStatus(node.getId(), NodeStatus.RUNNING);
+    private void finishStep(boolean busy) {
+        if (!busy) {
+            suspended = true;
+            wakeTick = requestedWakeTick;
+            wakeOnDamage = requestedWakeOnDamage;
         }
     }
 
-    @Override
-    public boolean doesNodeNeedMoreTime(BehaviorNode node) {
-        return this.nodeNeedsMoreTime && currentExecutingNodeId != null &&
-                currentExecutingNodeId.equals(node.getId());
-    }
+    // ===== Приостановка и пробуждение =====
 
-    @Override
-    public NodeStatus getNodeStatus(BehaviorNode node) {
-        return blackboard.getNodeStatus(node.getId());
+    /**
+     * Узел ждёт до указанного игрового тика. Вызывается узлом перед возвратом RUNNING (или YIELD),
+     * если до этого момента ему нечего делать
+     * @param gameTick Игровой тик пробуждения
+     */
+    public void suspendUntil(long gameTick) {
+        suspendRequested = true;
+        requestedWakeTick = Math.min(requestedWakeTick, gameTick);
     }
 
-    public void clearNodeStatus(String nodeId) {
-        nodeNeedsMoreTime = false;
-        blackboard.removeValue(nodeId + ":status");
+    /**
+     * Узел ждёт указанное число тиков
+     */
+    public void suspendForTicks(long ticks) {
+        suspendUntil(TickTimers.now() + Math.max(1, ticks));
     }
 
-    private boolean isNodeRecentlyExecuted(String nodeId) {
-        long lastExecution = lastNodeExecutionTime.getOrDefault(nodeId, 0L);
-        long currentTime = System.currentTimeMillis();
-
-        boolean isRunning = blackboard.getNodeStatus(nodeId) == NodeStatus.RUNNING;
-        return currentTime - lastExecution < 100 && !isRunning;
+    /**
+     * Узел ждёт события: его слушатель вызывает {@link #wake()}.
+     * @param timeoutTick Тик, в который узел проснётся, даже если событие не пришло, или {@link #NO_WAKE_TICK}
+     */
+    public void suspendUntilEvent(long timeoutTick) {
+        suspendUntil(timeoutTick);
     }
 
-    private void resetNodeStatuses() {
-        blackboard.generateNewExecutionId();
-        LOGGER.info("BehaviorTreeExecutor: Reset node statuses for new tree execution");
+    /**
+     * Узел ждёт получения урона мобом или указанного тика
+     */
+    public void suspendUntilDamage(long timeoutTick) {
+        suspendUntil(timeoutTick);
+        requestedWakeOnDamage = true;
     }
 
-    private boolean executeTree() {
-        if (tree == null || currentRootNodeId == null) {
-            LOGGER.error("BehaviorTreeExecutor: Cannot execute tree - {} for entity {}",
-                    (tree == null ? "tree is null" : "root node ID is null"), entity.getId());
-            return false;
-        }
+    /**
+     * Приостановлен ли исполнитель после последнего шага
+     */
+    public boolean isSuspended() {
+        return suspended;
+    }
 
-        resetNodeStatuses();
+    /**
+     * Тик пробуждения приостановленного исполнителя или {@link #NO_WAKE_TICK}
+     */
+    public long getWakeTick() {
+        return wakeTick;
+    }
 
-        BehaviorNode rootNode = tree.getNode(currentRootNodeId);
-        if (rootNode == null) {
-            LOGGER.error("BehaviorTreeExecutor: Root node with ID {} not found in tree!", currentRootNodeId);
-            return false;
+    /**
+     * Возобновляет приостановленный исполнитель - его шаг выполнится в ближайшем тике планировщика
+     */
+    public void wake() {
+        if (suspended) {
+            suspended = false;
+            wokenByEvent = true;
+            BehaviorTreeScheduler.wake(entity);
         }
+    }
 
-        LOGGER.info("BehaviorTreeExecutor: Executing root node {} of type {}", rootNode.getId(), rootNode.getType());
-
-        pendingSequenceNodes.clear();
-        sequenceNodeIndex.clear();
-        currentExecutingNodeId = rootNode.getId();
-        isExecutingSequence = false;
-        treeCompleted = false;
-
-        EventSystem.fireEvent(new NodeStartedEvent(rootNode, entity));
-
-        boolean result = executeNode(rootNode);
-
-        if (result && !pendingSequenceNodes.isEmpty()) {
-            isExecutingSequence = true;
-            LOGGER.info("BehaviorTreeExecutor: Root node set up a sequence of {} nodes, will execute sequentially",
-                    pendingSequenceNodes.values().iterator().next().size());
-            return true;
+    /**
+     * Моб получил урон - будит исполнитель, если выполняющийся узел этого ждёт
+     */
+    public void onDamaged() {
+        if (suspended && wakeOnDamage) {
+            wake();
         }
+    }
 
-        if (!isExecutingSequence && !nodeNeedsMoreTime) {
-            treeCompleted = true;
-            lastTreeCompletionTime = System.currentTimeMillis();
-            LOGGER.info("BehaviorTreeExecutor: Tree execution completed, no sequences to continue");
-        }
+    /**
+     * Тик, с которого разрешён шаг, пропущенный на уровне детализации REDUCED, или {@link #NO_WAKE_TICK},
+     * если на текущем уровне дерево не выполняется вовсе (уровень может смениться в любой момент)
+     */
+    public long getNextLodStepTick() {
+        return entity.getAiLodTier() == AiLodTier.REDUCED
+                ? lodGate.nextReducedStepTick(getReducedInterval())
+                : NO_WAKE_TICK;
+    }
 
-        return result;
+    private boolean isLodStepDue() {
+        return lodGate.tryStep(entity.getAiLodTier(), getReducedInterval(), TickTimers.now(), wokenByEvent);
     }
 
-    private void continuePendingSequence() {
-        if (pendingSequenceNodes.isEmpty()) {
-            isExecutingSequence = false;
-            treeCompleted = true;
-            lastTreeCompletionTime = System.currentTimeMillis();
-            LOGGER.info("BehaviorTreeExecutor: No pending sequences to continue, tree execution completed");
-            return;
-        }
+    private int getReducedInterval() {
+        AiLodSettings settings = entity.getAiLodSettings();
+        return settings != null ? settings.getReducedInterval() : 1;
+    }
 
-        // Проверяем, не был ли узел успешно завершен до того, как мы вернулись в continuePendingSequence
-        if (currentExecutingNodeId != null) {
-            BehaviorNode currentNode = tree.getNode(currentExecutingNodeId);
-            if (currentNode != null) {
-                NodeStatus status = getNodeStatus(currentNode);
-                if (status == NodeStatus.SUCCESS) {
-                    LOGGER.info("BehaviorTreeExecutor: Node {} is now SUCCESS, moving to next node in sequence", currentExecutingNodeId);
-
-                    // Находим последовательность, содержащую этот узел
-                    for (Map.Entry<String, List<BehaviorNode>> entry : pendingSequenceNodes.entrySet()) {
-                        String sequenceId = entry.getKey();
-                        List<BehaviorNode> nodes = entry.getValue();
-                        int index = sequenceNodeIndex.getOrDefault(sequenceId, 0);
-
-                        if (index < nodes.size() && nodes.get(index).getId().equals(currentExecutingNodeId)) {
-                            // Увеличиваем индекс
-                            sequenceNodeIndex.put(sequenceId, index + 1);
-                            LOGGER.info("BehaviorTreeExecutor: Updated sequence {} index to {}", sequenceId, index + 1);
-
-                            // Обеспечиваем плавный переход, если есть следующий узел
-                            if (index + 1 < nodes.size()) {
-                                BehaviorNode nextNode = nodes.get(index + 1);
-                                ensureSmoothTransition(currentNode, nextNode);
-                            }
-                            break; // Важно: выходим из цикла после обновления нужной последовательности
-                        }
-                    }
-                }
-            }
+    /**
+     * Запускает поддерево узла как реакцию на событие.
+     * Реакция выполняется своим стеком параллельно с основным проходом;
+     * повторный запуск той же реакции прерывает предыдущий.
+     * @param nodeIndex Индекс корня реакции
+     */
+    public void startReaction(int nodeIndex) {
+        FrameStack stack = memory.get(REACTION_STACK, nodeIndex);
+        if (stack == null) {
+            stack = new FrameStack();
+            memory.set(REACTION_STACK, nodeIndex, stack);
         }
 
-        String sequenceId = pendingSequenceNodes.keySet().iterator().next();
-        List<BehaviorNode> sequence = pendingSequenceNodes.get(sequenceId);
-        int index = sequenceNodeIndex.getOrDefault(sequenceId, 0);
-
-        if (index < 0 || index >= sequence.size()) {
-            LOGGER.warn("BehaviorTreeExecutor: Index {} is out of bounds for sequence with {} nodes, resetting to 0",
-                    index, sequence.size());
-
-            if (index >= sequence.size()) {
-                pendingSequenceNodes.remove(sequenceId);
-                sequenceNodeIndex.remove(sequenceId);
-                LOGGER.info("BehaviorTreeExecutor: Sequence {} completed successfully", sequenceId);
-
-                if (pendingSequenceNodes.isEmpty()) {
-                    isExecutingSequence = false;
-                    treeCompleted = true;
-                    lastTreeCompletionTime = System.currentTimeMillis();
-                    LOGGER.info("BehaviorTreeExecutor: All sequences completed successfully, tree execution finished");
-                } else {
-                    LOGGER.info("BehaviorTreeExecutor: Moving to next sequence, {} remaining",
-                            pendingSequenceNodes.size());
-                }
-                return;
-            } else {
-                sequenceNodeIndex.put(sequenceId, 0);
-                index = 0;
+        if (stack.isActive()) {
+            stack.halt(this);
+        } else {
+            if (activeReactionCount == activeReactions.length) {
+                activeReactions = Arrays.copyOf(activeReactions, activeReactionCount * 2);
             }
+            activeReactions[activeReactionCount++] = nodeIndex;
         }
 
-        BehaviorNode nextNode = sequence.get(index);
-        LOGGER.info("BehaviorTreeExecutor: Continuing sequence {}, executing node {} of type {} ({}/{})",
-                sequenceId, nextNode.getId(), nextNode.getType(), index+1, sequence.size());
-
-        if (isNodeRecentlyExecuted(nextNode.getId())) {
-            LOGGER.warn("BehaviorTreeExecutor: Node {} was recently executed, waiting before next execution",
-                    nextNode.getId());
-            return;
+        // Первый шаг сразу, чтобы реакция не ждала следующего тика
+        NodeStatus status = stack.tick(this, nodeIndex);
+        if (status != NodeStatus.RUNNING) {
+            removeReaction(nodeIndex);
         }
 
-        currentExecutingNodeId = nextNode.getId();
-        NodeStatus status = getNodeStatus(nextNode);
-
-        LOGGER.info("BehaviorTreeExecutor: Node {} current status: {}", nextNode.getId(), status);
-
-        if (status == NodeStatus.RUNNING) {
-            LOGGER.info("BehaviorTreeExecutor: Node {} is already running, continuing execution", nextNode.getId());
-            boolean result = executeNode(nextNode);
-            LOGGER.info("BehaviorTreeExecutor: Node execution result: {}", result);
-
-            if (nodeNeedsMoreTime) {
-                LOGGER.info("BehaviorTreeExecutor: Node {} still needs more time", nextNode.getId());
-                return;
-            }
+        // Дальше реакция выполняется планировщиком - приостановленный исполнитель нужно разбудить
+        wake();
+    }
 
-            if (result) {
-                blackboard.setNodeStatus(nextNode.getId(), NodeStatus.SUCCESS);
-                LOGGER.info("BehaviorTreeExecutor: Node {} completed with SUCCESS", nextNode.getId());
-                sequenceNodeIndex.put(sequenceId, index + 1);
-                LOGGER.info("BehaviorTreeExecutor: Moving to next node in sequence, index now {}", index + 1);
-            } else {
-                blackboard.setNodeStatus(nextNode.getId(), NodeStatus.FAILURE);
-                LOGGER.info("BehaviorTreeExecutor: Node {} completed with FAILURE", nextNode.getId());
-                pendingSequenceNodes.remove(sequenceId);
-                sequenceNodeIndex.remove(sequenceId);
-                LOGGER.info("BehaviorTreeExecutor: Sequence {} failed at node {}", sequenceId, nextNode.getId());
+    /**
+     * @return true, если какая-то реакция выполняется и не ждёт условия пробуждения
+     */
+    private boolean tickReactions() {
+        boolean busy = false;
+        for (int i = activeReactionCount - 1; i >= 0; i--) {
+            int nodeIndex = activeReactions[i];
+            FrameStack stack = memory.get(REACTION_STACK, nodeIndex);
+            suspendRequested = false;
+            if (stack == null || stack.tick(this, nodeIndex) != NodeStatus.RUNNING) {
+                removeReaction(nodeIndex);
+            } else if (!suspendRequested) {
+                busy = true;
             }
-            return;
-        } else if (status == NodeStatus.SUCCESS) {
-            LOGGER.info("BehaviorTreeExecutor: Node {} already completed successfully, moving to next", nextNode.getId());
-            sequenceNodeIndex.put(sequenceId, index + 1);
-            return;
-        } else if (status == NodeStatus.FAILURE) {
-            LOGGER.info("BehaviorTreeExecutor: Node {} already failed, terminating sequence", nextNode.getId());
-            pendingSequenceNodes.remove(sequenceId);
-            sequenceNodeIndex.remove(sequenceId);
-            return;
         }
+        return busy;
+    }
 
-        LOGGER.info("BehaviorTreeExecutor: Starting new node {} execution", nextNode.getId());
-        EventSystem.fireEvent(new NodeStartedEvent(nextNode, entity));
-        blackboard.setNodeStatus(nextNode.getId(), NodeStatus.RUNNING);
+    /**
+     * Запрошена ли приостановка в текущем стеке - для узлов, которые сами ведут несколько стеков
+     */
+    boolean isSuspendRequested() {
+        return suspendRequested;
+    }
 
-        boolean result = executeNode(nextNode);
-        LOGGER.info("BehaviorTreeExecutor: Initial node execution result: {}", result);
+    void setSuspendRequested(boolean requested) {
+        this.suspendRequested = requested;
+    }
 
-        if (nodeNeedsMoreTime) {
-            LOGGER.info("BehaviorTreeExecutor: Node needs more time, will continue on next tick");
-            return;
+    private void haltReactions() {
+        for (int i = 0; i < activeReactionCount; i++) {
+            FrameStack stack = memory.get(REACTION_STACK, activeReactions[i]);
+            if (stack != null) {
+                stack.halt(this);
+            }
         }
+        activeReactionCount = 0;
+    }
 
-        NodeStatus finalStatus = result ? NodeStatus.SUCCESS : NodeStatus.FAILURE;
-        blackboard.setNodeStatus(nextNode.getId(), finalStatus);
-        LOGGER.info("BehaviorTreeExecutor: Node {} completed with {}", nextNode.getId(), result ? "SUCCESS" : "FAILURE");
-        EventSystem.fireEvent(new NodeCompletedEvent(nextNode, entity, result));
-
-        if (result) {
-            sequenceNodeIndex.put(sequenceId, index + 1);
-            LOGGER.info("BehaviorTreeExecutor: Moving to next node in sequence, index now {}", index + 1);
-        } else {
-            pendingSequenceNodes.remove(sequenceId);
-            sequenceNodeIndex.remove(sequenceId);
-            LOGGER.info("BehaviorTreeExecutor: Sequence {} failed at node {}", sequenceId, nextNode.getId());
-
-            if (pendingSequenceNodes.isEmpty()) {
-                isExecutingSequence = false;
-                treeCompleted = true;
-                lastTreeCompletionTime = System.currentTimeMillis();
-                LOGGER.info("BehaviorTreeExecutor: All sequences completed or failed, tree execution finished");
+    private void removeReaction(int nodeIndex) {
+        for (int i = 0; i < activeReactionCount; i++) {
+            if (activeReactions[i] == nodeIndex) {
+                activeReactions[i] = activeReactions[--activeReactionCount];
+                return;
             }
         }
     }
 
-    public boolean executeNode(BehaviorNode node) {
-        if (node == null) {
-            LOGGER.error("BehaviorTreeExecutor: Node is null, cannot execute");
-            nodeNeedsMoreTime = false;
-            return false;
-        }
+    // ===== Обратные вызовы интерпретатора =====
 
-        String nodeId = node.getId();
-        String nodeType = node.getType().toLowerCase();
-        NodeExecutor executor = nodeExecutors.get(nodeType);
+    /**
+     * Узел помещён на стек
+     */
+    void onNodeEntered(int index) {
+        BehaviorNode node = compiled.getNode(index);
+        blackboard.setNodeStatus(index, NodeStatus.RUNNING);
 
-        if (executor == null) {
-            LOGGER.error("BehaviorTreeExecutor: No executor found for node type: {}", nodeType);
-            LOGGER.info("Available node types: {}", String.join(", ", nodeExecutors.keySet()));
-            nodeNeedsMoreTime = false;
-            return false;
-        }
+        LOGGER.debug("BehaviorTreeExecutor: Entering node {} of type {} with description: {}",
+                node.getId(), node.getType(), node.getDescription());
 
-        long currentTime = System.currentTimeMillis();
-        long lastExecution = lastNodeExecutionTime.getOrDefault(nodeId, 0L);
+        EventSystem.post(NodeStartedEvent.obtain(node, entity));
 
-        if (currentTime - lastExecution < 50 && !nodeNeedsMoreTime && currentlyExecutingNodes.contains(nodeId)) {
-            LOGGER.warn("BehaviorTreeExecutor: Node {} was just executed {} ms ago, skipping duplicate execution",
-                    nodeId, currentTime - lastExecution);
-            return true;
-        }
+        // Отладочные данные о выполнении узлов получают только подписанные игроки
+        NodeDebugSubscriptions.onNodeEntered(entity, index, compiled.getTypeCode(index));
+    }
 
-        lastNodeExecutionTime.put(nodeId, currentTime);
-        currentlyExecutingNodes.add(nodeId);
-
-        LOGGER.info("BehaviorTreeExecutor: Executing node {} of type {} with description: {}",
-                nodeId, nodeType, node.getDescription());
-
-        if (entity.level() instanceof ServerLevel) {
-            try {
-                NetworkManager.INSTANCE.send(
-                        PacketDistributor.TRACKING_ENTITY.with(() -> this.entity),
-                        new PlayBehaviorNodePacket(entity.getId(), nodeId, nodeType)
-                );
-                LOGGER.info("BehaviorTreeExecutor: Sent PlayBehaviorNodePacket to clients for node {}", nodeId);
-            } catch (Exception e) {
-                LOGGER.error("BehaviorTreeExecutor: Error sending PlayBehaviorNodePacket: {}", e.getMessage());
-            }
-        }
+    /**
+     * Узел завершился и снят со стека
+     */
+    void onNodeFinished(int index, NodeStatus status) {
+        BehaviorNode node = compiled.getNode(index);
+        blackboard.setNodeStatus(index, status);
+        EventSystem.post(NodeCompletedEvent.obtain(node, entity, status == NodeStatus.SUCCESS));
 
-        nodeNeedsMoreTime = false;
+        LOGGER.debug("BehaviorTreeExecutor: Node {} completed with result: {}", node.getId(), status);
+    }
 
-        try {
-            boolean result = executor.execute(entity, node, this);
-            LOGGER.info("BehaviorTreeExecutor: Node {} execution result: {}, needsMoreTime: {}",
-                    nodeId, result, nodeNeedsMoreTime);
+    /**
+     * Узел прерван и снят со стека
+     */
+    void onNodeHalted(int index) {
+        blackboard.clearNodeStatus(index);
+    }
 
-            if (!nodeNeedsMoreTime) {
-                currentlyExecutingNodes.remove(nodeId);
-            }
+    void setCurrentNodeIndex(int index) {
+        this.currentNodeIndex = index;
+    }
 
-            if (result && nodeType.equals("sequencenode") && !nodeNeedsMoreTime) {
-                List<BehaviorNode> children = getChildNodes(node);
-                if (!children.isEmpty()) {
-                    pendingSequenceNodes.put(nodeId, children);
-                    sequenceNodeIndex.put(nodeId, 0);
-                    isExecutingSequence = true;
-                    LOGGER.info("BehaviorTreeExecutor: Created pending sequence for node {} with {} children",
-                            nodeId, children.size());
-                    return true;
-                }
-            }
+    // Реализация методов BehaviorContext
+    @Override
+    public NodeStatus getNodeStatus(BehaviorNode node) {
+        int index = indexOf(node);
+        return index != CompiledBehaviorTree.NO_NODE ? blackboard.getNodeStatus(index) : NodeStatus.READY;
+    }
 
-            return result;
-        } catch (Exception e) {
-            LOGGER.error("BehaviorTreeExecutor: Error executing node {}: {}", nodeId, e.getMessage());
-            e.printStackTrace();
-            currentlyExecutingNodes.remove(nodeId);
-            nodeNeedsMoreTime = false;
-            return false;
+    /**
+     * Индекс узла в скомпилированном дереве - по нему адресуются слоты Blackboard
+     * @param node Узел
+     * @return Индекс или {@link CompiledBehaviorTree#NO_NODE}
+     */
+    @Override
+    public int indexOf(BehaviorNode node) {
+        if (compiled == null) {
+            return CompiledBehaviorTree.NO_NODE;
+        }
+        // Чаще всего спрашивают про узел, который сейчас выполняется
+        if (currentNodeIndex != CompiledBehaviorTree.NO_NODE && compiled.getNode(currentNodeIndex) == node) {
+            return currentNodeIndex;
         }
+        return compiled.indexOf(node);
     }
 
-    public void logNodeExecution(String nodeType, String nodeId, String message, boolean isStart) {
-        if (isStart) {
-            LOGGER.info("BehaviorTreeExecutor: [START] {} node {} for entity {}: {}",
-                    nodeType, nodeId, entity.getId(), message);
-        } else {
-            LOGGER.info("BehaviorTreeExecutor: [END] {} node {} for entity {}: {}",
-                    nodeType, nodeId, entity.getId(), message);
+    /**
+     * Отладочная запись о выполнении узла; сообщение форматируется, только если включён уровень DEBUG
+     * @param message Сообщение с местами {} для args
+     */
+    public void logNodeExecution(String nodeType, String nodeId, String message, boolean isStart, Object... args) {
+        if (!LOGGER.isDebugEnabled()) {
+            return;
         }
+        LOGGER.debug("BehaviorTreeExecutor: [{}] {} node {} for entity {}: {}",
+                isStart ? "START" : "END", nodeType, nodeId, entity.getId(), ParameterizedMessage.format(message, args));
     }
 
     public List<BehaviorNode> getChildNodes(BehaviorNode node) {
-        return tree.getChildNodes(node.getId());
+        int index = indexOf(node);
+        return index != CompiledBehaviorTree.NO_NODE ? compiled.getChildNodes(index) : Collections.emptyList();
     }
 
-    public void playAnimation(String action) {
-        entity.playAnimation(action);
-    }
-
-    public void setNodeNeedsMoreTime(boolean needsMoreTime) {
-        this.nodeNeedsMoreTime = needsMoreTime;
+    /**
+     * Количество дочерних узлов
+     */
+    public int getChildCount(BehaviorNode node) {
+        int index = indexOf(node);
+        return index != CompiledBehaviorTree.NO_NODE ? compiled.getChildCount(index) : 0;
     }
 
-    public boolean getNodeNeedsMoreTime() {
-        return this.nodeNeedsMoreTime;
+    public CompiledBehaviorTree getCompiledTree() {
+        return compiled;
     }
 
-    public boolean isNodeActive(String nodeId) {
-        return activeNodeIds.contains(nodeId);
-    }
+    /**
+     * Разобранные при загрузке дерева параметры узла
+     * @param node Узел
+     * @param type Класс параметров исполнителя
+     * @return Параметры узла
+     */
+    public <T> T getParams(BehaviorNode node, Class<T> type) {
+        int index = indexOf(node);
+        if (index == CompiledBehaviorTree.NO_NODE) {
+            return null;
+        }
 
-    public void addActiveNode(String nodeId) {
-        if (!activeNodeIds.contains(nodeId)) {
-            activeNodeIds.add(nodeId);
+        Object params = compiled.getParams(index);
+        if (params == null) {
+            // Дерево скомпилировано без привязки параметров - разбираем на месте
+            List<String> problems = new ArrayList<>();
+            params = NodeParamBinding.INSTANCE.bind(compiled, index, problems);
+            for (String problem : problems) {
+                LOGGER.warn("BehaviorTreeExecutor: {}", problem);
+            }
         }
+        return type.cast(params);
     }
 
-    public void removeActiveNode(String nodeId) {
-        activeNodeIds.remove(nodeId);
+    public void playAnimation(String action) {
+        entity.playAnimation(action);
     }
 
+    @Override
     public CustomMobEntity getEntity() {
         return entity;
     }
 
+    @Override
     public Blackboard getBlackboard() {
         return blackboard;
     }
 
+    /**
+     * Восприятие моба, записанное датчиками: Blackboard отряда, если моб в отряде, иначе память моба
+     */
+    public Blackboard getPerception() {
+        Squad squad = SquadManager.get(entity);
+        return squad != null ? squad.getBlackboard() : memory;
+    }
+
+    /**
+     * Память узлов уровня жизни моба (однократные события, кулдауны, восприятие датчиков вне отряда).
+     * В отличие от {@link #getBlackboard()} не сбрасывается при перезапуске дерева.
+     */
+    public Blackboard getMemory() {
+        return memory;
+    }
+
     /**
      * Обеспечивает плавный переход между узлами
      * @param currentNode Текущий узел
      * @param nextNode Следующий узел
      */
-    private void ensureSmoothTransition(BehaviorNode currentNode, BehaviorNode nextNode) {
+    void ensureSmoothTransition(BehaviorNode currentNode, BehaviorNode nextNode) {
         if (currentNode == null || nextNode == null) {
             return;
         }
 
         // Если текущий узел - анимация, а следующий - не анимация,
         // убедимся, что моб не останется без анимации (в T-позе)
-        if (currentNode.getType().equalsIgnoreCase("playanimationnode") &&
-                !nextNode.getType().equalsIgnoreCase("playanimationnode")) {
+        if (isPlayAnimation(currentNode) && !isPlayAnimation(nextNode)) {
 
             LOGGER.info("BehaviorTreeExecutor: Transitioning from animation node to non-animation node, " +
                     "ensuring IDLE animation to prevent T-pose");
             entity.playAnimation("IDLE");
         }
     }
-}
\ No newline at end of file
+
+    private boolean isPlayAnimation(BehaviorNode node) {
+        int index = indexOf(node);
+        return index != CompiledBehaviorTree.NO_NODE && compiled.getTypeCode(index) == NodeTypes.PLAY_ANIMATION;
+    }
+}
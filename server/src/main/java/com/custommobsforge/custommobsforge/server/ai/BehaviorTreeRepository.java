@@ -0,0 +1,228 @@
+package com.custommobsforge.custommobsforge.server.ai;
+
+import com.custommobsforge.custommobsforge.common.ai.CompiledBehaviorTree;
+import com.custommobsforge.custommobsforge.common.ai.NodeTypes;
+import com.custommobsforge.custommobsforge.common.data.BehaviorConnection;
+import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
+import com.custommobsforge.custommobsforge.common.data.BehaviorTree;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.storage.LevelResource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Серверный репозиторий скомпилированных деревьев поведения.
+ * Каждое дерево читается с диска, проверяется и компилируется один раз,
+ * после чего неизменяемый результат разделяется всеми мобами этого типа.
+ * Запись новой версии дерева сбрасывает кэш для его ID.
+ */
+public final class BehaviorTreeRepository {
+    private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
+    private static final Gson GSON = new GsonBuilder().create();
+
+    // Пустое значение означает, что дерево не найдено или не прошло проверку -
+    // повторно читать файл при каждом спавне не нужно
+    private static final Map<String, Optional<CompiledBehaviorTree>> CACHE = new ConcurrentHashMap<>();
+
+    private BehaviorTreeRepository() {
+    }
+
+    /**
+     * Возвращает скомпилированное дерево для моба.
+     * Сначала ищется полная версия дерева в файле behaviors/&lt;treeId&gt;.json,
+     * если её нет - используется дерево, встроенное в данные моба.
+     * @param embeddedTree Дерево из MobData (может содержать только ID)
+     * @param level Серверный мир
+     * @return Скомпилированное дерево или null, если корректного дерева нет
+     */
+    public static CompiledBehaviorTree getTree(BehaviorTree embeddedTree, ServerLevel level) {
+        if (embeddedTree == null || embeddedTree.getId() == null) {
+            return null;
+        }
+
+        return CACHE.computeIfAbsent(embeddedTree.getId(), treeId -> {
+            BehaviorTree tree = loadFromDisk(treeId, level);
+            if (tree == null || tree.getNodes() == null || tree.getNodes().isEmpty()) {
+                LOGGER.info("BehaviorTreeRepository: Using tree embedded in mob data for ID {}", treeId);
+                tree = embeddedTree;
+            }
+            return Optional.ofNullable(compileValidated(tree));
+        }).orElse(null);
+    }
+
+    /**
+     * Сбрасывает закэшированную версию дерева.
+     * Новые мобы получат свежую версию, уже работающие мобы доиграют старую.
+     */
+    public static void invalidate(String treeId) {
+        if (treeId != null && CACHE.remove(treeId) != null) {
+            LOGGER.info("BehaviorTreeRepository: Invalidated cached tree {}", treeId);
+        }
+    }
+
+    /**
+     * Полностью очищает кэш (например, при остановке сервера)
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    /**
+     * Проверяет и компилирует дерево.
+     * Параметры узлов привязываются здесь же - ошибки в значениях видны при загрузке, а не в каждом тике.
+     * @return Скомпилированное дерево или null, если дерево некорректно
+     */
+    public static CompiledBehaviorTree compileValidated(BehaviorTree tree) {
+        List<String> errors = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        validate(tree, errors, warnings);
+
+        String treeId = tree != null ? tree.getId() : null;
+        for (String warning : warnings) {
+            LOGGER.warn("BehaviorTreeRepository: Tree {}: {}", treeId, warning);
+        }
+        if (!errors.isEmpty()) {
+            for (String error : errors) {
+                LOGGER.error("BehaviorTreeRepository: Tree {}: {}", treeId, error);
+            }
+            return null;
+        }
+
+        List<String> paramProblems = new ArrayList<>();
+        CompiledBehaviorTree compiled = CompiledBehaviorTree.compile(tree, NodeParamBinding.INSTANCE, paramProblems);
+        for (String problem : paramProblems) {
+            LOGGER.warn("BehaviorTreeRepository: Tree {}: {}", treeId, problem);
+        }
+        if (compiled.isEmpty()) {
+            LOGGER.error("BehaviorTreeRepository: Tree {}: no valid nodes after compilation", treeId);
+            return null;
+        }
+        if (hasCycle(compiled)) {
+            LOGGER.error("BehaviorTreeRepository: Tree {}: connections contain a cycle", treeId);
+            return null;
+        }
+
+        LOGGER.info("BehaviorTreeRepository: Compiled tree {} with {} nodes, root {}",
+                treeId, compiled.size(), compiled.getNode(compiled.getRoot()).getId());
+        return compiled;
+    }
+
+    /**
+     * Проверяет структуру дерева до компиляции
+     */
+    private static void validate(BehaviorTree tree, List<String> errors, List<String> warnings) {
+        if (tree == null) {
+            errors.add("tree is null");
+            return;
+        }
+        if (tree.getNodes() == null || tree.getNodes().isEmpty()) {
+            errors.add("tree has no nodes");
+            return;
+        }
+
+        Set<String> nodeIds = new HashSet<>();
+        for (BehaviorNode node : tree.getNodes()) {
+            if (node == null || node.getId() == null) {
+                warnings.add("node without ID is ignored");
+                continue;
+            }
+            if (!nodeIds.add(node.getId())) {
+                warnings.add("duplicate node ID " + node.getId() + ", only the first one is used");
+            }
+            if (NodeTypes.codeOf(node.getType()) == NodeTypes.UNKNOWN) {
+                warnings.add("node " + node.getId() + " has unknown type " + node.getType());
+            }
+        }
+
+        if (tree.getConnections() != null) {
+            for (BehaviorConnection conn : tree.getConnections()) {
+                if (!nodeIds.contains(conn.getSourceNodeId()) || !nodeIds.contains(conn.getTargetNodeId())) {
+                    warnings.add("connection " + conn.getSourceNodeId() + " -> " + conn.getTargetNodeId()
+                            + " references a missing node and is ignored");
+                }
+            }
+        }
+    }
+
+    /**
+     * Ищет цикл в скомпилированном дереве (итеративный DFS)
+     */
+    private static boolean hasCycle(CompiledBehaviorTree compiled) {
+        int size = compiled.size();
+        // 0 - не посещён, 1 - в стеке, 2 - обработан
+        byte[] state = new byte[size];
+        int[] stack = new int[size];
+        int[] cursor = new int[size];
+
+        for (int start = 0; start < size; start++) {
+            if (state[start] != 0) {
+                continue;
+            }
+
+            int depth = 0;
+            stack[depth] = start;
+            cursor[depth] = 0;
+            state[start] = 1;
+
+            while (depth >= 0) {
+                int node = stack[depth];
+                int[] children = compiled.getChildren(node);
+                if (cursor[depth] < children.length) {
+                    int child = children[cursor[depth]++];
+                    if (state[child] == 1) {
+                        return true;
+                    }
+                    if (state[child] == 0) {
+                        state[child] = 1;
+                        depth++;
+                        stack[depth] = child;
+                        cursor[depth] = 0;
+                    }
+                } else {
+                    state[node] = 2;
+                    depth--;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static BehaviorTree loadFromDisk(String treeId, ServerLevel level) {
+        Path behaviorFile = level.getServer().getWorldPath(LevelResource.ROOT)
+                .resolve("custommobsforge").resolve("behaviors").resolve(treeId + ".json");
+
+        if (!Files.exists(behaviorFile)) {
+            LOGGER.warn("BehaviorTreeRepository: Behavior tree file not found: {}", behaviorFile);
+            return null;
+        }
+
+        try {
+            String json = new String(Files.readAllBytes(behaviorFile), StandardCharsets.UTF_8);
+            BehaviorTree tree = GSON.fromJson(json, BehaviorTree.class);
+            if (tree == null) {
+                LOGGER.error("BehaviorTreeRepository: Deserialization of {} resulted in NULL tree", behaviorFile);
+                return null;
+            }
+
+            LOGGER.info("BehaviorTreeRepository: Loaded tree {} ({} bytes) from {}",
+                    tree.getId(), json.length(), behaviorFile);
+            return tree;
+        } catch (Exception e) {
+            LOGGER.error("BehaviorTreeRepository: Error loading behavior tree {}: {}", treeId, e.getMessage());
+            return null;
+        }
+    }
+}
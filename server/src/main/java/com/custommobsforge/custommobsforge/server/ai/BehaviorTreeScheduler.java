@@ -0,0 +1,372 @@
+package com.custommobsforge.custommobsforge.server.ai;
+
+import com.custommobsforge.custommobsforge.common.ai.AiLodTier;
+import com.custommobsforge.custommobsforge.common.ai.MobAIState;
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.server.timer.TickTimers;
+import com.custommobsforge.custommobsforge.server.timer.TimerTask;
+import net.minecraft.server.level.ServerLevel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Общий планировщик деревьев поведения всех мобов сервера.
+ * Исполнители распределены по фазам: за тик в очередь ставится только одна фаза,
+ * поэтому мобы, появившиеся одновременно, не выполняются в одном и том же тике.
+ * Очередь обрабатывается в пределах бюджета времени на тик; то, что не успело выполниться,
+ * остаётся в начале очереди и выполняется первым в следующем тике.
+ * Приостановленные исполнители (все их узлы ждут) в очередь не ставятся вовсе, пока их не разбудит
+ * таймер {@link TickTimers} или событие.
+ * Запись исполнителя хранится в {@link MobAIState} самого моба, а не в карте по ID сущности.
+ * Вызывается только из серверного потока (ServerTickHandler).
+ */
+public final class BehaviorTreeScheduler {
+    private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
+
+    // Количество фаз: каждый исполнитель выполняется раз в столько тиков
+    private static final int INTERVAL = Math.max(1, Integer.getInteger("custommobsforge.ai.interval", 2));
+
+    // Исполнитель, ждущий в очереди дольше стольких тиков, выполняется вне бюджета
+    private static final int MAX_DELAY_TICKS = Math.max(INTERVAL, Integer.getInteger("custommobsforge.ai.maxDelayTicks", 10));
+
+    // Минимум исполнителей за тик даже при исчерпанном бюджете
+    private static final int MIN_PER_TICK = 1;
+
+    private static long budgetNanos = parseBudget(System.getProperty("custommobsforge.ai.budgetMs"), 5.0);
+
+    private static final List<List<Entry>> phases = new ArrayList<>();
+    private static final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private static long currentTick = 0;
+    private static int registered = 0;
+
+    // Статистика последнего тика
+    private static int lastExecuted = 0;
+    private static int lastForced = 0;
+    private static int lastCarried = 0;
+    private static long lastNanos = 0;
+
+    static {
+        for (int i = 0; i < INTERVAL; i++) {
+            phases.add(new ArrayList<>());
+        }
+    }
+
+    private BehaviorTreeScheduler() {
+    }
+
+    /**
+     * Запись исполнителя в планировщике; прикрепляется к состоянию ИИ моба
+     */
+    private static final class Entry implements MobAIState.Controller {
+        final BehaviorTreeExecutor executor;
+        final int phase;
+        // Позиция в списке фазы: запись убирается перестановкой последней на её место
+        int slot;
+        long enqueuedTick;
+        boolean queued;
+        boolean removed;
+        boolean suspended;
+        // Приостановлен до шага по уровню детализации, а не по условию узлов
+        boolean lodSuspended;
+        // Таймер пробуждения приостановленного исполнителя
+        TimerTask wakeTask;
+
+        Entry(BehaviorTreeExecutor executor, int phase) {
+            this.executor = executor;
+            this.phase = phase;
+        }
+
+        @Override
+        public void release() {
+            unregister(this);
+        }
+
+        @Override
+        public void onLodTierChanged(AiLodTier previous, AiLodTier current) {
+            // Исполнитель, ждущий только уровня детализации, проверяет новый уровень в ближайшем тике:
+            // при повышении шаг выполняется сразу, а не в прежний тик шага REDUCED
+            if (lodSuspended && current.runsBehaviorTree()) {
+                resume(this);
+            }
+        }
+    }
+
+    /**
+     * Добавляет исполнитель моба в планировщик.
+     * Фаза выбирается наименее загруженная, чтобы тики были нагружены равномерно.
+     */
+    public static void register(BehaviorTreeExecutor executor) {
+        CustomMobEntity entity = executor.getEntity();
+        MobAIState state = entity.getAiState();
+        Entry previous = entry(entity);
+        if (previous != null) {
+            if (previous.executor == executor) {
+                return;
+            }
+            unregister(previous);
+        }
+
+        int phase = 0;
+        for (int i = 1; i < phases.size(); i++) {
+            if (phases.get(i).size() < phases.get(phase).size()) {
+                phase = i;
+            }
+        }
+
+        Entry entry = new Entry(executor, phase);
+        List<Entry> phaseEntries = phases.get(phase);
+        entry.slot = phaseEntries.size();
+        phaseEntries.add(entry);
+        state.attach(entry);
+        registered++;
+        executor.start();
+
+        LOGGER.info("BehaviorTreeScheduler: Registered executor for entity {} in phase {}", entity.getId(), phase);
+    }
+
+    /**
+     * Убирает исполнитель моба и прерывает его выполнение
+     */
+    public static void unregister(CustomMobEntity entity) {
+        Entry entry = entry(entity);
+        if (entry != null) {
+            unregister(entry);
+        }
+    }
+
+    private static void unregister(Entry entry) {
+        if (entry.removed) {
+            return;
+        }
+
+        // Из очереди запись уходит при следующем извлечении
+        entry.removed = true;
+        cancelWake(entry);
+        removeFromPhase(entry);
+        registered--;
+        entry.executor.getEntity().getAiState().detach(entry);
+
+        try {
+            entry.executor.stop();
+        } catch (Exception e) {
+            LOGGER.error("BehaviorTreeScheduler: Error stopping executor for entity {}: {}",
+                    entry.executor.getEntity().getId(), e.getMessage());
+        }
+    }
+
+    private static void removeFromPhase(Entry entry) {
+        List<Entry> phaseEntries = phases.get(entry.phase);
+        Entry last = phaseEntries.remove(phaseEntries.size() - 1);
+        if (last != entry) {
+            last.slot = entry.slot;
+            phaseEntries.set(entry.slot, last);
+        }
+    }
+
+    /**
+     * Исполнитель дерева моба или null
+     */
+    public static BehaviorTreeExecutor get(CustomMobEntity entity) {
+        Entry entry = entry(entity);
+        return entry != null ? entry.executor : null;
+    }
+
+    /**
+     * Будит приостановленный исполнитель моба: он ставится в очередь вне своей фазы
+     */
+    public static void wake(CustomMobEntity entity) {
+        Entry entry = entry(entity);
+        if (entry != null && entry.suspended) {
+            resume(entry);
+        }
+    }
+
+    private static Entry entry(CustomMobEntity entity) {
+        MobAIState.Controller controller = entity.getAiState().getController();
+        return controller instanceof Entry ? (Entry) controller : null;
+    }
+
+    private static void resume(Entry entry) {
+        if (entry.removed || !entry.suspended) {
+            return;
+        }
+        entry.suspended = false;
+        entry.lodSuspended = false;
+        cancelWake(entry);
+        enqueue(entry);
+    }
+
+    private static void cancelWake(Entry entry) {
+        if (entry.wakeTask != null) {
+            entry.wakeTask.cancel();
+            entry.wakeTask = null;
+        }
+    }
+
+    private static void enqueue(Entry entry) {
+        if (!entry.queued) {
+            entry.queued = true;
+            entry.enqueuedTick = currentTick;
+            queue.addLast(entry);
+        }
+    }
+
+    /**
+     * Один тик сервера: ставит в очередь текущую фазу и выполняет очередь в пределах бюджета.
+     * Таймеры пробуждения срабатывают раньше - в {@link TickTimers#advance}
+     */
+    public static void tick() {
+        currentTick++;
+
+        for (Entry entry : phases.get((int) (currentTick % INTERVAL))) {
+            if (!entry.suspended) {
+                enqueue(entry);
+            }
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        int executed = 0;
+        int forced = 0;
+
+        while (!queue.isEmpty()) {
+            Entry entry = queue.peekFirst();
+            if (entry.removed) {
+                queue.pollFirst();
+                continue;
+            }
+
+            // Бюджет исчерпан - дальше выполняются только давно ждущие исполнители
+            boolean overBudget = executed >= MIN_PER_TICK && System.nanoTime() >= deadline;
+            if (overBudget) {
+                if (currentTick - entry.enqueuedTick < MAX_DELAY_TICKS) {
+                    break;
+                }
+                forced++;
+            }
+
+            queue.pollFirst();
+            entry.queued = false;
+            run(entry);
+            executed++;
+        }
+
+        lastExecuted = executed;
+        lastForced = forced;
+        lastCarried = queue.size();
+        lastNanos = System.nanoTime() - start;
+    }
+
+    private static void run(Entry entry) {
+        BehaviorTreeExecutor executor = entry.executor;
+        CustomMobEntity entity = executor.getEntity();
+
+        if (entity.isRemoved()) {
+            unregister(entry);
+            return;
+        }
+
+        // Как и goalSelector: без ИИ и вне загруженных для сущностей чанков дерево не выполняется
+        if (!entity.isAlive() || entity.isNoAi() || !executor.canRun()) {
+            return;
+        }
+        if (entity.level() instanceof ServerLevel
+                && !((ServerLevel) entity.level()).isPositionEntityTicking(entity.blockPosition())) {
+            return;
+        }
+
+        boolean stepped;
+        try {
+            stepped = executor.tick();
+        } catch (Exception e) {
+            LOGGER.error("BehaviorTreeScheduler: Error ticking executor for entity {}: {}",
+                    entity.getId(), e.getMessage(), e);
+            return;
+        }
+        if (entry.removed) {
+            return;
+        }
+
+        if (!stepped) {
+            // Шаг пропущен по уровню детализации: на REDUCED исполнитель спит до тика, когда шаг разрешён,
+            // на уровнях без дерева - без таймера, до смены уровня (Entry.onLodTierChanged).
+            // Прежний тик пробуждения уже прошёл и будил бы его каждый тик
+            suspend(entry, executor.getNextLodStepTick(), true);
+            return;
+        }
+
+        // Все узлы ждут - до пробуждения исполнитель не ставится в очередь
+        if (executor.isSuspended()) {
+            suspend(entry, executor.getWakeTick(), false);
+        }
+    }
+
+    private static void suspend(Entry entry, long wakeTick, boolean lod) {
+        entry.suspended = true;
+        entry.lodSuspended = lod;
+        if (wakeTick != BehaviorTreeExecutor.NO_WAKE_TICK) {
+            entry.wakeTask = TickTimers.scheduleAt(wakeTick, () -> resume(entry));
+        }
+    }
+
+    /**
+     * Сбрасывает планировщик при остановке сервера
+     */
+    public static void clear() {
+        for (List<Entry> phase : phases) {
+            for (Entry entry : phase) {
+                entry.removed = true;
+                cancelWake(entry);
+                entry.executor.getEntity().getAiState().detach(entry);
+            }
+            phase.clear();
+        }
+        queue.clear();
+        registered = 0;
+        currentTick = 0;
+    }
+
+    /**
+     * Бюджет времени на тик в миллисекундах
+     */
+    public static double getBudgetMs() {
+        return budgetNanos / 1_000_000.0;
+    }
+
+    public static void setBudgetMs(double budgetMs) {
+        budgetNanos = (long) (Math.max(0.0, budgetMs) * 1_000_000L);
+        LOGGER.info("BehaviorTreeScheduler: Tick budget set to {} ms", budgetMs);
+    }
+
+    /**
+     * Краткая статистика для команды
+     */
+    public static String getStats() {
+        int suspended = 0;
+        for (List<Entry> phase : phases) {
+            for (Entry entry : phase) {
+                if (entry.suspended) {
+                    suspended++;
+                }
+            }
+        }
+        return String.format("executors=%d, suspended=%d, interval=%d, budget=%.2fms, last tick: executed=%d, forced=%d, carried=%d, time=%.3fms",
+                registered, suspended, INTERVAL, getBudgetMs(), lastExecuted, lastForced, lastCarried, lastNanos / 1_000_000.0);
+    }
+
+    private static long parseBudget(String value, double defaultMs) {
+        double budgetMs = defaultMs;
+        if (value != null) {
+            try {
+                budgetMs = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("BehaviorTreeScheduler: Invalid budget '{}', using {} ms", value, defaultMs);
+            }
+        }
+        return (long) (Math.max(0.0, budgetMs) * 1_000_000L);
+    }
+}
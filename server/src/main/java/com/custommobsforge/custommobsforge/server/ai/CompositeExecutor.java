@@ -0,0 +1,34 @@
+package com.custommobsforge.custommobsforge.server.ai;
+
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
+import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+
+/**
+ * Узел, управляющий дочерними узлами через стек кадров {@link FrameStack}.
+ * Композит не вызывает детей сам: он сообщает интерпретатору, какой дочерний узел
+ * запустить следующим, и получает его статус, когда тот завершится.
+ */
+public non-sealed interface CompositeExecutor extends NodeExecutor {
+    /** Узел завершился успешно */
+    int DONE_SUCCESS = -1;
+    /** Узел завершился неудачно */
+    int DONE_FAILURE = -2;
+    /** Узел ждёт - вызвать снова в следующем тике с тем же курсором */
+    int YIELD = -3;
+
+    /**
+     * Выбирает следующий шаг композита
+     * @param cursor Позиция последнего запущенного дочернего узла (-1 при входе в узел)
+     * @param childStatus Статус завершившегося дочернего узла или null при входе и после YIELD
+     * @return Позиция дочернего узла для запуска (в порядке соединений) или один из кодов
+     */
+    int next(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor, int cursor, NodeStatus childStatus);
+
+    /**
+     * Переводит статус дочернего узла в код завершения
+     */
+    static int done(boolean success) {
+        return success ? DONE_SUCCESS : DONE_FAILURE;
+    }
+}
@@ -1,7 +1,9 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.common.spatial.SpatialIndex;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
@@ -12,51 +14,73 @@ import net.minecraft.network.protocol.game.ClientboundSetTitlesAnimationPacket;
 
 import java.util.List;
 
-public class DisplayTitleNodeExecutor implements NodeExecutor {
+public class DisplayTitleNodeExecutor implements LeafExecutor {
+    /**
+     * Параметры узла заголовка; компоненты текста создаются один раз
+     */
+    public static final class Params {
+        final Component title;
+        final Component subtitle;
+        final int durationTicks;
+        final String color;
+
+        private Params(String titleText, String subtitleText, int durationTicks, String color) {
+            this.title = titleText.isEmpty() ? null : Component.literal(titleText);
+            this.subtitle = subtitleText.isEmpty() ? null : Component.literal(subtitleText);
+            this.durationTicks = durationTicks;
+            this.color = color;
+        }
+
+        static Params bind(NodeParamReader reader) {
+            String titleText = reader.getString("titleText", "");
+            String subtitleText = reader.getString("subtitleText", "");
+            if (titleText.isEmpty() && subtitleText.isEmpty()) {
+                reader.problem("both titleText and subtitleText are empty, node will always fail");
+            }
+            double displayTime = reader.getDouble("displayTime", 3.0, 0.0, 600.0);
+            return new Params(titleText, subtitleText, (int) (displayTime * 20),
+                    reader.getString("color", "white"));
+        }
+    }
+
     @Override
-    public boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+    public NodeStatus execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
         // Получаем параметры
-        String titleText = node.getCustomParameterAsString("titleText", "");
-        String subtitleText = node.getCustomParameterAsString("subtitleText", "");
-        double displayTime = node.getCustomParameterAsDouble("displayTime", 3.0);
-        String color = node.getCustomParameterAsString("color", "white");
+        Params params = executor.getParams(node, Params.class);
 
         // Если оба текста пустые, ничего не делаем
-        if (titleText.isEmpty() && subtitleText.isEmpty()) {
-            return false;
+        if (params.title == null && params.subtitle == null) {
+            return NodeStatus.FAILURE;
         }
 
         // Проверяем, является ли мир серверным
         if (!(entity.level() instanceof ServerLevel)) {
-            return true; // На клиенте ничего не делаем
+            return NodeStatus.SUCCESS; // На клиенте ничего не делаем
         }
 
         // Находим игроков поблизости
-        List<ServerPlayer> players = ((ServerLevel) entity.level()).getPlayers(player ->
-                player.distanceTo(entity) < 32.0
-        );
+        List<Player> players = SpatialIndex.of(entity.level()).getPlayersWithin(entity, 32.0);
 
         // Отправляем заголовок игрокам
-        for (ServerPlayer player : players) {
-            sendTitle(player, titleText, subtitleText, (int) (displayTime * 20));
+        for (Player player : players) {
+            if (player instanceof ServerPlayer) {
+                sendTitle((ServerPlayer) player, params.title, params.subtitle, params.durationTicks);
+            }
         }
 
-        return true;
+        return NodeStatus.SUCCESS;
     }
 
     // Метод для отправки заголовка игроку (обновлено для 1.20.1)
-    private void sendTitle(ServerPlayer player, String title, String subtitle, int duration) {
-        Component titleComponent = Component.literal(title);
-        Component subtitleComponent = Component.literal(subtitle);
-
+    private void sendTitle(ServerPlayer player, Component title, Component subtitle, int duration) {
         // В Minecraft 1.20.1 изменился API для отправки заголовков
         // Используем новые классы пакетов
-        if (!title.isEmpty()) {
-            player.connection.send(new ClientboundSetTitleTextPacket(titleComponent));
+        if (title != null) {
+            player.connection.send(new ClientboundSetTitleTextPacket(title));
         }
 
-        if (!subtitle.isEmpty()) {
-            player.connection.send(new ClientboundSetSubtitleTextPacket(subtitleComponent));
+        if (subtitle != null) {
+            player.connection.send(new ClientboundSetSubtitleTextPacket(subtitle));
         }
 
         // Настраиваем анимацию (fadeIn, stay, fadeOut)
@@ -1,72 +1,100 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.Blackboard;
+import com.custommobsforge.custommobsforge.common.ai.BlackboardKey;
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.server.ai.path.PathRequestService;
+import com.custommobsforge.custommobsforge.server.ai.sensor.Sensor;
+import com.custommobsforge.custommobsforge.server.ai.sensor.Sensors;
+import com.custommobsforge.custommobsforge.server.timer.TickTimers;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.ai.navigation.PathNavigation;
-import net.minecraft.world.entity.ai.targeting.TargetingConditions;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.phys.Vec3;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-public class FleeNodeExecutor implements NodeExecutor {
+public class FleeNodeExecutor implements LeafExecutor {
     private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
-    private static final TargetingConditions FLEE_TARGETING = TargetingConditions.forNonCombat().range(16.0D);
+    // Дальность, на которой моб замечает угрозу
+    private static final double THREAT_RANGE = 16.0D;
+    private static final Sensor[] SENSORS = {Sensors.NEAREST_PLAYER, Sensors.NEAREST_HOSTILE, Sensors.LAST_ATTACKER};
+
+    // Состояние движения в Blackboard: игровой тик, до которого моб считается движущимся
+    private static final BlackboardKey<Long> MOVE_END = BlackboardKey.ofLong("flee.moveEnd");
+
+    /**
+     * Параметры узла бегства
+     */
+    public static final class Params {
+        final double distance;
+        final double speed;
+        final boolean targetPlayer;
+
+        private Params(double distance, double speed, boolean targetPlayer) {
+            this.distance = distance;
+            this.speed = speed;
+            this.targetPlayer = targetPlayer;
+        }
 
-    // Кэш для отслеживания движения
-    private static final Map<Integer, Long> lastMoveTime = new HashMap<>();
-    private static final Map<Integer, Long> movementDuration = new HashMap<>();
+        static Params bind(NodeParamReader reader) {
+            return new Params(
+                    reader.getDouble("distance", 10.0, 0.0, 64.0),
+                    reader.getDouble("speed", 1.2, 0.0, 10.0),
+                    reader.getBoolean("targetPlayer", true));
+        }
+    }
 
     @Override
-    public boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+    public Sensor[] getSensors() {
+        return SENSORS;
+    }
+
+    @Override
+    public NodeStatus execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
         // Получаем параметры узла
-        double distance = node.getCustomParameterAsDouble("distance", 10.0);
-        double speed = node.getCustomParameterAsDouble("speed", 1.2);
-        boolean targetPlayer = node.getCustomParameterAsBoolean("targetPlayer", true);
+        Params params = executor.getParams(node, Params.class);
+        double distance = params.distance;
+        double speed = params.speed;
+        boolean targetPlayer = params.targetPlayer;
 
         executor.logNodeExecution("FleeNode", node.getId(),
-                "distance=" + distance + ", speed=" + speed + ", targetPlayer=" + targetPlayer, true);
+                "distance={}, speed={}, targetPlayer={}", true, distance, speed, targetPlayer);
 
         // Проверяем, является ли мир серверным
         if (!(entity.level() instanceof ServerLevel)) {
             executor.logNodeExecution("FleeNode", node.getId(), "skipped on client", false);
-            return false; // На клиенте ничего не делаем
+            return NodeStatus.FAILURE; // На клиенте ничего не делаем
         }
 
         // Ищем цель для бегства
-        LivingEntity threat = findThreat(entity, targetPlayer);
+        LivingEntity threat = findThreat(entity, executor, targetPlayer);
 
         // Если нет угрозы, возвращаем неудачу
         if (threat == null) {
             executor.logNodeExecution("FleeNode", node.getId(), "no threat found", false);
-            return false;
+            return NodeStatus.FAILURE;
         }
 
-        // Получаем уникальный ID для моба
+        // Получаем уникальный ID для моба и слоты узла в Blackboard
         int entityId = entity.getId();
+        Blackboard blackboard = executor.getBlackboard();
+        int nodeIndex = executor.indexOf(node);
 
         // Вычисляем расстояние до угрозы
         double distanceToThreat = entity.distanceTo(threat);
-        LOGGER.info("FleeNode: Entity {} is at distance {} from threat, safe distance is {}",
+        LOGGER.debug("FleeNode: Entity {} is at distance {} from threat, safe distance is {}",
                 entityId, distanceToThreat, distance);
 
         // Проверяем, находится ли моб в движении
-        boolean isMoving = false;
-        long currentTime = System.currentTimeMillis();
-
-        if (lastMoveTime.containsKey(entityId)) {
-            long lastMove = lastMoveTime.get(entityId);
-            long duration = movementDuration.getOrDefault(entityId, 1000L);
+        if (blackboard.has(MOVE_END, nodeIndex)) {
+            long moveEnd = blackboard.getLong(MOVE_END, nodeIndex, 0L);
 
-            // Если с момента начала движения прошло меньше времени чем duration, считаем что моб движется
-            if (currentTime - lastMove < duration) {
-                isMoving = true;
+            // Пока срок движения не истёк, считаем что моб движется
+            if (!TickTimers.isReached(moveEnd)) {
 
                 // Воспроизводим анимацию бега, если ещё движемся
                 if (node.getAnimationId() != null && !node.getAnimationId().isEmpty()) {
@@ -75,13 +103,13 @@ public class FleeNodeExecutor implements NodeExecutor {
                     executor.playAnimation("RUN");
                 }
 
-                LOGGER.info("FleeNode: Entity {} is still moving, animation RUN", entityId);
+                LOGGER.debug("FleeNode: Entity {} is still moving, animation RUN", entityId);
 
-                // Продолжаем проверку по времени
-                executor.setNodeNeedsMoreTime(true);
+                // До конца движения узел ждёт; урон будит его раньше, чтобы заново оценить угрозу
                 executor.logNodeExecution("FleeNode", node.getId(),
-                        "still fleeing, remaining time: " + (duration - (currentTime - lastMove)) + "ms", false);
-                return true;
+                        "still fleeing, remaining ticks: {}", false, moveEnd - TickTimers.now());
+                executor.suspendUntilDamage(moveEnd);
+                return NodeStatus.RUNNING;
             }
         }
 
@@ -90,8 +118,9 @@ public class FleeNodeExecutor implements NodeExecutor {
             // Воспроизводим анимацию ожидания
             executor.playAnimation("IDLE");
             executor.logNodeExecution("FleeNode", node.getId(),
-                    "already at safe distance: " + distanceToThreat, false);
-            return true;
+                    "already at safe distance: {}", false, distanceToThreat);
+            blackboard.remove(MOVE_END, nodeIndex);
+            return NodeStatus.SUCCESS;
         }
 
         // Получаем навигацию
@@ -99,7 +128,7 @@ public class FleeNodeExecutor implements NodeExecutor {
         if (navigation == null) {
             LOGGER.error("FleeNode: Entity {} has no navigation!", entityId);
             executor.logNodeExecution("FleeNode", node.getId(), "no navigation available", false);
-            return false;
+            return NodeStatus.FAILURE;
         }
 
         // Вычисляем направление от угрозы (противоположное направлению к угрозе)
@@ -119,11 +148,13 @@ public class FleeNodeExecutor implements NodeExecutor {
         double adjustedSpeed = speed;
         if (adjustedSpeed > 1.5) adjustedSpeed = 1.5; // Ограничиваем максимальную скорость
 
-        // Используем навигацию для движения
-        boolean pathSuccess = navigation.moveTo(moveToX, entityPos.y, moveToZ, adjustedSpeed);
+        // Запрашиваем путь; отложенный запрос считается успешным - путь будет построен в ближайших тиках
+        PathRequestService.Result pathResult =
+                PathRequestService.request(entity, moveToX, entityPos.y, moveToZ, adjustedSpeed);
+        boolean pathSuccess = pathResult != PathRequestService.Result.FAILED;
 
         if (pathSuccess) {
-            LOGGER.info("FleeNode: Entity {} is fleeing to [{}, {}, {}] with speed {}",
+            LOGGER.debug("FleeNode: Entity {} is fleeing to [{}, {}, {}] with speed {}",
                     entityId, moveToX, entityPos.y, moveToZ, adjustedSpeed);
 
             // Воспроизводим анимацию бега
@@ -138,9 +169,6 @@ public class FleeNodeExecutor implements NodeExecutor {
             double lookZ = entityPos.z + direction.z * 10;
             entity.getLookControl().setLookAt(lookX, entityPos.y, lookZ, 30.0F, 30.0F);
 
-            // Запоминаем начало движения и его продолжительность
-            lastMoveTime.put(entityId, currentTime);
-
             // Рассчитываем приблизительную продолжительность движения на основе расстояния и скорости
             long estimatedDuration = (long)(moveDistance / adjustedSpeed * 1000); // в миллисекундах
 
@@ -148,14 +176,12 @@ public class FleeNodeExecutor implements NodeExecutor {
             if (estimatedDuration < 500) estimatedDuration = 500;
             if (estimatedDuration > 5000) estimatedDuration = 5000;
 
-            movementDuration.put(entityId, estimatedDuration);
-
-            // Сообщаем, что нужно продолжить выполнение узла в следующем тике
-            executor.setNodeNeedsMoreTime(true);
+            // Запоминаем конец движения
+            startMoving(executor, blackboard, nodeIndex, estimatedDuration);
 
             executor.logNodeExecution("FleeNode", node.getId(),
-                    "started fleeing, estimated duration: " + estimatedDuration + "ms", false);
-            return true;
+                    "started fleeing, estimated duration: {}ms", false, estimatedDuration);
+            return NodeStatus.RUNNING;
         } else {
             // Если не удалось построить путь, пробуем просто задать направление
             LOGGER.warn("FleeNode: Entity {} failed to create path, trying direct movement", entityId);
@@ -170,44 +196,48 @@ public class FleeNodeExecutor implements NodeExecutor {
                 executor.playAnimation("RUN");
             }
 
-            // Запоминаем начало движения
-            lastMoveTime.put(entityId, currentTime);
-
             // Устанавливаем фиксированную продолжительность для прямого перемещения
-            movementDuration.put(entityId, 1000L); // 1 секунда
-
-            // Сообщаем, что нужно продолжить выполнение узла в следующем тике
-            executor.setNodeNeedsMoreTime(true);
+            startMoving(executor, blackboard, nodeIndex, 1000L); // 1 секунда
 
             executor.logNodeExecution("FleeNode", node.getId(),
                     "started direct fleeing, duration: 1000ms", false);
-            return true;
+            return NodeStatus.RUNNING;
         }
     }
 
-    // Метод поиска угрозы
-    private LivingEntity findThreat(CustomMobEntity entity, boolean targetPlayer) {
+    private static void startMoving(BehaviorTreeExecutor executor, Blackboard blackboard, int nodeIndex, long durationMs) {
+        long moveEnd = TickTimers.now() + Math.max(1, TickTimers.ticksFromMillis(durationMs));
+        blackboard.setLong(MOVE_END, nodeIndex, moveEnd);
+        executor.suspendUntilDamage(moveEnd);
+    }
+
+    @Override
+    public void halt(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+        // Узел прерван во время бегства - останавливаем движение
+        PathRequestService.cancel(entity);
+        entity.setDisableAutoAnimations(false);
+    }
+
+    // Метод поиска угрозы по результатам датчиков восприятия
+    private LivingEntity findThreat(CustomMobEntity entity, BehaviorTreeExecutor executor, boolean targetPlayer) {
         if (targetPlayer) {
-            // Ищем ближайшего игрока
-            Player nearestPlayer = entity.level().getNearestPlayer(
-                    FLEE_TARGETING,
-                    entity
-            );
+            // Ближайший игрок, если он достаточно близко
+            Player nearestPlayer = Sensors.getNearestPlayer(executor.getPerception());
+            return isInThreatRange(entity, nearestPlayer) ? nearestPlayer : null;
+        }
 
-            return nearestPlayer;
-        } else {
-            // Ищем любую подходящую сущность
-            List<LivingEntity> nearbyEntities = entity.level().getEntitiesOfClass(
-                    LivingEntity.class,
-                    entity.getBoundingBox().inflate(16.0),
-                    target -> FLEE_TARGETING.test(entity, target) && !(target instanceof CustomMobEntity)
-            );
-
-            if (!nearbyEntities.isEmpty()) {
-                return nearbyEntities.get(0);
-            }
+        // Тот, кто только что ранил моба, опаснее враждебного моба рядом
+        LivingEntity attacker = Sensors.getLastAttacker(executor.getPerception());
+        if (isInThreatRange(entity, attacker) && !(attacker instanceof CustomMobEntity)) {
+            return attacker;
         }
 
-        return null;
+        // Мирные животные угрозой не считаются
+        LivingEntity nearest = Sensors.getNearestHostile(executor.getPerception());
+        return isInThreatRange(entity, nearest) ? nearest : null;
+    }
+
+    private static boolean isInThreatRange(CustomMobEntity entity, LivingEntity threat) {
+        return threat != null && entity.distanceToSqr(threat) <= THREAT_RANGE * THREAT_RANGE;
     }
 }
\ No newline at end of file
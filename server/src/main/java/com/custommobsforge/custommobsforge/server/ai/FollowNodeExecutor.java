@@ -1,75 +1,117 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.Blackboard;
+import com.custommobsforge.custommobsforge.common.ai.BlackboardKey;
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.common.spatial.FlowFields;
+import com.custommobsforge.custommobsforge.server.ai.path.PathRequestService;
+import com.custommobsforge.custommobsforge.server.ai.sensor.Sensor;
+import com.custommobsforge.custommobsforge.server.ai.sensor.Sensors;
+import com.custommobsforge.custommobsforge.server.ai.squad.Squad;
+import com.custommobsforge.custommobsforge.server.ai.squad.SquadManager;
+import com.custommobsforge.custommobsforge.server.timer.TickTimers;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.LivingEntity;
-import net.minecraft.world.entity.ai.navigation.PathNavigation;
-import net.minecraft.world.entity.ai.targeting.TargetingConditions;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.pathfinder.Path;
 import net.minecraft.world.phys.Vec3;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.List;
-
-public class FollowNodeExecutor implements NodeExecutor {
+public class FollowNodeExecutor implements LeafExecutor {
     private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
-    private static final TargetingConditions FOLLOW_TARGETING = TargetingConditions.forNonCombat().range(32.0D);
+    private static final Sensor[] SENSORS = {Sensors.NEAREST_PLAYER, Sensors.NEAREST_LIVING};
+
+    // Состояние следования в Blackboard
+    private static final BlackboardKey<LivingEntity> TARGET = BlackboardKey.of("follow.target", LivingEntity.class);
+    private static final BlackboardKey<Long> NEXT_PATH_UPDATE = BlackboardKey.ofLong("follow.nextPathUpdate");
+    private static final long PATH_UPDATE_INTERVAL = 10; // Интервал обновления пути в тиках
+    private static final double MAX_FOLLOW_RANGE = 32.0; // Дальше этого цель теряется
+
+    /**
+     * Параметры узла следования
+     */
+    public static final class Params {
+        final double distance;
+        final double speed;
+        final boolean targetPlayer;
+        // Идти по общему полю потока к цели вместо собственного поиска пути (для больших групп)
+        final boolean flowField;
+
+        private Params(double distance, double speed, boolean targetPlayer, boolean flowField) {
+            this.distance = distance;
+            this.speed = speed;
+            this.targetPlayer = targetPlayer;
+            this.flowField = flowField;
+        }
+
+        static Params bind(NodeParamReader reader) {
+            return new Params(
+                    reader.getDouble("distance", 5.0, 0.0, 32.0),
+                    reader.getDouble("speed", 1.0, 0.0, 10.0),
+                    reader.getBoolean("targetPlayer", true),
+                    reader.getBoolean("flowField", false));
+        }
+    }
+
+    @Override
+    public Sensor[] getSensors() {
+        return SENSORS;
+    }
 
     @Override
-    public boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+    public NodeStatus execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
         // Получаем параметры узла
-        double targetDistance = node.getCustomParameterAsDouble("distance", 5.0);
-        double speed = node.getCustomParameterAsDouble("speed", 1.0);
-        boolean targetPlayerOnly = node.getCustomParameterAsBoolean("targetPlayer", true);
+        Params params = executor.getParams(node, Params.class);
+        double targetDistance = params.distance;
+        double speed = params.speed;
+        boolean targetPlayerOnly = params.targetPlayer;
 
         executor.logNodeExecution("FollowNode", node.getId(),
-                "distance=" + targetDistance + ", speed=" + speed + ", targetPlayer=" + targetPlayerOnly, true);
+                "distance={}, speed={}, targetPlayer={}", true, targetDistance, speed, targetPlayerOnly);
 
         // Проверяем, является ли мир серверным
         if (!(entity.level() instanceof ServerLevel)) {
             executor.logNodeExecution("FollowNode", node.getId(), "skipped on client", false);
-            return false; // На клиенте ничего не делаем
+            return NodeStatus.FAILURE; // На клиенте ничего не делаем
         }
 
-        // Уникальный идентификатор для узла+сущности
-        String nodeKey = entity.getId() + ":" + node.getId();
+        // Слоты узла в Blackboard
+        Blackboard blackboard = executor.getBlackboard();
+        int nodeIndex = executor.indexOf(node);
 
         // Отключаем автоматические анимации
         entity.setDisableAutoAnimations(true);
 
         // Получаем текущую цель из Blackboard или находим новую
-        LivingEntity target = (LivingEntity) executor.getBlackboard().getValue(nodeKey + ":target");
+        LivingEntity target = blackboard.get(TARGET, nodeIndex);
 
-        if (target == null || target.isRemoved() || entity.distanceTo(target) > 32.0) {
-            target = findTarget(entity, targetPlayerOnly);
+        if (target == null || target.isRemoved() || entity.distanceTo(target) > MAX_FOLLOW_RANGE) {
+            target = findTarget(entity, executor, targetPlayerOnly);
 
             if (target == null) {
                 // Нет цели, возвращаем неудачу и включаем автоанимации обратно
                 executor.logNodeExecution("FollowNode", node.getId(), "no target found", false);
                 entity.setDisableAutoAnimations(false);
-                return false;
+                return NodeStatus.FAILURE;
             }
 
             // Сохраняем цель в Blackboard
-            executor.getBlackboard().setValue(nodeKey + ":target", target);
+            blackboard.set(TARGET, nodeIndex, target);
         }
 
-        // Текущее время для расчётов
-        long currentTime = System.currentTimeMillis();
-        long lastPathUpdate = executor.getBlackboard().getValue(nodeKey + ":lastPathUpdate", 0L);
-
         // Обновляем путь с определенным интервалом
-        if (currentTime - lastPathUpdate > 500) {
-            boolean pathUpdated = updatePath(entity, target, targetDistance, speed);
-            executor.getBlackboard().setValue(nodeKey + ":lastPathUpdate", currentTime);
+        if (TickTimers.isReached(blackboard.getLong(NEXT_PATH_UPDATE, nodeIndex, 0L))) {
+            boolean pathUpdated = updatePath(entity, target, targetDistance, speed, params.flowField);
+            blackboard.setLong(NEXT_PATH_UPDATE, nodeIndex, TickTimers.now() + PATH_UPDATE_INTERVAL);
 
             if (!pathUpdated) {
                 // Не удалось обновить путь, возвращаем неудачу
                 executor.logNodeExecution("FollowNode", node.getId(), "failed to update path", false);
                 entity.setDisableAutoAnimations(false);
-                return false;
+                return NodeStatus.FAILURE;
             }
         }
 
@@ -91,31 +133,36 @@ public class FollowNodeExecutor implements NodeExecutor {
 
             executor.logNodeExecution("FollowNode", node.getId(), "reached desired distance", false);
             entity.setDisableAutoAnimations(false);
-            return true;
+            return NodeStatus.SUCCESS;
         }
 
-        // Продолжаем следовать, нужно больше времени
-        executor.setNodeNeedsMoreTime(true);
-        return true;
+        // Продолжаем следовать в следующем тике
+        return NodeStatus.RUNNING;
+    }
+
+    @Override
+    public void halt(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+        // Узел прерван во время следования - останавливаемся и возвращаем автоанимации
+        PathRequestService.cancel(entity);
+        entity.setDisableAutoAnimations(false);
     }
 
     /**
-     * Обновляет путь к цели
+     * Обновляет путь к цели. Если цель почти не сдвинулась, текущий путь сохраняется
      * @param entity Сущность
      * @param target Цель
      * @param targetDistance Желаемое расстояние до цели
      * @param speed Скорость движения
+     * @param useFlowField Подходить к цели по общему полю потока
      * @return true, если удалось обновить путь
      */
-    private boolean updatePath(CustomMobEntity entity, LivingEntity target, double targetDistance, double speed) {
+    private boolean updatePath(CustomMobEntity entity, LivingEntity target, double targetDistance, double speed,
+                               boolean useFlowField) {
         double distanceToTarget = entity.distanceTo(target);
-        PathNavigation navigator = entity.getNavigation();
-
-        // Очищаем текущий путь
-        navigator.stop();
 
-        // Если мы на нужном расстоянии, просто смотрим на цель
+        // Если мы на нужном расстоянии, останавливаемся и смотрим на цель
         if (Math.abs(distanceToTarget - targetDistance) < 1.0) {
+            PathRequestService.cancel(entity);
             entity.getLookControl().setLookAt(target, 30.0f, 30.0f);
             return true;
         }
@@ -133,19 +180,40 @@ public class FollowNodeExecutor implements NodeExecutor {
             direction = targetPos.subtract(entityPos).normalize();
         }
 
+        // При подходе путь можно взять из поля потока, общего для всех мобов, следующих за целью
+        if (useFlowField && distanceToTarget > targetDistance) {
+            Path path = FlowFields.findPath(entity, target, targetDistance);
+            if (path != null && PathRequestService.accept(entity, path, speed)) {
+                return true;
+            }
+        }
+
         double distanceToMove = Math.abs(distanceToTarget - targetDistance);
+
+        // В отряде каждый идёт на своё место в строю вокруг цели, а не в одну точку со всеми
+        Squad squad = SquadManager.get(entity);
+        Vec3 slot = squad != null && squad.size() > 1
+                ? squad.getFormationPosition(entity, target, targetDistance)
+                : null;
+        if (slot != null) {
+            Vec3 toSlot = new Vec3(slot.x - entityPos.x, 0.0, slot.z - entityPos.z);
+            if (toSlot.length() > 0.5) {
+                direction = toSlot.normalize();
+                distanceToMove = toSlot.length();
+            }
+        }
+
         if (distanceToMove > 10) distanceToMove = 10;
 
         double targetX = entityPos.x + direction.x * distanceToMove;
         double targetZ = entityPos.z + direction.z * distanceToMove;
 
-        // Устанавливаем путь
-        boolean success = navigator.moveTo(targetX, entityPos.y, targetZ, speed);
+        // Запрашиваем путь (может быть переиспользован или отложен до следующего тика)
+        PathRequestService.Result result = PathRequestService.request(entity, targetX, entityPos.y, targetZ, speed);
 
-        if (!success) {
-            // Если не удалось установить путь, пробуем прямое перемещение
+        if (result == PathRequestService.Result.FAILED) {
+            // Если не удалось построить путь, пробуем прямое перемещение
             entity.getMoveControl().setWantedPosition(targetX, entityPos.y, targetZ, speed);
-            return true;
         }
 
         return true;
@@ -174,33 +242,32 @@ public class FollowNodeExecutor implements NodeExecutor {
     }
 
     /**
-     * Находит цель для следования
+     * Находит цель для следования: общую цель отряда или по результатам датчиков восприятия
      * @param entity Сущность
+     * @param executor Исполнитель дерева моба
      * @param targetPlayerOnly Следовать только за игроком
      * @return Цель для следования или null, если цель не найдена
      */
-    private LivingEntity findTarget(CustomMobEntity entity, boolean targetPlayerOnly) {
-        if (targetPlayerOnly) {
-            // Ищем ближайшего игрока
-            Player nearestPlayer = entity.level().getNearestPlayer(
-                    FOLLOW_TARGETING,
-                    entity
-            );
-
-            return nearestPlayer;
-        } else {
-            // Ищем любую подходящую сущность
-            List<LivingEntity> nearbyEntities = entity.level().getEntitiesOfClass(
-                    LivingEntity.class,
-                    entity.getBoundingBox().inflate(16.0),
-                    target -> FOLLOW_TARGETING.test(entity, target) && !(target instanceof CustomMobEntity)
-            );
-
-            if (!nearbyEntities.isEmpty()) {
-                return nearbyEntities.get(0);
+    private LivingEntity findTarget(CustomMobEntity entity, BehaviorTreeExecutor executor, boolean targetPlayerOnly) {
+        Squad squad = SquadManager.get(entity);
+        if (squad != null) {
+            LivingEntity shared = squad.getTarget();
+            if (shared != null && (!targetPlayerOnly || shared instanceof Player)
+                    && entity.distanceTo(shared) <= MAX_FOLLOW_RANGE) {
+                return shared;
             }
         }
 
-        return null;
+        LivingEntity target = targetPlayerOnly
+                // Ближайший игрок в пределах 32 блоков
+                ? Sensors.getNearestPlayer(executor.getPerception())
+                // Любая подходящая сущность поблизости
+                : Sensors.getNearestLiving(executor.getPerception());
+
+        // Выбор становится общим для отряда
+        if (squad != null && target != null) {
+            squad.setTarget(target);
+        }
+        return target;
     }
 }
\ No newline at end of file
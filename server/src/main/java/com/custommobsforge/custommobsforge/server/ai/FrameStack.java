@@ -0,0 +1,155 @@
+package com.custommobsforge.custommobsforge.server.ai;
+
+import com.custommobsforge.custommobsforge.common.ai.CompiledBehaviorTree;
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
+import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+
+/**
+ * Стек кадров интерпретатора дерева поведения.
+ * Каждый кадр - индекс узла и курсор (позиция последнего запущенного дочернего узла).
+ * Между тиками стек хранит активный путь от корня до выполняющегося листа,
+ * поэтому узел в состоянии RUNNING продолжается сразу, без повторного обхода предков.
+ */
+public final class FrameStack {
+    private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
+
+    // Защита от зацикливания композитов: после стольких входов в узлы за тик выполнение уступается
+    private static final int MAX_STEPS_PER_TICK = 256;
+
+    private int[] nodes = new int[8];
+    private int[] cursors = new int[8];
+    private int depth;
+
+    /**
+     * Есть ли незавершённый проход
+     */
+    public boolean isActive() {
+        return depth > 0;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Индекс узла на указанной глубине (0 - корень прохода)
+     */
+    public int getNode(int level) {
+        return nodes[level];
+    }
+
+    /**
+     * Продвигает выполнение на один тик
+     * @param executor Исполнитель (состояние сущности)
+     * @param rootIndex Узел, с которого начинается новый проход, если стек пуст
+     * @return RUNNING, если проход не завершён, иначе итоговый статус корня прохода
+     */
+    public NodeStatus tick(BehaviorTreeExecutor executor, int rootIndex) {
+        CompiledBehaviorTree tree = executor.getCompiledTree();
+        CustomMobEntity entity = executor.getEntity();
+
+        if (depth == 0) {
+            push(executor, rootIndex);
+        }
+
+        NodeStatus childStatus = null;
+        int steps = 0;
+
+        while (depth > 0) {
+            int top = depth - 1;
+            int index = nodes[top];
+            BehaviorNode node = tree.getNode(index);
+            NodeExecutor nodeExecutor = NodeExecutorRegistry.get(tree.getTypeCode(index));
+            executor.setCurrentNodeIndex(index);
+
+            NodeStatus status;
+            if (nodeExecutor == null) {
+                LOGGER.error("FrameStack: No executor found for node type: {}", node.getType());
+                status = NodeStatus.FAILURE;
+            } else if (nodeExecutor instanceof CompositeExecutor) {
+                int step;
+                try {
+                    step = ((CompositeExecutor) nodeExecutor).next(entity, node, executor, cursors[top], childStatus);
+                } catch (Exception e) {
+                    LOGGER.error("FrameStack: Error executing node {}: {}", node.getId(), e.getMessage(), e);
+                    step = CompositeExecutor.DONE_FAILURE;
+                }
+                childStatus = null;
+
+                if (step >= 0) {
+                    int[] children = tree.getChildren(index);
+                    if (step < children.length) {
+                        cursors[top] = step;
+                        push(executor, children[step]);
+                        if (++steps >= MAX_STEPS_PER_TICK) {
+                            LOGGER.warn("FrameStack: Step limit reached in node {}, continuing next tick", node.getId());
+                            return NodeStatus.RUNNING;
+                        }
+                        continue;
+                    }
+                    LOGGER.error("FrameStack: Node {} requested child {} of {}", node.getId(), step, children.length);
+                    status = NodeStatus.FAILURE;
+                } else if (step == CompositeExecutor.YIELD) {
+                    return NodeStatus.RUNNING;
+                } else {
+                    status = step == CompositeExecutor.DONE_SUCCESS ? NodeStatus.SUCCESS : NodeStatus.FAILURE;
+                }
+            } else {
+                // NodeExecutor запечатан: всё, что не композит, - лист
+                try {
+                    status = ((LeafExecutor) nodeExecutor).execute(entity, node, executor);
+                } catch (Exception e) {
+                    LOGGER.error("FrameStack: Error executing node {}: {}", node.getId(), e.getMessage(), e);
+                    status = NodeStatus.FAILURE;
+                }
+                if (status == NodeStatus.RUNNING) {
+                    return NodeStatus.RUNNING;
+                }
+                if (status != NodeStatus.SUCCESS) {
+                    status = NodeStatus.FAILURE;
+                }
+            }
+
+            depth--;
+            executor.onNodeFinished(index, status);
+            childStatus = status;
+        }
+
+        return childStatus;
+    }
+
+    /**
+     * Прерывает незавершённый проход сверху вниз и очищает стек
+     */
+    public void halt(BehaviorTreeExecutor executor) {
+        CompiledBehaviorTree tree = executor.getCompiledTree();
+        while (depth > 0) {
+            int index = nodes[--depth];
+            NodeExecutor nodeExecutor = NodeExecutorRegistry.get(tree.getTypeCode(index));
+            if (nodeExecutor != null) {
+                try {
+                    nodeExecutor.halt(executor.getEntity(), tree.getNode(index), executor);
+                } catch (Exception e) {
+                    LOGGER.error("FrameStack: Error halting node {}: {}", tree.getNode(index).getId(), e.getMessage());
+                }
+            }
+            executor.onNodeHalted(index);
+        }
+    }
+
+    private void push(BehaviorTreeExecutor executor, int index) {
+        if (depth == nodes.length) {
+            nodes = Arrays.copyOf(nodes, depth * 2);
+            cursors = Arrays.copyOf(cursors, depth * 2);
+        }
+        nodes[depth] = index;
+        cursors[depth] = -1;
+        depth++;
+        executor.onNodeEntered(index);
+    }
+}
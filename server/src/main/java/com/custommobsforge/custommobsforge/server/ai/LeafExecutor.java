@@ -0,0 +1,21 @@
+package com.custommobsforge.custommobsforge.server.ai;
+
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
+import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+
+/**
+ * Листовой узел: выполняет действие сам, без дочерних узлов в стеке кадров.
+ */
+public non-sealed interface LeafExecutor extends NodeExecutor {
+    /**
+     * Выполняет листовой узел дерева поведения.
+     * Узел, вернувший RUNNING, будет вызван снова в следующем тике без повторного обхода предков.
+     *
+     * @param entity Сущность, выполняющая дерево поведения
+     * @param node Узел для выполнения
+     * @param executor Исполнитель дерева поведения (состояние конкретной сущности)
+     * @return SUCCESS, FAILURE или RUNNING
+     */
+    NodeStatus execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor);
+}
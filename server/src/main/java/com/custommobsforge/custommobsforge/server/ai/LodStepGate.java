@@ -0,0 +1,41 @@
+package com.custommobsforge.custommobsforge.server.ai;
+
+import com.custommobsforge.custommobsforge.common.ai.AiLodTier;
+
+/**
+ * Пропускает шаги дерева поведения по уровню детализации ИИ: на уровнях без дерева шагов нет,
+ * на REDUCED - не чаще раза в интервал. Первый шаг разрешён сразу, в том числе мобу,
+ * который появился уже вдали от игроков
+ */
+final class LodStepGate {
+    // Шагов ещё не было
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private long lastStepTick = NEVER;
+
+    /**
+     * Можно ли выполнить шаг в тике now; разрешённый шаг засчитывается
+     * @param tier Уровень детализации моба
+     * @param reducedInterval Интервал уровня REDUCED в тиках
+     * @param now Текущий игровой тик
+     * @param woken Шаг вызван пробуждением по событию (урон, завершение анимации):
+     *              на REDUCED он выполняется, не дожидаясь интервала
+     */
+    boolean tryStep(AiLodTier tier, int reducedInterval, long now, boolean woken) {
+        if (!tier.runsBehaviorTree()) {
+            return false;
+        }
+        if (tier == AiLodTier.REDUCED && !woken && now < nextReducedStepTick(reducedInterval)) {
+            return false;
+        }
+        lastStepTick = now;
+        return true;
+    }
+
+    /**
+     * Первый тик, в который шаг на уровне REDUCED будет разрешён
+     */
+    long nextReducedStepTick(int reducedInterval) {
+        return lastStepTick == NEVER ? NEVER : lastStepTick + reducedInterval;
+    }
+}
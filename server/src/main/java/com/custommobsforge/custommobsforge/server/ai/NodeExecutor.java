@@ -2,17 +2,28 @@ package com.custommobsforge.custommobsforge.server.ai;
 
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.server.ai.sensor.Sensor;
 
-public interface NodeExecutor {
+/**
+ * Исполнитель узла дерева поведения: либо лист ({@link LeafExecutor}), либо композит
+ * ({@link CompositeExecutor}). Других видов нет, поэтому {@link FrameStack} всегда знает,
+ * как запустить узел.
+ */
+public sealed interface NodeExecutor permits LeafExecutor, CompositeExecutor {
     /**
-     * Выполняет узел дерева поведения
-     *
-     * @param entity Сущность, выполняющая дерево поведения
-     * @param node Узел для выполнения
-     * @param executor Исполнитель дерева поведения
-     * @return true, если узел успешно выполнен, false в противном случае
+     * Прерывает выполняющийся узел (родитель завершился раньше или дерево остановлено).
+     * Узлы, которые что-то запускают в мире (навигация, слушатели событий), освобождают это здесь.
      */
-    boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor);
+    default void halt(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+    }
 
+    /**
+     * Датчики восприятия, результаты которых читает узел. Исполнитель дерева опрашивает
+     * датчики всех узлов дерева перед шагом, каждый - со своим интервалом.
+     */
+    default Sensor[] getSensors() {
+        return NO_SENSORS;
+    }
 
-}
\ No newline at end of file
+    Sensor[] NO_SENSORS = new Sensor[0];
+}
@@ -0,0 +1,113 @@
+package com.custommobsforge.custommobsforge.server.ai;
+
+import com.custommobsforge.custommobsforge.common.ai.NodeTypes;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Глобальный реестр исполнителей узлов по коду типа из {@link NodeTypes}.
+ * Исполнители - общие для всех мобов экземпляры без состояния: всё, что относится
+ * к конкретной сущности, хранится в её {@link BehaviorTreeExecutor} (Blackboard, память узлов).
+ * Дополнительные типы узлов регистрируются через {@link #register} при инициализации мода,
+ * до загрузки деревьев - код типа определяется при компиляции дерева.
+ */
+public final class NodeExecutorRegistry {
+    private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
+
+    // Массивы заменяются целиком при регистрации, чтение идёт без блокировок
+    private static volatile NodeExecutor[] executors = new NodeExecutor[0];
+    private static volatile Function<NodeParamReader, ?>[] schemas = newSchemaArray(0);
+
+    static {
+        // Базовые узлы
+        register("sequencenode", new SequenceNodeExecutor());
+        register("selectornode", new SelectorNodeExecutor());
+        register("parallelnode", new ParallelNodeExecutor(), ParallelNodeExecutor.Params::bind);
+        register("weightedselectornode", new WeightedSelectorNodeExecutor(), WeightedSelectorNodeExecutor.Params::bind);
+
+        // Узлы действий
+        register("attacknode", new AttackNodeExecutor(), AttackNodeExecutor.Params::bind);
+        register("playanimationnode", new PlayAnimationNodeExecutor(), PlayAnimationNodeExecutor.Params::bind);
+        register("timernode", new TimerNodeExecutor(), TimerNodeExecutor.Params::bind);
+        register("follownode", new FollowNodeExecutor(), FollowNodeExecutor.Params::bind);
+        register("fleenode", new FleeNodeExecutor(), FleeNodeExecutor.Params::bind);
+
+        // Узлы событий
+        register("onspawnnode", new OnSpawnNodeExecutor(), OnSpawnNodeExecutor.Params::bind);
+        register("ondeathnode", new OnDeathNodeExecutor(), OnDeathNodeExecutor.Params::bind);
+        register("ondamagenode", new OnDamageNodeExecutor(), OnDamageNodeExecutor.Params::bind);
+
+        // Узлы эффектов
+        register("spawnparticlenode", new SpawnParticleNodeExecutor(), SpawnParticleNodeExecutor.Params::bind);
+        register("displaytitlenode", new DisplayTitleNodeExecutor(), DisplayTitleNodeExecutor.Params::bind);
+        register("playsoundnode", new PlaySoundNodeExecutor(), PlaySoundNodeExecutor.Params::bind);
+    }
+
+    private NodeExecutorRegistry() {
+    }
+
+    /**
+     * Регистрирует исполнитель для типа узла без параметров
+     * @return Код типа узла
+     */
+    public static int register(String typeName, NodeExecutor executor) {
+        return register(typeName, executor, null);
+    }
+
+    /**
+     * Регистрирует исполнитель и схему параметров для типа узла
+     * @param typeName Имя типа (регистр не важен)
+     * @param executor Исполнитель без состояния
+     * @param schema Функция привязки параметров или null
+     * @return Код типа узла
+     */
+    public static synchronized int register(String typeName, NodeExecutor executor,
+                                            Function<NodeParamReader, ?> schema) {
+        int code = NodeTypes.register(typeName);
+
+        NodeExecutor[] newExecutors = executors;
+        Function<NodeParamReader, ?>[] newSchemas = schemas;
+        if (code >= newExecutors.length) {
+            int size = Math.max(code + 1, NodeTypes.count());
+            newExecutors = Arrays.copyOf(newExecutors, size);
+            newSchemas = Arrays.copyOf(newSchemas, size);
+        } else {
+            newExecutors = newExecutors.clone();
+            newSchemas = newSchemas.clone();
+        }
+
+        if (newExecutors[code] != null) {
+            LOGGER.warn("NodeExecutorRegistry: Replacing executor for node type {}", NodeTypes.nameOf(code));
+        }
+        newExecutors[code] = executor;
+        newSchemas[code] = schema;
+
+        schemas = newSchemas;
+        executors = newExecutors;
+        return code;
+    }
+
+    /**
+     * Исполнитель для кода типа или null
+     */
+    public static NodeExecutor get(int typeCode) {
+        NodeExecutor[] current = executors;
+        return typeCode >= 0 && typeCode < current.length ? current[typeCode] : null;
+    }
+
+    /**
+     * Схема параметров для кода типа или null
+     */
+    static Function<NodeParamReader, ?> getSchema(int typeCode) {
+        Function<NodeParamReader, ?>[] current = schemas;
+        return typeCode >= 0 && typeCode < current.length ? current[typeCode] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<NodeParamReader, ?>[] newSchemaArray(int size) {
+        return (Function<NodeParamReader, ?>[]) new Function[size];
+    }
+}
@@ -0,0 +1,28 @@
+package com.custommobsforge.custommobsforge.server.ai;
+
+import com.custommobsforge.custommobsforge.common.ai.CompiledBehaviorTree;
+import com.custommobsforge.custommobsforge.common.ai.NodeParamBinder;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Привязка параметров узлов по схемам из {@link NodeExecutorRegistry}.
+ * Каждый исполнитель объявляет вложенный класс Params с методом bind,
+ * который читает и проверяет значения один раз при загрузке дерева.
+ */
+public final class NodeParamBinding implements NodeParamBinder {
+    public static final NodeParamBinding INSTANCE = new NodeParamBinding();
+
+    private NodeParamBinding() {
+    }
+
+    @Override
+    public Object bind(CompiledBehaviorTree tree, int index, List<String> problems) {
+        Function<NodeParamReader, ?> schema = NodeExecutorRegistry.getSchema(tree.getTypeCode(index));
+        if (schema == null) {
+            return null;
+        }
+        return schema.apply(new NodeParamReader(tree, index, problems));
+    }
+}
@@ -0,0 +1,138 @@
+package com.custommobsforge.custommobsforge.server.ai;
+
+import com.custommobsforge.custommobsforge.common.ai.CompiledBehaviorTree;
+import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Чтение параметров узла при привязке схемы.
+ * Значение ищется сначала в строке parameter формата "key1=value1;key2=value2",
+ * затем в customParameters узла. Некорректные значения не роняют привязку:
+ * используется значение по умолчанию, а сообщение попадает в список проблем дерева.
+ */
+public final class NodeParamReader {
+    private final CompiledBehaviorTree tree;
+    private final int index;
+    private final BehaviorNode node;
+    private final Map<String, String> rawPairs;
+    private final List<String> problems;
+
+    NodeParamReader(CompiledBehaviorTree tree, int index, List<String> problems) {
+        this.tree = tree;
+        this.index = index;
+        this.node = tree.getNode(index);
+        this.rawPairs = parsePairs(node.getParameter());
+        this.problems = problems;
+    }
+
+    public BehaviorNode getNode() {
+        return node;
+    }
+
+    /**
+     * Дочерние узлы в порядке соединений
+     */
+    public List<BehaviorNode> getChildNodes() {
+        return tree.getChildNodes(index);
+    }
+
+    /**
+     * Пары из строки parameter в исходном порядке
+     */
+    public Map<String, String> getRawPairs() {
+        return rawPairs;
+    }
+
+    public String getString(String key, String defaultValue) {
+        Object value = lookup(key);
+        return value != null ? value.toString() : defaultValue;
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        Object value = lookup(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            problem(key + " = '" + value + "' is not a number, using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Число с проверкой диапазона; значение вне диапазона приводится к границе
+     */
+    public double getDouble(String key, double defaultValue, double min, double max) {
+        double value = getDouble(key, defaultValue);
+        if (value < min || value > max) {
+            double clamped = Math.max(min, Math.min(max, value));
+            problem(key + " = " + value + " is out of range [" + min + ", " + max + "], using " + clamped);
+            return clamped;
+        }
+        return value;
+    }
+
+    public int getInt(String key, int defaultValue, int min, int max) {
+        return (int) getDouble(key, defaultValue, min, max);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Object value = lookup(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        String text = value.toString().trim().toLowerCase(Locale.ROOT);
+        if (text.equals("true")) {
+            return true;
+        }
+        if (text.equals("false")) {
+            return false;
+        }
+        problem(key + " = '" + value + "' is not a boolean, using " + defaultValue);
+        return defaultValue;
+    }
+
+    /**
+     * Добавляет сообщение о проблеме с параметрами узла
+     */
+    public void problem(String message) {
+        problems.add("node " + node.getId() + " (" + node.getType() + "): " + message);
+    }
+
+    private Object lookup(String key) {
+        String raw = rawPairs.get(key);
+        if (raw != null) {
+            return raw;
+        }
+        Map<String, Object> custom = node.getCustomParameters();
+        return custom != null ? custom.get(key) : null;
+    }
+
+    private static Map<String, String> parsePairs(String parameter) {
+        if (parameter == null || parameter.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> pairs = new LinkedHashMap<>();
+        for (String pair : parameter.split(";")) {
+            String[] keyValue = pair.split("=", 2);
+            if (keyValue.length == 2) {
+                pairs.put(keyValue[0].trim(), keyValue[1].trim());
+            }
+        }
+        return Collections.unmodifiableMap(pairs);
+    }
+}
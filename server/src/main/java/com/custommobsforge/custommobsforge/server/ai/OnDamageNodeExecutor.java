@@ -1,148 +1,159 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.Blackboard;
+import com.custommobsforge.custommobsforge.common.ai.BlackboardKey;
+import com.custommobsforge.custommobsforge.common.ai.CompiledBehaviorTree;
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
+import com.custommobsforge.custommobsforge.common.ai.NodeTypes;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.server.timer.TickTimers;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
-public class OnDamageNodeExecutor implements NodeExecutor {
+public class OnDamageNodeExecutor implements CompositeExecutor {
     private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
 
-    // Кэш для отслеживания последнего срабатывания узла
-    private static final Map<String, Long> lastActivationTimes = new HashMap<>();
     private static final long COOLDOWN = 20; // Кулдаун в тиках
 
-    // Карта для отслеживания активных узлов обработки урона для каждого моба
-    private static final Map<Integer, Map<String, BehaviorNode>> damageHandlerNodes = new ConcurrentHashMap<>();
-    private static final Map<Integer, BehaviorTreeExecutor> entityExecutors = new ConcurrentHashMap<>();
+    // Состояние узла в памяти моба: игровой тик окончания кулдауна и регистрация обработчика
+    private static final BlackboardKey<Long> COOLDOWN_END = BlackboardKey.ofLong("onDamage.cooldownEnd");
+    private static final BlackboardKey<Boolean> REGISTERED = BlackboardKey.ofBoolean("onDamage.registered");
+    // Узел запущен событием урона, а не обходом дерева
+    private static final BlackboardKey<Boolean> TRIGGERED = BlackboardKey.ofBoolean("onDamage.triggered");
+
+    // Успешно ли выполнился хотя бы один дочерний узел
+    private static final BlackboardKey<Boolean> ANY_SUCCEEDED = BlackboardKey.ofBoolean("onDamage.anySucceeded");
+
+    /**
+     * Параметры узла реакции на урон
+     */
+    public static final class Params {
+        final double minDamage;
+        final boolean reactToPlayerOnly;
+
+        private Params(double minDamage, boolean reactToPlayerOnly) {
+            this.minDamage = minDamage;
+            this.reactToPlayerOnly = reactToPlayerOnly;
+        }
+
+        static Params bind(NodeParamReader reader) {
+            return new Params(
+                    reader.getDouble("minDamage", 0.0, 0.0, Double.MAX_VALUE),
+                    reader.getBoolean("reactToPlayerOnly", true));
+        }
+    }
 
     @Override
-    public boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
-        // Получаем параметры
-        double minDamage = node.getCustomParameterAsDouble("minDamage", 0.0);
-        boolean reactToPlayerOnly = node.getCustomParameterAsBoolean("reactToPlayerOnly", true);
+    public int next(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor,
+                    int cursor, NodeStatus childStatus) {
+        Blackboard memory = executor.getMemory();
+        Blackboard blackboard = executor.getBlackboard();
+        int nodeIndex = executor.indexOf(node);
+
+        // Дочерние узлы выполняются все по очереди; успех, если успешен хотя бы один
+        if (childStatus != null) {
+            if (childStatus == NodeStatus.SUCCESS) {
+                blackboard.setBoolean(ANY_SUCCEEDED, nodeIndex, true);
+            }
+            if (cursor + 1 < executor.getChildCount(node)) {
+                return cursor + 1;
+            }
+            return CompositeExecutor.done(blackboard.getBoolean(ANY_SUCCEEDED, nodeIndex));
+        }
 
-        // Уникальный идентификатор для данного узла и сущности
-        String nodeEntityId = entity.getId() + ":" + node.getId();
+        // Реакция на событие урона: условия и анимация уже обработаны в handleDamageEvent
+        if (memory.getBoolean(TRIGGERED, nodeIndex)) {
+            memory.remove(TRIGGERED, nodeIndex);
+            return startChildren(executor, node, blackboard, nodeIndex);
+        }
 
         // Проверяем кулдаун
-        long currentTime = entity.level().getGameTime();
-        if (lastActivationTimes.containsKey(nodeEntityId)) {
-            long lastActivation = lastActivationTimes.get(nodeEntityId);
-            if (currentTime - lastActivation < COOLDOWN) {
-                return false; // Кулдаун еще не истек
-            }
+        if (!TickTimers.isReached(memory.getLong(COOLDOWN_END, nodeIndex, 0L))) {
+            return DONE_FAILURE; // Кулдаун еще не истек
         }
 
         // Регистрируем узел для обработки событий урона
-        registerDamageHandler(entity.getId(), node.getId(), node, executor);
+        if (!memory.getBoolean(REGISTERED, nodeIndex)) {
+            memory.setBoolean(REGISTERED, nodeIndex, true);
+            LOGGER.debug("OnDamageNodeExecutor: Registered damage handler node {} for entity {}",
+                    node.getId(), entity.getId());
+        }
 
         // Воспроизводим анимацию получения урона, если она указана
-        if (node.getAnimationId() != null && !node.getAnimationId().isEmpty()) {
-            entity.setAnimation(node.getAnimationId(), node.isLoopAnimation(), (float) node.getAnimationSpeed());
-        } else {
-            executor.playAnimation("HURT");
-        }
+        playHurtAnimation(entity, node);
 
-        // Обновляем время последнего срабатывания
-        lastActivationTimes.put(nodeEntityId, currentTime);
+        // Запускаем кулдаун
+        memory.setLong(COOLDOWN_END, nodeIndex, TickTimers.now() + COOLDOWN);
 
-        // Выполняем дочерние узлы
-        boolean anyChildSucceeded = false;
-        for (BehaviorNode child : executor.getChildNodes(node)) {
-            if (executor.executeNode(child)) {
-                anyChildSucceeded = true;
-            }
-        }
-
-        return anyChildSucceeded;
+        return startChildren(executor, node, blackboard, nodeIndex);
     }
 
-    /**
-     * Регистрирует узел для обработки событий урона
-     */
-    private void registerDamageHandler(int entityId, String nodeId, BehaviorNode node, BehaviorTreeExecutor executor) {
-        // Добавляем узел в карту обработчиков для этого моба
-        Map<String, BehaviorNode> handlers = damageHandlerNodes.computeIfAbsent(entityId, id -> new ConcurrentHashMap<>());
-        handlers.put(nodeId, node);
-
-        // Запоминаем исполнитель для этого моба
-        entityExecutors.put(entityId, executor);
+    private static int startChildren(BehaviorTreeExecutor executor, BehaviorNode node, Blackboard blackboard, int nodeIndex) {
+        blackboard.remove(ANY_SUCCEEDED, nodeIndex);
+        return executor.getChildCount(node) > 0 ? 0 : DONE_FAILURE;
+    }
 
-        LOGGER.info("OnDamageNodeExecutor: Registered damage handler node {} for entity {}", nodeId, entityId);
+    private static void playHurtAnimation(CustomMobEntity entity, BehaviorNode node) {
+        if (node.getAnimationId() != null && !node.getAnimationId().isEmpty()) {
+            entity.setAnimation(node.getAnimationId(), node.isLoopAnimation(), (float) node.getAnimationSpeed());
+        } else {
+            entity.playAnimation("HURT");
+        }
     }
 
     /**
      * Метод для обработки события урона
-     * Вызывается из MobSpawnEventHandler
+     * Вызывается из MobSpawnEventHandler с исполнителем дерева моба
      */
-    public static void handleDamageEvent(CustomMobEntity entity, float amount, boolean isPlayerSource) {
-        int entityId = entity.getId();
-
-        // Проверяем, есть ли обработчики для этого моба
-        Map<String, BehaviorNode> handlers = damageHandlerNodes.get(entityId);
-        if (handlers == null || handlers.isEmpty()) {
+    public static void handleDamageEvent(BehaviorTreeExecutor executor, float amount, boolean isPlayerSource) {
+        CustomMobEntity entity = executor.getEntity();
+        CompiledBehaviorTree tree = executor.getCompiledTree();
+        if (tree == null) {
             return;
         }
 
-        BehaviorTreeExecutor executor = entityExecutors.get(entityId);
-        if (executor == null) {
-            return;
-        }
+        Blackboard memory = executor.getMemory();
+        boolean logged = false;
 
-        LOGGER.info("OnDamageNodeExecutor: Processing damage {} for entity {} (from player: {})",
-                amount, entityId, isPlayerSource);
+        // Обрабатываем все зарегистрированные узлы этого моба
+        for (int nodeIndex = 0; nodeIndex < tree.size(); nodeIndex++) {
+            if (tree.getTypeCode(nodeIndex) != NodeTypes.ON_DAMAGE || !memory.getBoolean(REGISTERED, nodeIndex)) {
+                continue;
+            }
 
-        // Обрабатываем все зарегистрированные узлы для этого моба
-        for (Map.Entry<String, BehaviorNode> entry : handlers.entrySet()) {
-            String nodeId = entry.getKey();
-            BehaviorNode node = entry.getValue();
+            if (!logged) {
+                LOGGER.debug("OnDamageNodeExecutor: Processing damage {} for entity {} (from player: {})",
+                        amount, entity.getId(), isPlayerSource);
+                logged = true;
+            }
 
-            // Получаем параметры узла
-            double minDamage = node.getCustomParameterAsDouble("minDamage", 0.0);
-            boolean reactToPlayerOnly = node.getCustomParameterAsBoolean("reactToPlayerOnly", true);
+            BehaviorNode node = tree.getNode(nodeIndex);
+            String nodeId = node.getId();
+            Params params = executor.getParams(node, Params.class);
 
             // Проверяем условия
-            if (amount < minDamage) {
-                LOGGER.info("OnDamageNodeExecutor: Damage {} is below threshold {} for node {}",
-                        amount, minDamage, nodeId);
+            if (amount < params.minDamage) {
+                LOGGER.debug("OnDamageNodeExecutor: Damage {} is below threshold {} for node {}",
+                        amount, params.minDamage, nodeId);
                 continue;
             }
 
-            if (reactToPlayerOnly && !isPlayerSource) {
-                LOGGER.info("OnDamageNodeExecutor: Damage not from player, ignoring for node {} (reactToPlayerOnly=true)", nodeId);
+            if (params.reactToPlayerOnly && !isPlayerSource) {
+                LOGGER.debug("OnDamageNodeExecutor: Damage not from player, ignoring for node {} (reactToPlayerOnly=true)", nodeId);
                 continue;
             }
 
-            // Обновляем время последней активации
-            String nodeEntityId = entityId + ":" + nodeId;
-            lastActivationTimes.put(nodeEntityId, entity.level().getGameTime());
+            // Запускаем кулдаун
+            memory.setLong(COOLDOWN_END, nodeIndex, TickTimers.now() + COOLDOWN);
 
             // Воспроизводим анимацию получения урона
-            if (node.getAnimationId() != null && !node.getAnimationId().isEmpty()) {
-                entity.setAnimation(node.getAnimationId(), node.isLoopAnimation(), (float) node.getAnimationSpeed());
-            } else {
-                entity.playAnimation("HURT");
-            }
+            playHurtAnimation(entity, node);
 
-            // Выполняем дочерние узлы
-            LOGGER.info("OnDamageNodeExecutor: Executing child nodes for node {}", nodeId);
-            for (BehaviorNode child : executor.getChildNodes(node)) {
-                executor.executeNode(child);
-            }
+            // Дочерние узлы выполняются реакцией - своим стеком рядом с основным проходом
+            LOGGER.debug("OnDamageNodeExecutor: Starting reaction for node {}", nodeId);
+            memory.setBoolean(TRIGGERED, nodeIndex, true);
+            executor.startReaction(nodeIndex);
         }
     }
-
-    /**
-     * Метод для очистки обработчиков при удалении моба
-     */
-    public static void cleanup(int entityId) {
-        damageHandlerNodes.remove(entityId);
-        entityExecutors.remove(entityId);
-        LOGGER.info("OnDamageNodeExecutor: Cleaned up damage handlers for entity {}", entityId);
-    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 import net.minecraft.server.level.ServerLevel;
@@ -9,14 +10,40 @@ import net.minecraft.world.item.Items;
 
 import java.util.Random;
 
-public class OnDeathNodeExecutor implements NodeExecutor {
+public class OnDeathNodeExecutor implements CompositeExecutor {
     private static final Random random = new Random();
 
+    /**
+     * Параметры узла смерти
+     */
+    public static final class Params {
+        final boolean dropItemsEnabled;
+        final boolean showDeathMessage;
+
+        private Params(boolean dropItemsEnabled, boolean showDeathMessage) {
+            this.dropItemsEnabled = dropItemsEnabled;
+            this.showDeathMessage = showDeathMessage;
+        }
+
+        static Params bind(NodeParamReader reader) {
+            return new Params(
+                    reader.getBoolean("dropItemsEnabled", false),
+                    reader.getBoolean("showDeathMessage", false));
+        }
+    }
+
     @Override
-    public boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+    public int next(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor,
+                    int cursor, NodeStatus childStatus) {
+        // Дочерние узлы выполняются все по очереди, их результат не влияет на узел
+        if (childStatus != null) {
+            return cursor + 1 < executor.getChildCount(node) ? cursor + 1 : DONE_SUCCESS;
+        }
+
         // Получаем параметры
-        boolean dropItemsEnabled = node.getCustomParameterAsBoolean("dropItemsEnabled", false);
-        boolean showDeathMessage = node.getCustomParameterAsBoolean("showDeathMessage", false);
+        Params params = executor.getParams(node, Params.class);
+        boolean dropItemsEnabled = params.dropItemsEnabled;
+        boolean showDeathMessage = params.showDeathMessage;
 
         // Воспроизводим анимацию смерти
         if (node.getAnimationId() != null && !node.getAnimationId().isEmpty()) {
@@ -36,11 +63,7 @@ public class OnDeathNodeExecutor implements NodeExecutor {
         }
 
         // Выполняем дочерние узлы
-        for (BehaviorNode child : executor.getChildNodes(node)) {
-            executor.executeNode(child);
-        }
-
-        return true;
+        return executor.getChildCount(node) > 0 ? 0 : DONE_SUCCESS;
     }
 
     // Метод для выпадения предметов при смерти
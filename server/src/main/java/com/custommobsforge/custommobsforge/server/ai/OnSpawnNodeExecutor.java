@@ -1,53 +1,81 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.BlackboardKey;
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.server.timer.TickTimers;
 
-import java.util.HashSet;
-import java.util.Set;
+public class OnSpawnNodeExecutor implements CompositeExecutor {
+    // Отметка о срабатывании узла хранится в памяти моба и переживает перезапуск дерева
+    private static final BlackboardKey<Boolean> ACTIVATED = BlackboardKey.ofBoolean("onSpawn.activated");
 
-public class OnSpawnNodeExecutor implements NodeExecutor {
-    // Set для отслеживания узлов, которые уже были активированы
-    private static final Set<String> activatedNodes = new HashSet<>();
+    // Игровой тик окончания задержки перед срабатыванием
+    private static final BlackboardKey<Long> DELAY_END = BlackboardKey.ofLong("onSpawn.delayEnd");
+
+    // Успешно ли выполнился хотя бы один дочерний узел
+    private static final BlackboardKey<Boolean> ANY_SUCCEEDED = BlackboardKey.ofBoolean("onSpawn.anySucceeded");
+
+    /**
+     * Параметры узла появления; задержка задаётся в секундах и хранится в игровых тиках (0 - без задержки)
+     */
+    public static final class Params {
+        final long delayTicks;
+
+        private Params(long delayTicks) {
+            this.delayTicks = delayTicks;
+        }
+
+        static Params bind(NodeParamReader reader) {
+            boolean delayEnabled = reader.getBoolean("delayEnabled", false);
+            double delay = reader.getDouble("delay", 0.0, 0.0, 3600.0);
+            return new Params(delayEnabled ? TickTimers.ticksFromMillis((long) (delay * 1000)) : 0L);
+        }
+    }
 
     @Override
-    public boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
-        // Уникальный идентификатор для данного узла и сущности
-        String nodeEntityId = entity.getId() + ":" + node.getId();
+    public int next(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor,
+                    int cursor, NodeStatus childStatus) {
+        int nodeIndex = executor.indexOf(node);
+
+        // Дочерние узлы выполняются все по очереди; успех, если успешен хотя бы один
+        if (childStatus != null) {
+            if (childStatus == NodeStatus.SUCCESS) {
+                executor.getBlackboard().setBoolean(ANY_SUCCEEDED, nodeIndex, true);
+            }
+            if (cursor + 1 < executor.getChildCount(node)) {
+                return cursor + 1;
+            }
+            return CompositeExecutor.done(executor.getBlackboard().getBoolean(ANY_SUCCEEDED, nodeIndex));
+        }
 
         // Проверяем, был ли узел уже активирован
-        if (activatedNodes.contains(nodeEntityId)) {
-            return false;
+        if (executor.getMemory().getBoolean(ACTIVATED, nodeIndex)) {
+            return DONE_FAILURE;
         }
 
-        // Получаем параметры
-        boolean delayEnabled = node.getCustomParameterAsBoolean("delayEnabled", false);
-        double delay = node.getCustomParameterAsDouble("delay", 0.0);
+        Params params = executor.getParams(node, Params.class);
 
-        // Если задержка включена, используем узел таймера
-        if (delayEnabled && delay > 0) {
-            // Создаем временный узел таймера
-            BehaviorNode timerNode = new BehaviorNode("TimerNode", "Spawn Delay");
-            timerNode.setCustomParameter("duration", delay);
-            timerNode.setCustomParameter("repeat", false);
+        // Если задержка включена, отсчитываем её в слоте самого узла
+        if (params.delayTicks > 0) {
+            long delayEnd = executor.getBlackboard().getLong(DELAY_END, nodeIndex, -1L);
+            if (delayEnd < 0) {
+                delayEnd = TickTimers.now() + params.delayTicks;
+                executor.getBlackboard().setLong(DELAY_END, nodeIndex, delayEnd);
+            }
 
-            NodeExecutor timerExecutor = new TimerNodeExecutor();
-            if (!timerExecutor.execute(entity, timerNode, executor)) {
-                return false; // Таймер еще работает
+            if (!TickTimers.isReached(delayEnd)) {
+                // Задержка еще не истекла - ждём без тиков
+                executor.suspendUntil(delayEnd);
+                return YIELD;
             }
         }
 
         // Помечаем узел как активированный
-        activatedNodes.add(nodeEntityId);
+        executor.getMemory().setBoolean(ACTIVATED, nodeIndex, true);
 
         // Выполняем дочерние узлы
-        boolean anyChildSucceeded = false;
-        for (BehaviorNode child : executor.getChildNodes(node)) {
-            if (executor.executeNode(child)) {
-                anyChildSucceeded = true;
-            }
-        }
-
-        return anyChildSucceeded;
+        executor.getBlackboard().remove(ANY_SUCCEEDED, nodeIndex);
+        return executor.getChildCount(node) > 0 ? 0 : DONE_FAILURE;
     }
 }
\ No newline at end of file
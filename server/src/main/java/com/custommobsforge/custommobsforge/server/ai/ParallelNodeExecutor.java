@@ -1,42 +1,125 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.Blackboard;
+import com.custommobsforge.custommobsforge.common.ai.BlackboardKey;
+import com.custommobsforge.custommobsforge.common.ai.CompiledBehaviorTree;
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 
-import java.util.List;
+import java.util.Arrays;
+
+/**
+ * Параллельный узел: каждая ветка выполняется своим стеком кадров,
+ * и за тик продвигаются все незавершённые ветки.
+ */
+public class ParallelNodeExecutor implements LeafExecutor {
+    // Стеки веток живут в памяти моба и переиспользуются между проходами
+    private static final BlackboardKey<FrameStack[]> BRANCHES = BlackboardKey.of("parallel.branches", FrameStack[].class);
+    private static final BlackboardKey<NodeStatus[]> RESULTS = BlackboardKey.of("parallel.results", NodeStatus[].class);
+    // Флаг текущего прохода: сбрасывается вместе с Blackboard
+    private static final BlackboardKey<Boolean> STARTED = BlackboardKey.ofBoolean("parallel.started");
+
+    /**
+     * Параметры параллельного узла
+     */
+    public static final class Params {
+        final boolean abortOnFailure;
+
+        private Params(boolean abortOnFailure) {
+            this.abortOnFailure = abortOnFailure;
+        }
+
+        static Params bind(NodeParamReader reader) {
+            return new Params(reader.getBoolean("abortOnFailure", true));
+        }
+    }
 
-public class ParallelNodeExecutor implements NodeExecutor {
     @Override
-    public boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
-        // Получаем все дочерние узлы
-        List<BehaviorNode> children = executor.getChildNodes(node);
+    public NodeStatus execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+        int nodeIndex = executor.indexOf(node);
+        CompiledBehaviorTree tree = executor.getCompiledTree();
+        int[] children = tree.getChildren(nodeIndex);
 
         // Если нет дочерних узлов, возвращаем успех
-        if (children.isEmpty()) {
-            return true;
+        if (children.length == 0) {
+            return NodeStatus.SUCCESS;
+        }
+
+        Blackboard memory = executor.getMemory();
+        FrameStack[] branches = memory.get(BRANCHES, nodeIndex);
+        NodeStatus[] results = memory.get(RESULTS, nodeIndex);
+        if (branches == null) {
+            branches = new FrameStack[children.length];
+            for (int i = 0; i < branches.length; i++) {
+                branches[i] = new FrameStack();
+            }
+            results = new NodeStatus[children.length];
+            memory.set(BRANCHES, nodeIndex, branches);
+            memory.set(RESULTS, nodeIndex, results);
+        }
+
+        // Новый запуск узла - забываем результаты прошлого
+        Blackboard blackboard = executor.getBlackboard();
+        if (!blackboard.getBoolean(STARTED, nodeIndex)) {
+            Arrays.fill(results, null);
+            blackboard.setBoolean(STARTED, nodeIndex, true);
         }
 
         // Параметр прерывания при неудаче
-        boolean abortOnFailure = node.getCustomParameterAsBoolean("abortOnFailure", true);
+        boolean abortOnFailure = executor.getParams(node, Params.class).abortOnFailure;
 
+        boolean anyRunning = false;
+        boolean allWaiting = true;
         boolean allSuccess = true;
+        for (int i = 0; i < children.length; i++) {
+            if (results[i] == null) {
+                executor.setSuspendRequested(false);
+                NodeStatus status = branches[i].tick(executor, children[i]);
+                if (status == NodeStatus.RUNNING) {
+                    anyRunning = true;
+                    // Узел может ждать, только если ждут все выполняющиеся ветки
+                    allWaiting &= executor.isSuspendRequested();
+                    continue;
+                }
+                results[i] = status;
+            }
 
-        // Выполняем все дочерние узлы
-        for (BehaviorNode child : children) {
-            boolean success = executor.executeNode(child);
-
-            // Если узел не выполнился успешно
-            if (!success) {
+            if (results[i] != NodeStatus.SUCCESS) {
                 allSuccess = false;
 
-                // Если настроено прерывание при неудаче, прекращаем выполнение
+                // Если настроено прерывание при неудаче, останавливаем остальные ветки
                 if (abortOnFailure) {
-                    return false;
+                    haltBranches(executor, branches);
+                    blackboard.remove(STARTED, nodeIndex);
+                    return NodeStatus.FAILURE;
                 }
             }
         }
 
+        if (anyRunning) {
+            executor.setSuspendRequested(allWaiting);
+            return NodeStatus.RUNNING;
+        }
+
         // Возвращаем общий результат выполнения
-        return allSuccess;
+        blackboard.remove(STARTED, nodeIndex);
+        return allSuccess ? NodeStatus.SUCCESS : NodeStatus.FAILURE;
+    }
+
+    @Override
+    public void halt(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+        int nodeIndex = executor.indexOf(node);
+        FrameStack[] branches = executor.getMemory().get(BRANCHES, nodeIndex);
+        if (branches != null) {
+            haltBranches(executor, branches);
+        }
+        executor.getBlackboard().remove(STARTED, nodeIndex);
+    }
+
+    private static void haltBranches(BehaviorTreeExecutor executor, FrameStack[] branches) {
+        for (FrameStack branch : branches) {
+            branch.halt(executor);
+        }
     }
-}
\ No newline at end of file
+}
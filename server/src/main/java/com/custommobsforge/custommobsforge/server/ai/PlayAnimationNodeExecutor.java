@@ -1,288 +1,183 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.Blackboard;
+import com.custommobsforge.custommobsforge.common.ai.BlackboardKey;
 import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 import com.custommobsforge.custommobsforge.common.event.system.AnimationCompletedEvent;
 import com.custommobsforge.custommobsforge.common.event.system.EventListener;
 import com.custommobsforge.custommobsforge.common.event.system.EventSystem;
+import com.custommobsforge.custommobsforge.common.event.system.Subscription;
+import com.custommobsforge.custommobsforge.server.timer.TickTimers;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.UUID;
-
-public class PlayAnimationNodeExecutor implements NodeExecutor {
+public class PlayAnimationNodeExecutor implements LeafExecutor {
     private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
 
-    @Override
-    public boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
-        LOGGER.info("PlayAnimationNodeExecutor: Executing node {} of type {} for entity {}",
-                node.getId(), node.getType(), entity.getId());
+    // Состояние воспроизведения в Blackboard
+    private static final BlackboardKey<Boolean> STARTED = BlackboardKey.ofBoolean("animation.started");
+    private static final BlackboardKey<Boolean> COMPLETED = BlackboardKey.ofBoolean("animation.completed");
+    // Запасной игровой тик завершения на случай пропуска события
+    private static final BlackboardKey<Long> DEADLINE = BlackboardKey.ofLong("animation.deadline");
+    private static final BlackboardKey<Subscription> SUBSCRIPTION = BlackboardKey.of("animation.subscription", Subscription.class);
+
+    /**
+     * Параметры узла анимации.
+     * ID анимации берётся из параметра animation, иначе из поля animationId узла;
+     * скорость - из поля animationSpeed, иначе из параметра speed.
+     */
+    public static final class Params {
+        final String animationId;
+        final boolean loop;
+        final float speed;
+
+        private Params(String animationId, boolean loop, float speed) {
+            this.animationId = animationId;
+            this.loop = loop;
+            this.speed = speed;
+        }
 
-        // Уникальный ключ для узла+сущности
-        String nodeKey = entity.getId() + ":" + node.getId();
+        static Params bind(NodeParamReader reader) {
+            BehaviorNode node = reader.getNode();
 
-        // Получаем текущий статус узла из Blackboard
-        NodeStatus currentStatus = executor.getBlackboard().getNodeStatus(node.getId());
+            String animationId = reader.getString("animation", node.getAnimationId());
+            if (animationId == null || animationId.isEmpty()) {
+                reader.problem("no animation ID, node will always fail");
+                animationId = null;
+            }
 
-        // Если узел уже успешно выполнен, сразу возвращаем успех
-        if (currentStatus == NodeStatus.SUCCESS) {
-            LOGGER.info("PlayAnimationNodeExecutor: Node {} already completed successfully, returning success", node.getId());
-            return true;
+            boolean loop = reader.getBoolean("loop", node.isLoopAnimation());
+
+            float speed = (float) node.getAnimationSpeed();
+            if (speed <= 0.001f) {
+                speed = (float) reader.getDouble("speed", 1.0);
+                if (speed <= 0.001f) {
+                    speed = 1.0f;
+                }
+            }
+
+            return new Params(animationId, loop, speed);
         }
+    }
+
+    @Override
+    public NodeStatus execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+        // Слоты узла в Blackboard
+        Blackboard blackboard = executor.getBlackboard();
+        int nodeIndex = executor.indexOf(node);
 
         // Получаем ID анимации
-        String animationId = getAnimationId(node);
-        if (animationId == null || animationId.isEmpty()) {
+        Params params = executor.getParams(node, Params.class);
+        String animationId = params.animationId;
+        if (animationId == null) {
             LOGGER.error("PlayAnimationNodeExecutor: No animation ID found for node {}", node.getId());
-            executor.setNodeNeedsMoreTime(false);
-            return false;
+            return NodeStatus.FAILURE;
         }
 
         // Получаем настройки анимации
-        boolean loop = getLoopParameter(node);
-        float speed = getSpeedParameter(node);
-
-        // Отключаем автоматические анимации при выполнении этого узла
-        entity.setDisableAutoAnimations(true);
-
-        // Проверяем, завершена ли анимация
-        boolean animationCompleted = executor.getBlackboard().getValue(nodeKey + ":completed", false);
-
-        // Если анимация уже завершена, переходим к следующему узлу
-        if (animationCompleted) {
-            LOGGER.info("PlayAnimationNodeExecutor: Animation '{}' already completed for node {}, moving to next node",
-                    animationId, node.getId());
-
-            // Очищаем состояние в Blackboard
-            executor.getBlackboard().removeValue(nodeKey + ":started");
-            executor.getBlackboard().removeValue(nodeKey + ":completed");
-            executor.getBlackboard().removeValue(nodeKey + ":startTime");
-            executor.getBlackboard().removeValue(nodeKey + ":listener_id");
-            executor.getBlackboard().removeValue(nodeKey + ":idle_played");
-
-            // Удаляем слушатель события, если он был зарегистрирован
-            String listenerId = executor.getBlackboard().getValue(nodeKey + ":listener_id", (String)null);
-            if (listenerId != null) {
-                EventSystem.unregisterListenerById(listenerId);
-                LOGGER.info("PlayAnimationNodeExecutor: Unregistered event listener {} for node {}", listenerId, node.getId());
-            }
-
-            // Сообщаем, что узел завершен успешно
-            executor.completeNode(node, true);
-            executor.setNodeNeedsMoreTime(false);
-
-            // ВАЖНО: повторно активируем автоматические анимации
-            entity.setDisableAutoAnimations(false);
-
-            return true;
-        }
+        boolean loop = params.loop;
+        float speed = params.speed;
 
         // Для зацикленных анимаций просто запускаем и завершаем узел
         if (loop) {
-            boolean animationStarted = executor.getBlackboard().getValue(nodeKey + ":started", false);
-            if (!animationStarted) {
-                LOGGER.info("PlayAnimationNodeExecutor: Playing looped animation '{}' with speed {} and returning success",
-                        animationId, speed);
-
-                // Используем адаптер анимаций для воспроизведения
-                entity.getAnimationAdapter().playAnimation(animationId, true, speed);
-                executor.getBlackboard().setValue(nodeKey + ":started", true);
-
-                // Для зацикленной анимации сразу отмечаем как завершенную
-                executor.getBlackboard().setValue(nodeKey + ":completed", true);
-            }
-
-            // Помечаем узел как выполненный
-            executor.completeNode(node, true);
-            executor.setNodeNeedsMoreTime(false);
-
-            // Включаем автоматические анимации
-            entity.setDisableAutoAnimations(false);
+            LOGGER.debug("PlayAnimationNodeExecutor: Playing looped animation '{}' with speed {} and returning success",
+                    animationId, speed);
 
-            return true;
+            // Используем адаптер анимаций для воспроизведения
+            entity.getAnimationAdapter().playAnimation(animationId, true, speed);
+            return NodeStatus.SUCCESS;
         }
 
-        // Для незацикленных анимаций - более сложная логика
-        boolean animationStarted = executor.getBlackboard().getValue(nodeKey + ":started", false);
+        // Для незацикленных анимаций узел выполняется, пока анимация не завершится
+        boolean animationStarted = blackboard.getBoolean(STARTED, nodeIndex);
         if (!animationStarted) {
             // Первое выполнение - запускаем анимацию
-            LOGGER.info("PlayAnimationNodeExecutor: First execution for animation '{}', starting it...", animationId);
+            LOGGER.debug("PlayAnimationNodeExecutor: Starting animation '{}' for node {} on entity {}",
+                    animationId, node.getId(), entity.getId());
 
-            // Создаем уникальный ID для слушателя
-            String listenerId = UUID.randomUUID().toString();
+            // Отключаем автоматические анимации на время выполнения этого узла
+            entity.setDisableAutoAnimations(true);
 
-            // Регистрируем слушатель события завершения анимации
+            // Регистрируем слушатель события завершения анимации этого моба
             EventListener<AnimationCompletedEvent> listener = event -> {
-                if (event.getEntity().getId() == entity.getId() &&
-                        event.getAnimationId().equals(animationId)) {
-                    LOGGER.info("PlayAnimationNodeExecutor: Received completion event for animation '{}' on entity {}",
+                if (event.getAnimationId().equals(animationId)) {
+                    LOGGER.debug("PlayAnimationNodeExecutor: Received completion event for animation '{}' on entity {}",
                             animationId, entity.getId());
 
-                    // ВАЖНО: Проверяем, не играли ли мы уже IDLE, чтобы избежать рекурсии
-                    boolean idlePlayed = executor.getBlackboard().getValue(nodeKey + ":idle_played", false);
-                    if (!idlePlayed) {
-                        // Отмечаем анимацию как завершенную
-                        executor.getBlackboard().setValue(nodeKey + ":completed", true);
-
-                        // Отмечаем, что IDLE уже проигран
-                        executor.getBlackboard().setValue(nodeKey + ":idle_played", true);
-
-                        // ВАЖНО: повторно активируем автоматические анимации при завершении анимации
-                        entity.setDisableAutoAnimations(false);
-
-                        // ВАЖНО: используем непосредственно AnimationAdapter вместо playAnimation
-                        // чтобы не вызвать новое событие завершения
-                        entity.getAnimationAdapter().playAnimation("IDLE", true, 1.0f);
-                    }
+                    // Отмечаем анимацию как завершенную и будим исполнитель - узел заберёт результат
+                    blackboard.setBoolean(COMPLETED, nodeIndex, true);
+                    executor.wake();
                 }
             };
 
-            EventSystem.registerListener(AnimationCompletedEvent.class, listener, listenerId);
+            // Подписка принадлежит исполнителю: при его остановке она закроется вместе с остальными
+            Subscription subscription = EventSystem.subscribe(executor, entity, AnimationCompletedEvent.class, listener);
 
-            // Сохраняем ID слушателя в Blackboard для последующего удаления
-            executor.getBlackboard().setValue(nodeKey + ":listener_id", listenerId);
+            // Сохраняем подписку в Blackboard для последующего закрытия
+            blackboard.set(SUBSCRIPTION, nodeIndex, subscription);
 
             // Запускаем анимацию через адаптер анимаций
             entity.getAnimationAdapter().playAnimation(animationId, false, speed);
 
-            // Отмечаем, что анимация запущена и записываем время запуска
-            executor.getBlackboard().setValue(nodeKey + ":started", true);
-            executor.getBlackboard().setValue(nodeKey + ":startTime", System.currentTimeMillis());
-            executor.getBlackboard().setValue(nodeKey + ":idle_played", false);
+            // Отмечаем, что анимация запущена; запасной срок - оценка длительности плюс 100мс буфера
+            long deadline = TickTimers.now()
+                    + Math.max(1, TickTimers.ticksFromMillis(entity.estimateAnimationDuration(animationId) + 100));
+            blackboard.setBoolean(STARTED, nodeIndex, true);
+            blackboard.setLong(DEADLINE, nodeIndex, deadline);
 
-            // Отмечаем узел как выполняющийся (RUNNING)
-            executor.setNodeNeedsMoreTime(true);
-
-            return true;
-        } else {
-            // Повторное выполнение - проверяем статус анимации
-            long currentTime = System.currentTimeMillis();
-            long startTime = executor.getBlackboard().getValue(nodeKey + ":startTime", 0L);
-            long duration = entity.estimateAnimationDuration(animationId);
+            // До события завершения (или запасного срока) моба можно не тикать
+            executor.suspendUntilEvent(deadline);
+            return NodeStatus.RUNNING;
+        }
 
-            LOGGER.info("PlayAnimationNodeExecutor: Checking animation '{}' status: elapsed {} ms of {} ms estimated",
-                    animationId, (currentTime - startTime), duration);
+        // Повторное выполнение - проверяем статус анимации
+        boolean animationCompleted = blackboard.getBoolean(COMPLETED, nodeIndex);
+        if (!animationCompleted) {
+            long deadline = blackboard.getLong(DEADLINE, nodeIndex, 0L);
 
             // Если прошло достаточно времени, принудительно завершаем анимацию (на случай пропуска события завершения)
-            if (currentTime - startTime > duration + 100) { // Добавляем 100мс буфера
-                LOGGER.info("PlayAnimationNodeExecutor: Animation '{}' should be completed by now, forcing completion",
-                        animationId);
-
-                // Проверяем, не завершена ли анимация уже
-                if (!executor.getBlackboard().getValue(nodeKey + ":completed", false)) {
-                    // Принудительно отмечаем анимацию как завершенную
-                    executor.getBlackboard().setValue(nodeKey + ":completed", true);
-                    executor.getBlackboard().setValue(nodeKey + ":idle_played", true);
-
-                    // Удаляем слушатель события
-                    String listenerId = executor.getBlackboard().getValue(nodeKey + ":listener_id", (String)null);
-                    if (listenerId != null) {
-                        EventSystem.unregisterListenerById(listenerId);
-                    }
-
-                    // ВАЖНО: используем непосредственно AnimationAdapter вместо playAnimation
-                    entity.getAnimationAdapter().playAnimation("IDLE", true, 1.0f);
-                }
-
-                // Включаем автоматические анимации
-                entity.setDisableAutoAnimations(false);
-
-                // Помечаем узел как успешно выполненный
-                executor.completeNode(node, true);
-                executor.setNodeNeedsMoreTime(false);
-                return true;
+            if (!TickTimers.isReached(deadline)) {
+                executor.suspendUntilEvent(deadline);
+                return NodeStatus.RUNNING;
             }
 
-            // Анимация все еще выполняется
-            return true;
-        }
-    }
-
-    // Вспомогательные методы без изменений
-    private String getAnimationId(BehaviorNode node) {
-        // Поиск ID анимации из разных источников
-        String animationId = null;
-
-        // 1. Из customParameters
-        animationId = node.getCustomParameterAsString("animation", null);
-        if (animationId != null && !animationId.isEmpty()) {
-            return animationId;
+            LOGGER.debug("PlayAnimationNodeExecutor: Animation '{}' should be completed by now, forcing completion",
+                    animationId);
         }
 
-        // 2. Из параметра узла
-        if (node.getParameter() != null && !node.getParameter().isEmpty()) {
-            String param = node.getParameter();
-            if (param.contains("animation=")) {
-                String[] parts = param.split("animation=", 2);
-                if (parts.length > 1) {
-                    String part = parts[1];
-                    if (part.contains(";")) {
-                        animationId = part.split(";", 2)[0];
-                    } else {
-                        animationId = part;
-                    }
-                    return animationId;
-                }
-            }
-        }
+        LOGGER.debug("PlayAnimationNodeExecutor: Animation '{}' completed for node {}", animationId, node.getId());
+        finish(entity, blackboard, nodeIndex);
 
-        // 3. Из поля animationId
-        if (node.getAnimationId() != null && !node.getAnimationId().isEmpty()) {
-            animationId = node.getAnimationId();
-            return animationId;
-        }
+        // ВАЖНО: используем непосредственно AnimationAdapter вместо playAnimation,
+        // чтобы не вызвать новое событие завершения
+        entity.getAnimationAdapter().playAnimation("IDLE", true, 1.0f);
 
-        return null;
+        return NodeStatus.SUCCESS;
     }
 
-    private boolean getLoopParameter(BehaviorNode node) {
-        boolean loop = node.isLoopAnimation();
-
-        if (node.getParameter() != null && node.getParameter().contains("loop=")) {
-            try {
-                String param = node.getParameter();
-                String[] parts = param.split("loop=", 2);
-                if (parts.length > 1) {
-                    String value = parts[1];
-                    if (value.contains(";")) {
-                        value = value.split(";", 2)[0];
-                    }
-                    loop = Boolean.parseBoolean(value);
-                }
-            } catch (Exception e) {
-                LOGGER.error("PlayAnimationNodeExecutor: Error parsing loop parameter: {}", e.getMessage());
-            }
-        }
-
-        return loop;
+    @Override
+    public void halt(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+        // Узел прерван во время анимации - снимаем слушатель и возвращаем автоанимации
+        finish(entity, executor.getBlackboard(), executor.indexOf(node));
     }
 
-    private float getSpeedParameter(BehaviorNode node) {
-        float speed = (float) node.getAnimationSpeed();
-
-        if (speed <= 0.001f) {
-            if (node.getParameter() != null && node.getParameter().contains("speed=")) {
-                try {
-                    String param = node.getParameter();
-                    String[] parts = param.split("speed=", 2);
-                    if (parts.length > 1) {
-                        String value = parts[1];
-                        if (value.contains(";")) {
-                            value = value.split(";", 2)[0];
-                        }
-                        speed = Float.parseFloat(value);
-                    }
-                } catch (Exception e) {
-                    LOGGER.error("PlayAnimationNodeExecutor: Error parsing speed parameter: {}", e.getMessage());
-                }
-            }
-
-            if (speed <= 0.001f) {
-                speed = 1.0f;
-            }
+    /**
+     * Снимает слушатель события и очищает состояние узла
+     */
+    private static void finish(CustomMobEntity entity, Blackboard blackboard, int nodeIndex) {
+        Subscription subscription = blackboard.get(SUBSCRIPTION, nodeIndex);
+        if (subscription != null) {
+            subscription.close();
         }
 
-        return speed;
+        blackboard.remove(STARTED, nodeIndex);
+        blackboard.remove(COMPLETED, nodeIndex);
+        blackboard.remove(DEADLINE, nodeIndex);
+        blackboard.remove(SUBSCRIPTION, nodeIndex);
+
+        // ВАЖНО: повторно активируем автоматические анимации
+        entity.setDisableAutoAnimations(false);
     }
-}
\ No newline at end of file
+}
@@ -1,47 +1,69 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.sounds.SoundEvent;
+import net.minecraft.sounds.SoundEvents;
 import net.minecraft.sounds.SoundSource;
 import net.minecraftforge.registries.ForgeRegistries;
 
-public class PlaySoundNodeExecutor implements NodeExecutor {
-    @Override
-    public boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
-        // Получаем параметры
-        String soundId = node.getCustomParameterAsString("soundId", "entity.generic.hurt");
-        double volume = node.getCustomParameterAsDouble("volume", 1.0);
-        double pitch = node.getCustomParameterAsDouble("pitch", 1.0);
-        double radius = node.getCustomParameterAsDouble("radius", 16.0);
+public class PlaySoundNodeExecutor implements LeafExecutor {
+    /**
+     * Параметры узла звука; звуковое событие находится в реестре один раз
+     */
+    public static final class Params {
+        final SoundEvent sound;
+        final float volume;
+        final float pitch;
+        final double radius;
 
-        // Проверяем, является ли мир серверным
-        if (!(entity.level() instanceof ServerLevel)) {
-            return true; // На клиенте ничего не делаем
+        private Params(SoundEvent sound, float volume, float pitch, double radius) {
+            this.sound = sound;
+            this.volume = volume;
+            this.pitch = pitch;
+            this.radius = radius;
         }
 
-        // Получаем звуковое событие
-        SoundEvent soundEvent = ForgeRegistries.SOUND_EVENTS.getValue(new ResourceLocation(soundId));
+        static Params bind(NodeParamReader reader) {
+            String soundId = reader.getString("soundId", "entity.generic.hurt");
+            ResourceLocation location = ResourceLocation.tryParse(soundId);
+            SoundEvent sound = location != null ? ForgeRegistries.SOUND_EVENTS.getValue(location) : null;
 
-        // Если звук не найден, используем звук по умолчанию
-        if (soundEvent == null) {
-            soundEvent = ForgeRegistries.SOUND_EVENTS.getValue(new ResourceLocation("entity.generic.hurt"));
+            // Если звук не найден, используем звук по умолчанию
+            if (sound == null) {
+                reader.problem("unknown sound '" + soundId + "', using entity.generic.hurt");
+                sound = SoundEvents.GENERIC_HURT;
+            }
+
+            return new Params(sound,
+                    (float) reader.getDouble("volume", 1.0, 0.0, 16.0),
+                    (float) reader.getDouble("pitch", 1.0, 0.0, 2.0),
+                    reader.getDouble("radius", 16.0, 0.0, 256.0));
         }
+    }
 
-        // Воспроизводим звук
-        if (soundEvent != null) {
-            entity.level().playSound(
-                    null, // Игрок (null означает всем в радиусе)
-                    entity.getX(), entity.getY(), entity.getZ(), // Позиция
-                    soundEvent, // Звук
-                    SoundSource.NEUTRAL, // Источник звука
-                    (float) volume, // Громкость
-                    (float) pitch // Высота
-            );
+    @Override
+    public NodeStatus execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+        Params params = executor.getParams(node, Params.class);
+
+        // Проверяем, является ли мир серверным
+        if (!(entity.level() instanceof ServerLevel)) {
+            return NodeStatus.SUCCESS; // На клиенте ничего не делаем
         }
 
-        return true;
+        // Воспроизводим звук
+        entity.level().playSound(
+                null, // Игрок (null означает всем в радиусе)
+                entity.getX(), entity.getY(), entity.getZ(), // Позиция
+                params.sound, // Звук
+                SoundSource.NEUTRAL, // Источник звука
+                params.volume, // Громкость
+                params.pitch // Высота
+        );
+
+        return NodeStatus.SUCCESS;
     }
 }
\ No newline at end of file
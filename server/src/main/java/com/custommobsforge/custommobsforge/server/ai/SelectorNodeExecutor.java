@@ -1,30 +1,20 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 
-import java.util.List;
-
-public class SelectorNodeExecutor implements NodeExecutor {
+public class SelectorNodeExecutor implements CompositeExecutor {
     @Override
-    public boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
-        // Получаем все дочерние узлы
-        List<BehaviorNode> children = executor.getChildNodes(node);
-
-        // Если нет дочерних узлов, возвращаем неудачу
-        if (children.isEmpty()) {
-            return false;
-        }
-
-        // Выполняем каждый дочерний узел по порядку
-        for (BehaviorNode child : children) {
-            // Если хотя бы один дочерний узел выполнился успешно, прерываем выполнение селектора
-            if (executor.executeNode(child)) {
-                return true;
-            }
+    public int next(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor,
+                    int cursor, NodeStatus childStatus) {
+        // Если хотя бы один дочерний узел выполнился успешно, прерываем выполнение селектора
+        if (childStatus == NodeStatus.SUCCESS) {
+            return DONE_SUCCESS;
         }
 
-        // Если ни один дочерний узел не выполнился успешно, возвращаем неудачу
-        return false;
+        // Выполняем каждый дочерний узел по порядку; если ни один не выполнился успешно, возвращаем неудачу
+        int nextChild = cursor + 1;
+        return nextChild < executor.getChildCount(node) ? nextChild : DONE_FAILURE;
     }
-}
\ No newline at end of file
+}
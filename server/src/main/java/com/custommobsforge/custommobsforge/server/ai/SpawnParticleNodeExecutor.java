@@ -1,5 +1,6 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 import net.minecraft.core.particles.ParticleOptions;
@@ -10,9 +11,10 @@ import net.minecraft.server.level.ServerLevel;
 import org.joml.Vector3f;
 
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
-public class SpawnParticleNodeExecutor implements NodeExecutor {
+public class SpawnParticleNodeExecutor implements LeafExecutor {
     // Сопоставление названий частиц и типов частиц
     // Используем ParticleOptions вместо SimpleParticleType для более общего использования
     private static final Map<String, ParticleOptions> PARTICLE_TYPES = new HashMap<>();
@@ -32,26 +34,47 @@ public class SpawnParticleNodeExecutor implements NodeExecutor {
         PARTICLE_TYPES.put("magic", ParticleTypes.ENCHANT);
     }
 
+    /**
+     * Параметры узла частиц; тип частиц определяется один раз
+     */
+    public static final class Params {
+        final ParticleOptions particle;
+        final double radius;
+        final int count;
+
+        private Params(ParticleOptions particle, double radius, int count) {
+            this.particle = particle;
+            this.radius = radius;
+            this.count = count;
+        }
+
+        static Params bind(NodeParamReader reader) {
+            String particleType = reader.getString("particleType", "smoke");
+            ParticleOptions particle = PARTICLE_TYPES.get(particleType.toLowerCase(Locale.ROOT));
+            if (particle == null) {
+                reader.problem("unknown particle type '" + particleType + "', using smoke");
+                particle = ParticleTypes.SMOKE;
+            }
+
+            return new Params(particle,
+                    reader.getDouble("radius", 1.0, 0.0, 32.0),
+                    reader.getInt("count", 10, 0, 256));
+        }
+    }
+
     @Override
-    public boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
-        // Получаем параметры
-        String particleType = node.getCustomParameterAsString("particleType", "smoke");
-        double radius = node.getCustomParameterAsDouble("radius", 1.0);
-        int count = (int) node.getCustomParameterAsDouble("count", 10);
+    public NodeStatus execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
+        Params params = executor.getParams(node, Params.class);
 
         // Проверяем, является ли мир серверным
         if (!(entity.level() instanceof ServerLevel)) {
-            return true; // На клиенте ничего не делаем
+            return NodeStatus.SUCCESS; // На клиенте ничего не делаем
         }
 
-        // Получаем тип частиц
-        ParticleOptions particleOptions = PARTICLE_TYPES.getOrDefault(particleType.toLowerCase(),
-                ParticleTypes.SMOKE);
-
         // Спавним частицы
-        spawnParticles((ServerLevel) entity.level(), entity, particleOptions, radius, count);
+        spawnParticles((ServerLevel) entity.level(), entity, params.particle, params.radius, params.count);
 
-        return true;
+        return NodeStatus.SUCCESS;
     }
 
     // Метод для спавна частиц
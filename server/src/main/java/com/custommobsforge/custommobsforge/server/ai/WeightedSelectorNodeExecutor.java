@@ -1,78 +1,106 @@
 package com.custommobsforge.custommobsforge.server.ai;
 
+import com.custommobsforge.custommobsforge.common.ai.NodeStatus;
 import com.custommobsforge.custommobsforge.common.data.BehaviorNode;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
-public class WeightedSelectorNodeExecutor implements NodeExecutor {
+public class WeightedSelectorNodeExecutor implements CompositeExecutor {
     private static final Random random = new Random();
+    private static final double DEFAULT_WEIGHT = 50.0;
 
-    @Override
-    public boolean execute(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor) {
-        // Получаем все дочерние узлы
-        List<BehaviorNode> children = executor.getChildNodes(node);
+    /**
+     * Параметры взвешенного селектора.
+     * Формат строки parameter: nodeId1=weight1;nodeId2=weight2;...
+     * Дети без явного веса получают вес по умолчанию.
+     */
+    public static final class Params {
+        final double[] weights;
+        final double totalWeight;
 
-        // Если нет дочерних узлов, возвращаем неудачу
-        if (children.isEmpty()) {
-            return false;
+        private Params(double[] weights) {
+            this.weights = weights;
+            double total = 0;
+            for (double weight : weights) {
+                total += weight;
+            }
+            this.totalWeight = total;
         }
 
-        // Получаем параметр весов из узла
-        String weightParam = node.getParameter();
-        Map<String, Double> weights = parseWeights(weightParam);
-
-        // Вычисляем общий вес
-        double totalWeight = 0;
-        for (BehaviorNode child : children) {
-            double weight = weights.getOrDefault(child.getId(), 50.0);
-            totalWeight += weight;
-        }
+        static Params bind(NodeParamReader reader) {
+            List<BehaviorNode> children = reader.getChildNodes();
+            Map<String, String> pairs = reader.getRawPairs();
 
-        // Выбираем случайный узел на основе весов
-        double randomValue = random.nextDouble() * totalWeight;
-        double currentTotal = 0;
+            Set<String> childIds = new HashSet<>();
+            double[] weights = new double[children.size()];
+            for (int i = 0; i < weights.length; i++) {
+                String childId = children.get(i).getId();
+                childIds.add(childId);
+                weights[i] = DEFAULT_WEIGHT;
 
-        for (BehaviorNode child : children) {
-            double weight = weights.getOrDefault(child.getId(), 50.0);
-            currentTotal += weight;
+                String value = pairs.get(childId);
+                if (value == null) {
+                    continue;
+                }
+                try {
+                    double weight = Double.parseDouble(value);
+                    if (weight < 0) {
+                        reader.problem("negative weight " + weight + " for child " + childId + ", using 0");
+                        weight = 0;
+                    }
+                    weights[i] = weight;
+                } catch (NumberFormatException e) {
+                    reader.problem("weight '" + value + "' for child " + childId + " is not a number, using "
+                            + DEFAULT_WEIGHT);
+                }
+            }
 
-            if (randomValue <= currentTotal) {
-                // Выполняем выбранный узел
-                return executor.executeNode(child);
+            for (String key : pairs.keySet()) {
+                if (!childIds.contains(key)) {
+                    reader.problem("weight for " + key + " does not match any child node");
+                }
             }
-        }
 
-        // Если по какой-то причине ни один узел не выбран, выполняем первый
-        return !children.isEmpty() && executor.executeNode(children.get(0));
+            return new Params(weights);
+        }
     }
 
-    // Парсинг параметра весов
-    private Map<String, Double> parseWeights(String weightParam) {
-        Map<String, Double> weights = new HashMap<>();
+    @Override
+    public int next(CustomMobEntity entity, BehaviorNode node, BehaviorTreeExecutor executor,
+                    int cursor, NodeStatus childStatus) {
+        // Результат выбранного дочернего узла - результат селектора
+        if (childStatus != null) {
+            return CompositeExecutor.done(childStatus == NodeStatus.SUCCESS);
+        }
 
-        if (weightParam == null || weightParam.isEmpty()) {
-            return weights;
+        // Если нет дочерних узлов, возвращаем неудачу
+        int childCount = executor.getChildCount(node);
+        if (childCount == 0) {
+            return DONE_FAILURE;
         }
 
-        // Формат: nodeId1=weight1;nodeId2=weight2;...
-        String[] pairs = weightParam.split(";");
-        for (String pair : pairs) {
-            String[] keyValue = pair.split("=", 2);
-            if (keyValue.length == 2) {
-                try {
-                    String nodeId = keyValue[0].trim();
-                    double weight = Double.parseDouble(keyValue[1].trim());
-                    weights.put(nodeId, weight);
-                } catch (NumberFormatException e) {
-                    // Игнорируем ошибки парсинга
-                }
+        // Веса детей разобраны при загрузке дерева в порядке соединений
+        Params params = executor.getParams(node, Params.class);
+        double[] weights = params.weights;
+
+        // Выбираем случайный узел на основе весов
+        double randomValue = random.nextDouble() * params.totalWeight;
+        double currentTotal = 0;
+
+        for (int i = 0; i < childCount; i++) {
+            currentTotal += weights[i];
+
+            if (randomValue <= currentTotal) {
+                return i;
             }
         }
 
-        return weights;
+        // Если по какой-то причине ни один узел не выбран, выполняем первый
+        return 0;
     }
 }
\ No newline at end of file
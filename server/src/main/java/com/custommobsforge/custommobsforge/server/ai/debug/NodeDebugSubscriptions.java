@@ -0,0 +1,196 @@
+package com.custommobsforge.custommobsforge.server.ai.debug;
+
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.common.network.NetworkManager;
+import com.custommobsforge.custommobsforge.common.network.packet.NodeDebugPacket;
+import com.custommobsforge.custommobsforge.common.util.primitive.IntObjectMap;
+import com.custommobsforge.custommobsforge.common.util.primitive.IntSet;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.network.PacketDistributor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Подписки игроков на отладку деревьев поведения (команда /custommob debug nodes).
+ * Входы в узлы записываются только для мобов, на которых или на тип которых кто-то подписан,
+ * и раз в FLUSH_INTERVAL тиков уходят подписчикам одним пакетом {@link NodeDebugPacket}.
+ * Без подписок запись не ведётся и пакеты не отправляются.
+ * Используется только из серверного потока.
+ */
+public final class NodeDebugSubscriptions {
+    private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
+
+    // Период отправки в тиках (4 раза в секунду)
+    private static final int FLUSH_INTERVAL = 5;
+    // Сколько входов в узлы одной сущности отправлять за период; остальные отбрасываются
+    private static final int MAX_NODES_PER_FLUSH = 16;
+    // Сколько сущностей помещать в один пакет
+    private static final int MAX_ENTITIES_PER_PACKET = 256;
+    // Подписчик получает данные только о мобах в пределах этого расстояния
+    private static final double MAX_DISTANCE = 128.0;
+
+    private static final Map<UUID, Subscription> subscriptions = new HashMap<>();
+    // ID сущности -> входы в узлы за текущий период; набор сущностей меняется каждый период
+    private static final IntObjectMap<Recorded> recorded = new IntObjectMap<>();
+    private static int tickCounter = 0;
+
+    private NodeDebugSubscriptions() {
+    }
+
+    /**
+     * Есть ли хоть одна подписка (быстрая проверка перед записью)
+     */
+    public static boolean isActive() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Подписывает игрока на конкретного моба
+     */
+    public static void subscribeEntity(ServerPlayer player, CustomMobEntity entity) {
+        subscriptionFor(player).entityIds.add(entity.getId());
+        LOGGER.info("NodeDebugSubscriptions: Player {} subscribed to entity {}", player.getName().getString(), entity.getId());
+    }
+
+    /**
+     * Подписывает игрока на всех мобов типа
+     */
+    public static void subscribeMobType(ServerPlayer player, String mobId) {
+        subscriptionFor(player).mobIds.add(mobId);
+        LOGGER.info("NodeDebugSubscriptions: Player {} subscribed to mob type {}", player.getName().getString(), mobId);
+    }
+
+    /**
+     * Снимает все подписки игрока
+     * @return true, если подписки были
+     */
+    public static boolean unsubscribe(ServerPlayer player) {
+        return subscriptions.remove(player.getUUID()) != null;
+    }
+
+    /**
+     * Записывает вход моба в узел, если на моба кто-то подписан
+     */
+    public static void onNodeEntered(CustomMobEntity entity, int nodeIndex, int typeCode) {
+        if (subscriptions.isEmpty() || !isWatched(entity)) {
+            return;
+        }
+
+        Recorded entry = recorded.get(entity.getId());
+        if (entry == null || entry.entity != entity) {
+            entry = new Recorded(entity);
+            recorded.put(entity.getId(), entry);
+        }
+        entry.add(nodeIndex, typeCode);
+    }
+
+    /**
+     * Раз в FLUSH_INTERVAL тиков отправляет записанное подписчикам
+     */
+    public static void tick(MinecraftServer server) {
+        if (++tickCounter % FLUSH_INTERVAL != 0 || recorded.isEmpty()) {
+            return;
+        }
+
+        Iterator<Map.Entry<UUID, Subscription>> iterator = subscriptions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Subscription> subscription = iterator.next();
+            ServerPlayer player = server.getPlayerList().getPlayer(subscription.getKey());
+            if (player == null) {
+                // Игрок вышел - подписка больше не нужна
+                iterator.remove();
+                continue;
+            }
+            sendTo(player, subscription.getValue());
+        }
+
+        recorded.clear();
+    }
+
+    /**
+     * Сбрасывает подписки и записи (при остановке сервера)
+     */
+    public static void clear() {
+        subscriptions.clear();
+        recorded.clear();
+        tickCounter = 0;
+    }
+
+    private static void sendTo(ServerPlayer player, Subscription subscription) {
+        NodeDebugPacket[] packet = {new NodeDebugPacket()};
+        double maxDistanceSqr = MAX_DISTANCE * MAX_DISTANCE;
+
+        recorded.forEach((entityId, entry) -> {
+            CustomMobEntity entity = entry.entity;
+            if (entity.isRemoved() || entity.level() != player.level()
+                    || entity.distanceToSqr(player) > maxDistanceSqr || !subscription.matches(entity)) {
+                return;
+            }
+
+            packet[0].add(entityId, entry.nodeIndices, entry.typeCodes, entry.count);
+            if (packet[0].size() >= MAX_ENTITIES_PER_PACKET) {
+                NetworkManager.INSTANCE.send(PacketDistributor.PLAYER.with(() -> player), packet[0]);
+                packet[0] = new NodeDebugPacket();
+            }
+        });
+
+        if (packet[0].size() > 0) {
+            NetworkManager.INSTANCE.send(PacketDistributor.PLAYER.with(() -> player), packet[0]);
+        }
+    }
+
+    private static boolean isWatched(CustomMobEntity entity) {
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.matches(entity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Subscription subscriptionFor(ServerPlayer player) {
+        return subscriptions.computeIfAbsent(player.getUUID(), uuid -> new Subscription());
+    }
+
+    /**
+     * Подписки одного игрока
+     */
+    private static final class Subscription {
+        final IntSet entityIds = new IntSet();
+        final Set<String> mobIds = new HashSet<>();
+
+        boolean matches(CustomMobEntity entity) {
+            return entityIds.contains(entity.getId()) || mobIds.contains(entity.getMobId());
+        }
+    }
+
+    /**
+     * Входы в узлы одной сущности за период
+     */
+    private static final class Recorded {
+        final CustomMobEntity entity;
+        final int[] nodeIndices = new int[MAX_NODES_PER_FLUSH];
+        final int[] typeCodes = new int[MAX_NODES_PER_FLUSH];
+        int count;
+
+        Recorded(CustomMobEntity entity) {
+            this.entity = entity;
+        }
+
+        void add(int nodeIndex, int typeCode) {
+            if (count < MAX_NODES_PER_FLUSH) {
+                nodeIndices[count] = nodeIndex;
+                typeCodes[count] = typeCode;
+                count++;
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.custommobsforge.custommobsforge.server.ai.path;
+
+import com.custommobsforge.custommobsforge.common.spatial.SpatialIndex;
+import com.custommobsforge.custommobsforge.common.util.primitive.IntObjectMap;
+import com.custommobsforge.custommobsforge.server.timer.TickTimers;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.entity.ai.navigation.PathNavigation;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.pathfinder.Path;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Общий сервис запросов пути для узлов движения.
+ * Запрос, цель которого почти не сдвинулась относительно текущего пути, переиспользует этот путь
+ * без нового поиска A*. Число поисков за тик ограничено бюджетом: лишние запросы ждут в очереди
+ * (не больше одного на моба - новый запрос заменяет ожидающий) и в начале следующего тика
+ * обрабатываются в порядке близости моба к игрокам. Используется только из серверного потока.
+ */
+public final class PathRequestService {
+    private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
+
+    /**
+     * Чем закончился запрос пути
+     */
+    public enum Result {
+        /** Путь построен и моб начал движение */
+        STARTED,
+        /** Текущий путь моба ведёт почти туда же и оставлен */
+        REUSED,
+        /** Бюджет тика исчерпан, запрос ждёт в очереди */
+        QUEUED,
+        /** Путь построить не удалось */
+        FAILED
+    }
+
+    // Сколько поисков пути допускается за тик сервера
+    private static final int SEARCH_BUDGET = Math.max(1, Integer.getInteger("custommobsforge.path.budget", 8));
+    // Сдвиг цели, при котором путь ещё переиспользуется: не меньше минимума и растёт с расстоянием до цели
+    private static final double MIN_GOAL_TOLERANCE = 1.5;
+    private static final double RELATIVE_GOAL_TOLERANCE = 0.25;
+    // Точность достижения цели, как у PathNavigation.moveTo
+    private static final int ACCURACY = 1;
+
+    // ID моба -> ожидающий запрос
+    private static final IntObjectMap<Request> pending = new IntObjectMap<>();
+    // Буфер сортировки очереди, переиспользуется между тиками
+    private static final List<Request> order = new ArrayList<>();
+
+    private static long budgetTick = Long.MIN_VALUE;
+    private static int searchesThisTick = 0;
+
+    // Статистика для отладки
+    private static long totalSearches = 0;
+    private static long totalReused = 0;
+
+    private PathRequestService() {
+    }
+
+    /**
+     * Запрашивает движение моба к точке
+     * @param mob Моб
+     * @param x Цель, X
+     * @param y Цель, Y
+     * @param z Цель, Z
+     * @param speed Множитель скорости
+     * @return Результат; при QUEUED моб продолжает текущее движение, а путь будет построен в следующих тиках
+     */
+    public static Result request(Mob mob, double x, double y, double z, double speed) {
+        PathNavigation navigation = mob.getNavigation();
+
+        if (canReuse(mob, navigation, x, z)) {
+            navigation.setSpeedModifier(speed);
+            removePending(mob);
+            totalReused++;
+            return Result.REUSED;
+        }
+
+        Request existing = pending.get(mob.getId());
+        if (existing != null && existing.mob == mob) {
+            existing.update(x, y, z, speed);
+            return Result.QUEUED;
+        }
+
+        if (hasBudget()) {
+            return search(mob, x, y, z, speed) ? Result.STARTED : Result.FAILED;
+        }
+
+        pending.put(mob.getId(), new Request(mob, x, y, z, speed, TickTimers.now()));
+        return Result.QUEUED;
+    }
+
+    /**
+     * Пускает моба по готовому пути (например, из поля потока) и снимает его ожидающий запрос,
+     * чтобы тот позже не перезаписал этот путь
+     * @return false, если навигация не приняла путь; ожидающий запрос тогда остаётся
+     */
+    public static boolean accept(Mob mob, Path path, double speed) {
+        if (!mob.getNavigation().moveTo(path, speed)) {
+            return false;
+        }
+        removePending(mob);
+        return true;
+    }
+
+    /**
+     * Останавливает движение моба и снимает его ожидающий запрос
+     */
+    public static void cancel(Mob mob) {
+        removePending(mob);
+        mob.getNavigation().stop();
+    }
+
+    /**
+     * Обрабатывает очередь в пределах бюджета тика. Вызывается в начале тика сервера,
+     * до деревьев поведения, поэтому ожидающие запросы обслуживаются раньше новых
+     */
+    public static void tick() {
+        resetBudget();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Запросы мобов, покинувших мир, не обслуживаются
+        pending.removeIf((id, request) -> request.mob.isRemoved() || !request.mob.isAlive());
+
+        long now = TickTimers.now();
+        order.clear();
+        pending.forEach((id, request) -> order.add(request));
+        for (Request request : order) {
+            request.score = score(request, now);
+        }
+        order.sort((a, b) -> Double.compare(a.score, b.score));
+
+        for (Request request : order) {
+            if (!hasBudget()) {
+                break;
+            }
+            pending.remove(request.mob.getId());
+
+            if (!search(request.mob, request.x, request.y, request.z, request.speed)) {
+                // Как и узлы при неудаче поиска - двигаемся к цели напрямую
+                request.mob.getMoveControl().setWantedPosition(request.x, request.y, request.z, request.speed);
+            }
+        }
+        order.clear();
+    }
+
+    /**
+     * Сбрасывает очередь (при остановке сервера)
+     */
+    public static void clear() {
+        pending.clear();
+        order.clear();
+        budgetTick = Long.MIN_VALUE;
+        searchesThisTick = 0;
+    }
+
+    public static int getPendingCount() {
+        return pending.size();
+    }
+
+    public static long getTotalSearches() {
+        return totalSearches;
+    }
+
+    public static long getTotalReused() {
+        return totalReused;
+    }
+
+    /**
+     * Путь можно оставить, если моб ещё идёт по нему и цель пути лежит рядом с новой целью (по горизонтали)
+     */
+    private static boolean canReuse(Mob mob, PathNavigation navigation, double x, double z) {
+        Path path = navigation.getPath();
+        if (navigation.isDone() || path == null || path.isDone()) {
+            return false;
+        }
+
+        BlockPos target = path.getTarget();
+        double dx = target.getX() + 0.5 - x;
+        double dz = target.getZ() + 0.5 - z;
+
+        double goalDistance = Math.sqrt(mob.distanceToSqr(x, mob.getY(), z));
+        double tolerance = Math.max(MIN_GOAL_TOLERANCE, goalDistance * RELATIVE_GOAL_TOLERANCE);
+        return dx * dx + dz * dz <= tolerance * tolerance;
+    }
+
+    private static boolean search(Mob mob, double x, double y, double z, double speed) {
+        searchesThisTick++;
+        totalSearches++;
+
+        PathNavigation navigation = mob.getNavigation();
+        Path path = navigation.createPath(x, y, z, ACCURACY);
+        boolean started = navigation.moveTo(path, speed);
+        if (!started) {
+            LOGGER.debug("PathRequestService: No path for entity {} to [{}, {}, {}]", mob.getId(), x, y, z);
+        }
+        return started;
+    }
+
+    /**
+     * Приоритет запроса (меньше - раньше): квадрат расстояния до ближайшего игрока,
+     * уменьшающийся с ожиданием, чтобы дальние мобы не ждали бесконечно
+     */
+    private static double score(Request request, long now) {
+        Player player = SpatialIndex.of(request.mob.level()).getNearestPlayer(request.mob);
+        double distance = player != null ? player.distanceToSqr(request.mob) : Double.MAX_VALUE / 2;
+        long waited = Math.max(0, now - request.queuedTick);
+        return distance / (1 + waited);
+    }
+
+    private static boolean hasBudget() {
+        resetBudget();
+        return searchesThisTick < SEARCH_BUDGET;
+    }
+
+    private static void resetBudget() {
+        long now = TickTimers.now();
+        if (budgetTick != now) {
+            budgetTick = now;
+            searchesThisTick = 0;
+        }
+    }
+
+    private static void removePending(Mob mob) {
+        Request existing = pending.get(mob.getId());
+        if (existing != null && existing.mob == mob) {
+            pending.remove(mob.getId());
+        }
+    }
+
+    /**
+     * Ожидающий запрос пути
+     */
+    private static final class Request {
+        final Mob mob;
+        final long queuedTick;
+        double x;
+        double y;
+        double z;
+        double speed;
+        double score;
+
+        Request(Mob mob, double x, double y, double z, double speed, long queuedTick) {
+            this.mob = mob;
+            this.queuedTick = queuedTick;
+            update(x, y, z, speed);
+        }
+
+        void update(double x, double y, double z, double speed) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.speed = speed;
+        }
+    }
+}
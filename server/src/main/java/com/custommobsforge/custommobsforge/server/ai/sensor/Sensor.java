@@ -0,0 +1,64 @@
+package com.custommobsforge.custommobsforge.server.ai.sensor;
+
+import com.custommobsforge.custommobsforge.common.ai.Blackboard;
+import com.custommobsforge.custommobsforge.common.ai.BlackboardKey;
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+
+/**
+ * Датчик восприятия моба (по образцу ванильного Sensor): с собственным интервалом опрашивает мир
+ * и публикует результат в слоты Blackboard уровня сущности. Узлы читают готовое значение,
+ * поэтому дорогой поиск выполняется не чаще раза за интервал на моба, а не в каждом узле.
+ * Датчики - общие для всех мобов экземпляры без состояния, время следующего опроса хранится в Blackboard моба.
+ */
+public abstract class Sensor {
+    private final String name;
+    private final int interval;
+    // Игровой тик следующего опроса для конкретного моба
+    private final BlackboardKey<Long> nextRunKey;
+
+    protected Sensor(String name, int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Sensor interval must be positive: " + interval);
+        }
+        this.name = name;
+        this.interval = interval;
+        this.nextRunKey = BlackboardKey.ofLong("sensor." + name + ".nextRun");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Опрашивает мир, если для моба подошёл срок. Первый опрос выполняется сразу,
+     * следующие - в фазе, зависящей от ID моба: мобы, появившиеся в одном тике, опрашивают мир в разные тики
+     * @param entity Моб
+     * @param blackboard Blackboard моба, в который пишется восприятие
+     * @param now Текущий игровой тик
+     */
+    public final void update(CustomMobEntity entity, Blackboard blackboard, long now) {
+        if (blackboard.has(nextRunKey, Blackboard.ENTITY_SCOPE)
+                && now < blackboard.getLong(nextRunKey, Blackboard.ENTITY_SCOPE, 0L)) {
+            return;
+        }
+
+        sense(entity, blackboard);
+
+        long phase = Math.floorMod(now + entity.getId(), (long) interval);
+        blackboard.setLong(nextRunKey, Blackboard.ENTITY_SCOPE, now + interval - phase);
+    }
+
+    /**
+     * Опрашивает мир и записывает результат в Blackboard (уровень сущности)
+     */
+    protected abstract void sense(CustomMobEntity entity, Blackboard blackboard);
+
+    @Override
+    public String toString() {
+        return "Sensor[" + name + ", every " + interval + " ticks]";
+    }
+}
@@ -0,0 +1,149 @@
+package com.custommobsforge.custommobsforge.server.ai.sensor;
+
+import com.custommobsforge.custommobsforge.common.ai.Blackboard;
+import com.custommobsforge.custommobsforge.common.ai.BlackboardKey;
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.common.spatial.SpatialIndex;
+import com.custommobsforge.custommobsforge.server.timer.TickTimers;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.ai.targeting.TargetingConditions;
+import net.minecraft.world.entity.monster.Enemy;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Встроенные датчики восприятия и слоты Blackboard, в которые они пишут.
+ * Узел объявляет нужные датчики через {@link com.custommobsforge.custommobsforge.server.ai.NodeExecutor#getSensors()},
+ * а исполнитель дерева опрашивает их перед шагом. Прямая видимость проверяется условиями поиска
+ * (TargetingConditions), поэтому отдельного датчика для неё нет.
+ */
+public final class Sensors {
+    // Дальность восприятия: не меньше, чем нужно самому "дальнозоркому" узлу
+    public static final double PLAYER_RANGE = 32.0D;
+    public static final double LIVING_RANGE = 16.0D;
+
+    private static final TargetingConditions PLAYER_TARGETING = TargetingConditions.forNonCombat().range(PLAYER_RANGE);
+    private static final TargetingConditions LIVING_TARGETING = TargetingConditions.forNonCombat().range(LIVING_RANGE);
+
+    // Слоты восприятия
+    private static final BlackboardKey<Player> NEAREST_PLAYER_KEY = BlackboardKey.of("sensor.nearestPlayer", Player.class);
+    private static final BlackboardKey<LivingEntity> NEAREST_LIVING_KEY = BlackboardKey.of("sensor.nearestLiving", LivingEntity.class);
+    private static final BlackboardKey<LivingEntity> NEAREST_HOSTILE_KEY = BlackboardKey.of("sensor.nearestHostile", LivingEntity.class);
+    private static final BlackboardKey<LivingEntity> LAST_ATTACKER_KEY = BlackboardKey.of("sensor.lastAttacker", LivingEntity.class);
+    private static final BlackboardKey<Long> LAST_ATTACKER_TICK = BlackboardKey.ofLong("sensor.lastAttackerTick");
+
+    // Сколько тиков помнится нападавший (как ванильная память LivingEntity)
+    private static final long ATTACKER_MEMORY_TICKS = 100;
+
+    /**
+     * Ближайший видимый игрок в пределах {@link #PLAYER_RANGE}
+     */
+    public static final Sensor NEAREST_PLAYER = new Sensor("nearestPlayer", 10) {
+        @Override
+        protected void sense(CustomMobEntity entity, Blackboard blackboard) {
+            Player player = SpatialIndex.of(entity.level()).getNearestPlayer(PLAYER_TARGETING, entity);
+            blackboard.set(NEAREST_PLAYER_KEY, player);
+        }
+    };
+
+    /**
+     * Ближайшая видимая живая сущность любого вида (не кастомный моб, включая игроков и мирных животных)
+     * в пределах {@link #LIVING_RANGE}; цель узла следования без ограничения на игроков
+     */
+    public static final Sensor NEAREST_LIVING = new Sensor("nearestLiving", 20) {
+        @Override
+        protected void sense(CustomMobEntity entity, Blackboard blackboard) {
+            blackboard.set(NEAREST_LIVING_KEY, findNearest(entity, target -> true));
+        }
+    };
+
+    /**
+     * Ближайший видимый враждебный моб ({@link Enemy}, не кастомный) в пределах {@link #LIVING_RANGE}
+     */
+    public static final Sensor NEAREST_HOSTILE = new Sensor("nearestHostile", 20) {
+        @Override
+        protected void sense(CustomMobEntity entity, Blackboard blackboard) {
+            blackboard.set(NEAREST_HOSTILE_KEY, findNearest(entity, target -> target instanceof Enemy));
+        }
+    };
+
+    /**
+     * Последний, кто нанёс мобу урон; помнится {@link #ATTACKER_MEMORY_TICKS} тиков,
+     * в том числе если он записан через {@link #rememberAttacker} (например, тревогой отряда)
+     */
+    public static final Sensor LAST_ATTACKER = new Sensor("lastAttacker", 5) {
+        @Override
+        protected void sense(CustomMobEntity entity, Blackboard blackboard) {
+            LivingEntity attacker = entity.getLastHurtByMob();
+            if (attacker != null) {
+                rememberAttacker(blackboard, attacker);
+            } else if (TickTimers.isReached(blackboard.getLong(LAST_ATTACKER_TICK, Blackboard.ENTITY_SCOPE, 0L)
+                    + ATTACKER_MEMORY_TICKS)) {
+                blackboard.set(LAST_ATTACKER_KEY, null);
+            }
+        }
+    };
+
+    private Sensors() {
+    }
+
+    /**
+     * Ближайший игрок по последнему опросу или null (в том числе если игрок с тех пор умер или вышел)
+     */
+    public static Player getNearestPlayer(Blackboard blackboard) {
+        return alive(blackboard.get(NEAREST_PLAYER_KEY));
+    }
+
+    /**
+     * Ближайшая живая сущность по последнему опросу или null
+     */
+    public static LivingEntity getNearestLiving(Blackboard blackboard) {
+        return alive(blackboard.get(NEAREST_LIVING_KEY));
+    }
+
+    /**
+     * Ближайший враждебный моб по последнему опросу или null
+     */
+    public static LivingEntity getNearestHostile(Blackboard blackboard) {
+        return alive(blackboard.get(NEAREST_HOSTILE_KEY));
+    }
+
+    /**
+     * Последний атаковавший по последнему опросу или null
+     */
+    public static LivingEntity getLastAttacker(Blackboard blackboard) {
+        return alive(blackboard.get(LAST_ATTACKER_KEY));
+    }
+
+    /**
+     * Записывает нападавшего в восприятие, как если бы его обнаружил датчик LAST_ATTACKER
+     */
+    public static void rememberAttacker(Blackboard blackboard, LivingEntity attacker) {
+        blackboard.set(LAST_ATTACKER_KEY, attacker);
+        blackboard.setLong(LAST_ATTACKER_TICK, Blackboard.ENTITY_SCOPE, TickTimers.now());
+    }
+
+    private static LivingEntity findNearest(CustomMobEntity entity, Predicate<LivingEntity> filter) {
+        List<LivingEntity> nearby = SpatialIndex.of(entity.level()).getLivingEntities(
+                entity.getBoundingBox().inflate(LIVING_RANGE),
+                target -> !(target instanceof CustomMobEntity) && filter.test(target) && LIVING_TARGETING.test(entity, target)
+        );
+
+        LivingEntity nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for (LivingEntity candidate : nearby) {
+            double distance = candidate.distanceToSqr(entity);
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = candidate;
+            }
+        }
+        return nearest;
+    }
+
+    private static <T extends LivingEntity> T alive(T entity) {
+        return entity != null && entity.isAlive() && !entity.isRemoved() ? entity : null;
+    }
+}
@@ -0,0 +1,172 @@
+package com.custommobsforge.custommobsforge.server.ai.squad;
+
+import com.custommobsforge.custommobsforge.common.ai.Blackboard;
+import com.custommobsforge.custommobsforge.common.ai.BlackboardKey;
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.server.ai.BehaviorTreeExecutor;
+import com.custommobsforge.custommobsforge.server.ai.BehaviorTreeScheduler;
+import com.custommobsforge.custommobsforge.server.ai.sensor.Sensors;
+import com.custommobsforge.custommobsforge.server.timer.TickTimers;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.phys.Vec3;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Отряд мобов, появившихся вместе. Восприятие (датчики) отряда оценивает лидер и пишет его
+ * в общий Blackboard отряда, откуда его читают все члены, - остальные мобы не повторяют поиск целей.
+ * Там же хранятся общая цель и тревога: урон по одному члену будит весь отряд.
+ * Лидер - первый член отряда; при его уходе лидером становится следующий.
+ */
+public final class Squad {
+    // Общие решения отряда
+    private static final BlackboardKey<LivingEntity> TARGET = BlackboardKey.of("squad.target", LivingEntity.class);
+    private static final BlackboardKey<Long> ALERT_END = BlackboardKey.ofLong("squad.alertEnd");
+
+    // Сколько тиков отряд остаётся встревоженным после урона по члену
+    private static final long ALERT_TICKS = 100;
+    // Если лидер не выполнял шаг столько тиков (приостановлен или заморожен), восприятие обновляют остальные
+    private static final long LEADER_STALE_TICKS = 40;
+    // Лидер ещё не выполнял шаг
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final int id;
+    private final List<CustomMobEntity> members = new ArrayList<>();
+    // Восприятие и решения отряда (только уровень сущности)
+    private final Blackboard blackboard = new Blackboard(0);
+    private long leaderStepTick = NEVER;
+
+    Squad(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    public List<CustomMobEntity> getMembers() {
+        return Collections.unmodifiableList(members);
+    }
+
+    public CustomMobEntity getLeader() {
+        return members.isEmpty() ? null : members.get(0);
+    }
+
+    public boolean isLeader(CustomMobEntity entity) {
+        return getLeader() == entity;
+    }
+
+    /**
+     * Общий Blackboard отряда
+     */
+    public Blackboard getBlackboard() {
+        return blackboard;
+    }
+
+    /**
+     * Должен ли член отряда сам обновить восприятие в этом шаге: лидер - всегда,
+     * остальные - только если лидер давно или ещё ни разу не выполнял шаг
+     */
+    public boolean shouldSense(CustomMobEntity entity, long now) {
+        if (isLeader(entity)) {
+            leaderStepTick = now;
+            return true;
+        }
+        return leaderStepTick == NEVER || now - leaderStepTick > LEADER_STALE_TICKS;
+    }
+
+    /**
+     * Общая цель отряда или null
+     */
+    public LivingEntity getTarget() {
+        LivingEntity target = blackboard.get(TARGET);
+        return target != null && target.isAlive() && !target.isRemoved() ? target : null;
+    }
+
+    public void setTarget(LivingEntity target) {
+        blackboard.set(TARGET, target);
+    }
+
+    /**
+     * Номер места в строю: лидер - 0, остальные по порядку вступления; -1, если моб не в отряде
+     */
+    public int getFormationSlot(CustomMobEntity entity) {
+        return members.indexOf(entity);
+    }
+
+    /**
+     * Место члена отряда в строю вокруг цели: члены распределяются по кольцу заданного радиуса,
+     * лидер - на стороне цели, обращённой к нему
+     * @return Точка или null, если моб не в отряде
+     */
+    public Vec3 getFormationPosition(CustomMobEntity entity, LivingEntity target, double radius) {
+        int slot = getFormationSlot(entity);
+        if (slot < 0) {
+            return null;
+        }
+
+        CustomMobEntity leader = getLeader();
+        double baseAngle = Math.atan2(leader.getZ() - target.getZ(), leader.getX() - target.getX());
+        double angle = baseAngle + 2.0 * Math.PI * slot / members.size();
+        return new Vec3(
+                target.getX() + Math.cos(angle) * radius,
+                target.getY(),
+                target.getZ() + Math.sin(angle) * radius);
+    }
+
+    /**
+     * Встревожен ли отряд (член отряда недавно получил урон)
+     */
+    public boolean isAlerted() {
+        return !TickTimers.isReached(blackboard.getLong(ALERT_END, Blackboard.ENTITY_SCOPE, 0L));
+    }
+
+    /**
+     * Тревога: член отряда получил урон. Нападавший становится известен всему отряду,
+     * а члены, ждущие урона, просыпаются
+     * @param victim Член отряда, получивший урон
+     * @param attacker Нападавший или null
+     */
+    void alert(CustomMobEntity victim, LivingEntity attacker) {
+        blackboard.setLong(ALERT_END, Blackboard.ENTITY_SCOPE, TickTimers.now() + ALERT_TICKS);
+        if (attacker != null) {
+            Sensors.rememberAttacker(blackboard, attacker);
+        }
+
+        for (CustomMobEntity member : members) {
+            if (member == victim) {
+                continue;
+            }
+            BehaviorTreeExecutor executor = BehaviorTreeScheduler.get(member);
+            if (executor != null) {
+                executor.onDamaged();
+            }
+        }
+    }
+
+    boolean contains(CustomMobEntity entity) {
+        return members.contains(entity);
+    }
+
+    void add(CustomMobEntity entity) {
+        if (!members.contains(entity)) {
+            members.add(entity);
+        }
+    }
+
+    void remove(CustomMobEntity entity) {
+        if (members.remove(entity) && members.isEmpty()) {
+            blackboard.reset();
+        }
+    }
+
+    boolean isEmpty() {
+        return members.isEmpty();
+    }
+}
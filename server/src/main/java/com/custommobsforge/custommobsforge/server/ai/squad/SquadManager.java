@@ -0,0 +1,85 @@
+package com.custommobsforge.custommobsforge.server.ai.squad;
+
+import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.common.util.primitive.IntObjectMap;
+import net.minecraft.world.entity.LivingEntity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Реестр отрядов по ID. Моб вступает в отряд при появлении в мире (ID отряда назначается при спавне
+ * и хранится в NBT моба) и выходит при удалении; пустой отряд удаляется.
+ * Используется только из серверного потока.
+ */
+public final class SquadManager {
+    private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
+
+    private static final IntObjectMap<Squad> squads = new IntObjectMap<>();
+
+    private SquadManager() {
+    }
+
+    /**
+     * Добавляет моба в его отряд, если он назначен; повторный вызов ничего не делает
+     */
+    public static void join(CustomMobEntity entity) {
+        int squadId = entity.getSquadId();
+        if (squadId == CustomMobEntity.NO_SQUAD) {
+            return;
+        }
+
+        Squad squad = squads.computeIfAbsent(squadId, Squad::new);
+        if (!squad.contains(entity)) {
+            squad.add(entity);
+            LOGGER.debug("SquadManager: Entity {} joined squad {} ({} members)", entity.getId(), squadId, squad.size());
+        }
+    }
+
+    /**
+     * Убирает моба из отряда
+     */
+    public static void leave(CustomMobEntity entity) {
+        Squad squad = get(entity);
+        if (squad == null) {
+            return;
+        }
+
+        squad.remove(entity);
+        if (squad.isEmpty()) {
+            squads.remove(squad.getId());
+        }
+    }
+
+    /**
+     * Отряд, в котором состоит моб, или null
+     */
+    public static Squad get(CustomMobEntity entity) {
+        int squadId = entity.getSquadId();
+        if (squadId == CustomMobEntity.NO_SQUAD) {
+            return null;
+        }
+        Squad squad = squads.get(squadId);
+        return squad != null && squad.contains(entity) ? squad : null;
+    }
+
+    /**
+     * Член отряда получил урон - тревога для всего отряда
+     */
+    public static void onMemberHurt(CustomMobEntity entity, LivingEntity attacker) {
+        Squad squad = get(entity);
+        if (squad != null) {
+            squad.alert(entity, attacker);
+        }
+    }
+
+    public static int getSquadCount() {
+        return squads.size();
+    }
+
+    /**
+     * Удаляет все отряды (при остановке сервера)
+     */
+    public static void clear() {
+        squads.clear();
+    }
+}
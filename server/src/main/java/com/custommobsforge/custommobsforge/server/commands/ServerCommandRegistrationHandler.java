@@ -3,13 +3,21 @@ package com.custommobsforge.custommobsforge.server.commands;
 import com.custommobsforge.custommobsforge.common.config.MobConfigManager;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 import com.custommobsforge.custommobsforge.common.registry.EntityRegistry;
+import com.custommobsforge.custommobsforge.server.ai.BehaviorTreeScheduler;
+import com.custommobsforge.custommobsforge.server.ai.debug.NodeDebugSubscriptions;
 import com.mojang.brigadier.Command;
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.DoubleArgumentType;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
+import net.minecraft.commands.arguments.EntityArgument;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.MobSpawnType;
 import net.minecraft.world.phys.Vec3;
 import net.minecraftforge.event.RegisterCommandsEvent;
@@ -18,6 +26,7 @@ import net.minecraftforge.eventbus.api.SubscribeEvent;
 import java.util.List;
 
 public class ServerCommandRegistrationHandler {
+    private static final int MAX_SPAWN_COUNT = 64;
 
     @SubscribeEvent
     public static void onRegisterCommands(RegisterCommandsEvent event) {
@@ -29,16 +38,52 @@ public class ServerCommandRegistrationHandler {
                         .requires(source -> source.hasPermission(2)) // Требуется уровень прав 2 (оператор)
                         .then(Commands.literal("spawn")
                                 .then(Commands.argument("mobId", StringArgumentType.word())
-                                        .executes(context -> spawnMob(context.getSource(), StringArgumentType.getString(context, "mobId")))
+                                        .executes(context -> spawnMob(context.getSource(), StringArgumentType.getString(context, "mobId"), 1))
+                                        // Несколько мобов спавнятся одним отрядом
+                                        .then(Commands.argument("count", IntegerArgumentType.integer(1, MAX_SPAWN_COUNT))
+                                                .executes(context -> spawnMob(context.getSource(),
+                                                        StringArgumentType.getString(context, "mobId"),
+                                                        IntegerArgumentType.getInteger(context, "count")))
+                                        )
                                 )
                         )
                         .then(Commands.literal("list")
                                 .executes(context -> listMobs(context.getSource()))
                         )
+                        .then(Commands.literal("ai")
+                                .then(Commands.literal("stats")
+                                        .executes(context -> showAiStats(context.getSource()))
+                                )
+                                .then(Commands.literal("budget")
+                                        .then(Commands.argument("ms", DoubleArgumentType.doubleArg(0.0, 50.0))
+                                                .executes(context -> setAiBudget(context.getSource(), DoubleArgumentType.getDouble(context, "ms")))
+                                        )
+                                )
+                        )
+                        // Отладка деревьев поведения: подписка на выполнение узлов моба или типа мобов
+                        .then(Commands.literal("debug")
+                                .then(Commands.literal("nodes")
+                                        .then(Commands.literal("entity")
+                                                .then(Commands.argument("target", EntityArgument.entity())
+                                                        .executes(context -> debugNodesEntity(context.getSource(),
+                                                                EntityArgument.getEntity(context, "target")))
+                                                )
+                                        )
+                                        .then(Commands.literal("type")
+                                                .then(Commands.argument("mobId", StringArgumentType.word())
+                                                        .executes(context -> debugNodesType(context.getSource(),
+                                                                StringArgumentType.getString(context, "mobId")))
+                                                )
+                                        )
+                                        .then(Commands.literal("off")
+                                                .executes(context -> debugNodesOff(context.getSource()))
+                                        )
+                                )
+                        )
         );
     }
 
-    private static int spawnMob(CommandSourceStack source, String mobId) {
+    private static int spawnMob(CommandSourceStack source, String mobId, int count) {
         try {
             // Получаем мир сервера
             ServerLevel level = source.getLevel();
@@ -53,29 +98,43 @@ public class ServerCommandRegistrationHandler {
                 return 0;
             }
 
-            // Создаем сущность моба
-            CustomMobEntity entity = EntityRegistry.CUSTOM_MOB.get().create(level);
-
-            if (entity != null) {
-                // Получаем позицию для спавна
-                Vec3 pos = source.getPosition();
-
-                // Настраиваем моба
-                entity.setPos(pos.x, pos.y, pos.z);
+            // Группа мобов получает общий отряд
+            int squadId = count > 1 ? CustomMobEntity.newSquadId() : CustomMobEntity.NO_SQUAD;
+            Vec3 pos = source.getPosition();
+            int spawned = 0;
+
+            for (int i = 0; i < count; i++) {
+                // Создаем сущность моба
+                CustomMobEntity entity = EntityRegistry.CUSTOM_MOB.get().create(level);
+                if (entity == null) {
+                    break;
+                }
+
+                // Настраиваем моба; группа слегка расставляется, чтобы мобы не стояли в одной точке
+                double offsetX = count > 1 ? (level.random.nextDouble() - 0.5) * 2.0 : 0.0;
+                double offsetZ = count > 1 ? (level.random.nextDouble() - 0.5) * 2.0 : 0.0;
+                entity.setPos(pos.x + offsetX, pos.y, pos.z + offsetZ);
                 entity.setMobId(mobId);
                 entity.setMobData(mobData);
+                entity.setSquadId(squadId);
 
                 // Спавним моба
                 level.addFreshEntity(entity);
                 entity.finalizeSpawn(level, level.getCurrentDifficultyAt(entity.blockPosition()),
                         MobSpawnType.COMMAND, null, null);
+                spawned++;
+            }
 
-                source.sendSuccess(() -> Component.literal("Spawned mob: " + mobId), true);
-                return Command.SINGLE_SUCCESS;
-            } else {
+            if (spawned == 0) {
                 source.sendFailure(Component.literal("Failed to create mob entity"));
                 return 0;
             }
+
+            int total = spawned;
+            source.sendSuccess(() -> Component.literal(total > 1
+                    ? "Spawned " + total + " mobs: " + mobId + " (squad " + squadId + ")"
+                    : "Spawned mob: " + mobId), true);
+            return total;
         } catch (Exception e) {
             source.sendFailure(Component.literal("Error spawning mob: " + e.getMessage()));
             e.printStackTrace();
@@ -110,4 +169,42 @@ public class ServerCommandRegistrationHandler {
             return 0;
         }
     }
+
+    private static int showAiStats(CommandSourceStack source) {
+        String stats = BehaviorTreeScheduler.getStats();
+        source.sendSuccess(() -> Component.literal("Behavior tree scheduler: " + stats), false);
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static int debugNodesEntity(CommandSourceStack source, Entity target) throws CommandSyntaxException {
+        ServerPlayer player = source.getPlayerOrException();
+        if (!(target instanceof CustomMobEntity)) {
+            source.sendFailure(Component.literal("Target is not a custom mob"));
+            return 0;
+        }
+
+        NodeDebugSubscriptions.subscribeEntity(player, (CustomMobEntity) target);
+        source.sendSuccess(() -> Component.literal("Node debug enabled for entity " + target.getId()), false);
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static int debugNodesType(CommandSourceStack source, String mobId) throws CommandSyntaxException {
+        ServerPlayer player = source.getPlayerOrException();
+        NodeDebugSubscriptions.subscribeMobType(player, mobId);
+        source.sendSuccess(() -> Component.literal("Node debug enabled for mob type " + mobId), false);
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static int debugNodesOff(CommandSourceStack source) throws CommandSyntaxException {
+        ServerPlayer player = source.getPlayerOrException();
+        boolean removed = NodeDebugSubscriptions.unsubscribe(player);
+        source.sendSuccess(() -> Component.literal(removed ? "Node debug disabled" : "Node debug was not enabled"), false);
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static int setAiBudget(CommandSourceStack source, double budgetMs) {
+        BehaviorTreeScheduler.setBudgetMs(budgetMs);
+        source.sendSuccess(() -> Component.literal("Behavior tree tick budget set to " + budgetMs + " ms"), true);
+        return Command.SINGLE_SUCCESS;
+    }
 }
\ No newline at end of file
@@ -2,68 +2,38 @@ package com.custommobsforge.custommobsforge.server.event;
 
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 import com.custommobsforge.custommobsforge.common.event.system.EventSystem;
-import com.custommobsforge.custommobsforge.server.ai.FollowNodeExecutor;
-import com.custommobsforge.custommobsforge.server.ai.OnDamageNodeExecutor;
-import com.custommobsforge.custommobsforge.server.ai.PlayAnimationNodeExecutor;
-import com.custommobsforge.custommobsforge.server.ai.TimerNodeExecutor;
+import com.custommobsforge.custommobsforge.server.ai.squad.SquadManager;
 import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.HashMap;
-import java.util.Map;
-
 @Mod.EventBusSubscriber
 public class EntityCleanupService {
     private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
 
-    // Карта для отслеживания зарегистрированных ресурсов
-    private static final Map<Integer, Boolean> registeredEntities = new HashMap<>();
-
-    /**
-     * Регистрирует сущность для отслеживания и очистки ресурсов
-     * @param entity сущность для регистрации
-     */
-    public static void registerEntity(CustomMobEntity entity) {
-        if (!registeredEntities.containsKey(entity.getId())) {
-            registeredEntities.put(entity.getId(), true);
-            LOGGER.info("EntityCleanupService: Registered entity {} for cleanup", entity.getId());
-        }
-    }
-
     /**
-     * Очищает ресурсы для указанной сущности
+     * Очищает ресурсы для указанной сущности.
+     * Всё состояние ИИ моба хранится в нём самом (MobAIState), поэтому очистка не ищет его по ID
      * @param entity сущность
      */
     public static void cleanup(CustomMobEntity entity) {
-        cleanup(entity.getId());
-    }
-
-    /**
-     * Очищает ресурсы для указанного ID сущности
-     * @param entityId ID сущности
-     */
-    public static void cleanup(int entityId) {
-        LOGGER.info("EntityCleanupService: Cleaning up resources for entity {}", entityId);
-
-        // Очищаем ресурсы для узла OnDamageNode
-        OnDamageNodeExecutor.cleanup(entityId);
+        LOGGER.info("EntityCleanupService: Cleaning up resources for entity {}", entity.getId());
 
-        // Очищаем ресурсы для узла PlayAnimationNode
-        PlayAnimationNodeExecutor.cleanup(entityId);
+        // Подписки на события, принадлежащие мобу
+        EventSystem.closeAll(entity);
 
-        // Очищаем ресурсы для узла FollowNode
-        FollowNodeExecutor.cleanup(entityId);
+        // Исполнитель дерева снимается с планировщика, состояние узлов уходит вместе с ним
+        entity.getAiState().release();
 
-        // Очищаем ресурсы для узла TimerNode
-        TimerNodeExecutor.cleanup(entityId);
+        // Место в отряде освобождается; лидером становится следующий член
+        SquadManager.leave(entity);
 
-        // Удаляем из списка зарегистрированных сущностей
-        registeredEntities.remove(entityId);
+        // Определение, которое больше не использует ни одна сущность, уходит из реестра
+        entity.releaseMobDefinition();
 
-        LOGGER.info("EntityCleanupService: Resources cleaned up for entity {}", entityId);
+        LOGGER.info("EntityCleanupService: Resources cleaned up for entity {}", entity.getId());
     }
 
     /**
@@ -78,7 +48,7 @@ public class EntityCleanupService {
             LOGGER.info("EntityCleanupService: Entity {} leaving world, cleaning up resources", entityId);
 
             // Очищаем ресурсы
-            cleanup(entityId);
+            cleanup(entity);
         }
     }
 
@@ -86,7 +56,10 @@ public class EntityCleanupService {
      * Выполняет периодическую очистку неиспользуемых ресурсов
      */
     public static void periodicCleanup() {
-        // Можно добавить дополнительную логику очистки,
-        // например, удаление устаревших слушателей
+        // Подписки удалённых мобов, которые никто не закрыл, - признак утечки
+        int leaked = EventSystem.closeLeakedSubscriptions();
+        if (leaked > 0) {
+            LOGGER.warn("EntityCleanupService: Closed {} leaked event subscriptions", leaked);
+        }
     }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.custommobsforge.custommobsforge.common.config.MobConfigManager;
 import com.custommobsforge.custommobsforge.common.data.MobData;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 import com.custommobsforge.custommobsforge.common.fsm.StateFactory;
+import com.custommobsforge.custommobsforge.server.ai.BehaviorTreeRepository;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraftforge.event.entity.EntityJoinLevelEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
@@ -42,8 +43,8 @@ public class FSMInitEventHandler {
                 if (entity.getMobData().getBehaviorTree() != null) {
                     LOGGER.info("FSMInitEventHandler: Creating states from behavior tree for entity {}",
                             entity.getId());
-                    StateFactory.createStatesFromBehaviorTree(
-                            entity, entity.getMobData().getBehaviorTree());
+                    StateFactory.createStatesFromBehaviorTree(entity, BehaviorTreeRepository.getTree(
+                            entity.getMobData().getBehaviorTree(), (ServerLevel) event.getLevel()));
                 } else {
                     LOGGER.info("FSMInitEventHandler: Creating standard states for entity {}",
                             entity.getId());
@@ -1,46 +1,33 @@
 package com.custommobsforge.custommobsforge.server.event;
 
+import com.custommobsforge.custommobsforge.common.ai.CompiledBehaviorTree;
 import com.custommobsforge.custommobsforge.common.config.MobConfigManager;
-import com.custommobsforge.custommobsforge.common.data.*;
+import com.custommobsforge.custommobsforge.common.data.MobData;
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
 import com.custommobsforge.custommobsforge.common.event.system.AnimationCompletedEvent;
 import com.custommobsforge.custommobsforge.common.event.system.AnimationStartedEvent;
 import com.custommobsforge.custommobsforge.common.event.system.EventSystem;
 import com.custommobsforge.custommobsforge.server.ai.BehaviorTreeExecutor;
+import com.custommobsforge.custommobsforge.server.ai.BehaviorTreeRepository;
+import com.custommobsforge.custommobsforge.server.ai.BehaviorTreeScheduler;
 import com.custommobsforge.custommobsforge.server.ai.OnDamageNodeExecutor;
+import com.custommobsforge.custommobsforge.server.ai.squad.SquadManager;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
-import net.minecraft.world.entity.ai.goal.Goal;
 import net.minecraft.world.entity.player.Player;
-import net.minecraft.world.level.storage.LevelResource;
 import net.minecraftforge.event.entity.EntityJoinLevelEvent;
 import net.minecraftforge.event.entity.living.LivingDeathEvent;
 import net.minecraftforge.event.entity.living.LivingHurtEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.File;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 @Mod.EventBusSubscriber
 public class MobSpawnEventHandler {
     private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
-    private static final Gson GSON = new GsonBuilder().create();
-
-    // Карта для отслеживания зарегистрированных мобов и их исполнителей
-    private static final Map<Integer, BehaviorTreeExecutor> entityExecutors = new ConcurrentHashMap<>();
 
     @SubscribeEvent
     public static void onEntityJoinWorld(EntityJoinLevelEvent event) {
@@ -91,21 +78,13 @@ public class MobSpawnEventHandler {
                 return;
             }
 
+            // Моб, заспавненный в отряде, вступает в него (в том числе после перезагрузки чанка)
+            SquadManager.join(entity);
+
             // Сначала проверим, есть ли у моба уже исполнитель дерева поведения
-            boolean hasExecutor = false;
-            for (Goal goal : entity.goalSelector.getAvailableGoals()) {
-                if (goal instanceof BehaviorTreeExecutor) {
-                    hasExecutor = true;
-                    LOGGER.info("!!! MobSpawnEventHandler: Entity already has BehaviorTreeExecutor");
-
-                    // Сохраняем ссылку на исполнитель
-                    entityExecutors.put(entity.getId(), (BehaviorTreeExecutor) goal);
-                    break;
-                }
-            }
+            if (BehaviorTreeScheduler.get(entity) != null) {
+                LOGGER.info("!!! MobSpawnEventHandler: Entity already has BehaviorTreeExecutor");
 
-            // Если у моба уже есть исполнитель, пропускаем загрузку дерева
-            if (hasExecutor) {
                 LOGGER.info("!!! MobSpawnEventHandler: Skipping behavior tree setup, entity already has executor");
                 registerEventHandlers(entity);
                 return;
@@ -116,72 +95,21 @@ public class MobSpawnEventHandler {
                 LOGGER.info("!!! MobSpawnEventHandler: Entity {} has behavior tree with ID: {}",
                         entity.getId(), mobData.getBehaviorTree().getId());
 
-                // Проверяем, есть ли узлы в дереве
-                if (mobData.getBehaviorTree().getNodes() == null || mobData.getBehaviorTree().getNodes().isEmpty()) {
-                    LOGGER.warn("!!! MobSpawnEventHandler: WARNING - Behavior tree has NO nodes! Trying to load full tree...");
-                } else {
-                    LOGGER.info("!!! MobSpawnEventHandler: Behavior tree already has {} nodes",
-                            mobData.getBehaviorTree().getNodes().size());
-                }
-
-                // Загружаем полное дерево поведения по ID
-                BehaviorTree fullTree = loadBehaviorTreeFromServer(mobData.getBehaviorTree().getId(), level);
-                if (fullTree != null) {
-                    // Проверяем полноту дерева
-                    if (fullTree.getNodes() != null && !fullTree.getNodes().isEmpty()) {
-                        LOGGER.info("!!! MobSpawnEventHandler: Loaded full tree with {} nodes and {} connections",
-                                fullTree.getNodes().size(),
-                                (fullTree.getConnections() != null ? fullTree.getConnections().size() : 0));
-
-                        // Дамп всех узлов и связей для отладки
-                        LOGGER.info("!!! ============ ДЕРЕВО ПОВЕДЕНИЯ УЗЛЫ ============");
-                        for (BehaviorNode node : fullTree.getNodes()) {
-                            LOGGER.info("!!! Node: ID={}, Type={}, Desc={}, Param={}",
-                                    node.getId(), node.getType(), node.getDescription(), node.getParameter());
-                        }
-
-                        LOGGER.info("!!! ============ ДЕРЕВО ПОВЕДЕНИЯ СВЯЗИ ============");
-                        if (fullTree.getConnections() != null) {
-                            for (BehaviorConnection conn : fullTree.getConnections()) {
-                                LOGGER.info("!!! Connection: {} -> {}", conn.getSourceNodeId(), conn.getTargetNodeId());
-                            }
-                        } else {
-                            LOGGER.warn("!!! Connections list is NULL!");
-                        }
-
-                        // Заменяем дерево на полное
-                        mobData.setBehaviorTree(fullTree);
-                    } else {
-                        LOGGER.warn("!!! MobSpawnEventHandler: WARNING - Loaded tree STILL has NO nodes! Check JSON file structure.");
-                    }
-                } else {
-                    LOGGER.error("!!! MobSpawnEventHandler: Failed to load behavior tree from server for ID: {}",
-                            mobData.getBehaviorTree().getId());
-                }
+                // Скомпилированное дерево общее для всех мобов этого типа и читается с диска один раз
+                CompiledBehaviorTree compiledTree = BehaviorTreeRepository.getTree(mobData.getBehaviorTree(), level);
 
-                // Создаем исполнителя и добавляем его к мобу ТОЛЬКО если дерево имеет узлы
-                if (mobData.getBehaviorTree().getNodes() != null && !mobData.getBehaviorTree().getNodes().isEmpty()) {
-                    // Проверим структуру дерева перед добавлением исполнителя
-                    BehaviorNode rootNode = mobData.getBehaviorTree().getRootNode();
-                    if (rootNode == null) {
-                        LOGGER.warn("!!! MobSpawnEventHandler: WARNING - Behavior tree has no root node!");
-                    } else {
-                        LOGGER.info("!!! MobSpawnEventHandler: Root node is: {} of type {}",
-                                rootNode.getId(), rootNode.getType());
-                    }
-
-                    BehaviorTreeExecutor executor = new BehaviorTreeExecutor(entity, mobData.getBehaviorTree());
-                    entity.goalSelector.addGoal(1, executor);
-
-                    // Сохраняем ссылку на исполнитель
-                    entityExecutors.put(entity.getId(), executor);
+                // Создаем исполнителя и передаем его планировщику ТОЛЬКО если дерево корректно
+                if (compiledTree != null) {
+                    BehaviorTreeExecutor executor = new BehaviorTreeExecutor(entity, compiledTree);
+                    BehaviorTreeScheduler.register(executor);
 
                     LOGGER.info("!!! MobSpawnEventHandler: Added behavior tree executor for entity {}", entity.getId());
 
                     // Регистрируем обработчики событий для моба
                     registerEventHandlers(entity);
                 } else {
-                    LOGGER.error("!!! MobSpawnEventHandler: ERROR - Cannot add behavior tree executor because tree has no nodes!");
+                    LOGGER.error("!!! MobSpawnEventHandler: ERROR - Cannot add behavior tree executor because tree {} is missing or invalid!",
+                            mobData.getBehaviorTree().getId());
                 }
             } else {
                 LOGGER.warn("!!! MobSpawnEventHandler: Entity {} has NO behavior tree defined!", entity.getId());
@@ -200,90 +128,29 @@ public class MobSpawnEventHandler {
     private static void registerEventHandlers(CustomMobEntity entity) {
         LOGGER.info("MobSpawnEventHandler: Registering event handlers for entity {}", entity.getId());
 
-        // Регистрируем обработчик завершения анимации
-        EventSystem.registerListener(AnimationCompletedEvent.class, event -> {
-            if (event.getEntity().getId() == entity.getId()) {
-                LOGGER.info("MobSpawnEventHandler: Animation completed: {} for entity {}",
-                        event.getAnimationId(), entity.getId());
+        // Повторное появление (перезагрузка чанка) не должно дублировать обработчики
+        EventSystem.closeAll(entity);
 
-                // Дополнительная логика обработки завершения анимации может быть добавлена здесь
-            }
+        // Регистрируем обработчик завершения анимации (получает только события этого моба);
+        // подписки принадлежат мобу и закрываются в EntityCleanupService
+        EventSystem.subscribe(entity, entity, AnimationCompletedEvent.class, event -> {
+            LOGGER.info("MobSpawnEventHandler: Animation completed: {} for entity {}",
+                    event.getAnimationId(), entity.getId());
+
+            // Дополнительная логика обработки завершения анимации может быть добавлена здесь
         });
 
         // Регистрируем обработчик начала анимации
-        EventSystem.registerListener(AnimationStartedEvent.class, event -> {
-            if (event.getEntity().getId() == entity.getId()) {
-                LOGGER.info("MobSpawnEventHandler: Animation started: {} for entity {}",
-                        event.getAnimationId(), entity.getId());
+        EventSystem.subscribe(entity, entity, AnimationStartedEvent.class, event -> {
+            LOGGER.info("MobSpawnEventHandler: Animation started: {} for entity {}",
+                    event.getAnimationId(), entity.getId());
 
-                // Дополнительная логика обработки начала анимации может быть добавлена здесь
-            }
+            // Дополнительная логика обработки начала анимации может быть добавлена здесь
         });
 
         LOGGER.info("MobSpawnEventHandler: Event handlers registered for entity {}", entity.getId());
     }
 
-    /**
-     * Загружает полное дерево поведения по ID с сервера
-     */
-    private static BehaviorTree loadBehaviorTreeFromServer(String treeId, ServerLevel level) {
-        try {
-            // Путь к файлу дерева поведения
-            Path behaviorFile = level.getServer().getWorldPath(LevelResource.ROOT)
-                    .resolve("custommobsforge").resolve("behaviors").resolve(treeId + ".json");
-
-            LOGGER.info("!!! MobSpawnEventHandler: Trying to load behavior tree from path: {}", behaviorFile);
-
-            if (Files.exists(behaviorFile)) {
-                // Читаем содержимое файла
-                String json = new String(Files.readAllBytes(behaviorFile), StandardCharsets.UTF_8);
-
-                LOGGER.info("!!! MobSpawnEventHandler: Loaded behavior tree JSON, length: {} bytes", json.length());
-                LOGGER.info("!!! BehaviorTree JSON content (first 200 chars): {}",
-                        json.substring(0, Math.min(200, json.length())));
-
-                try {
-                    // Десериализуем дерево поведения
-                    BehaviorTree tree = GSON.fromJson(json, BehaviorTree.class);
-
-                    // Проверяем результат десериализации
-                    if (tree == null) {
-                        LOGGER.error("!!! MobSpawnEventHandler: Deserialization resulted in NULL tree!");
-                        return null;
-                    }
-
-                    LOGGER.info("!!! MobSpawnEventHandler: Successfully deserialized tree: ID={}, Name={}",
-                            tree.getId(), tree.getName());
-
-                    if (tree.getNodes() == null) {
-                        LOGGER.warn("!!! MobSpawnEventHandler: WARNING - Deserialized tree has NULL nodes list!");
-                    } else if (tree.getNodes().isEmpty()) {
-                        LOGGER.warn("!!! MobSpawnEventHandler: WARNING - Deserialized tree has EMPTY nodes list!");
-                    } else {
-                        LOGGER.info("!!! MobSpawnEventHandler: Deserialized tree has {} nodes", tree.getNodes().size());
-                    }
-
-                    return tree;
-                } catch (Exception e) {
-                    LOGGER.error("!!! ERROR deserializing behavior tree: {}", e.getMessage());
-                    e.printStackTrace();
-
-                    // Можно добавить альтернативный способ загрузки, если текущий не работает...
-                    return null;
-                }
-            } else {
-                LOGGER.warn("!!! MobSpawnEventHandler: Behavior tree file not found: {}", behaviorFile);
-
-                // Можно добавить поиск файла в других местах, если нужно...
-                return null;
-            }
-        } catch (Exception e) {
-            LOGGER.error("!!! Error loading behavior tree: {}", e.getMessage());
-            e.printStackTrace();
-            return null;
-        }
-    }
-
     @SubscribeEvent
     public static void onLivingHurt(LivingHurtEvent event) {
         // Обрабатываем события получения урона для кастомных мобов
@@ -301,7 +168,14 @@ public class MobSpawnEventHandler {
             }
 
             // Вызываем обработчик урона в OnDamageNodeExecutor
-            OnDamageNodeExecutor.handleDamageEvent(entity, event.getAmount(), isPlayerSource);
+            BehaviorTreeExecutor executor = BehaviorTreeScheduler.get(entity);
+            if (executor != null) {
+                executor.onDamaged();
+                OnDamageNodeExecutor.handleDamageEvent(executor, event.getAmount(), isPlayerSource);
+            }
+
+            // Урон по члену отряда поднимает тревогу во всём отряде
+            SquadManager.onMemberHurt(entity, source instanceof LivingEntity ? (LivingEntity) source : null);
         }
     }
 
@@ -20,6 +20,14 @@ public class ServerEventHandler {
     public static void onRequestMobList(RequestMobListEvent event) {
         ServerPlayer player = event.getPlayer();
         if (player != null) {
+            // Список для редактора содержит полные данные мобов (с деревьями поведения) -
+            // только для игроков с правами редактора, как и сохранение
+            if (!player.hasPermissions(2)) {
+                System.out.println("ServerEventHandler: Player " + player.getName().getString() +
+                        " has no editor permissions, mob list not sent");
+                return;
+            }
+
             ServerLevel level = (ServerLevel) player.level();
 
             // Получаем список всех доступных мобов
@@ -5,6 +5,7 @@ import com.custommobsforge.custommobsforge.common.event.SaveBehaviorTreeEvent;
 import com.custommobsforge.custommobsforge.common.data.MobData;
 import com.custommobsforge.custommobsforge.common.data.BehaviorTree;
 import com.custommobsforge.custommobsforge.common.config.MobConfigManager;
+import com.custommobsforge.custommobsforge.server.ai.BehaviorTreeRepository;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.level.storage.LevelResource;
@@ -107,6 +108,9 @@ public class ServerSaveHandler {
             String json = GSON.toJson(tree);
             Files.write(filePath, json.getBytes(StandardCharsets.UTF_8));
 
+            // Сбрасываем скомпилированную версию, чтобы новые мобы получили свежее дерево
+            BehaviorTreeRepository.invalidate(tree.getId());
+
             // Подробное логирование о сохранении файла
             System.out.println("Behavior tree saved to file: " + filePath.toString() +
                     " (Size: " + json.length() + " bytes)" +
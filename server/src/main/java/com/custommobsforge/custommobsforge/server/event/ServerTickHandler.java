@@ -1,30 +1,45 @@
 package com.custommobsforge.custommobsforge.server.event;
 
 import com.custommobsforge.custommobsforge.common.entity.CustomMobEntity;
+import com.custommobsforge.custommobsforge.common.event.system.EventSystem;
+import com.custommobsforge.custommobsforge.common.network.EntityUpdateOutbox;
+import com.custommobsforge.custommobsforge.server.ai.BehaviorTreeScheduler;
+import com.custommobsforge.custommobsforge.server.ai.debug.NodeDebugSubscriptions;
+import com.custommobsforge.custommobsforge.server.ai.path.PathRequestService;
+import com.custommobsforge.custommobsforge.server.timer.TickTimers;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.Entity;
 import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 public class ServerTickHandler {
-    // Кэш для оптимизации поведения мобов
-    private static final Map<Integer, Long> lastBehaviorUpdate = new HashMap<>();
-    private static final int UPDATE_INTERVAL = 10; // Обновление каждые 10 тиков
+    private static final int CLEANUP_INTERVAL = 600; // Поиск утечек раз в 30 секунд
+    private static int tickCounter = 0;
 
     @SubscribeEvent
     public static void onServerTick(TickEvent.ServerTickEvent event) {
         if (event.phase == TickEvent.Phase.END) {
-            // Пропускаем обработку, если это не фаза END
+            // В конце тика доставляем события, накопленные за тик
+            EventSystem.drainDeferred();
+            // Затем отправляем клиентам обновления сущностей за тик - по пакету на игрока
+            EntityUpdateOutbox.flush();
+            // Отладочные данные узлов - подписчикам, не чаще раза в несколько тиков
+            NodeDebugSubscriptions.tick(event.getServer());
             return;
         }
 
-        // Оптимизируем обработку поведения мобов
-        updateMobBehaviors();
+        // Сначала срабатывают наступившие таймеры (в том числе пробуждения деревьев)
+        TickTimers.advance(event.getServer().overworld().getGameTime());
+
+        // Отложенные с прошлого тика поиски пути обслуживаются раньше новых
+        PathRequestService.tick();
+
+        // Деревья поведения всех мобов выполняются планировщиком в пределах бюджета тика
+        BehaviorTreeScheduler.tick();
+
+        if (++tickCounter % CLEANUP_INTERVAL == 0) {
+            EntityCleanupService.periodicCleanup();
+        }
     }
 
     @SubscribeEvent
@@ -39,21 +54,4 @@ public class ServerTickHandler {
         // Обрабатываем события для всех кастомных мобов в мире
         // Это можно использовать для дополнительных системных эффектов
     }
-
-    private static void updateMobBehaviors() {
-        // Очищаем устаревшие записи
-        List<Integer> entitiesToRemove = new ArrayList<>();
-        long currentTime = System.currentTimeMillis();
-
-        for (Map.Entry<Integer, Long> entry : lastBehaviorUpdate.entrySet()) {
-            // Если запись старше 5 минут, удаляем (моб, вероятно, больше не существует)
-            if (currentTime - entry.getValue() > 300000) {
-                entitiesToRemove.add(entry.getKey());
-            }
-        }
-
-        for (Integer entityId : entitiesToRemove) {
-            lastBehaviorUpdate.remove(entityId);
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.custommobsforge.custommobsforge.server.timer;
+
+/**
+ * Общий сервис таймеров сервера в игровых тиках.
+ * Таймеры узлов, задержки и пробуждения исполнителей планируются здесь, а кулдауны хранятся
+ * как тик готовности и сравниваются с {@link #now()}. Колесо продвигается из ServerTickHandler
+ * в начале тика сервера; используется только из серверного потока.
+ */
+public final class TickTimers {
+    /** Длительность игрового тика в миллисекундах */
+    public static final long MILLIS_PER_TICK = 50;
+
+    private static final TimingWheel WHEEL = new TimingWheel(0);
+
+    private TickTimers() {
+    }
+
+    /**
+     * Текущий игровой тик
+     */
+    public static long now() {
+        return WHEEL.now();
+    }
+
+    /**
+     * Планирует действие через указанное число тиков
+     * @return Задача, которую можно отменить
+     */
+    public static TimerTask schedule(long delayTicks, Runnable action) {
+        return WHEEL.schedule(delayTicks, action);
+    }
+
+    /**
+     * Планирует действие на указанный игровой тик
+     * @return Задача, которую можно отменить
+     */
+    public static TimerTask scheduleAt(long tick, Runnable action) {
+        return WHEEL.scheduleAt(tick, action);
+    }
+
+    /**
+     * Наступил ли тик (для кулдаунов и сроков, хранящихся в состоянии узлов)
+     */
+    public static boolean isReached(long tick) {
+        return WHEEL.now() >= tick;
+    }
+
+    /**
+     * Переводит миллисекунды из настроек узлов в тики с округлением вверх
+     */
+    public static long ticksFromMillis(long millis) {
+        return millis <= 0 ? 0 : (millis + MILLIS_PER_TICK - 1) / MILLIS_PER_TICK;
+    }
+
+    /**
+     * Продвигает время до текущего игрового тика и выполняет наступившие задачи
+     */
+    public static void advance(long gameTime) {
+        WHEEL.advance(gameTime);
+    }
+
+    /**
+     * Выставляет текущий тик по игровому времени мира при запуске сервера: сроки, которые
+     * мобы запишут при загрузке, отсчитываются от настоящего тика, а не от 0
+     */
+    public static void start(long gameTime) {
+        WHEEL.reset(gameTime);
+    }
+
+    /**
+     * Количество ожидающих задач
+     */
+    public static int pending() {
+        return WHEEL.size();
+    }
+
+    /**
+     * Снимает все задачи при остановке сервера
+     */
+    public static void clear() {
+        WHEEL.clear();
+    }
+}
@@ -0,0 +1,71 @@
+package com.custommobsforge.custommobsforge.server.timer;
+
+/**
+ * Запланированное действие колеса таймеров.
+ * Узел интрузивного двусвязного списка слота, поэтому отмена - O(1) без поиска.
+ */
+public final class TimerTask {
+    private final TimingWheel wheel;
+    final Runnable action;
+    long deadline;
+
+    // Слот, в котором лежит задача (null - не запланирована)
+    TimerTask[] slotOwner;
+    int slotIndex;
+    TimerTask prev;
+    TimerTask next;
+
+    private boolean cancelled;
+
+    TimerTask(TimingWheel wheel, Runnable action, long deadline) {
+        this.wheel = wheel;
+        this.action = action;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Игровой тик срабатывания
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Ждёт ли задача срабатывания
+     */
+    public boolean isPending() {
+        return slotOwner != null;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Отменяет задачу, если она ещё не сработала
+     * @return true, если задача была отменена этим вызовом
+     */
+    public boolean cancel() {
+        if (slotOwner == null) {
+            return false;
+        }
+        cancelled = true;
+        unlink();
+        wheel.onCancelled();
+        return true;
+    }
+
+    void unlink() {
+        if (prev != null) {
+            prev.next = next;
+        } else {
+            slotOwner[slotIndex] = next;
+        }
+        if (next != null) {
+            next.prev = prev;
+        }
+        prev = null;
+        next = null;
+        slotOwner = null;
+    }
+}
@@ -0,0 +1,179 @@
+package com.custommobsforge.custommobsforge.server.timer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Иерархическое колесо таймеров по игровым тикам.
+ * Четыре уровня по 64 слота (1, 64, 4096 и 262144 тиков на слот) и общий список для более
+ * далёких сроков. Планирование и отмена - O(1); за тик просматривается один слот нижнего уровня,
+ * а задачи верхних уровней спускаются ниже, только когда до них доходит очередь.
+ */
+public final class TimingWheel {
+    private static final Logger LOGGER = LogManager.getLogger("CustomMobsForge");
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final TimerTask[][] levels = new TimerTask[LEVELS][SLOTS];
+    // Сроки дальше диапазона всех уровней
+    private final TimerTask[] overflow = new TimerTask[1];
+
+    private long now;
+    private int size;
+
+    public TimingWheel(long startTick) {
+        this.now = startTick;
+    }
+
+    /**
+     * Последний обработанный тик
+     */
+    public long now() {
+        return now;
+    }
+
+    /**
+     * Количество ожидающих задач
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Планирует действие через указанное число тиков (минимум 1)
+     */
+    public TimerTask schedule(long delayTicks, Runnable action) {
+        return scheduleAt(now + Math.max(1, delayTicks), action);
+    }
+
+    /**
+     * Планирует действие на указанный тик; прошедшие тики переносятся на следующий
+     */
+    public TimerTask scheduleAt(long tick, Runnable action) {
+        TimerTask task = new TimerTask(this, action, Math.max(tick, now + 1));
+        insert(task);
+        return task;
+    }
+
+    /**
+     * Продвигает колесо до указанного тика, выполняя наступившие задачи
+     */
+    public void advance(long targetTick) {
+        if (size == 0) {
+            // Пустое колесо нечего прокручивать
+            now = targetTick;
+            return;
+        }
+
+        while (now < targetTick) {
+            now++;
+
+            // Сначала спускаем задачи с верхних уровней, чьи слоты начались в этом тике
+            if ((now & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+                cascade(overflow, 0);
+            }
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                if ((now & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(levels[level], (int) ((now >>> (SLOT_BITS * level)) & SLOT_MASK));
+                }
+            }
+
+            fire(levels[0], (int) (now & SLOT_MASK));
+
+            if (size == 0) {
+                now = targetTick;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Снимает все задачи без выполнения
+     */
+    public void clear() {
+        reset(0);
+    }
+
+    /**
+     * Снимает все задачи без выполнения и переставляет колесо на указанный тик
+     */
+    public void reset(long startTick) {
+        for (TimerTask[] slots : levels) {
+            for (int i = 0; i < SLOTS; i++) {
+                drain(slots, i);
+            }
+        }
+        drain(overflow, 0);
+        size = 0;
+        now = startTick;
+    }
+
+    void onCancelled() {
+        size--;
+    }
+
+    private void insert(TimerTask task) {
+        long deadline = task.deadline;
+        TimerTask[] slots = overflow;
+        int index = 0;
+
+        // Самый нижний уровень, у которого срок попадает в текущий оборот следующего уровня
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * (level + 1);
+            if ((deadline >>> shift) == (now >>> shift)) {
+                slots = levels[level];
+                index = (int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+                break;
+            }
+        }
+
+        TimerTask head = slots[index];
+        task.next = head;
+        task.prev = null;
+        if (head != null) {
+            head.prev = task;
+        }
+        slots[index] = task;
+        task.slotOwner = slots;
+        task.slotIndex = index;
+        size++;
+    }
+
+    private void cascade(TimerTask[] slots, int index) {
+        // Список снимается целиком: задача из общего списка может снова в него попасть
+        TimerTask task = slots[index];
+        slots[index] = null;
+        while (task != null) {
+            TimerTask next = task.next;
+            task.prev = null;
+            task.next = null;
+            task.slotOwner = null;
+            size--;
+            insert(task);
+            task = next;
+        }
+    }
+
+    private void fire(TimerTask[] slots, int index) {
+        TimerTask task;
+        while ((task = slots[index]) != null) {
+            task.unlink();
+            size--;
+            try {
+                task.action.run();
+            } catch (Exception e) {
+                LOGGER.error("TimingWheel: Error running timer task due at tick {}: {}", task.deadline, e.getMessage(), e);
+            }
+        }
+    }
+
+    private static void drain(TimerTask[] slots, int index) {
+        TimerTask task;
+        while ((task = slots[index]) != null) {
+            task.unlink();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.custommobsforge.custommobsforge.server.ai;
+
+import com.custommobsforge.custommobsforge.common.ai.AiLodTier;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Частота шагов дерева поведения по уровню детализации ИИ
+ */
+class LodStepGateTest {
+    private static final int INTERVAL = 10;
+
+    @Test
+    void mobSpawnedInReducedRangeStepsImmediately() {
+        LodStepGate gate = new LodStepGate();
+
+        assertTrue(gate.tryStep(AiLodTier.REDUCED, INTERVAL, 0, false));
+    }
+
+    @Test
+    void reducedTierStepsOncePerInterval() {
+        LodStepGate gate = new LodStepGate();
+        int steps = 0;
+        for (long tick = 1000; tick < 1100; tick++) {
+            if (gate.tryStep(AiLodTier.REDUCED, INTERVAL, tick, false)) {
+                assertEquals(0, (tick - 1000) % INTERVAL, "step at tick " + tick);
+                steps++;
+            }
+        }
+        assertEquals(10, steps);
+    }
+
+    @Test
+    void nextReducedStepTickFollowsLastStep() {
+        LodStepGate gate = new LodStepGate();
+        assertTrue(gate.nextReducedStepTick(INTERVAL) <= 0);
+
+        gate.tryStep(AiLodTier.FULL, INTERVAL, 500, false);
+        assertEquals(510, gate.nextReducedStepTick(INTERVAL));
+        assertFalse(gate.tryStep(AiLodTier.REDUCED, INTERVAL, 509, false));
+        assertTrue(gate.tryStep(AiLodTier.REDUCED, INTERVAL, 510, false));
+    }
+
+    @Test
+    void wokenReducedStepSkipsInterval() {
+        LodStepGate gate = new LodStepGate();
+        gate.tryStep(AiLodTier.REDUCED, INTERVAL, 500, false);
+
+        assertFalse(gate.tryStep(AiLodTier.REDUCED, INTERVAL, 503, false));
+        assertTrue(gate.tryStep(AiLodTier.REDUCED, INTERVAL, 503, true));
+        // Интервал отсчитывается от шага по пробуждению
+        assertEquals(513, gate.nextReducedStepTick(INTERVAL));
+        // Пробуждение не запускает дерево на уровнях без него
+        assertFalse(gate.tryStep(AiLodTier.FROZEN, INTERVAL, 504, true));
+    }
+
+    @Test
+    void fullTierStepsEveryTick() {
+        LodStepGate gate = new LodStepGate();
+        for (long tick = 0; tick < 5; tick++) {
+            assertTrue(gate.tryStep(AiLodTier.FULL, INTERVAL, tick, false));
+        }
+    }
+
+    @Test
+    void pausedTiersNeverStep() {
+        LodStepGate gate = new LodStepGate();
+
+        assertFalse(gate.tryStep(AiLodTier.MOVEMENT_ONLY, INTERVAL, 0, false));
+        assertFalse(gate.tryStep(AiLodTier.FROZEN, INTERVAL, 0, false));
+        // Пропуск на паузе не считается шагом
+        assertTrue(gate.tryStep(AiLodTier.REDUCED, INTERVAL, 1, false));
+    }
+}